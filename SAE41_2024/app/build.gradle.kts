@@ -25,16 +25,89 @@ android {
             )
         }
     }
+    sourceSets {
+        // levels.pack et solutions.pack, générés par les tâches packLevels et solveLevels à partir de src/main/levels
+        getByName("main").assets.srcDir(layout.buildDirectory.dir("generated/levelPack").get().asFile)
+    }
+    androidResources {
+        // Le paquet doit rester non compressé pour être projeté en mémoire
+        noCompress.add("pack")
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+    testOptions {
+        // GameLogic utilise android.graphics.Color dès son chargement : les tests JVM
+        // s'appuient sur les valeurs par défaut de la version "mockable" d'android.jar.
+        unitTests.isReturnDefaultValues = true
+        unitTests.all {
+            it.systemProperty("stress.ops", project.findProperty("stress.ops") ?: "200000")
+            // Banc d'essai des solveurs, lent : seulement sur demande (-Pbenchmark.levels=src/main/levels)
+            project.findProperty("benchmark.levels")?.let { levels -> it.systemProperty("benchmark.levels", levels) }
+        }
+    }
+}
+
+// Compile seuls les outils d'empaquetage et les solveurs (Java standard uniquement), puis les exécute sur les niveaux XML
+val compileLevelPackTool by tasks.registering(JavaCompile::class) {
+    source = fileTree("src/main/java") {
+        include("com/example/sae41_2024/LevelPackWriter.java")
+        include("com/example/sae41_2024/LevelFingerprint.java")
+        include("com/example/sae41_2024/FlowPoint.java")
+        include("com/example/sae41_2024/SolutionPackWriter.java")
+        include("com/example/sae41_2024/LevelHash.java")
+        include("com/example/sae41_2024/BacktrackingSolver.java")
+        include("com/example/sae41_2024/PuzzleSolver.java")
+        include("com/example/sae41_2024/SatPuzzleSolver.java")
+        include("com/example/sae41_2024/CdclSolver.java")
+        include("com/example/sae41_2024/BoardTopology.java")
+    }
+    classpath = files()
+    destinationDirectory.set(layout.buildDirectory.dir("levelPackTool"))
+    sourceCompatibility = "1.8"
+    targetCompatibility = "1.8"
+    // Sources accentuées : ne pas dépendre de l'encodage par défaut de la machine
+    options.encoding = "UTF-8"
+}
+
+// Classes de l'outil : entrée des tâches qui l'exécutent, un solveur modifié refait donc le paquet
+val levelPackToolClasses = files(compileLevelPackTool)
+
+val packLevels by tasks.registering(JavaExec::class) {
+    val levelsDir = file("src/main/levels")
+    val packFile = layout.buildDirectory.file("generated/levelPack/levels.pack")
+    classpath = levelPackToolClasses
+    mainClass.set("com.example.sae41_2024.LevelPackWriter")
+    inputs.dir(levelsDir)
+    inputs.files(levelPackToolClasses).withPropertyName("toolClasses")
+    outputs.file(packFile)
+    args(levelsDir.absolutePath, packFile.get().asFile.absolutePath)
+}
+
+// Résout chaque niveau : la compilation échoue si l'un d'eux n'a pas de solution, ou en a
+// plusieurs sans le déclarer dans son XML (solutions="plusieurs")
+val solveLevels by tasks.registering(JavaExec::class) {
+    val levelsDir = file("src/main/levels")
+    val solutionsFile = layout.buildDirectory.file("generated/levelPack/solutions.pack")
+    classpath = levelPackToolClasses
+    mainClass.set("com.example.sae41_2024.SolutionPackWriter")
+    inputs.dir(levelsDir)
+    inputs.files(levelPackToolClasses).withPropertyName("solverClasses")
+    outputs.file(solutionsFile)
+    args(levelsDir.absolutePath, solutionsFile.get().asFile.absolutePath)
+}
+
+tasks.named("preBuild") {
+    dependsOn(packLevels, solveLevels)
 }
 
 dependencies {
 
     implementation(libs.material)
     testImplementation(libs.junit)
+    // Parseur XML pour les tests JVM : celui d'Android n'existe que sur l'appareil
+    testImplementation(libs.kxml2)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
     implementation(kotlin("script-runtime"))
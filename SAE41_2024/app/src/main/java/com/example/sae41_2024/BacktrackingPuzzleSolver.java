@@ -0,0 +1,47 @@
+package com.example.sae41_2024;
+
+/**
+ * {@link PuzzleSolver} s'appuyant sur le {@link BacktrackingSolver}.
+ */
+public class BacktrackingPuzzleSolver implements PuzzleSolver {
+    private final long nodeLimit;
+    private volatile BacktrackingSolver current;
+    private volatile boolean cancelled;
+    private boolean aborted;
+
+    /**
+     * @param nodeLimit Le nombre maximal de nœuds explorés par recherche
+     */
+    public BacktrackingPuzzleSolver(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    @Override
+    public String getName() {
+        return "backtracking";
+    }
+
+    @Override
+    public int[][] solve(BoardTopology topology, int[] ends) {
+        BacktrackingSolver solver = new BacktrackingSolver(topology, ends);
+        solver.setNodeLimit(nodeLimit);
+        current = solver;
+        if (cancelled) solver.cancel();
+        int[][] solution = solver.solve();
+        aborted = solver.isAborted();
+        current = null;
+        return solution;
+    }
+
+    @Override
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        BacktrackingSolver solver = current;
+        if (solver != null) solver.cancel();
+    }
+}
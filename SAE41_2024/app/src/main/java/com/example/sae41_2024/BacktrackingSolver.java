@@ -0,0 +1,475 @@
+package com.example.sae41_2024;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solveur par retour arrière travaillant sur des tableaux plats de cases (indice = y * taille + x),
+ * dont les voisins viennent de la table d'une {@link BoardTopology}.
+ *
+ * Chaque couleur part de son premier point et avance case par case vers le second.
+ * À chaque étape on prolonge la couleur qui a le moins de coups possibles (les coups forcés
+ * passent donc en premier) et on élague dès qu'une case libre n'a plus deux voisins ouverts,
+ * qu'une paire est coupée ou qu'une zone libre n'est plus accessible à aucune paire.
+ *
+ * Par défaut, seules les solutions où aucun chemin ne longe une de ses propres cases sont
+ * explorées (« chemins fins ») : c'est ce qui rend la recherche rapide, et un niveau bien construit
+ * en possède une. {@link #solve()} retente sans cette règle si aucune solution fine n'existe.
+ */
+public class BacktrackingSolver {
+    private final int cellCount;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int pairCount;
+    private final int[] ends;
+
+    private final int[] owner;
+    private final int[] head;
+    private final boolean[] done;
+    private final int[][] pathCells;
+    private final int[] pathLength;
+    private final int[] region;
+    private final int[] queue;
+    private int freeCount;
+    private int doneCount;
+
+    private int[][] firstSolution;
+    private int solutionCount;
+    private int solutionLimit;
+    private long nodeCount;
+    private long forcedCount;
+    private long branchCount;
+    private int branchDepth;
+    private int maxBranchDepth;
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean thinPaths = true;
+    private volatile boolean cancelled;
+
+    /**
+     * @param gridSize La taille de la grille (carrée)
+     * @param ends Les deux cases de chaque couleur : ends[2c] et ends[2c+1]
+     */
+    public BacktrackingSolver(int gridSize, int[] ends) {
+        this(BoardTopology.square(gridSize), ends);
+    }
+
+    /**
+     * @param topology Le voisinage des cases
+     * @param ends Les deux cases de chaque couleur : ends[2c] et ends[2c+1]
+     */
+    public BacktrackingSolver(BoardTopology topology, int[] ends) {
+        this.cellCount = topology.getCellCount();
+        this.offsets = topology.getOffsets();
+        this.neighbors = topology.getNeighbors();
+        this.pairCount = ends.length / 2;
+        this.ends = ends.clone();
+        this.owner = new int[cellCount];
+        this.head = new int[pairCount];
+        this.done = new boolean[pairCount];
+        this.pathCells = new int[pairCount][cellCount];
+        this.pathLength = new int[pairCount];
+        this.region = new int[cellCount];
+        this.queue = new int[cellCount];
+        reset();
+    }
+
+    /**
+     * Construit un solveur pour les points d'un niveau.
+     * @param gridSize La taille de la grille
+     * @param points Les points du niveau, deux par indice de couleur
+     * @return Le solveur prêt à l'emploi
+     */
+    public static BacktrackingSolver forLevel(int gridSize, List<FlowPoint> points) {
+        return new BacktrackingSolver(gridSize, toEnds(gridSize, points));
+    }
+
+    /**
+     * Construit un solveur pour les points d'un niveau de forme quelconque.
+     * @param topology Le voisinage des cases du niveau
+     * @param points Les points du niveau, deux par indice de couleur
+     * @return Le solveur prêt à l'emploi
+     */
+    public static BacktrackingSolver forLevel(BoardTopology topology, List<FlowPoint> points) {
+        return new BacktrackingSolver(topology, toEnds(topology.getGridSize(), points));
+    }
+
+    /**
+     * Convertit les points d'un niveau en tableau de cases : ends[2c] et ends[2c+1].
+     * @param gridSize La taille de la grille
+     * @param points Les points du niveau
+     * @return Les cases des extrémités, -1 pour un point manquant
+     */
+    public static int[] toEnds(int gridSize, List<FlowPoint> points) {
+        int pairs = 0;
+        for (FlowPoint point : points) pairs = Math.max(pairs, point.getColorIndex() + 1);
+        int[] ends = new int[pairs * 2];
+        Arrays.fill(ends, -1);
+        for (FlowPoint point : points) {
+            int slot = point.getColorIndex() * 2;
+            if (ends[slot] != -1) slot++;
+            ends[slot] = point.getY() * gridSize + point.getX();
+        }
+        return ends;
+    }
+
+    /**
+     * Impose un chemin déjà connu pour une couleur (ex : tracé du joueur).
+     * À appeler avant {@link #solve()} ou {@link #countSolutions(int)}.
+     * @param color L'indice de la couleur
+     * @param cells Les cases du chemin, d'un point à l'autre
+     * @return false si le chemin entre en conflit avec la grille
+     */
+    public boolean fixPath(int color, int[] cells) {
+        for (int cell : cells) {
+            if (owner[cell] != -1 && owner[cell] != color) return false;
+        }
+        for (int cell : cells) {
+            if (owner[cell] == -1) freeCount--;
+            owner[cell] = color;
+        }
+        System.arraycopy(cells, 0, pathCells[color], 0, cells.length);
+        pathLength[color] = cells.length;
+        head[color] = cells[cells.length - 1];
+        if (!done[color]) {
+            done[color] = true;
+            doneCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Limite le nombre de nœuds explorés (la recherche échoue au-delà).
+     * @param nodeLimit Le nombre maximal de nœuds
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Interrompt une recherche en cours depuis un autre thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true si la dernière recherche a été interrompue ou a dépassé la limite de nœuds
+     */
+    public boolean isAborted() {
+        return cancelled || nodeCount >= nodeLimit;
+    }
+
+    /**
+     * @return Le nombre de nœuds explorés par la dernière recherche
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Le nombre de coups forcés (une seule case possible) joués par la dernière recherche
+     */
+    public long getForcedCount() {
+        return forcedCount;
+    }
+
+    /**
+     * @return Le nombre de points de choix (plusieurs cases possibles) de la dernière recherche
+     */
+    public long getBranchCount() {
+        return branchCount;
+    }
+
+    /**
+     * @return Le plus grand nombre de choix empilés lors de la dernière recherche
+     */
+    public int getMaxBranchDepth() {
+        return maxBranchDepth;
+    }
+
+    /**
+     * Autorise ou non les chemins qui longent leurs propres cases (détours en « blocs »).
+     * @param thinPaths true pour n'explorer que les chemins fins (par défaut)
+     */
+    public void setThinPaths(boolean thinPaths) {
+        this.thinPaths = thinPaths;
+    }
+
+    /**
+     * Cherche une solution, d'abord avec des chemins fins puis sans restriction.
+     * @return Les chemins par couleur (cases d'un point à l'autre), ou null si aucune
+     */
+    public int[][] solve() {
+        boolean thin = thinPaths;
+        countSolutions(1);
+        if (firstSolution == null && thin && !isAborted()) {
+            thinPaths = false;
+            countSolutions(1);
+            thinPaths = thin;
+        }
+        return firstSolution;
+    }
+
+    /**
+     * Compte les solutions jusqu'à une limite (2 suffit pour tester l'unicité).
+     * @param limit Le nombre de solutions au-delà duquel on s'arrête
+     * @return Le nombre de solutions trouvées (au plus limit)
+     */
+    public int countSolutions(int limit) {
+        firstSolution = null;
+        solutionCount = 0;
+        solutionLimit = limit;
+        nodeCount = 0;
+        forcedCount = 0;
+        branchCount = 0;
+        branchDepth = 0;
+        maxBranchDepth = 0;
+        for (int c = 0; c < pairCount; c++) {
+            if (ends[2 * c] < 0 || ends[2 * c + 1] < 0) return 0;
+        }
+        if (isViable()) search();
+        return solutionCount;
+    }
+
+    /**
+     * @return La première solution trouvée par la dernière recherche, ou null
+     */
+    public int[][] getSolution() {
+        return firstSolution;
+    }
+
+    private void reset() {
+        Arrays.fill(owner, -1);
+        freeCount = cellCount;
+        doneCount = 0;
+        for (int c = 0; c < pairCount; c++) {
+            int a = ends[2 * c];
+            int b = ends[2 * c + 1];
+            if (a < 0 || b < 0) continue;
+            // On part de l'extrémité la plus contrainte
+            if (freeNeighbors(b) < freeNeighbors(a)) {
+                ends[2 * c] = b;
+                ends[2 * c + 1] = a;
+                b = a;
+                a = ends[2 * c];
+            }
+            owner[a] = c;
+            owner[b] = c;
+            freeCount -= 2;
+            head[c] = a;
+            pathCells[c][0] = a;
+            pathLength[c] = 1;
+        }
+    }
+
+    private int freeNeighbors(int cell) {
+        int free = 0;
+        for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+            if (!isEnd(neighbors[i])) free++;
+        }
+        return free;
+    }
+
+    private boolean isEnd(int cell) {
+        for (int end : ends) {
+            if (end == cell) return true;
+        }
+        return false;
+    }
+
+    private boolean search() {
+        if (cancelled || ++nodeCount >= nodeLimit) return true;
+
+        if (doneCount == pairCount) {
+            if (freeCount != 0) return false;
+            if (solutionCount++ == 0) {
+                firstSolution = new int[pairCount][];
+                for (int c = 0; c < pairCount; c++) {
+                    firstSolution[c] = Arrays.copyOf(pathCells[c], pathLength[c]);
+                }
+            }
+            return solutionCount >= solutionLimit;
+        }
+
+        // Couleur la plus contrainte
+        int best = -1;
+        int bestMoves = Integer.MAX_VALUE;
+        for (int c = 0; c < pairCount; c++) {
+            if (done[c]) continue;
+            int moves = countMoves(c);
+            if (moves == 0) return false;
+            if (moves < bestMoves) {
+                best = c;
+                bestMoves = moves;
+                if (moves == 1) break;
+            }
+        }
+
+        if (bestMoves == 1) {
+            forcedCount++;
+        } else {
+            branchCount++;
+            maxBranchDepth = Math.max(maxBranchDepth, ++branchDepth);
+        }
+
+        int from = head[best];
+        int target = ends[2 * best + 1];
+        boolean stop = false;
+        for (int i = offsets[from]; i < offsets[from + 1] && !stop; i++) {
+            int next = neighbors[i];
+            if (!isLegalMove(best, from, next)) continue;
+            boolean finishing = next == target;
+
+            // Applique le coup
+            pathCells[best][pathLength[best]++] = next;
+            head[best] = next;
+            if (finishing) {
+                done[best] = true;
+                doneCount++;
+            } else {
+                owner[next] = best;
+                freeCount--;
+            }
+
+            stop = isViableAfterMove(from, next) && search();
+
+            // Annule le coup
+            if (finishing) {
+                done[best] = false;
+                doneCount--;
+            } else {
+                owner[next] = -1;
+                freeCount++;
+            }
+            head[best] = from;
+            pathLength[best]--;
+        }
+        if (bestMoves > 1) branchDepth--;
+        return stop;
+    }
+
+    private int countMoves(int color) {
+        int from = head[color];
+        int moves = 0;
+        for (int i = offsets[from]; i < offsets[from + 1]; i++) {
+            if (isLegalMove(color, from, neighbors[i])) moves++;
+        }
+        return moves;
+    }
+
+    /**
+     * Un coup est légal s'il atteint le point d'arrivée ou s'il entre dans une case libre.
+     * En mode chemins fins, la case ne doit pas longer le chemin de la même couleur
+     * et une tête voisine de son arrivée doit la rejoindre directement.
+     */
+    private boolean isLegalMove(int color, int from, int next) {
+        int target = ends[2 * color + 1];
+        if (next == target) return true;
+        if (owner[next] != -1) return false;
+        if (!thinPaths) return true;
+        for (int i = offsets[from]; i < offsets[from + 1]; i++) {
+            if (neighbors[i] == target) return false;
+        }
+        for (int i = offsets[next]; i < offsets[next + 1]; i++) {
+            int around = neighbors[i];
+            if (around != from && around != target && owner[around] == color) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Une case est ouverte si un chemin peut encore y entrer ou en sortir :
+     * case libre, tête d'une couleur non terminée ou point d'arrivée non atteint.
+     */
+    private boolean isOpen(int cell) {
+        int color = owner[cell];
+        if (color == -1) return true;
+        return !done[color] && (head[color] == cell || ends[2 * color + 1] == cell);
+    }
+
+    /**
+     * Après un coup, seules les cases libres autour de l'ancienne tête et du point atteint
+     * peuvent avoir perdu un voisin ouvert.
+     */
+    private boolean isViableAfterMove(int from, int to) {
+        for (int i = offsets[from]; i < offsets[from + 1]; i++) {
+            int a = neighbors[i];
+            if (owner[a] == -1 && openNeighbors(a) < 2) return false;
+        }
+        for (int i = offsets[to]; i < offsets[to + 1]; i++) {
+            int b = neighbors[i];
+            if (owner[b] == -1 && openNeighbors(b) < 2) return false;
+        }
+        return isViable();
+    }
+
+    private int openNeighbors(int cell) {
+        int open = 0;
+        for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+            if (isOpen(neighbors[i])) open++;
+        }
+        return open;
+    }
+
+    /**
+     * Vérifie la connexité : chaque paire non terminée doit pouvoir se rejoindre
+     * et chaque zone libre doit être accessible par au moins une paire.
+     */
+    private boolean isViable() {
+        Arrays.fill(region, -1);
+        int regionCount = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (owner[cell] != -1 || region[cell] != -1) continue;
+            int headIndex = 0, tail = 0;
+            queue[tail++] = cell;
+            region[cell] = regionCount;
+            while (headIndex < tail) {
+                int current = queue[headIndex++];
+                for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                    int next = neighbors[i];
+                    if (owner[next] == -1 && region[next] == -1) {
+                        region[next] = regionCount;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            regionCount++;
+        }
+
+        // queue sert ici de compteur de paires capables d'atteindre chaque zone
+        Arrays.fill(queue, 0, regionCount, 0);
+        for (int c = 0; c < pairCount; c++) {
+            if (done[c]) continue;
+            int from = head[c];
+            int target = ends[2 * c + 1];
+            boolean joined = false;
+            for (int i = offsets[from]; i < offsets[from + 1] && !joined; i++) {
+                if (neighbors[i] == target) joined = true;
+            }
+            for (int i = offsets[from]; i < offsets[from + 1]; i++) {
+                int a = neighbors[i];
+                if (region[a] < 0) continue;
+                int label = region[a];
+                boolean seenBefore = false;
+                for (int j = offsets[from]; j < i; j++) {
+                    if (region[neighbors[j]] == label) seenBefore = true;
+                }
+                if (seenBefore || !touches(target, label)) continue;
+                joined = true;
+                queue[label]++;
+            }
+            if (!joined) return false;
+        }
+        for (int label = 0; label < regionCount; label++) {
+            if (queue[label] == 0) return false;
+        }
+        return true;
+    }
+
+    private boolean touches(int cell, int label) {
+        for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+            if (region[neighbors[i]] == label) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.sae41_2024;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File d'écriture regroupée, vidée sur un thread dédié.
+ *
+ * Les éléments ajoutés depuis n'importe quel thread sont écrits par lots : dès qu'un lot est
+ * plein, ou au plus tard après un délai fixe depuis le premier élément en attente. Les tâches
+ * passées à {@link #run(Runnable)} s'exécutent sur le même thread, après l'écriture de tout
+ * ce qui a été ajouté avant elles : une lecture voit donc toujours les écritures précédentes.
+ *
+ * @param <T> Le type des éléments écrits
+ */
+final class BatchWriter<T> {
+    private static final String TAG = "DEBUG_FLOW";
+
+    /**
+     * Destination des lots (appelée sur le thread d'écriture).
+     */
+    interface Sink<T> {
+        void write(List<T> batch) throws Exception;
+    }
+
+    private final Sink<T> sink;
+    private final int maxBatch;
+    private final long maxDelayMillis;
+    private final ScheduledThreadPoolExecutor thread;
+    private List<T> buffer = new ArrayList<>();
+    private boolean flushScheduled = false;
+    private int batchCount = 0;
+
+    /**
+     * @param name Le nom du thread d'écriture
+     * @param sink La destination des lots
+     * @param maxBatch Taille d'un lot plein
+     * @param maxDelayMillis Attente maximale d'un élément avant son écriture
+     */
+    BatchWriter(String name, Sink<T> sink, int maxBatch, long maxDelayMillis) {
+        this.sink = sink;
+        this.maxBatch = maxBatch;
+        this.maxDelayMillis = maxDelayMillis;
+        this.thread = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread writer = new Thread(task, name);
+            writer.setDaemon(true);
+            return writer;
+        });
+        // close() écrit déjà tout : un vidage différé encore planifié n'a plus à être attendu
+        thread.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Ajoute un élément à écrire (sans bloquer).
+     */
+    void add(T item) {
+        synchronized (this) {
+            buffer.add(item);
+            if (buffer.size() >= maxBatch) {
+                thread.execute(this::drain);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                thread.schedule(this::drain, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Écrit tout de suite ce qui est en attente (ex : l'activité passe en arrière-plan).
+     */
+    void flush() {
+        thread.execute(this::drain);
+    }
+
+    /**
+     * Exécute une tâche sur le thread d'écriture, une fois écrits les éléments déjà ajoutés.
+     */
+    void run(Runnable task) {
+        thread.execute(() -> {
+            drain();
+            task.run();
+        });
+    }
+
+    /**
+     * @return Le nombre de lots écrits jusqu'ici
+     */
+    synchronized int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Écrit ce qui reste puis arrête le thread d'écriture.
+     */
+    void close() {
+        flush();
+        thread.shutdown();
+    }
+
+    /**
+     * Attend la fin des écritures après {@link #close()}.
+     * @return false si le délai est écoulé avant
+     */
+    boolean awaitClosed(long timeoutMillis) throws InterruptedException {
+        return thread.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        List<T> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (buffer.isEmpty()) return;
+            batch = buffer;
+            buffer = new ArrayList<>();
+            batchCount++;
+        }
+        try {
+            sink.write(batch);
+        } catch (Exception e) {
+            Log.w(TAG, "Écriture de " + batch.size() + " éléments impossible : " + e.getMessage());
+        }
+    }
+}
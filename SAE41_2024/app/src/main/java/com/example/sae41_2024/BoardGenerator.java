@@ -0,0 +1,200 @@
+package com.example.sae41_2024;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Génère les grilles du mode infini.
+ *
+ * Une grille est entièrement décrite par sa graine, un long : version du générateur, taille
+ * de la grille et 48 bits d'aléa (l'état initial de {@link Random}). {@link #fromSeed(long)}
+ * refait donc la même grille sur n'importe quel appareil : la graine suffit pour partager une
+ * grille. Refaire le tirage a un coût, donc l'activité sauvegarde aussi les points
+ * ({@link #encodePoints(List)}) pour une simple rotation.
+ *
+ * Une graine ne donne qu'un candidat : des chemins tirés au hasard qui pavent toute la grille.
+ * {@link #generate(long)} ne le garde que si le solveur prouve qu'il n'a qu'une solution.
+ */
+final class BoardGenerator {
+    /** À incrémenter quand le tirage change : les graines d'une autre version sont refusées. */
+    static final int VERSION = 1;
+    private static final int RANDOM_BITS = 48;
+    private static final int SIZE_BITS = 7;
+    private static final long RANDOM_MASK = (1L << RANDOM_BITS) - 1;
+    // Au-delà, le candidat est abandonné : il resterait trop ouvert pour un joueur
+    static final long NODE_LIMIT = 200_000L;
+    // Un chemin de moins de 3 cases relie deux points voisins : sans intérêt
+    private static final int MIN_PATH = 3;
+
+    private BoardGenerator() {
+    }
+
+    /**
+     * Une grille générée : ses points, sa solution (unique) et sa note de difficulté.
+     */
+    static final class Board {
+        final long seed;
+        final BoardTopology topology;
+        final List<FlowPoint> points;
+        final int[][] solution;
+        final int score;
+
+        Board(long seed, BoardTopology topology, List<FlowPoint> points, int[][] solution, int score) {
+            this.seed = seed;
+            this.topology = topology;
+            this.points = points;
+            this.solution = solution;
+            this.score = score;
+        }
+    }
+
+    /**
+     * @param gridSize La taille de la grille ({@link GameLogic#MIN_GRID_SIZE} à {@link GameLogic#MAX_GRID_SIZE})
+     * @param random L'aléa (seuls les 48 bits de poids faible sont gardés)
+     * @return La graine
+     */
+    static long seedOf(int gridSize, long random) {
+        if (gridSize < GameLogic.MIN_GRID_SIZE || gridSize > GameLogic.MAX_GRID_SIZE) {
+            throw new IllegalArgumentException("Taille de grille hors limites : " + gridSize);
+        }
+        return ((long) VERSION << (RANDOM_BITS + SIZE_BITS)) | ((long) gridSize << RANDOM_BITS) | (random & RANDOM_MASK);
+    }
+
+    /**
+     * @return La taille de grille d'une graine
+     */
+    static int sizeOf(long seed) {
+        return (int) (seed >>> RANDOM_BITS) & ((1 << SIZE_BITS) - 1);
+    }
+
+    /**
+     * @return La graine en texte court (base 36), à afficher au joueur
+     */
+    static String toText(long seed) {
+        return Long.toString(seed, 36);
+    }
+
+    /**
+     * Tire le candidat d'une graine, sans le vérifier.
+     * @param seed La graine
+     * @return Les points du candidat, paire par paire, ou null si le tirage n'a pas pavé la grille
+     */
+    static List<FlowPoint> candidateOf(long seed) {
+        int gridSize = sizeOf(seed);
+        BoardTopology topology = BoardTopology.square(gridSize);
+        int[] offsets = topology.getOffsets();
+        int[] neighbors = topology.getNeighbors();
+        Random random = new Random(seed & RANDOM_MASK);
+        int cellCount = gridSize * gridSize;
+
+        int[] owner = new int[cellCount];
+        Arrays.fill(owner, -1);
+        List<FlowPoint> points = new ArrayList<>();
+        int[] choices = new int[topology.getMaxDegree()];
+        // Chemins assez longs pour que les grandes grilles tiennent dans la palette de couleurs
+        int span = Math.max(gridSize, 2 * cellCount / GameLogic.getColorCount() - MIN_PATH);
+        int color = 0;
+        for (int start = 0; start < cellCount; start++) {
+            if (owner[start] != -1) continue;
+            if (color >= GameLogic.getColorCount()) return null;
+            owner[start] = color;
+            int cell = start;
+            int length = 1;
+            int target = MIN_PATH + random.nextInt(span);
+            while (length < target) {
+                // Avance vers une case libre, de préférence la plus enfermée : les chemins
+                // longent les bords et les autres chemins, ce qui laisse moins de détours possibles
+                int count = 0, fewest = Integer.MAX_VALUE;
+                for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+                    int next = neighbors[k];
+                    if (owner[next] != -1) continue;
+                    int free = freeNeighbors(topology, owner, next);
+                    if (free < fewest) {
+                        fewest = free;
+                        count = 0;
+                    }
+                    if (free == fewest) choices[count++] = next;
+                }
+                if (count == 0) break;
+                cell = choices[random.nextInt(count)];
+                owner[cell] = color;
+                length++;
+            }
+            if (length < MIN_PATH) return null;
+            points.add(new FlowPoint(start % gridSize, start / gridSize, color));
+            points.add(new FlowPoint(cell % gridSize, cell / gridSize, color));
+            color++;
+        }
+        return Collections.unmodifiableList(points);
+    }
+
+    private static int freeNeighbors(BoardTopology topology, int[] owner, int cell) {
+        int free = 0;
+        for (int k = topology.getOffsets()[cell]; k < topology.getOffsets()[cell + 1]; k++) {
+            if (owner[topology.getNeighbors()[k]] == -1) free++;
+        }
+        return free;
+    }
+
+    /**
+     * Refait la grille d'une graine déjà acceptée par {@link #generate(long)}, sans la revérifier.
+     * @param seed La graine
+     * @return La grille, sans solution ni note ({@link DifficultyRater#UNRATED})
+     * @throws IllegalArgumentException si la graine ne donne pas de grille
+     */
+    static Board fromSeed(long seed) {
+        List<FlowPoint> points = candidateOf(seed);
+        if (points == null) throw new IllegalArgumentException("Graine sans grille : " + toText(seed));
+        return new Board(seed, BoardTopology.square(sizeOf(seed)), points, null, DifficultyRater.UNRATED);
+    }
+
+    /**
+     * @return Les points d'une grille à plat (colonne, ligne, couleur), pour l'état sauvegardé de l'activité
+     */
+    static int[] encodePoints(List<FlowPoint> points) {
+        int[] encoded = new int[3 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            FlowPoint point = points.get(i);
+            encoded[3 * i] = point.getX();
+            encoded[3 * i + 1] = point.getY();
+            encoded[3 * i + 2] = point.getColorIndex();
+        }
+        return encoded;
+    }
+
+    /**
+     * Refait une grille à partir de sa graine et de ses points sauvegardés, sans aucun calcul :
+     * utilisable sur le thread UI, contrairement à {@link #fromSeed(long)}.
+     * @param seed La graine
+     * @param encoded Les points donnés par {@link #encodePoints(List)}
+     * @return La grille, sans solution ni note ({@link DifficultyRater#UNRATED})
+     */
+    static Board fromSaved(long seed, int[] encoded) {
+        List<FlowPoint> points = new ArrayList<>(encoded.length / 3);
+        for (int i = 0; i + 2 < encoded.length; i += 3) {
+            points.add(new FlowPoint(encoded[i], encoded[i + 1], encoded[i + 2]));
+        }
+        return new Board(seed, BoardTopology.square(sizeOf(seed)), Collections.unmodifiableList(points), null, DifficultyRater.UNRATED);
+    }
+
+    /**
+     * Tire le candidat d'une graine et le garde s'il n'a qu'une solution.
+     * @param seed La graine
+     * @return La grille avec sa solution et sa note, ou null si le candidat est refusé
+     */
+    static Board generate(long seed) {
+        List<FlowPoint> points = candidateOf(seed);
+        if (points == null) return null;
+        BoardTopology topology = BoardTopology.square(sizeOf(seed));
+        BacktrackingSolver solver = new BacktrackingSolver(topology, BacktrackingSolver.toEnds(topology.getGridSize(), points));
+        solver.setNodeLimit(NODE_LIMIT);
+        // Les détours comptent : une grille à détour possible a plusieurs solutions pour le joueur
+        solver.setThinPaths(false);
+        if (solver.countSolutions(2) != 1 || solver.isAborted()) return null;
+        int[][] solution = solver.getSolution();
+        return new Board(seed, topology, points, solution, DifficultyRater.rate(topology, points));
+    }
+}
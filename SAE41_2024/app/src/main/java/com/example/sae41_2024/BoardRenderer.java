@@ -0,0 +1,416 @@
+package com.example.sae41_2024;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Shader;
+import java.util.Arrays;
+
+/**
+ * Dessine une grille à partir d'un {@link BoardSnapshot} et de l'état d'affichage d'une {@link Frame}.
+ *
+ * Ne dépend d'aucune vue : la même instance sert au rendu sur le thread UI ({@link GameView})
+ * ou sur un thread dédié ({@link BoardSurfaceView}). Une instance ne doit être utilisée
+ * que par un seul thread à la fois.
+ */
+public class BoardRenderer {
+
+    /**
+     * Ce qui est affiché en plus de la grille : cadrage, tracé en cours, point en attente
+     * du tracé automatique, déductions. Une copie publiée vers le thread de rendu n'est plus modifiée.
+     */
+    public static final class Frame {
+        public int width, height;
+        public float originX, originY, cellSize;
+        public boolean achromate;
+        // Tracé en cours : cases (x, y) à plat
+        public int[] dragCells = new int[0];
+        public int dragLength = 0;
+        public int dragColor = -1;
+        public int pendingColor = -1, pendingX, pendingY;
+        public DeductionEngine.Result deductions;
+        // Animations (voir PathAnimator) : bout du tracé en coordonnées de grille,
+        // chemin en cours de remplissage, balayage de victoire (négatif si absent)
+        public boolean tipActive;
+        public float tipX, tipY;
+        public int[] fillCells = new int[0];
+        public int fillLength = 0;
+        public int fillColor = -1;
+        public float fillProgress = 1f;
+        public float sweepProgress = -1f;
+
+        /**
+         * Recopie une autre frame dans celle-ci, en réutilisant ses tableaux s'ils sont assez grands :
+         * permet de publier une frame vers un autre thread sans allocation.
+         * @param other La frame à recopier
+         */
+        public void copyFrom(Frame other) {
+            width = other.width;
+            height = other.height;
+            originX = other.originX;
+            originY = other.originY;
+            cellSize = other.cellSize;
+            achromate = other.achromate;
+            if (dragCells.length < 2 * other.dragLength) dragCells = new int[other.dragCells.length];
+            System.arraycopy(other.dragCells, 0, dragCells, 0, 2 * other.dragLength);
+            dragLength = other.dragLength;
+            dragColor = other.dragColor;
+            pendingColor = other.pendingColor;
+            pendingX = other.pendingX;
+            pendingY = other.pendingY;
+            deductions = other.deductions;
+            tipActive = other.tipActive;
+            tipX = other.tipX;
+            tipY = other.tipY;
+            if (fillCells.length < 2 * other.fillLength) fillCells = new int[other.fillCells.length];
+            System.arraycopy(other.fillCells, 0, fillCells, 0, 2 * other.fillLength);
+            fillLength = other.fillLength;
+            fillColor = other.fillColor;
+            fillProgress = other.fillProgress;
+            sweepProgress = other.sweepProgress;
+        }
+    }
+
+    // Demi-largeur de la bande lumineuse du balayage de victoire, en fraction de la diagonale
+    private static final float SWEEP_BAND = 0.2f;
+
+    private final CanvasSurface canvasSurface = new CanvasSurface();
+    private final Paint gridPaint, circlePaint, pathPaint, markPaint, alertPaint, sweepPaint, portalPaint;
+    private Frame frame;
+    private BoardTopology topology;
+    private final PatternShaders patternShaders = new PatternShaders();
+    // Motifs du mode achromate pour l'image en cours (null en couleur)
+    private Shader[] patterns;
+    private boolean arePatternsApplied = false;
+    // Géométrie des chemins enregistrés par couleur, en pixels relatifs au coin de la grille ;
+    // reconstruite seulement quand le chemin de la couleur ou la taille des cases change
+    private Path[] colorPaths = new Path[0];
+    private int[][] builtCells = new int[0][];
+    private float builtCellSize = 0f;
+    private BoardTopology builtTopology;
+    // Fenêtre de cases visibles, recalculée à chaque dessin
+    private int firstCol, lastCol, firstRow, lastRow;
+
+    /**
+     * Initialise les pinceaux de dessin.
+     */
+    public BoardRenderer() {
+        gridPaint = new Paint();
+        gridPaint.setColor(Color.BLACK);
+        gridPaint.setStrokeWidth(5);
+
+        circlePaint = new Paint();
+
+        pathPaint = new Paint();
+        pathPaint.setStrokeWidth(15);
+        pathPaint.setStyle(Paint.Style.STROKE);
+        pathPaint.setStrokeCap(Paint.Cap.ROUND);
+        pathPaint.setStrokeJoin(Paint.Join.ROUND);
+
+        markPaint = new Paint();
+        markPaint.setStyle(Paint.Style.FILL);
+
+        alertPaint = new Paint();
+        alertPaint.setColor(Color.RED);
+        alertPaint.setStyle(Paint.Style.STROKE);
+        alertPaint.setStrokeWidth(6);
+
+        sweepPaint = new Paint();
+        sweepPaint.setColor(Color.WHITE);
+        sweepPaint.setStyle(Paint.Style.FILL);
+
+        portalPaint = new Paint();
+        portalPaint.setColor(Color.DKGRAY);
+        portalPaint.setStyle(Paint.Style.STROKE);
+        portalPaint.setStrokeWidth(4);
+    }
+
+    /**
+     * Dessine la grille, les points, les chemins enregistrés et le tracé en cours.
+     * Seules les cases visibles (selon le zoom et le déplacement) sont parcourues.
+     *
+     * @param canvas Le canvas de destination
+     * @param board  L'état de la grille
+     * @param frame  L'état d'affichage
+     */
+    public void draw(Canvas canvas, BoardSnapshot board, Frame frame) {
+        draw(canvasSurface.wrap(canvas), board, frame);
+    }
+
+    /**
+     * Dessine la grille sur une surface quelconque (ex : surface de mesure dans les tests).
+     *
+     * @param surface La surface de destination
+     * @param board   L'état de la grille
+     * @param frame   L'état d'affichage
+     */
+    public void draw(DrawSurface surface, BoardSnapshot board, Frame frame) {
+        this.frame = frame;
+        this.topology = board.getTopology();
+        surface.drawColor(Color.WHITE);
+
+        int gridSize = board.getGridSize();
+        // Lignes décalées d'une grille hexagonale : une colonne de plus peut dépasser à gauche
+        float slack = topology.getWidthInCells() - gridSize;
+        float cellSize = frame.cellSize;
+        patterns = frame.achromate ? patternShaders.forCellSize(cellSize) : null;
+        if (patterns == null && arePatternsApplied) {
+            surface.setShader(circlePaint, null);
+            surface.setShader(pathPaint, null);
+            arePatternsApplied = false;
+        }
+        firstCol = clampCell((int) Math.floor(-frame.originX / cellSize - slack), gridSize);
+        lastCol = clampCell((int) Math.floor((frame.width - frame.originX) / cellSize), gridSize);
+        firstRow = clampCell((int) Math.floor(-frame.originY / cellSize), gridSize);
+        lastRow = clampCell((int) Math.floor((frame.height - frame.originY) / cellSize), gridSize);
+
+        // Les traits s'affinent quand les cases deviennent petites
+        surface.setStrokeWidth(gridPaint, Math.max(1f, Math.min(5f, cellSize * 0.06f)));
+        surface.setStrokeWidth(pathPaint, Math.max(2f, Math.min(15f, cellSize * 0.3f)));
+
+        float top = frame.originY + firstRow * cellSize;
+        float bottom = frame.originY + (lastRow + 1) * cellSize;
+        float left = frame.originX + firstCol * cellSize;
+        float right = frame.originX + (lastCol + 1 + slack) * cellSize;
+        if (slack == 0) {
+            for (int i = firstCol; i <= lastCol + 1; i++) {
+                surface.drawLine(frame.originX + i * cellSize, top, frame.originX + i * cellSize, bottom, gridPaint);
+            }
+        } else {
+            // Grille hexagonale dessinée en quinconce : les séparations verticales suivent chaque ligne
+            for (int y = firstRow; y <= lastRow; y++) {
+                float rowTop = frame.originY + y * cellSize;
+                float shift = topology.getRowShift(y) * cellSize;
+                for (int i = firstCol; i <= lastCol + 1; i++) {
+                    float x = frame.originX + i * cellSize + shift;
+                    surface.drawLine(x, rowTop, x, rowTop + cellSize, gridPaint);
+                }
+            }
+        }
+        for (int i = firstRow; i <= lastRow + 1; i++) {
+            surface.drawLine(left, frame.originY + i * cellSize, right, frame.originY + i * cellSize, gridPaint);
+        }
+        drawPortals(surface, gridSize);
+
+        if (frame.deductions != null && frame.deductions.getGridSize() == gridSize) {
+            drawDeductions(surface);
+        }
+
+        for (int y = firstRow; y <= lastRow; y++) {
+            for (int x = firstCol; x <= lastCol; x++) {
+                int color = board.getPointColorAt(x, y);
+                if (color != GameLogic.NO_PATH) drawPoint(surface, x, y, color);
+            }
+        }
+
+        drawSavedPaths(surface, board);
+        if (frame.fillLength > 1) drawFill(surface);
+
+        if (frame.dragLength > 0) {
+            applyColor(surface, pathPaint, frame.dragColor);
+            int[] cells = frame.dragCells;
+            for (int i = 1; i < frame.dragLength; i++) {
+                drawStep(surface, cells, i);
+            }
+            if (frame.tipActive) {
+                int last = frame.dragLength - 1;
+                surface.drawLine(centerX(cells[2 * last], cells[2 * last + 1]), centerY(cells[2 * last + 1]),
+                        centerX(frame.tipX, frame.tipY), centerY(frame.tipY), pathPaint);
+            }
+        }
+
+        if (frame.sweepProgress >= 0) drawSweep(surface, gridSize);
+    }
+
+    /**
+     * Donne à un pinceau la couleur d'un index et, en mode achromate, son motif.
+     */
+    private void applyColor(DrawSurface surface, Paint paint, int colorIndex) {
+        surface.setColor(paint, GameLogic.colorOf(colorIndex, frame.achromate));
+        if (patterns != null) {
+            surface.setShader(paint, patterns[colorIndex % patterns.length]);
+            arePatternsApplied = true;
+        }
+    }
+
+    private static int clampCell(int cell, int gridSize) {
+        return Math.max(0, Math.min(gridSize - 1, cell));
+    }
+
+    /**
+     * @param x Colonne (fractionnaire pour un point entre deux cases)
+     * @param y Ligne, qui fixe le décalage des grilles hexagonales
+     */
+    private float centerX(float x, float y) {
+        return frame.originX + (x + topology.getRowShift(y)) * frame.cellSize + frame.cellSize / 2;
+    }
+
+    private float centerY(float y) {
+        return frame.originY + y * frame.cellSize + frame.cellSize / 2;
+    }
+
+    /**
+     * Trace le segment du chemin entre les cases i - 1 et i, sauf quand elles ne se touchent pas
+     * à l'écran (bord d'une grille torique, portail).
+     */
+    private void drawStep(DrawSurface surface, int[] cells, int i) {
+        int fromX = cells[2 * i - 2], fromY = cells[2 * i - 1];
+        int toX = cells[2 * i], toY = cells[2 * i + 1];
+        if (isJump(fromX, fromY, toX, toY)) return;
+        surface.drawLine(centerX(fromX, fromY), centerY(fromY), centerX(toX, toY), centerY(toY), pathPaint);
+    }
+
+    private boolean isJump(int fromX, int fromY, int toX, int toY) {
+        if (topology.isPlainSquare()) return false;
+        int gridSize = topology.getGridSize();
+        return topology.isJump(fromY * gridSize + fromX, toY * gridSize + toX);
+    }
+
+    /**
+     * Entoure les cases reliées par un portail.
+     */
+    private void drawPortals(DrawSurface surface, int gridSize) {
+        for (int cell : topology.getWarps()) {
+            int x = cell % gridSize, y = cell / gridSize;
+            if (x < firstCol || x > lastCol || y < firstRow || y > lastRow) continue;
+            float left = frame.originX + (x + topology.getRowShift(y)) * frame.cellSize;
+            float top = frame.originY + y * frame.cellSize;
+            float inset = frame.cellSize * 0.08f;
+            surface.drawRect(left + inset, top + inset, left + frame.cellSize - inset,
+                    top + frame.cellSize - inset, portalPaint);
+        }
+    }
+
+    /**
+     * Dessine un point, avec l'anneau du tracé automatique et l'alerte de paire isolée.
+     */
+    private void drawPoint(DrawSurface surface, int x, int y, int colorIndex) {
+        applyColor(surface, circlePaint, colorIndex);
+        float centerX = centerX(x, y);
+        float centerY = centerY(y);
+        surface.drawCircle(centerX, centerY, frame.cellSize / 3.5f, circlePaint);
+        if (frame.pendingColor == colorIndex && x == frame.pendingX && y == frame.pendingY) {
+            applyColor(surface, pathPaint, colorIndex);
+            surface.drawCircle(centerX, centerY, frame.cellSize / 2.3f, pathPaint);
+        }
+        if (frame.deductions != null && frame.deductions.isCutOff(colorIndex)) {
+            surface.drawCircle(centerX, centerY, frame.cellSize / 2.5f, alertPaint);
+        }
+    }
+
+    /**
+     * Dessine les chemins enregistrés, un seul appel par couleur : chaque chemin est une
+     * {@link Path} continue (jointures arrondies, sans chevauchement de bouts de segments),
+     * décalée jusqu'au coin de la grille.
+     */
+    private void drawSavedPaths(DrawSurface surface, BoardSnapshot board) {
+        if (frame.cellSize != builtCellSize || topology != builtTopology) {
+            // Zoom ou nouvelle grille : toutes les géométries sont à refaire
+            builtCellSize = frame.cellSize;
+            builtTopology = topology;
+            builtCells = new int[builtCells.length][];
+        }
+        surface.save();
+        surface.translate(frame.originX, frame.originY);
+        for (int color = 0; color < board.getColorSlots(); color++) {
+            int[] cells = board.getPathCells(color);
+            // Le chemin en cours de remplissage est dessiné par drawFill
+            if (cells == null || cells.length < 4 || (color == frame.fillColor && frame.fillLength > 1)) continue;
+            applyColor(surface, pathPaint, color);
+            surface.drawPath(pathFor(color, cells), pathPaint);
+        }
+        surface.restore();
+    }
+
+    /**
+     * Renvoie la géométrie du chemin d'une couleur, reconstruite si ses cases ont changé.
+     */
+    private Path pathFor(int color, int[] cells) {
+        if (color >= colorPaths.length) {
+            colorPaths = Arrays.copyOf(colorPaths, color + 1);
+            builtCells = Arrays.copyOf(builtCells, color + 1);
+        }
+        Path path = colorPaths[color];
+        if (path == null) {
+            path = new Path();
+            colorPaths[color] = path;
+        } else if (builtCells[color] == cells) {
+            return path;
+        }
+        float half = builtCellSize / 2;
+        path.rewind();
+        path.moveTo((cells[0] + topology.getRowShift(cells[1])) * builtCellSize + half, cells[1] * builtCellSize + half);
+        for (int i = 2; i < cells.length; i += 2) {
+            float x = (cells[i] + topology.getRowShift(cells[i + 1])) * builtCellSize + half;
+            float y = cells[i + 1] * builtCellSize + half;
+            // Bord torique ou portail : le tracé reprend de l'autre côté sans trait entre les deux
+            if (isJump(cells[i - 2], cells[i - 1], cells[i], cells[i + 1])) path.moveTo(x, y);
+            else path.lineTo(x, y);
+        }
+        builtCells[color] = cells;
+        return path;
+    }
+
+    /**
+     * Dessine le chemin qui vient de relier sa paire jusqu'à l'avancement du remplissage,
+     * le dernier segment étant interpolé entre deux cases.
+     */
+    private void drawFill(DrawSurface surface) {
+        int[] cells = frame.fillCells;
+        float position = frame.fillProgress * (frame.fillLength - 1);
+        int full = (int) position;
+        applyColor(surface, pathPaint, frame.fillColor);
+        for (int i = 1; i <= full; i++) {
+            drawStep(surface, cells, i);
+        }
+        if (full < frame.fillLength - 1) {
+            float t = position - full;
+            int fromX = cells[2 * full], fromY = cells[2 * full + 1];
+            if (isJump(fromX, fromY, cells[2 * full + 2], cells[2 * full + 3])) return;
+            float toX = fromX + (cells[2 * full + 2] - fromX) * t;
+            float toY = fromY + (cells[2 * full + 3] - fromY) * t;
+            surface.drawLine(centerX(fromX, fromY), centerY(fromY), centerX(toX, toY), centerY(toY), pathPaint);
+        }
+    }
+
+    /**
+     * Éclaire une bande de cases qui traverse la grille en diagonale, du coin haut gauche
+     * au coin bas droit.
+     */
+    private void drawSweep(DrawSurface surface, int gridSize) {
+        float head = frame.sweepProgress * (1 + 2 * SWEEP_BAND) - SWEEP_BAND;
+        float diagonal = Math.max(1, 2 * (gridSize - 1));
+        for (int y = firstRow; y <= lastRow; y++) {
+            for (int x = firstCol; x <= lastCol; x++) {
+                float distance = Math.abs((x + y) / diagonal - head);
+                if (distance >= SWEEP_BAND) continue;
+                surface.setAlpha(sweepPaint, (int) (170 * (1 - distance / SWEEP_BAND)));
+                float left = frame.originX + (x + topology.getRowShift(y)) * frame.cellSize;
+                float top = frame.originY + y * frame.cellSize;
+                surface.drawRect(left, top, left + frame.cellSize, top + frame.cellSize, sweepPaint);
+            }
+        }
+    }
+
+    /**
+     * Colore légèrement les cases forcées avec leur seule couleur possible
+     * et grise les cases qu'aucune paire ne peut plus atteindre.
+     */
+    private void drawDeductions(DrawSurface surface) {
+        for (int y = firstRow; y <= lastRow; y++) {
+            for (int x = firstCol; x <= lastCol; x++) {
+                int mark = frame.deductions.getMark(x, y);
+                if (mark == DeductionEngine.MARK_NONE) continue;
+
+                int color = mark == DeductionEngine.MARK_DEAD ? Color.DKGRAY
+                        : GameLogic.colorOf(mark, frame.achromate);
+                surface.setColor(markPaint, color);
+                surface.setAlpha(markPaint, mark == DeductionEngine.MARK_DEAD ? 110 : 60);
+                float left = frame.originX + (x + topology.getRowShift(y)) * frame.cellSize;
+                float top = frame.originY + y * frame.cellSize;
+                surface.drawRect(left, top, left + frame.cellSize, top + frame.cellSize, markPaint);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.sae41_2024;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * État immuable de la grille à un instant donné, publié par {@link GameLogic}
+ * après chaque modification. Les autres threads (rendu, déductions, indices, sauvegarde)
+ * le lisent sans synchronisation : aucun tableau n'est modifié après la construction.
+ *
+ * Créer un instantané ne copie pas la grille : il partage avec le précédent les points du
+ * niveau et le tableau de cases de chaque chemin qui n'a pas changé ; seule la liste des
+ * chemins (une référence par couleur) est neuve. Les propriétaires des cases ne sont
+ * calculés qu'à la première question, depuis ces chemins.
+ */
+public final class BoardSnapshot {
+    private final BoardTopology topology;
+    private final int gridSize;
+    private final long version;
+    private final List<FlowPoint> points;
+    private final int[] pointColors;
+    // Partagés avec les instantanés précédents tant que le chemin de la couleur ne change pas
+    private final int[][] pathCells;
+    // Couleur et rang de chaque case, calculés à la demande (deux calculs concurrents donnent le même résultat)
+    private volatile int[][] cellGrid;
+
+    BoardSnapshot(BoardTopology topology, long version, List<FlowPoint> points, int[] pointColors, int[][] pathCells) {
+        this.topology = topology;
+        this.gridSize = topology.getGridSize();
+        this.version = version;
+        this.points = points;
+        this.pointColors = pointColors;
+        this.pathCells = pathCells;
+    }
+
+    /**
+     * @return La taille de la grille
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * @return Le voisinage des cases (forme de la grille, portails), immuable lui aussi
+     */
+    public BoardTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * @return Le numéro de l'état, croissant à chaque modification de la grille
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Les points du niveau, dans l'ordre du fichier (liste non modifiable)
+     */
+    public List<FlowPoint> getPoints() {
+        return points;
+    }
+
+    /**
+     * @return L'index de couleur du point de la case, ou {@link GameLogic#NO_PATH} sans point
+     */
+    public int getPointColorAt(int x, int y) {
+        return pointColors[y * gridSize + x];
+    }
+
+    /**
+     * @return La couleur du chemin qui passe par la case, ou {@link GameLogic#NO_PATH}
+     */
+    public int getPathColorAt(int x, int y) {
+        return cellGrid()[0][y * gridSize + x];
+    }
+
+    /**
+     * @return Le rang de la case dans son chemin
+     */
+    public int getPathOrderAt(int x, int y) {
+        return cellGrid()[1][y * gridSize + x];
+    }
+
+    private int[][] cellGrid() {
+        int[][] grid = cellGrid;
+        if (grid == null) {
+            int[] owner = new int[gridSize * gridSize];
+            int[] order = new int[owner.length];
+            Arrays.fill(owner, GameLogic.NO_PATH);
+            for (int color = 0; color < pathCells.length; color++) {
+                int[] cells = pathCells[color];
+                if (cells == null) continue;
+                for (int i = 0; i < cells.length / 2; i++) {
+                    int x = cells[2 * i], y = cells[2 * i + 1];
+                    if (x < 0 || y < 0 || x >= gridSize || y >= gridSize) continue;
+                    owner[y * gridSize + x] = color;
+                    order[y * gridSize + x] = i;
+                }
+            }
+            grid = new int[][]{owner, order};
+            cellGrid = grid;
+        }
+        return grid;
+    }
+
+    /**
+     * @return Le nombre d'index de couleur pour lesquels {@link #getPathCells} peut renvoyer un chemin
+     */
+    public int getColorSlots() {
+        return pathCells.length;
+    }
+
+    /**
+     * Renvoie les cases du chemin d'une couleur, d'un point à l'autre. Le tableau est partagé :
+     * il ne doit pas être modifié, et reste le même objet tant que ce chemin ne change pas.
+     * @param color Index de la couleur
+     * @return Les cases (x, y) à plat, ou null si la couleur n'a pas de chemin
+     */
+    public int[] getPathCells(int color) {
+        return color >= 0 && color < pathCells.length ? pathCells[color] : null;
+    }
+
+    /**
+     * Recopie les chemins sous la forme de {@link GameLogic#getPaths()} (ex : pour un Bundle).
+     * @return Une nouvelle table des chemins par couleur, que l'appelant peut modifier
+     */
+    public HashMap<Integer, List<int[]>> copyPaths() {
+        HashMap<Integer, List<int[]>> paths = new HashMap<>();
+        for (int color = 0; color < pathCells.length; color++) {
+            int[] cells = pathCells[color];
+            if (cells == null) continue;
+            List<int[]> path = new ArrayList<>(cells.length / 2);
+            for (int i = 0; i < cells.length; i += 2) path.add(new int[]{cells[i], cells[i + 1]});
+            paths.put(color, path);
+        }
+        return paths;
+    }
+
+    /**
+     * Écrit les chemins dans le format texte des sauvegardes de partie :
+     * « couleur:x,y;x,y;...| » pour chaque chemin.
+     * @return Le texte de la sauvegarde
+     */
+    public String encodePaths() {
+        StringBuilder sb = new StringBuilder();
+        for (int color = 0; color < pathCells.length; color++) {
+            int[] cells = pathCells[color];
+            if (cells == null) continue;
+            sb.append(color).append(":");
+            for (int i = 0; i < cells.length; i += 2) {
+                sb.append(cells[i]).append(",").append(cells[i + 1]).append(";");
+            }
+            sb.append("|");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Relit une sauvegarde écrite par {@link #encodePaths()}. Les chemins ne sont pas contrôlés :
+     * voir {@link GameLogic#isRestorable(Map)}.
+     * @param savedPaths Le texte de la sauvegarde
+     * @return Les chemins par couleur
+     * @throws IllegalArgumentException si le texte n'est pas au format attendu
+     */
+    public static Map<Integer, List<int[]>> decodePaths(String savedPaths) {
+        Map<Integer, List<int[]>> paths = new HashMap<>();
+        for (String colorBlock : savedPaths.split("\\|")) {
+            if (colorBlock.trim().isEmpty()) continue;
+            String[] parts = colorBlock.split(":");
+            if (parts.length != 2) throw new IllegalArgumentException("Chemin mal formé : " + colorBlock);
+            List<int[]> path = new ArrayList<>();
+            for (String coord : parts[1].split(";")) {
+                if (coord.trim().isEmpty()) continue;
+                String[] xy = coord.split(",");
+                if (xy.length != 2) throw new IllegalArgumentException("Case mal formée : " + coord);
+                path.add(new int[]{Integer.parseInt(xy[0]), Integer.parseInt(xy[1])});
+            }
+            paths.put(Integer.parseInt(parts[0]), path);
+        }
+        return paths;
+    }
+}
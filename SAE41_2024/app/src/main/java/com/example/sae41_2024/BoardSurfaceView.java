@@ -0,0 +1,165 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rendu de la grille sur une surface, par un thread dédié cadencé sur la synchronisation
+ * verticale (Choreographer du thread de rendu).
+ *
+ * Le thread UI ne fait que publier le dernier état ({@link BoardSnapshot} + frame) : il n'attend
+ * jamais la fin d'un dessin. Plusieurs publications entre deux images n'en produisent qu'une,
+ * avec l'état le plus récent.
+ *
+ * Les frames sont en double tampon : la publication recopie dans la frame publiée, le thread de
+ * rendu dessine l'autre ; les deux sont échangées sous verrou au début de chaque image. Aucune
+ * frame n'est allouée pendant la partie.
+ */
+public class BoardSurfaceView extends SurfaceView implements SurfaceHolder.Callback, Choreographer.FrameCallback {
+    private static final String TAG = "DEBUG_FLOW";
+    // Attente maximale du thread de rendu quand la surface disparaît
+    private static final long RELEASE_TIMEOUT_MS = 500;
+    private final BoardRenderer renderer = new BoardRenderer();
+    private final HandlerThread renderThread = new HandlerThread("BoardRender");
+    private final Handler renderHandler;
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+    private final Context context;
+
+    // Dernier état publié, protégé par publishLock
+    private final Object publishLock = new Object();
+    private BoardSnapshot board;
+    private BoardRenderer.Frame publishedFrame = new BoardRenderer.Frame();
+    private boolean hasPublished = false;
+    private boolean isPublishedFresh = false;
+    // Frame en cours de dessin, échangée avec publishedFrame sous verrou
+    private BoardRenderer.Frame drawnFrame = new BoardRenderer.Frame();
+
+    // Écrit sur le thread de rendu, sauf quand celui-ci est arrêté ou bloqué (voir surfaceDestroyed)
+    private volatile SurfaceHolder holder;
+    // Lu et écrit uniquement sur le thread de rendu
+    private boolean isFirstFrameDrawn = false;
+
+    /**
+     * @param context Le contexte Android
+     */
+    public BoardSurfaceView(Context context) {
+        super(context);
+        this.context = context;
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Publie l'état à afficher à la prochaine image (appelé depuis le thread UI).
+     *
+     * @param board L'état de la grille
+     * @param frame L'état d'affichage, recopié : l'appelant peut continuer à le modifier
+     */
+    public void publish(BoardSnapshot board, BoardRenderer.Frame frame) {
+        synchronized (publishLock) {
+            this.board = board;
+            publishedFrame.copyFrom(frame);
+            hasPublished = true;
+            isPublishedFresh = true;
+        }
+        requestFrame();
+    }
+
+    private void requestFrame() {
+        if (framePending.compareAndSet(false, true)) {
+            renderHandler.post(() -> Choreographer.getInstance().postFrameCallback(this));
+        }
+    }
+
+    /**
+     * Dessine une image sur le thread de rendu, à la synchronisation verticale.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        framePending.set(false);
+        BoardSnapshot currentBoard;
+        synchronized (publishLock) {
+            if (!hasPublished) return;
+            // Sans nouvelle publication (ex : surface recréée), on redessine la même frame
+            if (isPublishedFresh) {
+                BoardRenderer.Frame drawn = drawnFrame;
+                drawnFrame = publishedFrame;
+                publishedFrame = drawn;
+                isPublishedFresh = false;
+            }
+            currentBoard = board;
+        }
+        BoardRenderer.Frame currentFrame = drawnFrame;
+        SurfaceHolder currentHolder = holder;
+        if (currentHolder == null || currentBoard == null) return;
+
+        Canvas canvas = currentHolder.lockCanvas();
+        if (canvas == null) return;
+        // La section n'est ouverte qu'avec un canvas : elle est toujours refermée
+        if (!isFirstFrameDrawn) StartupTrace.begin("game.firstDraw.surface");
+        try {
+            renderer.draw(canvas, currentBoard, currentFrame);
+        } finally {
+            currentHolder.unlockCanvasAndPost(canvas);
+            if (!isFirstFrameDrawn) StartupTrace.end();
+        }
+        if (!isFirstFrameDrawn) {
+            isFirstFrameDrawn = true;
+            StartupTrace.dump(context);
+        }
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder surfaceHolder) {
+        renderHandler.post(() -> holder = surfaceHolder);
+        requestFrame();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder surfaceHolder, int format, int width, int height) {
+        requestFrame();
+    }
+
+    /**
+     * La surface ne doit plus être utilisée au retour de cette méthode :
+     * on attend que le thread de rendu l'ait lâchée. Si le thread est déjà arrêté
+     * ({@link #release()}), il ne dessinera plus : la surface est lâchée directement.
+     */
+    @Override
+    public void surfaceDestroyed(SurfaceHolder surfaceHolder) {
+        CountDownLatch released = new CountDownLatch(1);
+        boolean posted = renderHandler.post(() -> {
+            holder = null;
+            released.countDown();
+        });
+        if (!posted) {
+            holder = null;
+            return;
+        }
+        try {
+            if (!released.await(RELEASE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Thread de rendu bloqué : surface lâchée sans l'attendre");
+                holder = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Arrête le thread de rendu (à appeler à la destruction de l'activité).
+     */
+    public void release() {
+        renderThread.quitSafely();
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.sae41_2024;
+
+import java.util.Arrays;
+
+/**
+ * Voisinage des cases d'une grille, calculé une fois pour toutes dans une table plate.
+ *
+ * Les voisins de la case c (indice y * taille + x) sont neighbors[offsets[c]] à
+ * neighbors[offsets[c + 1] - 1] : le tracé, la vérification et les solveurs parcourent cette
+ * table sans jamais tester la forme de la grille. Formes prises en charge :
+ * - grille carrée (4 voisins) ;
+ * - grille hexagonale, lignes impaires décalées d'une demi-case vers la droite (6 voisins) ;
+ * - grille torique : les bords opposés se touchent ;
+ * et, sur chacune, des portails qui relient deux cases éloignées.
+ */
+public final class BoardTopology {
+    public static final int SQUARE = 0;
+    public static final int HEX = 1;
+    public static final int TORUS = 2;
+    // Valeurs de l'attribut topologie des fichiers de niveaux, par forme
+    private static final String[] NAMES = {"carre", "hexagonale", "torique"};
+
+    private final int kind;
+    private final int gridSize;
+    private final int cellCount;
+    private final int[] offsets;
+    private final int[] neighbors;
+    // Pour chaque entrée de la table : les deux cases ne se touchent pas à l'écran (bord torique, portail)
+    private final boolean[] jumps;
+    private final int[] warps;
+    private final int maxDegree;
+
+    /**
+     * @param gridSize La taille de la grille
+     * @return La grille carrée sans portail
+     */
+    public static BoardTopology square(int gridSize) {
+        return new BoardTopology(SQUARE, gridSize, new int[0]);
+    }
+
+    /**
+     * @param kind {@link #SQUARE}, {@link #HEX} ou {@link #TORUS}
+     * @param gridSize La taille de la grille
+     * @param warps Les portails : deux cases reliées par paire (warps[2i] et warps[2i+1])
+     * @return Le voisinage de cette grille
+     * @throws IllegalArgumentException si la forme est inconnue ou un portail hors de la grille
+     */
+    public static BoardTopology create(int kind, int gridSize, int[] warps) {
+        if (kind < SQUARE || kind > TORUS) throw new IllegalArgumentException("Topologie inconnue : " + kind);
+        if (gridSize <= 0 || warps.length % 2 != 0) throw new IllegalArgumentException("Grille invalide");
+        for (int cell : warps) {
+            if (cell < 0 || cell >= gridSize * gridSize) throw new IllegalArgumentException("Portail hors de la grille");
+        }
+        return new BoardTopology(kind, gridSize, warps.clone());
+    }
+
+    /**
+     * @param name La valeur de l'attribut topologie d'un niveau (null : grille carrée)
+     * @return La forme correspondante, ou -1 si elle est inconnue
+     */
+    public static int kindOf(String name) {
+        if (name == null) return SQUARE;
+        for (int kind = 0; kind < NAMES.length; kind++) {
+            if (NAMES[kind].equals(name)) return kind;
+        }
+        return -1;
+    }
+
+    private BoardTopology(int kind, int gridSize, int[] warps) {
+        this.kind = kind;
+        this.gridSize = gridSize;
+        this.cellCount = gridSize * gridSize;
+        this.warps = warps;
+
+        int[] degree = new int[cellCount];
+        int[] scratch = new int[6];
+        boolean[] scratchJumps = new boolean[6];
+        for (int cell = 0; cell < cellCount; cell++) {
+            degree[cell] = baseNeighbors(cell, scratch, scratchJumps);
+        }
+        for (int cell : warps) degree[cell]++;
+
+        offsets = new int[cellCount + 1];
+        for (int cell = 0; cell < cellCount; cell++) {
+            offsets[cell + 1] = offsets[cell] + degree[cell];
+        }
+        neighbors = new int[offsets[cellCount]];
+        jumps = new boolean[neighbors.length];
+        int[] fill = Arrays.copyOf(offsets, cellCount);
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = baseNeighbors(cell, scratch, scratchJumps);
+            for (int k = 0; k < count; k++) {
+                if (contains(cell, fill[cell], scratch[k])) continue;
+                jumps[fill[cell]] = scratchJumps[k];
+                neighbors[fill[cell]++] = scratch[k];
+            }
+        }
+        for (int i = 0; i < warps.length; i += 2) {
+            link(fill, warps[i], warps[i + 1]);
+            link(fill, warps[i + 1], warps[i]);
+        }
+
+        // Doublons écartés (portail entre voisines, tore trop petit) : la table est resserrée
+        int[] compactOffsets = new int[cellCount + 1];
+        int size = 0, widest = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            for (int i = offsets[cell]; i < fill[cell]; i++) {
+                jumps[size] = jumps[i];
+                neighbors[size++] = neighbors[i];
+            }
+            compactOffsets[cell + 1] = size;
+            widest = Math.max(widest, size - compactOffsets[cell]);
+        }
+        System.arraycopy(compactOffsets, 0, offsets, 0, offsets.length);
+        maxDegree = widest;
+    }
+
+    /**
+     * Voisins d'une case propres à la forme de la grille, hors portails (construction seulement).
+     * @return Le nombre de voisins écrits dans out
+     */
+    private int baseNeighbors(int cell, int[] out, boolean[] outJumps) {
+        int x = cell % gridSize;
+        int y = cell / gridSize;
+        int count = 0;
+        if (kind == HEX) {
+            // Lignes impaires décalées à droite : les voisins du dessus et du dessous glissent d'une colonne
+            int shift = y % 2 == 0 ? -1 : 0;
+            int[][] around = {{1, 0}, {-1, 0}, {shift, 1}, {shift + 1, 1}, {shift, -1}, {shift + 1, -1}};
+            for (int[] d : around) {
+                int nx = x + d[0], ny = y + d[1];
+                if (nx < 0 || ny < 0 || nx >= gridSize || ny >= gridSize) continue;
+                outJumps[count] = false;
+                out[count++] = ny * gridSize + nx;
+            }
+            return count;
+        }
+        int[][] around = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        for (int[] d : around) {
+            int nx = x + d[0], ny = y + d[1];
+            boolean inside = nx >= 0 && ny >= 0 && nx < gridSize && ny < gridSize;
+            if (!inside && kind != TORUS) continue;
+            outJumps[count] = !inside;
+            out[count++] = wrap(ny) * gridSize + wrap(nx);
+        }
+        return count;
+    }
+
+    /**
+     * Ramène une colonne ou une ligne dans la grille (bords opposés reliés).
+     */
+    private int wrap(int coordinate) {
+        return ((coordinate % gridSize) + gridSize) % gridSize;
+    }
+
+    private void link(int[] fill, int from, int to) {
+        if (from == to || contains(from, fill[from], to)) return;
+        jumps[fill[from]] = true;
+        neighbors[fill[from]++] = to;
+    }
+
+    private boolean contains(int cell, int end, int other) {
+        for (int i = offsets[cell]; i < end; i++) {
+            if (neighbors[i] == other) return true;
+        }
+        return false;
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * @return Le plus grand nombre de voisins d'une case
+     */
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Début de la liste de voisins de chaque case (cellCount + 1 entrées). Le tableau est
+     * partagé et ne doit pas être modifié.
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Voisins de toutes les cases, à la suite (voir {@link #getOffsets()}). Le tableau est
+     * partagé et ne doit pas être modifié.
+     */
+    public int[] getNeighbors() {
+        return neighbors;
+    }
+
+    /**
+     * @return Les portails, deux cases par portail (tableau partagé, à ne pas modifier)
+     */
+    public int[] getWarps() {
+        return warps;
+    }
+
+    /**
+     * @return true pour une grille carrée sans portail (la forme des niveaux d'origine)
+     */
+    public boolean isPlainSquare() {
+        return kind == SQUARE && warps.length == 0;
+    }
+
+    /**
+     * @return true si un chemin peut passer directement de a à b
+     */
+    public boolean areNeighbors(int a, int b) {
+        if (a < 0 || a >= cellCount) return false;
+        return contains(a, offsets[a + 1], b);
+    }
+
+    /**
+     * @return true si a et b sont voisines sans se toucher à l'écran (bord torique ou portail) :
+     * le dessin d'un chemin s'interrompt entre elles
+     */
+    public boolean isJump(int a, int b) {
+        if (a < 0 || a >= cellCount) return false;
+        for (int i = offsets[a]; i < offsets[a + 1]; i++) {
+            if (neighbors[i] == b) return jumps[i];
+        }
+        return false;
+    }
+
+    /**
+     * @param row Une ligne de la grille, éventuellement fractionnaire (bout d'un tracé entre deux cases)
+     * @return Le décalage horizontal de la ligne à l'écran, en cases : 0,5 pour les lignes
+     * impaires d'une grille hexagonale, interpolé entre deux lignes
+     */
+    public float getRowShift(float row) {
+        if (kind != HEX) return 0f;
+        int below = (int) Math.floor(row);
+        float t = row - below;
+        float shift = Math.abs(below % 2) == 1 ? 0.5f : 0f;
+        return t == 0f ? shift : shift + (0.5f - 2 * shift) * t;
+    }
+
+    /**
+     * @return La largeur de la grille à l'écran, en cases
+     */
+    public float getWidthInCells() {
+        return kind == HEX && gridSize > 1 ? gridSize + 0.5f : gridSize;
+    }
+
+    /**
+     * Case sous une position à l'écran.
+     * @param gridX Abscisse en cases depuis le coin de la grille
+     * @param gridY Ordonnée en cases depuis le coin de la grille
+     * @return L'indice de la case, ou -1 hors de la grille ; sur un tore, une position
+     * jusqu'à une case au-delà d'un bord désigne la case du bord opposé
+     */
+    public int cellAt(float gridX, float gridY) {
+        int y = (int) Math.floor(gridY);
+        int x = (int) Math.floor(gridX - getRowShift(y));
+        if (kind == TORUS && x >= -1 && y >= -1 && x <= gridSize && y <= gridSize) {
+            x = wrap(x);
+            y = wrap(y);
+        }
+        if (x < 0 || y < 0 || x >= gridSize || y >= gridSize) return -1;
+        return y * gridSize + x;
+    }
+}
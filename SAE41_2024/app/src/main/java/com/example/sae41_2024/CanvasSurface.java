@@ -0,0 +1,83 @@
+package com.example.sae41_2024;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Shader;
+
+/**
+ * {@link DrawSurface} qui dessine sur un {@link Canvas} Android. Une même instance
+ * est réutilisée d'une image à l'autre en changeant de canvas.
+ */
+public final class CanvasSurface implements DrawSurface {
+    private Canvas canvas;
+
+    /**
+     * @param canvas Le canvas de l'image à dessiner
+     * @return Cette surface
+     */
+    public CanvasSurface wrap(Canvas canvas) {
+        this.canvas = canvas;
+        return this;
+    }
+
+    @Override
+    public void drawColor(int color) {
+        canvas.drawColor(color);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        canvas.drawLine(startX, startY, stopX, stopY, paint);
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, Paint paint) {
+        canvas.drawCircle(centerX, centerY, radius, paint);
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        canvas.drawRect(left, top, right, bottom, paint);
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        canvas.drawPath(path, paint);
+    }
+
+    @Override
+    public void save() {
+        canvas.save();
+    }
+
+    @Override
+    public void restore() {
+        canvas.restore();
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        canvas.translate(dx, dy);
+    }
+
+    @Override
+    public void setColor(Paint paint, int color) {
+        paint.setColor(color);
+    }
+
+    @Override
+    public void setAlpha(Paint paint, int alpha) {
+        paint.setAlpha(alpha);
+    }
+
+    @Override
+    public void setStrokeWidth(Paint paint, float width) {
+        paint.setStrokeWidth(width);
+    }
+
+    @Override
+    public void setShader(Paint paint, Shader shader) {
+        paint.setShader(shader);
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.sae41_2024;
+
+import java.util.Arrays;
+
+/**
+ * Petit solveur SAT par apprentissage de clauses (CDCL), en Java pur.
+ *
+ * Variables numérotées à partir de 1, littéraux au format DIMACS (v ou -v). Classique :
+ * deux littéraux surveillés par clause, analyse des conflits au premier point d'implication
+ * unique, heuristique d'activité des variables (VSIDS) avec tas, mémoire de phase et
+ * redémarrages selon la suite de Luby. Des clauses peuvent être ajoutées entre deux appels
+ * à {@link #solve(long)} (les clauses apprises restent valables).
+ */
+final class CdclSolver {
+    private static final int RESTART_BASE = 100;
+    private static final double ACTIVITY_DECAY = 0.95;
+
+    private final int varCount;
+    // Littéral interne : 2 * v pour v, 2 * v + 1 pour non v
+    private int[][] clauses = new int[256][];
+    private int clauseCount = 0;
+    private final IntList[] watches;
+
+    // Valeur de chaque variable : 0 libre, 1 vraie, -1 fausse
+    private final byte[] values;
+    private final int[] levels;
+    private final int[] reasons;
+    private final boolean[] phases;
+    private final boolean[] seen;
+    private final int[] trail;
+    private int trailSize = 0;
+    private int propagated = 0;
+    private final IntList levelStarts = new IntList();
+
+    private final double[] activity;
+    private double activityIncrement = 1;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize = 0;
+
+    private boolean unsatisfiable = false;
+    private long conflicts = 0;
+    private volatile boolean cancelled;
+    private final IntList learnt = new IntList();
+
+    /**
+     * @param varCount Le nombre de variables (numérotées de 1 à varCount)
+     */
+    CdclSolver(int varCount) {
+        this.varCount = varCount;
+        watches = new IntList[2 * varCount + 2];
+        for (int i = 0; i < watches.length; i++) watches[i] = new IntList();
+        values = new byte[varCount + 1];
+        levels = new int[varCount + 1];
+        reasons = new int[varCount + 1];
+        phases = new boolean[varCount + 1];
+        seen = new boolean[varCount + 1];
+        trail = new int[varCount + 1];
+        activity = new double[varCount + 1];
+        heap = new int[varCount + 1];
+        heapIndex = new int[varCount + 1];
+        Arrays.fill(heapIndex, -1);
+        for (int v = 1; v <= varCount; v++) heapInsert(v);
+    }
+
+    /**
+     * Ajoute une clause (disjonction de littéraux DIMACS).
+     * @return false si la formule est déjà insatisfiable
+     */
+    boolean addClause(int... dimacs) {
+        if (unsatisfiable) return false;
+        backtrack(0);
+        int[] clause = new int[dimacs.length];
+        int size = 0;
+        for (int literal : dimacs) {
+            int lit = literal > 0 ? 2 * literal : -2 * literal + 1;
+            int value = valueOf(lit);
+            if (value == 1) return true;
+            if (value == -1) continue;
+            boolean duplicate = false;
+            for (int i = 0; i < size; i++) {
+                if (clause[i] == lit) duplicate = true;
+                // Tautologie : toujours satisfaite
+                if (clause[i] == (lit ^ 1)) return true;
+            }
+            if (!duplicate) clause[size++] = lit;
+        }
+        if (size == 0) {
+            unsatisfiable = true;
+            return false;
+        }
+        if (size == 1) {
+            assign(clause[0], -1);
+            if (propagate() != -1) unsatisfiable = true;
+            return !unsatisfiable;
+        }
+        attach(Arrays.copyOf(clause, size));
+        return true;
+    }
+
+    /**
+     * Cherche une affectation qui satisfait toutes les clauses.
+     * @param conflictLimit Nombre de conflits au-delà duquel la recherche est abandonnée
+     * @return TRUE si satisfiable, FALSE si insatisfiable, null si abandonnée
+     */
+    Boolean solve(long conflictLimit) {
+        if (unsatisfiable) return Boolean.FALSE;
+        backtrack(0);
+        long limit = conflicts + conflictLimit;
+        int restart = 1;
+        long restartAt = conflicts + RESTART_BASE * luby(restart);
+
+        while (true) {
+            int conflict = propagate();
+            if (conflict != -1) {
+                conflicts++;
+                if (levelStarts.size == 0) {
+                    unsatisfiable = true;
+                    return Boolean.FALSE;
+                }
+                int backLevel = analyze(conflict);
+                backtrack(backLevel);
+                int[] clause = learnt.toArray();
+                if (clause.length == 1) {
+                    assign(clause[0], -1);
+                } else {
+                    assign(clause[0], attach(clause));
+                }
+                activityIncrement /= ACTIVITY_DECAY;
+
+                if (cancelled || conflicts >= limit) {
+                    backtrack(0);
+                    return null;
+                }
+                if (conflicts >= restartAt) {
+                    backtrack(0);
+                    restartAt = conflicts + RESTART_BASE * luby(++restart);
+                }
+            } else {
+                int variable = pickBranchVariable();
+                if (variable == 0) return Boolean.TRUE;
+                levelStarts.add(trailSize);
+                assign(phases[variable] ? 2 * variable : 2 * variable + 1, -1);
+            }
+        }
+    }
+
+    /**
+     * @return La valeur d'une variable dans le modèle trouvé par le dernier {@link #solve(long)}
+     */
+    boolean modelValue(int variable) {
+        return values[variable] == 1;
+    }
+
+    /**
+     * @return Le nombre total de conflits rencontrés
+     */
+    long getConflictCount() {
+        return conflicts;
+    }
+
+    /**
+     * Interrompt la recherche en cours depuis un autre thread.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    private int valueOf(int lit) {
+        int value = values[lit >> 1];
+        return (lit & 1) == 0 ? value : -value;
+    }
+
+    private int attach(int[] clause) {
+        if (clauseCount == clauses.length) clauses = Arrays.copyOf(clauses, clauseCount * 2);
+        clauses[clauseCount] = clause;
+        watches[clause[0]].add(clauseCount);
+        watches[clause[1]].add(clauseCount);
+        return clauseCount++;
+    }
+
+    private void assign(int lit, int reason) {
+        int variable = lit >> 1;
+        values[variable] = (byte) ((lit & 1) == 0 ? 1 : -1);
+        levels[variable] = levelStarts.size;
+        reasons[variable] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Propage les affectations en attente.
+     * @return L'indice d'une clause en conflit, ou -1
+     */
+    private int propagate() {
+        while (propagated < trailSize) {
+            int falseLit = trail[propagated++] ^ 1;
+            IntList watching = watches[falseLit];
+            int[] list = watching.items;
+            int kept = 0;
+            int i = 0;
+            while (i < watching.size) {
+                int index = list[i++];
+                int[] clause = clauses[index];
+                if (clause[0] == falseLit) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLit;
+                }
+                if (valueOf(clause[0]) == 1) {
+                    list[kept++] = index;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < clause.length; k++) {
+                    if (valueOf(clause[k]) != -1) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLit;
+                        watches[clause[1]].add(index);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+                list[kept++] = index;
+                if (valueOf(clause[0]) == -1) {
+                    while (i < watching.size) list[kept++] = list[i++];
+                    watching.size = kept;
+                    propagated = trailSize;
+                    return index;
+                }
+                assign(clause[0], index);
+            }
+            watching.size = kept;
+        }
+        return -1;
+    }
+
+    /**
+     * Analyse un conflit et construit dans {@link #learnt} la clause apprise
+     * (littéral assertif en tête, littéral du niveau de retour en deuxième).
+     * @return Le niveau de retour
+     */
+    private int analyze(int conflict) {
+        learnt.clear();
+        learnt.add(0);
+        int level = levelStarts.size;
+        int pending = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        int reason = conflict;
+        do {
+            int[] clause = clauses[reason];
+            for (int j = lit == -1 ? 0 : 1; j < clause.length; j++) {
+                int variable = clause[j] >> 1;
+                if (seen[variable] || levels[variable] == 0) continue;
+                seen[variable] = true;
+                bump(variable);
+                if (levels[variable] >= level) {
+                    pending++;
+                } else {
+                    learnt.add(clause[j]);
+                }
+            }
+            while (!seen[trail[index] >> 1]) index--;
+            lit = trail[index--];
+            reason = reasons[lit >> 1];
+            seen[lit >> 1] = false;
+            pending--;
+        } while (pending > 0);
+        learnt.items[0] = lit ^ 1;
+
+        int backLevel = 0;
+        for (int i = 1; i < learnt.size; i++) {
+            int variable = learnt.items[i] >> 1;
+            seen[variable] = false;
+            if (levels[variable] > backLevel) {
+                backLevel = levels[variable];
+                int swap = learnt.items[1];
+                learnt.items[1] = learnt.items[i];
+                learnt.items[i] = swap;
+            }
+        }
+        return backLevel;
+    }
+
+    private void backtrack(int level) {
+        if (levelStarts.size <= level) return;
+        int start = levelStarts.items[level];
+        for (int i = trailSize - 1; i >= start; i--) {
+            int variable = trail[i] >> 1;
+            phases[variable] = values[variable] == 1;
+            values[variable] = 0;
+            if (heapIndex[variable] == -1) heapInsert(variable);
+        }
+        trailSize = start;
+        propagated = start;
+        levelStarts.size = level;
+    }
+
+    private int pickBranchVariable() {
+        while (heapSize > 0) {
+            int variable = heapRemoveTop();
+            if (values[variable] == 0) return variable;
+        }
+        return 0;
+    }
+
+    private void bump(int variable) {
+        activity[variable] += activityIncrement;
+        if (activity[variable] > 1e100) {
+            for (int v = 1; v <= varCount; v++) activity[v] *= 1e-100;
+            activityIncrement *= 1e-100;
+        }
+        if (heapIndex[variable] != -1) heapUp(heapIndex[variable]);
+    }
+
+    private static long luby(int i) {
+        int size = 1, sequence = 0;
+        while (size < i + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        int x = i;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            sequence--;
+            x = x % size;
+        }
+        return 1L << sequence;
+    }
+
+    // Tas binaire des variables, la plus active en haut
+
+    private void heapInsert(int variable) {
+        heap[heapSize] = variable;
+        heapIndex[variable] = heapSize;
+        heapUp(heapSize++);
+    }
+
+    private int heapRemoveTop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return top;
+    }
+
+    private void heapUp(int position) {
+        int variable = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >> 1;
+            if (activity[heap[parent]] >= activity[variable]) break;
+            heap[position] = heap[parent];
+            heapIndex[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = variable;
+        heapIndex[variable] = position;
+    }
+
+    private void heapDown(int position) {
+        int variable = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+            if (activity[heap[child]] <= activity[variable]) break;
+            heap[position] = heap[child];
+            heapIndex[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = variable;
+        heapIndex[variable] = position;
+    }
+
+    /**
+     * Liste d'entiers extensible, sans boxing.
+     */
+    private static final class IntList {
+        int[] items = new int[4];
+        int size = 0;
+
+        void add(int value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.sae41_2024;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Moteur de déduction exécuté en arrière-plan pendant la partie.
+ * Après chaque modification de la grille, il repère :
+ * - les cases libres qui ne peuvent appartenir qu'à une seule couleur (coups forcés),
+ * - les zones libres isolées qu'aucune paire ne peut atteindre (impasses),
+ * - les paires non reliées dont les deux points sont séparés (paires coupées).
+ *
+ * Le calcul est incrémental : seules les zones libres touchées par le dernier changement
+ * sont recalculées, les autres gardent leur étiquette et leur résultat.
+ */
+public class DeductionEngine {
+    /** Aucune déduction pour la case. */
+    public static final int MARK_NONE = -1;
+    /** Case libre qu'aucune paire ne peut plus atteindre. */
+    public static final int MARK_DEAD = -2;
+    // Statut interne d'une zone atteignable par plusieurs paires
+    private static final int STATUS_OPEN = -3;
+
+    /**
+     * Reçoit les déductions publiées (sur l'exécuteur fourni au constructeur).
+     */
+    public interface Listener {
+        void onDeductions(Result result);
+    }
+
+    /**
+     * Résultat immuable d'une analyse.
+     */
+    public static final class Result {
+        private final int gridSize;
+        private final int[] marks;
+        private final int[] cutOffColors;
+
+        Result(int gridSize, int[] marks, int[] cutOffColors) {
+            this.gridSize = gridSize;
+            this.marks = marks;
+            this.cutOffColors = cutOffColors;
+        }
+
+        public int getGridSize() {
+            return gridSize;
+        }
+
+        /**
+         * @return {@link #MARK_NONE}, {@link #MARK_DEAD} ou l'indice de la seule couleur possible
+         */
+        public int getMark(int x, int y) {
+            return marks[y * gridSize + x];
+        }
+
+        /**
+         * @param colorIndex L'indice de couleur d'une paire
+         * @return true si les deux points de la paire ne peuvent plus être reliés
+         */
+        public boolean isCutOff(int colorIndex) {
+            for (int color : cutOffColors) {
+                if (color == colorIndex) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Grille à analyser, construite sur le thread de calcul depuis un {@link BoardSnapshot}.
+     */
+    private static final class Board {
+        BoardTopology topology;
+        int gridSize;
+        int[] ends;       // deux cases par couleur : ends[2c], ends[2c+1]
+        int[] owner;      // couleur occupant chaque case, -1 si libre
+        boolean[] connected;
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final AtomicReference<BoardSnapshot> pending = new AtomicReference<>();
+    private final Executor resultExecutor;
+    private final Listener listener;
+
+    // État du thread de calcul
+    private BoardTopology topology;
+    private int[] offsets = new int[1];
+    private int[] neighbors = new int[0];
+    private int gridSize;
+    private int[] ends = new int[0];
+    private int[] owner = new int[0];
+    private boolean[] endpoint = new boolean[0];
+    private int[] changed = new int[0];
+    private int[] seeds = new int[0];
+    private int[] regionOf = new int[0];
+    private int[] marks = new int[0];
+    private int[] queue = new int[0];
+    private int[][] regionCells = new int[0][];
+    private int[] regionStatus = new int[0];
+    private int[] regionReach = new int[0];
+    private int[] regionReachColor = new int[0];
+    private boolean[] regionFresh = new boolean[0];
+    private int[] freeLabels = new int[0];
+    private int freeLabelCount;
+    private int labelCount;
+
+    /**
+     * @param resultExecutor Exécuteur sur lequel le listener est appelé (ex : thread UI)
+     * @param listener Destinataire des déductions
+     */
+    public DeductionEngine(Executor resultExecutor, Listener listener) {
+        this.resultExecutor = resultExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * Planifie l'analyse du dernier instantané de la grille. Si plusieurs changements arrivent
+     * pendant un calcul, seul le plus récent est analysé.
+     * @param logic La logique du jeu (seul son instantané immuable est pris sur le thread appelant)
+     */
+    public void submit(GameLogic logic) {
+        if (pending.getAndSet(logic.getSnapshot()) == null) {
+            worker.execute(() -> {
+                BoardSnapshot snapshot = pending.getAndSet(null);
+                if (snapshot != null) {
+                    Result result = analyze(capture(snapshot));
+                    resultExecutor.execute(() -> listener.onDeductions(result));
+                }
+            });
+        }
+    }
+
+    /**
+     * Arrête le thread de calcul.
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private static Board capture(BoardSnapshot snapshot) {
+        Board board = new Board();
+        int size = snapshot.getGridSize();
+        List<FlowPoint> points = snapshot.getPoints();
+        board.topology = snapshot.getTopology();
+        board.gridSize = size;
+        board.ends = new int[points.size() + points.size() % 2];
+        Arrays.fill(board.ends, -1);
+        int[] seen = new int[board.ends.length / 2];
+        for (FlowPoint point : points) {
+            int color = point.getColorIndex();
+            if (color < 0 || color >= seen.length || seen[color] == 2) continue;
+            board.ends[color * 2 + seen[color]++] = point.getY() * size + point.getX();
+        }
+
+        board.owner = new int[size * size];
+        Arrays.fill(board.owner, -1);
+        board.connected = new boolean[seen.length];
+        for (int color = 0; color < snapshot.getColorSlots(); color++) {
+            int[] cells = snapshot.getPathCells(color);
+            if (cells == null) continue;
+            if (color < board.connected.length) board.connected[color] = true;
+            for (int i = 0; i < cells.length; i += 2) {
+                int x = cells[i], y = cells[i + 1];
+                if (x >= 0 && y >= 0 && x < size && y < size) {
+                    board.owner[y * size + x] = color;
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Analyse une grille en ne recalculant que les zones libres modifiées depuis l'appel précédent.
+     */
+    Result analyze(Board board) {
+        int cellCount = board.gridSize * board.gridSize;
+        boolean newLevel = board.topology != topology || !Arrays.equals(board.ends, ends);
+        if (newLevel) resetLevel(board);
+
+        // Cases dont le caractère libre/occupé a changé
+        int changedCount = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            boolean wasFree = !newLevel && isFree(cell);
+            owner[cell] = board.owner[cell];
+            if (newLevel || wasFree != isFree(cell)) changed[changedCount++] = cell;
+        }
+
+        // Les zones qui touchent une case modifiée perdent leur étiquette et deviennent des germes
+        int seedCount = 0;
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changed[i];
+            retire(regionOf[cell]);
+            marks[cell] = MARK_NONE;
+            if (isFree(cell)) seeds[seedCount++] = cell;
+            for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+                int next = neighbors[k];
+                if (isFree(next)) {
+                    retire(regionOf[next]);
+                    seeds[seedCount++] = next;
+                }
+            }
+        }
+        for (int i = 0; i < seedCount; i++) {
+            if (regionOf[seeds[i]] == -1) flood(seeds[i]);
+        }
+
+        // Quelles paires non reliées peuvent atteindre chaque zone ?
+        for (int label = 0; label < labelCount; label++) {
+            regionReach[label] = 0;
+        }
+        List<Integer> cutOff = new ArrayList<>();
+        int[] labelsA = new int[topology.getMaxDegree()];
+        int[] shared = new int[topology.getMaxDegree()];
+        for (int color = 0; color < board.connected.length; color++) {
+            if (board.connected[color]) continue;
+            int a = ends[color * 2];
+            int b = ends[color * 2 + 1];
+            if (a < 0 || b < 0) continue;
+
+            int countA = 0;
+            for (int k = offsets[a]; k < offsets[a + 1]; k++) {
+                int next = neighbors[k];
+                if (regionOf[next] >= 0) labelsA[countA++] = regionOf[next];
+            }
+            // Une même zone peut toucher un point par plusieurs côtés : chaque zone n'est comptée qu'une fois
+            int sharedCount = 0;
+            for (int k = offsets[b]; k < offsets[b + 1]; k++) {
+                int next = neighbors[k];
+                if (regionOf[next] < 0) continue;
+                int label = regionOf[next];
+                if (contains(labelsA, countA, label) && !contains(shared, sharedCount, label)) {
+                    shared[sharedCount++] = label;
+                }
+            }
+            for (int i = 0; i < sharedCount; i++) {
+                regionReach[shared[i]]++;
+                regionReachColor[shared[i]] = color;
+            }
+            // Deux points voisins se relient directement : la paire n'est jamais coupée, mais
+            // elle peut toujours faire un détour par les zones qu'elle touche des deux côtés
+            if (sharedCount == 0 && !topology.areNeighbors(a, b)) cutOff.add(color);
+        }
+
+        // Seules les zones dont le statut change réécrivent leurs cases
+        for (int label = 0; label < labelCount; label++) {
+            if (regionCells[label] == null) continue;
+            int status = regionReach[label] == 0 ? MARK_DEAD
+                    : regionReach[label] == 1 ? regionReachColor[label] : STATUS_OPEN;
+            if (status == regionStatus[label] && !regionFresh[label]) continue;
+            regionStatus[label] = status;
+            regionFresh[label] = false;
+            int mark = status == STATUS_OPEN ? MARK_NONE : status;
+            for (int cell : regionCells[label]) {
+                marks[cell] = mark;
+            }
+        }
+
+        int[] cutOffColors = new int[cutOff.size()];
+        for (int i = 0; i < cutOffColors.length; i++) cutOffColors[i] = cutOff.get(i);
+        return new Result(gridSize, marks.clone(), cutOffColors);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    private void resetLevel(Board board) {
+        int cellCount = board.gridSize * board.gridSize;
+        topology = board.topology;
+        offsets = topology.getOffsets();
+        neighbors = topology.getNeighbors();
+        gridSize = board.gridSize;
+        ends = board.ends.clone();
+        owner = new int[cellCount];
+        endpoint = new boolean[cellCount];
+        for (int end : ends) {
+            if (end >= 0 && end < cellCount) endpoint[end] = true;
+        }
+        regionOf = new int[cellCount];
+        marks = new int[cellCount];
+        queue = new int[cellCount];
+        changed = new int[cellCount];
+        // Chaque case modifiée apporte au plus elle-même et ses voisines
+        seeds = new int[cellCount * (topology.getMaxDegree() + 1)];
+        regionCells = new int[cellCount][];
+        regionStatus = new int[cellCount];
+        regionReach = new int[cellCount];
+        regionReachColor = new int[cellCount];
+        regionFresh = new boolean[cellCount];
+        freeLabels = new int[cellCount];
+        freeLabelCount = 0;
+        labelCount = 0;
+        Arrays.fill(regionOf, -1);
+        Arrays.fill(marks, MARK_NONE);
+    }
+
+    /**
+     * Une case est libre si aucun chemin ne la traverse et qu'aucun point n'y est posé.
+     */
+    private boolean isFree(int cell) {
+        return owner[cell] == -1 && !endpoint[cell];
+    }
+
+    /**
+     * Libère l'étiquette d'une zone dont la forme a changé.
+     */
+    private void retire(int label) {
+        if (label < 0 || regionCells[label] == null) return;
+        for (int cell : regionCells[label]) {
+            regionOf[cell] = -1;
+        }
+        regionCells[label] = null;
+        freeLabels[freeLabelCount++] = label;
+    }
+
+    /**
+     * Parcourt en largeur la zone libre contenant la case et lui attribue une nouvelle étiquette.
+     */
+    private void flood(int start) {
+        int label = freeLabelCount > 0 ? freeLabels[--freeLabelCount] : labelCount++;
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        regionOf[start] = label;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+                int next = neighbors[k];
+                if (regionOf[next] == -1 && isFree(next)) {
+                    regionOf[next] = label;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        regionCells[label] = Arrays.copyOf(queue, tail);
+        regionFresh[label] = true;
+        regionStatus[label] = MARK_NONE;
+    }
+}
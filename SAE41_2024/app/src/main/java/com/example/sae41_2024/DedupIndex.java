@@ -0,0 +1,88 @@
+package com.example.sae41_2024;
+
+/**
+ * Ensemble d'empreintes de niveaux (voir {@link LevelFingerprint}) associant à chacune
+ * le premier niveau qui l'a ajoutée.
+ *
+ * Adressage ouvert sur un tableau de long (sondage linéaire) : ni objet par entrée ni boxing,
+ * ce qui tient des centaines de milliers de niveaux en quelques mégaoctets avec
+ * un ajout et une recherche en temps constant en moyenne.
+ */
+public class DedupIndex {
+    // 0 marque une place libre : LevelFingerprint.hash ne renvoie jamais 0
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int size = 0;
+
+    /**
+     * @param expected Nombre d'empreintes attendu (le tableau grandit au besoin)
+     */
+    public DedupIndex(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) capacity <<= 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * @return Le nombre d'empreintes distinctes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ajoute une empreinte si elle est nouvelle.
+     *
+     * @param hash  L'empreinte (non nulle)
+     * @param level Le niveau qui la porte
+     * @return -1 si l'empreinte est nouvelle, sinon le niveau qui l'a ajoutée en premier
+     */
+    public int putIfAbsent(long hash, int level) {
+        if (hash == EMPTY) throw new IllegalArgumentException("Empreinte nulle");
+        int slot = slot(hash);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == hash) return values[slot];
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = hash;
+        values[slot] = level;
+        if (++size * 2 > keys.length) grow();
+        return -1;
+    }
+
+    /**
+     * @param hash L'empreinte cherchée
+     * @return Le niveau qui l'a ajoutée en premier, ou -1
+     */
+    public int get(long hash) {
+        if (hash == EMPTY) return -1;
+        int slot = slot(hash);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == hash) return values[slot];
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    private int slot(long hash) {
+        // Les bits de poids fort sont déjà bien mélangés par l'empreinte : on les replie
+        return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != EMPTY) slot = (slot + 1) & (keys.length - 1);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
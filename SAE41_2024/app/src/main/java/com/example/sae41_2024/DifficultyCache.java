@@ -0,0 +1,119 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Notes de difficulté des niveaux conservées sur disque d'un lancement à l'autre.
+ *
+ * Une note est indexée par l'empreinte du contenu du niveau ; le fichier entier est lié
+ * à {@link DifficultyRater#VERSION} et ignoré si la formule de notation a changé.
+ */
+public class DifficultyCache {
+    private static final String TAG = "DEBUG_FLOW";
+    private static final int FILE_VERSION = 1;
+
+    private final File file;
+    private final Map<Long, Integer> results = new HashMap<>();
+    private boolean loaded = false;
+    // Vrai une fois le fichier lu : avant, get() répond sans attendre la fin de la lecture
+    private volatile boolean ready = false;
+    private boolean dirty = false;
+
+    /**
+     * @param context Le contexte Android (pour le dossier de l'application)
+     */
+    public DifficultyCache(Context context) {
+        this(new File(context.getFilesDir(), "difficulty.cache"));
+    }
+
+    DifficultyCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Lit le fichier du cache (à appeler hors du thread UI). Sans effet s'il est déjà chargé.
+     */
+    public synchronized void load() {
+        if (loaded) return;
+        loaded = true;
+        StartupTrace.begin("difficultyCache.load");
+        try {
+            read();
+        } finally {
+            StartupTrace.end();
+        }
+        ready = true;
+    }
+
+    private void read() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION || in.readInt() != DifficultyRater.VERSION) {
+                dirty = true; // réécrit au prochain enregistrement
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                results.put(in.readLong(), in.readInt());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cache des difficultés illisible : " + e.getMessage());
+            results.clear();
+            dirty = true;
+        }
+    }
+
+    /**
+     * @param contentHash L'empreinte du contenu du niveau
+     * @return La note connue, ou null si le niveau n'a pas encore été noté
+     *         ou si le cache n'est pas encore chargé
+     */
+    public Integer get(long contentHash) {
+        if (!ready) return null;
+        synchronized (this) {
+            return results.get(contentHash);
+        }
+    }
+
+    /**
+     * Enregistre la note d'un niveau.
+     * @param contentHash L'empreinte du contenu du niveau
+     * @param score La note, ou {@link DifficultyRater#UNRATED}
+     */
+    public synchronized void put(long contentHash, int score) {
+        Integer previous = results.put(contentHash, score);
+        if (previous == null || previous != score) dirty = true;
+    }
+
+    /**
+     * Écrit le cache sur disque s'il a changé (à appeler hors du thread UI).
+     */
+    public synchronized void save() {
+        if (!dirty) return;
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) return;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(DifficultyRater.VERSION);
+            out.writeInt(results.size());
+            for (Map.Entry<Long, Integer> entry : results.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            dirty = false;
+        } catch (IOException e) {
+            Log.w(TAG, "Impossible d'écrire le cache des difficultés : " + e.getMessage());
+        }
+    }
+}
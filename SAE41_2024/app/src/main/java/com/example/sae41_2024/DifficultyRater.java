@@ -0,0 +1,246 @@
+package com.example.sae41_2024;
+
+import android.os.Process;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Note la difficulté d'un niveau en le résolvant comme un joueur : on prolonge toujours
+ * la couleur la plus contrainte, et l'on compte les coups forcés, les vrais choix et la
+ * profondeur de choix empilés qu'il a fallu pour conclure. La longueur du plus long chemin
+ * par rapport à la grille complète la note (un long serpentin est plus dur à voir).
+ *
+ * Les notes du paquet sont calculées par lots sur un pool de threads de fond et conservées
+ * dans un {@link DifficultyCache} : seuls les niveaux nouveaux ou modifiés sont résolus.
+ */
+public class DifficultyRater {
+    private static final String TAG = "DEBUG_FLOW";
+    /** À incrémenter quand la formule change : les notes en cache sont alors recalculées. */
+    public static final int VERSION = 1;
+
+    /** Note d'un niveau sans solution ou illisible. */
+    public static final int UNRATED = -1;
+    public static final int MAX_SCORE = 100;
+
+    // Au-delà, le niveau est hors de portée d'une résolution « à la main » : note maximale
+    static final long NODE_LIMIT = 200_000L;
+    private static final int RESULT_BATCH = 16;
+
+    private static final String[] TIER_NAMES = {"Facile", "Moyen", "Difficile", "Expert"};
+
+    /**
+     * Reçoit des lots de notes (sur l'exécuteur fourni à {@link #rateAll}).
+     */
+    public interface Listener {
+        /**
+         * @param indices Les positions des niveaux notés dans le paquet
+         * @param scores Leurs notes, {@link #UNRATED} si non résolus
+         */
+        void onRated(int[] indices, int[] scores);
+    }
+
+    private final ExecutorService pool;
+    private volatile boolean closed = false;
+
+    /**
+     * Crée le pool de calcul : un thread de moins que de cœurs, pour laisser le thread UI respirer.
+     */
+    public DifficultyRater() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                task.run();
+            }, "DifficultyRater");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Note un niveau sur une grille carrée.
+     * @param gridSize La taille de la grille
+     * @param points Les points du niveau
+     * @return Une note de 0 à {@link #MAX_SCORE}, ou {@link #UNRATED} si le niveau n'a pas de solution
+     */
+    public static int rate(int gridSize, List<FlowPoint> points) {
+        if (gridSize <= 0) return UNRATED;
+        return rate(BoardTopology.square(gridSize), points);
+    }
+
+    /**
+     * Note un niveau.
+     * @param topology Le voisinage des cases du niveau
+     * @param points Les points du niveau
+     * @return Une note de 0 à {@link #MAX_SCORE}, ou {@link #UNRATED} si le niveau n'a pas de solution
+     */
+    public static int rate(BoardTopology topology, List<FlowPoint> points) {
+        if (points.isEmpty()) return UNRATED;
+        int gridSize = topology.getGridSize();
+        BacktrackingSolver solver = BacktrackingSolver.forLevel(topology, points);
+        solver.setNodeLimit(NODE_LIMIT);
+        int[][] solution = solver.solve();
+        if (solver.isAborted()) return MAX_SCORE;
+        if (solution == null) return UNRATED;
+
+        int cellCount = gridSize * gridSize;
+        int longest = 0;
+        for (int[] path : solution) longest = Math.max(longest, path.length);
+
+        // Part des décisions qui ont demandé un choix
+        long decisions = solver.getForcedCount() + solver.getBranchCount();
+        double branching = decisions == 0 ? 0 : (double) solver.getBranchCount() / decisions;
+        // Nombre de choix à garder en tête en même temps (8 et plus : au maximum)
+        double depth = Math.min(1, Math.log(1 + solver.getMaxBranchDepth()) / Math.log(9));
+        double longestPath = (double) longest / cellCount;
+        // Une grande grille est plus longue à balayer du regard (14 x 14 : au maximum)
+        double size = Math.min(1, cellCount / 196.0);
+
+        double score = 40 * branching + 25 * depth + 20 * longestPath + 15 * size;
+        return (int) Math.round(Math.min(MAX_SCORE, score));
+    }
+
+    /**
+     * @param score Une note
+     * @return Le palier de difficulté (0 : facile à 3 : expert), ou -1 pour {@link #UNRATED}
+     */
+    public static int tierOf(int score) {
+        if (score < 0) return -1;
+        return Math.min(TIER_NAMES.length - 1, score * TIER_NAMES.length / MAX_SCORE);
+    }
+
+    /**
+     * @param tier Un palier renvoyé par {@link #tierOf(int)}
+     * @return Son nom affiché
+     */
+    public static String tierName(int tier) {
+        return tier < 0 ? "Non évalué" : TIER_NAMES[tier];
+    }
+
+    /**
+     * @return Le nombre de paliers (hors « non évalué »)
+     */
+    public static int tierCount() {
+        return TIER_NAMES.length;
+    }
+
+    /**
+     * Note en arrière-plan tous les niveaux du paquet absents du cache.
+     * Le cache est lu puis réécrit sur le pool ; les notes déjà connues sont publiées d'abord.
+     *
+     * @param pack Le paquet de niveaux
+     * @param cache Les notes des lancements précédents
+     * @param resultExecutor Exécuteur du listener (ex : thread UI)
+     * @param listener Destinataire des lots de notes
+     */
+    public void rateAll(LevelPack pack, DifficultyCache cache, Executor resultExecutor, Listener listener) {
+        submit(() -> {
+            StartupTrace.begin("menu.rateCached");
+            cache.load();
+            List<Integer> missing = new ArrayList<>();
+            int[] knownIndices = new int[pack.size()];
+            int[] knownScores = new int[pack.size()];
+            int knownCount = 0;
+            for (int i = 0; i < pack.size(); i++) {
+                Integer score = cache.get(pack.getContentHash(i));
+                if (score != null) {
+                    knownIndices[knownCount] = i;
+                    knownScores[knownCount++] = score;
+                } else {
+                    missing.add(i);
+                }
+            }
+            if (knownCount > 0) {
+                int[] indices = Arrays.copyOf(knownIndices, knownCount);
+                int[] scores = Arrays.copyOf(knownScores, knownCount);
+                resultExecutor.execute(() -> listener.onRated(indices, scores));
+            }
+            StartupTrace.end();
+            if (missing.isEmpty() || closed) return;
+
+            // Un lot par tâche : les threads du pool se partagent les niveaux à résoudre
+            AtomicInteger remaining = new AtomicInteger(missing.size());
+            for (int from = 0; from < missing.size(); from += RESULT_BATCH) {
+                List<Integer> batch = missing.subList(from, Math.min(missing.size(), from + RESULT_BATCH));
+                boolean submitted = submit(() -> {
+                    int[] indices = new int[batch.size()];
+                    int[] scores = new int[batch.size()];
+                    for (int k = 0; k < batch.size() && !closed; k++) {
+                        indices[k] = batch.get(k);
+                        scores[k] = rate(pack, indices[k]);
+                        cache.put(pack.getContentHash(indices[k]), scores[k]);
+                    }
+                    if (closed) return;
+                    resultExecutor.execute(() -> listener.onRated(indices, scores));
+                    if (remaining.addAndGet(-batch.size()) == 0) {
+                        Log.d(TAG, missing.size() + " niveaux notés");
+                        cache.save();
+                    }
+                });
+                // Pool arrêté pendant la lecture du cache (ex : menu recréé) : les lots restants sont abandonnés
+                if (!submitted) return;
+            }
+        });
+    }
+
+    /**
+     * Arrête les calculs en cours après avoir enregistré les notes déjà obtenues.
+     */
+    public void shutdown(DifficultyCache cache) {
+        closed = true;
+        submit(cache::save);
+        pool.shutdown();
+    }
+
+    /**
+     * Attend l'arrêt du pool après {@link #shutdown}.
+     * @return true si tous les threads sont arrêtés
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Confie une tâche au pool, sauf s'il est déjà arrêté : {@link #shutdown} peut arriver à tout
+     * moment depuis le thread UI, et une tâche refusée sur un thread du pool ferait planter l'application.
+     * @return false si la tâche a été refusée
+     */
+    private boolean submit(Runnable task) {
+        try {
+            pool.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Notation arrêtée, tâche ignorée");
+            return false;
+        }
+    }
+
+    /**
+     * Note un niveau du paquet, lu sans passer par {@link GameLogic}.
+     */
+    private static int rate(LevelPack pack, int index) {
+        try (InputStream in = pack.openLevel(index)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            for (int read; (read = in.read(chunk)) != -1; ) {
+                out.write(chunk, 0, read);
+            }
+            LevelPackWriter.LevelInfo level = LevelPackWriter.readLevelInfo(out.toByteArray());
+            return level.size > 0 ? rate(level.topology(), level.points) : UNRATED;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Niveau " + index + " non noté : " + e.getMessage());
+            return UNRATED;
+        }
+    }
+}
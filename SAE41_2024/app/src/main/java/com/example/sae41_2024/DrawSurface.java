@@ -0,0 +1,51 @@
+package com.example.sae41_2024;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Shader;
+
+/**
+ * Cible de dessin du {@link BoardRenderer} : le sous-ensemble de {@link android.graphics.Canvas}
+ * dont il a besoin, plus les changements d'état des pinceaux faits pendant une image.
+ *
+ * En jeu, {@link CanvasSurface} transmet tout au canvas ; dans les tests JVM, une implémentation
+ * de mesure peut compter les appels de dessin sans appareil.
+ */
+public interface DrawSurface {
+
+    void drawColor(int color);
+
+    void drawLine(float startX, float startY, float stopX, float stopY, Paint paint);
+
+    void drawCircle(float centerX, float centerY, float radius, Paint paint);
+
+    void drawRect(float left, float top, float right, float bottom, Paint paint);
+
+    void drawPath(Path path, Paint paint);
+
+    void save();
+
+    void restore();
+
+    void translate(float dx, float dy);
+
+    /**
+     * Change la couleur d'un pinceau pendant le dessin d'une image.
+     */
+    void setColor(Paint paint, int color);
+
+    /**
+     * Change l'opacité d'un pinceau pendant le dessin d'une image.
+     */
+    void setAlpha(Paint paint, int alpha);
+
+    /**
+     * Change l'épaisseur de trait d'un pinceau pendant le dessin d'une image.
+     */
+    void setStrokeWidth(Paint paint, float width);
+
+    /**
+     * Change le motif d'un pinceau (null pour une couleur unie) pendant le dessin d'une image.
+     */
+    void setShader(Paint paint, Shader shader);
+}
@@ -0,0 +1,163 @@
+package com.example.sae41_2024;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.MenuItem;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Éditeur de niveaux : pose et déplacement des paires sur une grille de 5 à 14 cases,
+ * vérification en continu de l'existence et de l'unicité de la solution,
+ * et export au format XML des niveaux du jeu.
+ */
+public class EditorActivity extends Activity {
+    private static final String TAG = "DEBUG_FLOW";
+
+    private final LevelEditor editor = new LevelEditor(7);
+    private GameLogic gameLogic;
+    private GameView gameView;
+    private EditorChecker checker;
+    private TextView statusView;
+    private Button sizeButton;
+    private long version = 0;
+    private int lastStatus = EditorChecker.INCOMPLETE;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_editor);
+
+        if (getActionBar() != null) {
+            getActionBar().setDisplayHomeAsUpEnabled(true);
+            getActionBar().setTitle("Éditeur de niveaux");
+            getActionBar().setBackgroundDrawable(new ColorDrawable(Color.parseColor("#361F5F")));
+            getActionBar().setDisplayShowHomeEnabled(false);
+            getActionBar().setIcon(null);
+        }
+
+        statusView = findViewById(R.id.editor_status);
+        gameLogic = new GameLogic(editor.getSize());
+        gameView = new GameView(this, gameLogic);
+        gameView.setEditor(editor);
+        FrameLayout container = findViewById(R.id.game_container);
+        container.addView(gameView);
+
+        checker = new EditorChecker(this::runOnUiThread, this::onChecked);
+        editor.setOnChangeListener(this::onLevelChanged);
+
+        sizeButton = findViewById(R.id.editor_size);
+        sizeButton.setOnClickListener(v -> {
+            int next = editor.getSize() + 1;
+            editor.setSize(next > LevelEditor.MAX_SIZE ? LevelEditor.MIN_SIZE : next);
+        });
+        Button clearButton = findViewById(R.id.editor_clear);
+        clearButton.setOnClickListener(v -> editor.clear());
+        Button exportButton = findViewById(R.id.editor_export);
+        exportButton.setOnClickListener(v -> export());
+
+        onLevelChanged();
+    }
+
+    /**
+     * Recharge la grille affichée et relance la vérification (la précédente est annulée).
+     */
+    private void onLevelChanged() {
+        gameLogic.loadLevel(editor.getSize(), "Niveau perso", editor.toPoints());
+        sizeButton.setText("Taille : " + editor.getSize());
+        statusView.setText(editor.getPairCount() == 0 ? "Touchez une case pour poser un point" : "Vérification…");
+        lastStatus = EditorChecker.INCOMPLETE;
+        checker.submit(++version, editor.getSize(), editor.toEnds());
+    }
+
+    /**
+     * Affiche le résultat de la vérification du dernier état, et la solution trouvée.
+     */
+    private void onChecked(EditorChecker.Result result) {
+        if (result.getVersion() != version) return;
+        lastStatus = result.getStatus();
+        statusView.setText(describe(result) + " (" + result.getElapsedMillis() + " ms)");
+
+        int[][] solution = result.getSolution();
+        if (solution == null) return;
+        int size = editor.getSize();
+        for (int color = 0; color < solution.length; color++) {
+            List<int[]> path = new ArrayList<>();
+            for (int cell : solution[color]) path.add(new int[]{cell % size, cell / size});
+            gameLogic.savePath(color, path);
+        }
+    }
+
+    private String describe(EditorChecker.Result result) {
+        switch (result.getStatus()) {
+            case EditorChecker.INCOMPLETE:
+                return editor.getPairCount() == 0 ? "Grille vide" : "Posez le second point de la paire";
+            case EditorChecker.SOLVABLE:
+                return "Soluble, unicité en cours de vérification…";
+            case EditorChecker.UNIQUE:
+                return "Solution unique";
+            case EditorChecker.MULTIPLE:
+                return "Plusieurs solutions";
+            case EditorChecker.UNSOLVABLE:
+                return "Aucune solution";
+            default:
+                return "Trop ouvert pour conclure";
+        }
+    }
+
+    /**
+     * Écrit le niveau dans le dossier de l'application (Android/data/…/files/levels),
+     * au même format que les fichiers de src/main/levels.
+     */
+    private void export() {
+        if (!editor.isComplete() || editor.getPairCount() == 0) {
+            Toast.makeText(this, "Le niveau est incomplet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (lastStatus != EditorChecker.UNIQUE) {
+            Toast.makeText(this, "Attention : la solution n'est pas unique ou pas vérifiée", Toast.LENGTH_SHORT).show();
+        }
+        File base = getExternalFilesDir(null);
+        File directory = new File(base != null ? base : getFilesDir(), "levels");
+        if (!directory.exists() && !directory.mkdirs()) {
+            Toast.makeText(this, "Impossible de créer le dossier d'export", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String name = "Perso" + System.currentTimeMillis() / 1000;
+        File file = new File(directory, name + ".xml");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(editor.toXml(name).getBytes(StandardCharsets.UTF_8));
+            Toast.makeText(this, "Niveau exporté : " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.w(TAG, "Export impossible : " + e.getMessage());
+            Toast.makeText(this, "Export impossible", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        checker.shutdown();
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.sae41_2024;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Vérifie en arrière-plan qu'un niveau de l'éditeur a une solution, puis qu'elle est unique.
+ *
+ * Chaque modification annule la vérification en cours : seul le dernier état est vérifié.
+ * Le travail déjà fait est réutilisé de deux façons :
+ * - les chemins de la solution précédente qui ne touchent aucun point modifié sont imposés
+ *   au solveur, qui n'a plus qu'à relier le reste : l'existence d'une solution est
+ *   confirmée très vite et publiée avant le test d'unicité ;
+ * - les résultats sont gardés par empreinte canonique : revenir à un état déjà vu
+ *   (ou à une de ses symétries) répond immédiatement.
+ */
+public class EditorChecker {
+    /** Une paire attend son second point, ou le niveau n'a aucune paire. */
+    public static final int INCOMPLETE = 0;
+    /** Une solution existe, l'unicité est en cours de vérification. */
+    public static final int SOLVABLE = 1;
+    public static final int UNIQUE = 2;
+    public static final int MULTIPLE = 3;
+    public static final int UNSOLVABLE = 4;
+    /** La recherche a dépassé sa limite sans conclure. */
+    public static final int UNDECIDED = 5;
+
+    // Au-delà, le niveau est trop ouvert pour conclure à chaque modification
+    static final long NODE_LIMIT = 2_000_000L;
+    // Recherche amorcée par les chemins précédents : si elle échoue vite, on repart de zéro
+    private static final long SEEDED_NODE_LIMIT = 20_000L;
+    private static final int MAX_CACHED = 256;
+
+    /**
+     * Reçoit les résultats (sur l'exécuteur fourni au constructeur).
+     */
+    public interface Listener {
+        void onChecked(Result result);
+    }
+
+    /**
+     * Résultat immuable d'une vérification.
+     */
+    public static final class Result {
+        private final long version;
+        private final int status;
+        private final int[][] solution;
+        private final long elapsedMillis;
+
+        Result(long version, int status, int[][] solution, long elapsedMillis) {
+            this.version = version;
+            this.status = status;
+            this.solution = solution;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * @return Le numéro de version passé à {@link #submit}
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return {@link #INCOMPLETE}, {@link #SOLVABLE}, {@link #UNIQUE}, {@link #MULTIPLE},
+         * {@link #UNSOLVABLE} ou {@link #UNDECIDED}
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return Une solution (cases de chaque couleur, d'un point à l'autre), ou null
+         */
+        public int[][] getSolution() {
+            return solution;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    /**
+     * Une demande de vérification.
+     */
+    private static final class Request {
+        final long version;
+        final int gridSize;
+        final int[] ends;
+
+        Request(long version, int gridSize, int[] ends) {
+            this.version = version;
+            this.gridSize = gridSize;
+            this.ends = ends;
+        }
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+    private final Executor resultExecutor;
+    private final Listener listener;
+    private volatile BacktrackingSolver running;
+    private volatile boolean closed = false;
+
+    // État du thread de vérification
+    private int lastSize;
+    private int[] lastEnds = new int[0];
+    private int[][] lastSolution;
+    private final Map<Long, Integer> statusByShape = new HashMap<>();
+
+    /**
+     * @param resultExecutor Exécuteur sur lequel le listener est appelé (ex : thread UI)
+     * @param listener Destinataire des résultats
+     */
+    public EditorChecker(Executor resultExecutor, Listener listener) {
+        this.resultExecutor = resultExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * Planifie la vérification d'un état du niveau et annule celle en cours.
+     * @param version Numéro croissant de l'état, renvoyé dans le résultat
+     * @param gridSize La taille de la grille
+     * @param ends Les deux cases de chaque couleur, -1 pour un point manquant
+     */
+    public void submit(long version, int gridSize, int[] ends) {
+        // La demande est posée avant l'annulation : une recherche annulée se sait toujours périmée
+        boolean idle = pending.getAndSet(new Request(version, gridSize, ends.clone())) == null;
+        BacktrackingSolver current = running;
+        if (current != null) current.cancel();
+        if (idle) {
+            worker.execute(() -> {
+                Request request = pending.getAndSet(null);
+                if (request != null) check(request);
+            });
+        }
+    }
+
+    /**
+     * Arrête la vérification en cours et le thread de calcul.
+     */
+    public void shutdown() {
+        closed = true;
+        BacktrackingSolver current = running;
+        if (current != null) current.cancel();
+        worker.shutdownNow();
+    }
+
+    /**
+     * Vérifie un état (sur le thread de vérification) et publie un ou deux résultats.
+     */
+    void check(Request request) {
+        long start = System.nanoTime();
+        int[] ends = request.ends;
+        if (ends.length == 0 || contains(ends, -1)) {
+            publish(new Result(request.version, INCOMPLETE, null, 0));
+            return;
+        }
+        long shape = shapeOf(request.gridSize, ends);
+        Integer known = statusByShape.get(shape);
+        if (known != null) {
+            publish(new Result(request.version, known, null, elapsedSince(start)));
+            return;
+        }
+
+        // 1. Existence, en gardant les chemins précédents qui ne gênent aucun point
+        int[][] solution = solveSeeded(request.gridSize, ends);
+        if (isStale()) return;
+        if (solution != null) {
+            remember(request.gridSize, ends, solution);
+            publish(new Result(request.version, SOLVABLE, solution, elapsedSince(start)));
+        }
+
+        // 2. Unicité (et existence si l'amorce n'a rien donné), sur la grille vide
+        BacktrackingSolver solver = new BacktrackingSolver(request.gridSize, ends);
+        solver.setNodeLimit(NODE_LIMIT);
+        running = solver;
+        // Une demande arrivée juste avant que le solveur soit visible ne l'a pas annulé
+        if (isStale()) solver.cancel();
+        int count = solver.countSolutions(2);
+        if (count == 0 && !solver.isAborted() && solution == null) {
+            // Pas de solution fine : une solution avec détour en bloc n'est jamais la seule
+            solver.setThinPaths(false);
+            if (solver.countSolutions(1) > 0) {
+                solution = solver.getSolution();
+                count = 2;
+            }
+        }
+        running = null;
+        if (isStale()) return;
+
+        int status;
+        if (solver.isAborted()) {
+            status = solution != null ? SOLVABLE : UNDECIDED;
+        } else if (count == 0) {
+            status = UNSOLVABLE;
+        } else {
+            status = count == 1 ? UNIQUE : MULTIPLE;
+        }
+        if (solution == null) solution = solver.getSolution();
+        if (solution != null) remember(request.gridSize, ends, solution);
+        if (status != SOLVABLE && status != UNDECIDED) {
+            if (statusByShape.size() >= MAX_CACHED) statusByShape.clear();
+            statusByShape.put(shape, status);
+        }
+        publish(new Result(request.version, status, solution, elapsedSince(start)));
+    }
+
+    /**
+     * Cherche une solution en imposant les chemins de la solution précédente dont les deux
+     * points n'ont pas bougé et qu'aucun point ne traverse désormais.
+     */
+    private int[][] solveSeeded(int gridSize, int[] ends) {
+        if (lastSolution == null || gridSize != lastSize) return null;
+        BacktrackingSolver solver = new BacktrackingSolver(gridSize, ends);
+        solver.setNodeLimit(SEEDED_NODE_LIMIT);
+        int seeded = 0;
+        for (int color = 0; color < ends.length / 2; color++) {
+            int[] path = previousPath(ends[2 * color], ends[2 * color + 1]);
+            if (path == null || crossesPoint(path, ends)) continue;
+            if (solver.fixPath(color, path)) seeded++;
+        }
+        if (seeded == 0) return null;
+        running = solver;
+        if (isStale()) solver.cancel();
+        int[][] solution = solver.countSolutions(1) > 0 ? solver.getSolution() : null;
+        running = null;
+        return solution;
+    }
+
+    /**
+     * @return Le chemin de la solution précédente qui reliait ces deux cases, ou null
+     */
+    private int[] previousPath(int a, int b) {
+        for (int color = 0; color < lastEnds.length / 2 && color < lastSolution.length; color++) {
+            int x = lastEnds[2 * color];
+            int y = lastEnds[2 * color + 1];
+            if ((x == a && y == b) || (x == b && y == a)) return lastSolution[color];
+        }
+        return null;
+    }
+
+    /**
+     * Un chemin ne doit passer sur aucun point, hormis ses deux extrémités.
+     */
+    private static boolean crossesPoint(int[] path, int[] ends) {
+        for (int i = 1; i < path.length - 1; i++) {
+            if (contains(ends, path[i])) return true;
+        }
+        return false;
+    }
+
+    private void remember(int gridSize, int[] ends, int[][] solution) {
+        lastSize = gridSize;
+        lastEnds = ends;
+        lastSolution = solution;
+    }
+
+    /**
+     * @return true si une demande plus récente attend : le résultat en cours ne sert plus
+     */
+    private boolean isStale() {
+        return closed || pending.get() != null;
+    }
+
+    private void publish(Result result) {
+        if (isStale()) return;
+        resultExecutor.execute(() -> listener.onChecked(result));
+    }
+
+    /**
+     * Empreinte canonique de l'état : identique pour ses symétries et ses renumérotations de couleurs.
+     */
+    private static long shapeOf(int gridSize, int[] ends) {
+        int[] xs = new int[ends.length];
+        int[] ys = new int[ends.length];
+        int[] colors = new int[ends.length];
+        for (int i = 0; i < ends.length; i++) {
+            xs[i] = ends[i] % gridSize;
+            ys[i] = ends[i] / gridSize;
+            colors[i] = i / 2;
+        }
+        return LevelFingerprint.hash(LevelFingerprint.canonicalForm(gridSize, xs, ys, colors));
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) return true;
+        }
+        return false;
+    }
+
+    private static long elapsedSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.sae41_2024;
+
+import android.os.Process;
+import android.util.Log;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Réserve de grilles du mode infini, remplie en arrière-plan pendant que le joueur joue.
+ *
+ * Des producteurs tirent des graines au hasard ({@link BoardGenerator}) et ne gardent que les
+ * grilles à solution unique du palier de difficulté demandé. La file des grilles prêtes est
+ * bornée : quand elle est pleine, les producteurs attendent qu'une grille soit prise au lieu
+ * de calculer pour rien. {@link #stop()} arrête tout à la fin du mode.
+ *
+ * Les paliers difficiles sont rares sur les petites grilles : après {@link #RELAX_AFTER}
+ * grilles valides d'un autre palier, un producteur livre la plus proche du palier demandé.
+ */
+public class EndlessPipeline {
+    private static final String TAG = "DEBUG_FLOW";
+    /** Nombre de grilles prêtes d'avance. */
+    static final int CAPACITY = 3;
+    static final int RELAX_AFTER = 40;
+
+    /**
+     * Reçoit la grille suivante (sur l'exécuteur fourni à {@link #next}).
+     */
+    public interface Listener {
+        void onBoard(BoardGenerator.Board board);
+    }
+
+    private final int gridSize;
+    private final int tier;
+    private final BlockingQueue<BoardGenerator.Board> ready = new ArrayBlockingQueue<>(CAPACITY);
+    private final ExecutorService producers;
+    // Un seul consommateur : les demandes sont servies dans l'ordre
+    private final ExecutorService consumer = Executors.newSingleThreadExecutor();
+    private final Random seeds = new Random();
+    private volatile boolean stopped = false;
+
+    /**
+     * Démarre les producteurs : un thread de moins que de cœurs, deux au plus.
+     * @param gridSize La taille des grilles
+     * @param tier Le palier de difficulté (voir {@link DifficultyRater#tierOf(int)}), -1 pour tous
+     */
+    public EndlessPipeline(int gridSize, int tier) {
+        this(gridSize, tier, Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    EndlessPipeline(int gridSize, int tier, int threads) {
+        this.gridSize = gridSize;
+        this.tier = tier;
+        producers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                task.run();
+            }, "EndlessPipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            producers.execute(this::produce);
+        }
+    }
+
+    /**
+     * Demande la grille suivante : livrée tout de suite si une grille est prête,
+     * sinon dès qu'un producteur en trouve une. Rien n'est livré après {@link #stop()}.
+     * @param executor Exécuteur du listener (ex : thread UI)
+     * @param listener Destinataire de la grille
+     */
+    public void next(Executor executor, Listener listener) {
+        consumer.execute(() -> {
+            try {
+                BoardGenerator.Board board = ready.take();
+                executor.execute(() -> {
+                    if (!stopped) listener.onBoard(board);
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * @return Le nombre de grilles prêtes
+     */
+    public int getReadyCount() {
+        return ready.size();
+    }
+
+    /**
+     * Arrête les producteurs et les demandes en attente. Une grille en cours de vérification
+     * est abandonnée dès la fin de son calcul.
+     */
+    public void stop() {
+        stopped = true;
+        producers.shutdownNow();
+        consumer.shutdownNow();
+        ready.clear();
+    }
+
+    /**
+     * Attend l'arrêt des threads après {@link #stop()}.
+     * @return true si tous les threads sont arrêtés
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return producers.awaitTermination(timeout, unit) && consumer.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Boucle d'un producteur : tire des graines jusqu'à l'arrêt, bloqué tant que la file est pleine.
+     */
+    private void produce() {
+        BoardGenerator.Board closest = null;
+        int misses = 0;
+        long tried = 0;
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+            tried++;
+            BoardGenerator.Board board = BoardGenerator.generate(BoardGenerator.seedOf(gridSize, seeds.nextLong()));
+            if (board == null) continue;
+            if (tier >= 0 && DifficultyRater.tierOf(board.score) != tier) {
+                if (closest == null || distance(board) < distance(closest)) closest = board;
+                if (++misses < RELAX_AFTER) continue;
+                board = closest;
+            }
+            closest = null;
+            misses = 0;
+            Log.d(TAG, "Grille infinie " + BoardGenerator.toText(board.seed) + " prête après " + tried + " graines");
+            tried = 0;
+            try {
+                ready.put(board);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private int distance(BoardGenerator.Board board) {
+        return Math.abs(DifficultyRater.tierOf(board.score) - tier);
+    }
+}
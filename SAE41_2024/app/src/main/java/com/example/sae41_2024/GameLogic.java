@@ -2,10 +2,12 @@ package com.example.sae41_2024;
 
 import android.content.Context;
 import android.graphics.Color;
-import android.util.Log;
 import org.xmlpull.v1.XmlPullParser;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,12 +17,56 @@ import java.util.Map;
  * gestion des chemins, des points et des règles de victoire.
  */
 public class GameLogic {
+    /** Taille minimale d'une grille */
+    public static final int MIN_GRID_SIZE = 5;
+    /** Taille maximale d'une grille */
+    public static final int MAX_GRID_SIZE = 100;
+    /** Valeur de {@link #getPathColorAt} pour une case libre */
+    public static final int NO_PATH = -1;
+
     private int gridSize;
+    private BoardTopology topology;
     private boolean isAchromateMode = false;
     private List<FlowPoint> points;
+    // Copie non modifiable des points, partagée par tous les instantanés du niveau
+    private List<FlowPoint> publishedPoints = Collections.emptyList();
     private Map<Integer, List<FlowPoint>> pointPairs;
     private Map<Integer, List<int[]>> paths;
     private String levelName = "FILE_NAME";
+    private final SolutionVerifier verifier = new SolutionVerifier();
+    // Index plats (y * gridSize + x) pour des recherches en temps constant sur les grandes grilles
+    private FlowPoint[] pointAt;
+    private int[] cellOwner;
+    private int[] cellOrder;
+    // Couleur du point de chaque case (-1 sans point), partagée par tous les instantanés du niveau
+    private int[] pointColors;
+    // Cases de chaque chemin (x, y à plat) par couleur : un tableau n'est jamais modifié,
+    // il est remplacé quand le chemin de sa couleur change
+    private int[][] pathCells = new int[0][];
+    private volatile BoardSnapshot snapshot;
+    private long version = 0;
+    private final List<OnBoardChangeListener> boardChangeListeners = new ArrayList<>();
+
+    /**
+     * Prévenu après chaque modification des chemins ou du niveau chargé.
+     */
+    public interface OnBoardChangeListener {
+        void onBoardChanged();
+    }
+
+    private static final int[] colors = {
+            Color.rgb(255, 0, 0),   // Rouge
+            Color.rgb(0, 0, 255),   // Bleu
+            Color.rgb(0, 255, 0),   // Vert
+            Color.rgb(255, 255, 0), // Jaune
+            Color.rgb(0, 255, 255), // Cyan
+            Color.rgb(255, 0, 255), // Magenta
+            Color.rgb(255, 165, 0), // Orange
+            Color.rgb(128, 0, 128), // Violet
+            Color.rgb(165, 42, 42), // Marron
+            Color.rgb(0, 130, 127), // Vert sapin
+            Color.rgb(75, 0, 130)   // Indigo
+    };
 
     // Définition des nuances de gris pour le mode achromate
     private static final int[] grayShades = {
@@ -43,9 +89,11 @@ public class GameLogic {
      */
     public GameLogic(int gridSize) {
         this.gridSize = gridSize;
+        this.topology = BoardTopology.square(gridSize);
         this.points = new ArrayList<>();
         this.pointPairs = new HashMap<>();
         this.paths = new HashMap<>();
+        allocateCells();
     }
 
     /**
@@ -57,51 +105,70 @@ public class GameLogic {
     }
 
     /**
-     * Charge un niveau depuis un fichier XML contenu dans les assets.
+     * Charge un niveau depuis le paquet de niveaux des assets.
      * @param context Le contexte Android
      * @param name Nom interne du niveau
-     * @param fileName Nom du fichier XML sans l'extension
+     * @param fileName Identifiant du niveau dans le paquet (nom du fichier XML source, sans l'extension)
      */
     public void loadLevelFromAssets(Context context, String name, String fileName) {
-        points.clear();
-        pointPairs.clear();
-        paths.clear();
+        StartupTrace.begin("loadLevel", fileName);
+        try {
+            InputStream is = null;
+            try {
+                LevelPack pack = LevelPack.get(context);
+                int index = pack.indexOfKey(fileName);
+                if (index != -1) is = pack.openLevel(index);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            readLevel(is);
+        } finally {
+            StartupTrace.end();
+        }
+    }
+
+    /**
+     * Lit le XML d'un niveau puis l'installe ; un flux absent ou illisible donne une grille vide.
+     * @param is Le contenu XML du niveau, fermé après lecture
+     */
+    void readLevel(InputStream is) {
+        int size = gridSize;
+        String nom = levelName;
+        int kind = BoardTopology.SQUARE;
+        // Extrémités des portails (colonne, ligne), converties en cases une fois la taille connue
+        List<int[]> warps = new ArrayList<>();
+        List<FlowPoint> levelPoints = new ArrayList<>();
 
         try {
-            InputStream is = context.getAssets().open("puzzles/" + fileName + ".xml");
+            if (is == null) throw new IOException("Niveau introuvable");
             XmlPullParser parser = android.util.Xml.newPullParser();
             parser.setInput(is, "UTF-8");
 
             int eventType = parser.getEventType();
             int colorIndex = 0;
-            List<FlowPoint> currentPair = new ArrayList<>();
+            int pairSize = 0;
 
             while (eventType != XmlPullParser.END_DOCUMENT) {
                 if (eventType == XmlPullParser.START_TAG) {
                     String tagName = parser.getName();
 
                     if (tagName.equals("puzzle")) {
-                        gridSize = Integer.parseInt(parser.getAttributeValue(null, "size"));
-                        levelName = parser.getAttributeValue(null, "nom");
-
-                        // Affiche la taille de la grille
-                        System.out.println("Taille de la grille: " + gridSize);
+                        size = Integer.parseInt(parser.getAttributeValue(null, "size"));
+                        nom = parser.getAttributeValue(null, "nom");
+                        kind = BoardTopology.kindOf(parser.getAttributeValue(null, "topologie"));
+                    } else if (tagName.equals("portail")) {
+                        warps.add(readCell(parser, "1"));
+                        warps.add(readCell(parser, "2"));
                     } else if (tagName.equals("paire")) {
-                        currentPair = new ArrayList<>();
+                        pairSize = 0;
                     } else if (tagName.equals("point")) {
                         int col = Integer.parseInt(parser.getAttributeValue(null, "colonne"));
                         int row = Integer.parseInt(parser.getAttributeValue(null, "ligne"));
-                        int color = getColorByIndex(colorIndex, isAchromateMode);
-
-                        FlowPoint point = new FlowPoint(col, row, colorIndex);
-                        points.add(point);
-                        currentPair.add(point);
 
-                        // Affiche chaque point chargé
-                        System.out.println("Point ajouté: (" + col + ", " + row + ") Couleur: " + color);
+                        levelPoints.add(new FlowPoint(col, row, colorIndex));
+                        pairSize++;
 
-                        if (currentPair.size() == 2) {
-                            pointPairs.put(color, new ArrayList<>(currentPair));
+                        if (pairSize == 2) {
                             colorIndex++;
                         }
                     }
@@ -112,6 +179,146 @@ public class GameLogic {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        BoardTopology levelTopology;
+        try {
+            int[] warpCells = new int[warps.size()];
+            for (int i = 0; i < warpCells.length; i++) {
+                int[] pos = warps.get(i);
+                if (pos[0] < 0 || pos[0] >= size) throw new IllegalArgumentException("Portail hors de la grille");
+                warpCells[i] = pos[1] * size + pos[0];
+            }
+            levelTopology = BoardTopology.create(kind, size, warpCells);
+        } catch (IllegalArgumentException e) {
+            // Forme inconnue ou portail hors de la grille : le niveau est joué sur une grille carrée
+            e.printStackTrace();
+            levelTopology = BoardTopology.square(Math.max(size, 1));
+        }
+        loadLevel(levelTopology, nom, levelPoints);
+    }
+
+    /**
+     * Lit une extrémité d'un portail (attributs colonne1/ligne1 ou colonne2/ligne2).
+     * @return La colonne et la ligne
+     */
+    private static int[] readCell(XmlPullParser parser, String suffix) {
+        int col = Integer.parseInt(parser.getAttributeValue(null, "colonne" + suffix));
+        int row = Integer.parseInt(parser.getAttributeValue(null, "ligne" + suffix));
+        return new int[]{col, row};
+    }
+
+    /**
+     * Installe un niveau déjà lu sur une grille carrée (voir {@link #loadLevel(BoardTopology, String, List)}).
+     * @param size La taille de la grille
+     * @param name Le nom du niveau
+     * @param levelPoints Les points du niveau
+     */
+    void loadLevel(int size, String name, List<FlowPoint> levelPoints) {
+        loadLevel(BoardTopology.square(size), name, levelPoints);
+    }
+
+    /**
+     * Installe un niveau déjà lu : remplace la grille, les points et efface les chemins.
+     * Les points doivent être donnés paire par paire, dans l'ordre de leur indice de couleur.
+     * @param levelTopology La forme et le voisinage de la grille
+     * @param name Le nom du niveau
+     * @param levelPoints Les points du niveau
+     */
+    void loadLevel(BoardTopology levelTopology, String name, List<FlowPoint> levelPoints) {
+        points.clear();
+        pointPairs.clear();
+        paths.clear();
+
+        topology = levelTopology;
+        gridSize = levelTopology.getGridSize();
+        levelName = name;
+        allocateCells();
+
+        List<FlowPoint> currentPair = new ArrayList<>();
+        for (FlowPoint point : levelPoints) {
+            points.add(point);
+            if (isInGrid(point.getX(), point.getY()) && getPointAt(point.getX(), point.getY()) == null) {
+                pointAt[point.getY() * gridSize + point.getX()] = point;
+                pointColors[point.getY() * gridSize + point.getX()] = point.getColorIndex();
+            }
+            currentPair.add(point);
+            if (currentPair.size() == 2) {
+                int color = getColorByIndex(point.getColorIndex(), isAchromateMode);
+                pointPairs.put(color, new ArrayList<>(currentPair));
+                currentPair = new ArrayList<>();
+            }
+        }
+        publishedPoints = Collections.unmodifiableList(new ArrayList<>(points));
+        verifier.setLevel(topology, points);
+        notifyBoardChanged();
+    }
+
+    private void allocateCells() {
+        int cellCount = gridSize * gridSize;
+        pointAt = new FlowPoint[cellCount];
+        cellOwner = new int[cellCount];
+        cellOrder = new int[cellCount];
+        pointColors = new int[cellCount];
+        pathCells = new int[0][];
+        Arrays.fill(cellOwner, NO_PATH);
+        Arrays.fill(pointColors, NO_PATH);
+    }
+
+    /**
+     * Remplace les cases publiées pour le chemin d'une couleur.
+     * @param color Index de la couleur
+     * @param path Le nouveau chemin, ou null s'il est supprimé
+     */
+    private void setPathCells(int color, List<int[]> path) {
+        if (color < 0) return;
+        if (color >= pathCells.length) {
+            if (path == null) return;
+            pathCells = Arrays.copyOf(pathCells, color + 1);
+        }
+        if (path == null) {
+            pathCells[color] = null;
+            return;
+        }
+        int[] cells = new int[2 * path.size()];
+        for (int i = 0; i < path.size(); i++) {
+            cells[2 * i] = path.get(i)[0];
+            cells[2 * i + 1] = path.get(i)[1];
+        }
+        pathCells[color] = cells;
+    }
+
+    private boolean isInGrid(int x, int y) {
+        return x >= 0 && x < gridSize && y >= 0 && y < gridSize;
+    }
+
+    /**
+     * Ajoute un observateur des modifications de la grille.
+     * @param listener L'observateur à prévenir
+     */
+    public void addOnBoardChangeListener(OnBoardChangeListener listener) {
+        boardChangeListeners.add(listener);
+    }
+
+    private void notifyBoardChanged() {
+        snapshot = new BoardSnapshot(topology, ++version, publishedPoints, pointColors, pathCells.clone());
+        for (OnBoardChangeListener listener : boardChangeListeners) {
+            listener.onBoardChanged();
+        }
+    }
+
+    /**
+     * Retourne le dernier état publié de la grille : un instantané immuable et versionné,
+     * lisible depuis n'importe quel thread (rendu, déductions, indices, sauvegarde). Il ne
+     * coûte qu'une copie de la liste des chemins : les cases de chaque chemin sont partagées.
+     * @return L'instantané courant
+     */
+    public BoardSnapshot getSnapshot() {
+        BoardSnapshot current = snapshot;
+        if (current == null) {
+            current = new BoardSnapshot(topology, version, publishedPoints, pointColors, pathCells.clone());
+            snapshot = current;
+        }
+        return current;
     }
 
     /**
@@ -122,6 +329,14 @@ public class GameLogic {
         return gridSize;
     }
 
+    /**
+     * Retourne le voisinage des cases du niveau chargé (forme de la grille, portails).
+     * @return La topologie de la grille
+     */
+    public BoardTopology getTopology() {
+        return topology;
+    }
+
     /**
      * Retourne une couleur en fonction de son index, selon le mode actif.
      * @param index L’index de la couleur
@@ -129,21 +344,24 @@ public class GameLogic {
      * @return Une couleur (RGB)
      */
     public int getColorByIndex(int index, boolean isAchromateMode) {
-        Log.d("DEBUG_FLOW", "Couleur demandée pour index " + index + " | Achromate = " + isAchromateMode);
+        return colorOf(index, isAchromateMode);
+    }
+
+    /**
+     * @return Le nombre de couleurs distinctes : au-delà, deux paires partageraient une couleur
+     */
+    static int getColorCount() {
+        return colors.length;
+    }
+
+    /**
+     * Version statique de {@link #getColorByIndex}, utilisable hors du thread UI (rendu).
+     * @param index L’index de la couleur
+     * @param isAchromateMode Si true, retourne une nuance de gris
+     * @return Une couleur (RGB)
+     */
+    public static int colorOf(int index, boolean isAchromateMode) {
         if (!isAchromateMode) {
-            int[] colors = {
-                    Color.rgb(255, 0, 0),   // Rouge
-                    Color.rgb(0, 0, 255),   // Bleu
-                    Color.rgb(0, 255, 0),   // Vert
-                    Color.rgb(255, 255, 0), // Jaune
-                    Color.rgb(0, 255, 255), // Cyan
-                    Color.rgb(255, 0, 255), // Magenta
-                    Color.rgb(255, 165, 0), // Orange
-                    Color.rgb(128, 0, 128), // Violet
-                    Color.rgb(165, 42, 42), // Marron
-                    Color.rgb(0, 130, 127), // Vert sapin
-                    Color.rgb(75, 0, 130)   // Indigo
-            };
             return colors[index % colors.length];
         } else {
             return getGrayShade(index);
@@ -155,7 +373,7 @@ public class GameLogic {
      * @param index L’index de la couleur
      * @return Une couleur en niveaux de gris
      */
-    private int getGrayShade(int index) {
+    private static int getGrayShade(int index) {
         return grayShades[index % grayShades.length];
     }
 
@@ -174,12 +392,29 @@ public class GameLogic {
      * @return Le point trouvé ou null
      */
     public FlowPoint getPointAt(int x, int y) {
-        for (FlowPoint point : points) {
-            if (point.getX() == x && point.getY() == y) {
-                return point;
-            }
-        }
-        return null;
+        return isInGrid(x, y) ? pointAt[y * gridSize + x] : null;
+    }
+
+    /**
+     * Renvoie la couleur du chemin qui passe par la case (x, y).
+     * @param x Colonne
+     * @param y Ligne
+     * @return L'index de la couleur, ou {@link #NO_PATH} si aucun chemin n'y passe
+     */
+    public int getPathColorAt(int x, int y) {
+        return isInGrid(x, y) ? cellOwner[y * gridSize + x] : NO_PATH;
+    }
+
+    /**
+     * Renvoie la position de la case (x, y) dans le chemin qui y passe.
+     * Deux cases voisines du même chemin sont reliées si leurs rangs se suivent.
+     * @param x Colonne
+     * @param y Ligne
+     * @return Le rang de la case dans son chemin (sans signification si la case est libre),
+     * ou -1 hors de la grille
+     */
+    public int getPathOrderAt(int x, int y) {
+        return isInGrid(x, y) ? cellOrder[y * gridSize + x] : -1;
     }
 
     /**
@@ -188,51 +423,56 @@ public class GameLogic {
      * @param path Liste des coordonnées du chemin
      */
     public void savePath(int color, List<int[]> path) {
-        paths.put(color, new ArrayList<>(path));
+        List<int[]> previous = paths.put(color, new ArrayList<>(path));
+        releaseCells(color, previous);
+        for (int i = 0; i < path.size(); i++) {
+            int[] pos = path.get(i);
+            if (!isInGrid(pos[0], pos[1])) continue;
+            cellOwner[pos[1] * gridSize + pos[0]] = color;
+            cellOrder[pos[1] * gridSize + pos[0]] = i;
+        }
+        setPathCells(color, path);
+        notifyBoardChanged();
     }
 
     /**
-     * Retourne tous les chemins actuellement tracés.
-     * @return Map des chemins par couleur
+     * Libère les cases d'un ancien chemin qui appartiennent encore à sa couleur.
+     */
+    private void releaseCells(int color, List<int[]> path) {
+        if (path == null) return;
+        for (int[] pos : path) {
+            if (isInGrid(pos[0], pos[1]) && cellOwner[pos[1] * gridSize + pos[0]] == color) {
+                cellOwner[pos[1] * gridSize + pos[0]] = NO_PATH;
+            }
+        }
+    }
+
+    /**
+     * Retourne tous les chemins actuellement tracés. La table suit les modifications :
+     * à lire sur le thread UI seulement, les autres threads passent par {@link #getSnapshot()}.
+     * @return Map des chemins par couleur (non modifiable)
      */
     public Map<Integer, List<int[]>> getPaths() {
-        return paths;
+        return Collections.unmodifiableMap(paths);
     }
 
     /**
-     * Vérifie si tous les chemins sont corrects et si la grille est complétée.
+     * Vérifie si tous les chemins sont corrects et si la grille est complétée :
+     * chaque paire reliée par un tracé contigu (au sens de la topologie de la grille), sans chevauchement, couvrant toute la grille.
      * @return true si la partie est gagnée, false sinon
      */
     public boolean checkWin() {
-        int gridSize = getGridSize();
-        boolean[][] usedCells = new boolean[gridSize][gridSize];
-
-        for (Map.Entry<Integer, List<int[]>> entry : paths.entrySet()) {
-            List<int[]> path = entry.getValue();
-            if (path.size() < 2) return false;
-
-            int[] start = path.get(0);
-            int[] end = path.get(path.size() - 1);
-
-            FlowPoint startPoint = getPointAt(start[0], start[1]);
-            FlowPoint endPoint = getPointAt(end[0], end[1]);
-
-            if (startPoint == null || endPoint == null || startPoint.getColorIndex() != endPoint.getColorIndex()) {
-                return false;
-            }
-
-            for (int[] pos : path) {
-                usedCells[pos[0]][pos[1]] = true;
-            }
-        }
-
-        for (int x = 0; x < gridSize; x++) {
-            for (int y = 0; y < gridSize; y++) {
-                if (!usedCells[x][y]) return false;
-            }
-        }
+        return verifier.verifySolution(paths) == SolutionVerifier.VALID;
+    }
 
-        return true;
+    /**
+     * Vérifie que des chemins (ex : restaurés depuis une sauvegarde) sont des tracés terminés
+     * et légaux pour le niveau chargé, même si la grille n'est pas encore complète.
+     * @param candidatePaths Les chemins à contrôler
+     * @return true si les chemins peuvent être restaurés tels quels
+     */
+    public boolean isRestorable(Map<Integer, List<int[]>> candidatePaths) {
+        return verifier.verifyPartial(candidatePaths) == SolutionVerifier.VALID;
     }
 
     /**
@@ -240,6 +480,9 @@ public class GameLogic {
      */
     public void resetGrid() {
         paths.clear();
+        Arrays.fill(cellOwner, NO_PATH);
+        pathCells = new int[0][];
+        notifyBoardChanged();
     }
 
     /**
@@ -256,6 +499,11 @@ public class GameLogic {
      * @param color L’index de la couleur à supprimer
      */
     public void removePath(int color) {
-        paths.remove(color);
+        List<int[]> removed = paths.remove(color);
+        if (removed != null) {
+            releaseCells(color, removed);
+            setPathCells(color, null);
+            notifyBoardChanged();
+        }
     }
 }
\ No newline at end of file
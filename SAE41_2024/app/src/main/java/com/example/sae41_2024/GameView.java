@@ -3,34 +3,65 @@ package com.example.sae41_2024;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.util.Log;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.widget.Toast;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Représente la vue du jeu : affichage de la grille, des points, des chemins, et gestion des interactions tactiles.
+ * Le dessin est confié à un {@link BoardRenderer}, sur le thread UI ou, si un {@link BoardSurfaceView}
+ * est branché, sur son thread de rendu : la vue ne fait alors que recevoir les touchers.
  */
 public class GameView extends View {
-    private Paint gridPaint, circlePaint, pathPaint;
-    private int cellSize;
+    private final BoardRenderer renderer = new BoardRenderer();
+    private final BoardRenderer.Frame frame = new BoardRenderer.Frame();
+    private BoardSurfaceView surfaceBackend;
+    private final PathAnimator animator = new PathAnimator(this::requestRedraw);
+    private float cellSize;
     private GameLogic gameLogic;
     private List<int[]> currentPath = new ArrayList<>();
-    private List<int[]> animatedPath = new ArrayList<>();
     private int currentColor = 0;
     private int currentColorIndex = -1;
     private boolean isDrawing = false;
     private Context context;
     private boolean isAchromateMode = false;
     private int lastX = -1, lastY = -1;
-    private int startX = 0;
-    private int startY = 0;
+    private float startX = 0;
+    private float startY = 0;
+    // Zoom et déplacement de la grille (deux doigts), utiles sur les grandes grilles
+    private ScaleGestureDetector scaleDetector;
+    private float zoom = 1f;
+    private float panX = 0f, panY = 0f;
+    private float baseCellSize = 1f;
+    private float lastFocusX, lastFocusY;
+    private boolean isPanning = false;
+    private static final float MIN_TOUCH_CELL_DP = 40f;
     private boolean isGameWon = false;
+    private boolean isFirstFrameDrawn = false;
+    private DeductionEngine.Result deductions;
+    private boolean isTapRouteMode = false;
+    private final PathRouter pathRouter = new PathRouter();
+    private int pendingRouteColor = -1;
+    private int pendingRouteX, pendingRouteY;
+    // Mode éditeur : les touchers posent, retirent et déplacent des points au lieu de tracer
+    private LevelEditor editor;
+    private int editX = -1, editY = -1;
+    private boolean isMovingPoint = false;
+    private OnGameEventListener gameEventListener;
+
+    /**
+     * Prévenu des étapes de la partie (statistiques du joueur).
+     */
+    public interface OnGameEventListener {
+        /** Un chemin vient de relier sa paire (tracé, tracé automatique ou aide). */
+        void onPathCommitted();
+
+        /** La grille vient d'être résolue. */
+        void onWin();
+    }
 
     /**
      * Constructeur de la vue du jeu.
@@ -43,24 +74,14 @@ public class GameView extends View {
         this.context = context;
         this.gameLogic = gameLogic;
         loadAchromateMode();
-        init();
-    }
-
-    /**
-     * Initialise les pinceaux de dessin.
-     */
-    private void init() {
-        gridPaint = new Paint();
-        gridPaint.setColor(Color.BLACK);
-        gridPaint.setStrokeWidth(5);
-
-        circlePaint = new Paint();
-
-        pathPaint = new Paint();
-        pathPaint.setStrokeWidth(15);
-        pathPaint.setStyle(Paint.Style.STROKE);
-        pathPaint.setStrokeCap(Paint.Cap.ROUND);
-        pathPaint.setStrokeJoin(Paint.Join.ROUND);
+        gameLogic.addOnBoardChangeListener(this::requestRedraw);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomAround(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
     }
 
     /**
@@ -78,7 +99,80 @@ public class GameView extends View {
      */
     public void setAchromateMode(boolean isAchromate) {
         this.isAchromateMode = isAchromate;
-        invalidate();
+        requestRedraw();
+    }
+
+    /**
+     * Active ou désactive le tracé automatique : toucher un point puis son partenaire
+     * relie la paire par le meilleur chemin libre.
+     *
+     * @param isTapRoute true pour activer, false pour désactiver
+     */
+    public void setTapRouteMode(boolean isTapRoute) {
+        this.isTapRouteMode = isTapRoute;
+        pendingRouteColor = -1;
+        requestRedraw();
+    }
+
+    /**
+     * Affiche les déductions du moteur d'analyse par-dessus la grille.
+     *
+     * @param deductions Les dernières déductions, ou null pour ne rien afficher
+     */
+    public void setDeductions(DeductionEngine.Result deductions) {
+        this.deductions = deductions;
+        requestRedraw();
+    }
+
+    /**
+     * Trace un chemin donné par l'aide : les chemins qui le croisent sont effacés.
+     *
+     * @param colorIndex L'indice de la couleur révélée
+     * @param path       Le chemin complet de cette couleur
+     */
+    public void applyHint(int colorIndex, List<int[]> path) {
+        if (isGameWon) return;
+        List<Integer> crossed = new ArrayList<>();
+        for (int[] cell : path) {
+            int owner = gameLogic.getPathColorAt(cell[0], cell[1]);
+            if (owner != GameLogic.NO_PATH && owner != colorIndex && !crossed.contains(owner)) {
+                crossed.add(owner);
+            }
+        }
+        for (int color : crossed) {
+            gameLogic.removePath(color);
+        }
+
+        currentPath.clear();
+        isDrawing = false;
+        animator.stopTip();
+        gameLogic.savePath(colorIndex, path);
+        animator.startFill(colorIndex, path);
+        onPathCommitted();
+        if (gameLogic.checkWin()) {
+            isGameWon = true;
+            showWinMessage();
+        }
+        requestRedraw();
+    }
+
+    /**
+     * Prépare la vue pour une nouvelle grille, déjà chargée dans la logique (mode infini) :
+     * la partie reprend, le zoom, le tracé en cours et les animations sont oubliés.
+     */
+    public void startNewBoard() {
+        isGameWon = false;
+        animator.cancel();
+        currentPath.clear();
+        currentColor = 0;
+        currentColorIndex = -1;
+        pendingRouteColor = -1;
+        isDrawing = false;
+        zoom = 1f;
+        panX = 0f;
+        panY = 0f;
+        deductions = null;
+        requestRedraw();
     }
 
     /**
@@ -90,79 +184,184 @@ public class GameView extends View {
             return;
         }
         gameLogic.resetGrid();
+        animator.cancel();
         currentPath.clear();
         currentColor = 0;
         currentColorIndex = -1;
+        pendingRouteColor = -1;
         isDrawing = false;
+        requestRedraw();
+    }
+
+    /**
+     * @param listener L'observateur des étapes de la partie, ou null
+     */
+    public void setOnGameEventListener(OnGameEventListener listener) {
+        this.gameEventListener = listener;
+    }
+
+    /**
+     * Passe la vue en mode éditeur : toucher une case vide pose un point, toucher un point
+     * retire sa paire, glisser un point le déplace. La grille affichée reste celle de la
+     * logique du jeu, que l'appelant recharge à chaque modification de l'éditeur.
+     *
+     * @param editor Le niveau édité, ou null pour revenir au jeu
+     */
+    public void setEditor(LevelEditor editor) {
+        this.editor = editor;
+        isMovingPoint = false;
+        resetCurrentPath();
+    }
+
+    /**
+     * Confie le dessin de la grille à un thread de rendu dédié ; la vue devient transparente
+     * et ne sert plus qu'aux touchers.
+     *
+     * @param surface La surface de rendu placée sous cette vue, ou null pour dessiner ici
+     */
+    public void setSurfaceBackend(BoardSurfaceView surface) {
+        this.surfaceBackend = surface;
+        requestRedraw();
         invalidate();
     }
 
+    /**
+     * Demande un nouveau rendu : invalidation de la vue, ou publication de l'état
+     * courant vers le thread de rendu (sans attendre qu'il ait dessiné).
+     */
+    public void requestRedraw() {
+        if (surfaceBackend == null) {
+            invalidate();
+            return;
+        }
+        if (getWidth() == 0 || getHeight() == 0) return;
+        computeLayout();
+        surfaceBackend.publish(gameLogic.getSnapshot(), fillFrame());
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        requestRedraw();
+    }
+
     /**
      * Dessine la grille, les points, les chemins enregistrés et le tracé en cours.
      */
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        canvas.drawColor(Color.WHITE);
+        // Avec un thread de rendu, la grille est dessinée sur la surface située dessous
+        if (surfaceBackend != null) return;
+
+        if (!isFirstFrameDrawn) StartupTrace.begin("game.firstDraw");
+        computeLayout();
+        renderer.draw(canvas, gameLogic.getSnapshot(), fillFrame());
+
+        if (!isFirstFrameDrawn) {
+            isFirstFrameDrawn = true;
+            StartupTrace.end();
+            // Fin du démarrage à froid : la trace est écrite hors du dessin
+            post(() -> StartupTrace.dump(context));
+        }
+    }
 
+    /**
+     * Calcule la taille des cases et la position de la grille selon la vue, le zoom et le déplacement.
+     */
+    private void computeLayout() {
         int width = getWidth();
         int height = getHeight();
-        int gridSize = gameLogic.getGridSize();
         int gridSizePx = Math.min(width, height) * 90 / 100;
-        cellSize = gridSizePx / gridSize;
-
-        startX = (width - gridSizePx) / 2;
-        startY = (height - gridSizePx) / 2;
+        // Une grille hexagonale est plus large que haute d'une demi-case
+        float widthInCells = gameLogic.getTopology().getWidthInCells();
+        baseCellSize = gridSizePx / widthInCells;
+        cellSize = baseCellSize * zoom;
+        startX = (width - baseCellSize * widthInCells) / 2f + panX;
+        startY = (height - baseCellSize * gameLogic.getGridSize()) / 2f + panY;
+    }
 
-        for (int i = 0; i <= gridSize; i++) {
-            canvas.drawLine(startX + i * cellSize, startY, startX + i * cellSize, startY + gridSizePx, gridPaint);
-            canvas.drawLine(startX, startY + i * cellSize, startX + gridSizePx, startY + i * cellSize, gridPaint);
+    /**
+     * Recopie l'état d'affichage courant dans la frame réutilisée par le rendu.
+     */
+    private BoardRenderer.Frame fillFrame() {
+        frame.width = getWidth();
+        frame.height = getHeight();
+        frame.originX = startX;
+        frame.originY = startY;
+        frame.cellSize = cellSize;
+        frame.achromate = isAchromateMode;
+        frame.pendingColor = pendingRouteColor;
+        frame.pendingX = pendingRouteX;
+        frame.pendingY = pendingRouteY;
+        frame.deductions = deductions;
+        animator.applyTo(frame);
+        frame.dragColor = currentColorIndex;
+        frame.dragLength = currentPath.size();
+        if (frame.dragCells.length < 2 * frame.dragLength) {
+            frame.dragCells = new int[Math.max(2 * frame.dragLength, 2 * frame.dragCells.length)];
         }
+        for (int i = 0; i < frame.dragLength; i++) {
+            frame.dragCells[2 * i] = currentPath.get(i)[0];
+            frame.dragCells[2 * i + 1] = currentPath.get(i)[1];
+        }
+        return frame;
+    }
 
-        for (FlowPoint point : gameLogic.getPoints()) {
-            int color;
-            try {
-                color = gameLogic.getColorByIndex(point.getColorIndex(), isAchromateMode);
-            } catch (Exception e) {
-                Log.e("DEBUG_FLOW", "Erreur couleur: " + e.getMessage());
-                continue;
-            }
+    /**
+     * Zoome autour d'un point de l'écran : la case sous ce point reste en place.
+     */
+    private void zoomAround(float factor, float focusX, float focusY) {
+        float maxZoom = Math.max(1f, MIN_TOUCH_CELL_DP * getResources().getDisplayMetrics().density / baseCellSize);
+        float newZoom = Math.max(1f, Math.min(maxZoom, zoom * factor));
+        float gridX = (focusX - startX) / cellSize;
+        float gridY = (focusY - startY) / cellSize;
+        float newCellSize = baseCellSize * newZoom;
+        panX += focusX - gridX * newCellSize - startX;
+        panY += focusY - gridY * newCellSize - startY;
+        startX = focusX - gridX * newCellSize;
+        startY = focusY - gridY * newCellSize;
+        zoom = newZoom;
+        cellSize = newCellSize;
+        clampPan();
+        requestRedraw();
+    }
 
-            circlePaint.setColor(color);
-            float centerX = startX + point.getX() * cellSize + cellSize / 2;
-            float centerY = startY + point.getY() * cellSize + cellSize / 2;
-            float radius = cellSize / 3.5f;
-            canvas.drawCircle(centerX, centerY, radius, circlePaint);
-        }
+    /**
+     * Garde toujours une partie de la grille au centre de l'écran.
+     */
+    private void clampPan() {
+        float gridPx = cellSize * gameLogic.getGridSize();
+        float limit = gridPx / 2;
+        panX = Math.max(-limit, Math.min(limit, panX));
+        panY = Math.max(-limit, Math.min(limit, panY));
+    }
 
-        for (Map.Entry<Integer, List<int[]>> entry : gameLogic.getPaths().entrySet()) {
-            int colorIndex = entry.getKey();
-            int color = gameLogic.getColorByIndex(colorIndex, isAchromateMode);
-            pathPaint.setColor(color);
-            List<int[]> path = entry.getValue();
-            for (int i = 1; i < path.size(); i++) {
-                int[] start = path.get(i - 1);
-                int[] end = path.get(i);
-                float startXPos = startX + start[0] * cellSize + cellSize / 2;
-                float startYPos = startY + start[1] * cellSize + cellSize / 2;
-                float endXPos = startX + end[0] * cellSize + cellSize / 2;
-                float endYPos = startY + end[1] * cellSize + cellSize / 2;
-                canvas.drawLine(startXPos, startYPos, endXPos, endYPos, pathPaint);
-            }
+    /**
+     * Déplace la grille en suivant le centre des doigts posés.
+     */
+    private void handlePan(MotionEvent event) {
+        int action = event.getActionMasked();
+        int count = event.getPointerCount();
+        float focusX = 0, focusY = 0;
+        for (int i = 0; i < count; i++) {
+            focusX += event.getX(i);
+            focusY += event.getY(i);
         }
-
-        if (!currentPath.isEmpty()) {
-            pathPaint.setColor(gameLogic.getColorByIndex(currentColorIndex, isAchromateMode));
-            for (int i = 1; i < currentPath.size(); i++) {
-                int[] start = currentPath.get(i - 1);
-                int[] end = currentPath.get(i);
-                float startXPos = startX + start[0] * cellSize + cellSize / 2;
-                float startYPos = startY + start[1] * cellSize + cellSize / 2;
-                float endXPos = startX + end[0] * cellSize + cellSize / 2;
-                float endYPos = startY + end[1] * cellSize + cellSize / 2;
-                canvas.drawLine(startXPos, startYPos, endXPos, endYPos, pathPaint);
-            }
+        focusX /= count;
+        focusY /= count;
+
+        if (action == MotionEvent.ACTION_POINTER_DOWN || action == MotionEvent.ACTION_POINTER_UP || !isPanning) {
+            // Le nombre de doigts change : on repart du nouveau centre sans sauter
+            isPanning = true;
+        } else if (action == MotionEvent.ACTION_MOVE) {
+            panX += focusX - lastFocusX;
+            panY += focusY - lastFocusY;
+            clampPan();
+            requestRedraw();
         }
+        lastFocusX = focusX;
+        lastFocusY = focusY;
     }
 
     /**
@@ -170,16 +369,35 @@ public class GameView extends View {
      */
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        scaleDetector.onTouchEvent(event);
+        if (event.getPointerCount() > 1 || scaleDetector.isInProgress()) {
+            // Deux doigts : zoom et déplacement, le tracé en cours est abandonné
+            if (isDrawing) {
+                currentPath.clear();
+                isDrawing = false;
+                animator.stopTip();
+            }
+            handlePan(event);
+            return true;
+        }
+        if (isPanning) {
+            // Le dernier doigt d'un geste de zoom ne doit pas commencer de tracé
+            if (event.getActionMasked() == MotionEvent.ACTION_UP) isPanning = false;
+            return true;
+        }
+        if (editor != null) return onEditorTouch(event);
         if (isGameWon) return false;
 
-        int x = (int) ((event.getX() - startX) / cellSize);
-        int y = (int) ((event.getY() - startY) / cellSize);
+        int cell = cellUnder(event);
+        int x = cell % gameLogic.getGridSize();
+        int y = cell / gameLogic.getGridSize();
 
-        if (x < 0 || x >= gameLogic.getGridSize() || y < 0 || y >= gameLogic.getGridSize()) {
+        if (cell < 0) {
             currentPath.clear();
             gameLogic.removePath(currentColorIndex);
             isDrawing = false;
-            invalidate();
+            animator.stopTip();
+            requestRedraw();
             return false;
         }
 
@@ -198,10 +416,11 @@ public class GameView extends View {
                 currentPath.add(new int[]{x, y});
                 lastX = x;
                 lastY = y;
-                invalidate();
+                requestRedraw();
             }
         } else if (event.getAction() == MotionEvent.ACTION_MOVE) {
             if (isDrawing) {
+                followFinger(event);
                 if ((x != lastX || y != lastY) && isValidMove(lastX, lastY, x, y)) {
                     if (isAlreadyInCurrentPath(x, y) || isPathOccupied(x, y)) return true;
                     if (isPointOnCell(x, y) && !isCorrectEndPoint(x, y)) {
@@ -212,20 +431,35 @@ public class GameView extends View {
                     currentPath.add(new int[]{x, y});
                     lastX = x;
                     lastY = y;
+                    followFinger(event);
 
                     if (isCorrectEndPoint(x, y)) {
                         gameLogic.savePath(currentColorIndex, currentPath);
                         isDrawing = false;
+                        animator.stopTip();
+                        animator.startFill(currentColorIndex, currentPath);
+                        onPathCommitted();
+                        // Le chemin enregistré prend le relais du tracé
+                        currentPath.clear();
                         if (gameLogic.checkWin()) {
                             isGameWon = true;
                             showWinMessage();
                         }
                     }
-                    invalidate();
+                    requestRedraw();
                 }
             }
         } else if (event.getAction() == MotionEvent.ACTION_UP) {
-            if (isDrawing) {
+            animator.stopTip();
+            if (isDrawing && currentPath.size() == 1) {
+                // Simple appui sur un point : rien n'est enregistré
+                int[] tapped = currentPath.get(0);
+                currentPath.clear();
+                isDrawing = false;
+                if (isTapRouteMode) {
+                    onEndpointTapped(tapped[0], tapped[1]);
+                }
+            } else if (isDrawing) {
                 int[] lastPoint = currentPath.get(currentPath.size() - 1);
                 int lastX = lastPoint[0];
                 int lastY = lastPoint[1];
@@ -242,27 +476,110 @@ public class GameView extends View {
                     }
                 }
             }
-            invalidate();
+            requestRedraw();
         }
         return true;
     }
 
+    /**
+     * Touchers du mode éditeur : un appui sans glisser pose ou retire, un glisser déplace
+     * le point case par case (chaque case atteinte est une modification).
+     */
+    private boolean onEditorTouch(MotionEvent event) {
+        int cell = cellUnder(event);
+        int x = cell % gameLogic.getGridSize();
+        int y = cell / gameLogic.getGridSize();
+        boolean inGrid = cell >= 0;
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                if (!inGrid) return false;
+                editX = x;
+                editY = y;
+                isMovingPoint = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (!inGrid || editX < 0 || (x == editX && y == editY)) return true;
+                // Le point saute directement sous le doigt, même si le glisser a sauté des cases
+                if (gameLogic.getPointAt(editX, editY) != null && gameLogic.getPointAt(x, y) == null
+                        && editor.move(editX, editY, x, y)) {
+                    isMovingPoint = true;
+                    editX = x;
+                    editY = y;
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (inGrid && !isMovingPoint && x == editX && y == editY) {
+                    editor.tap(x, y);
+                }
+                editX = -1;
+                isMovingPoint = false;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Mode tracé automatique : le premier point touché est mémorisé,
+     * toucher ensuite son partenaire relie la paire.
+     */
+    private void onEndpointTapped(int x, int y) {
+        if (pendingRouteColor != currentColorIndex || (pendingRouteX == x && pendingRouteY == y)) {
+            pendingRouteColor = currentColorIndex;
+            pendingRouteX = x;
+            pendingRouteY = y;
+            return;
+        }
+
+        pendingRouteColor = -1;
+        List<int[]> route = pathRouter.route(gameLogic, currentColorIndex);
+        if (route == null) {
+            Toast.makeText(context, "Aucun chemin libre entre ces deux points", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        gameLogic.savePath(currentColorIndex, route);
+        animator.startFill(currentColorIndex, route);
+        onPathCommitted();
+        if (gameLogic.checkWin()) {
+            isGameWon = true;
+            showWinMessage();
+        }
+    }
+
+    /**
+     * @return La case sous le doigt selon la forme de la grille, ou -1 hors de la grille
+     */
+    private int cellUnder(MotionEvent event) {
+        return gameLogic.getTopology().cellAt((event.getX() - startX) / cellSize, (event.getY() - startY) / cellSize);
+    }
+
+    /**
+     * Fait suivre le doigt au bout du tracé, depuis sa dernière case.
+     */
+    private void followFinger(MotionEvent event) {
+        float fingerY = (event.getY() - startY) / cellSize - 0.5f;
+        // Coordonnées de grille sans le décalage des lignes d'une grille hexagonale
+        float fingerX = (event.getX() - startX) / cellSize - 0.5f - gameLogic.getTopology().getRowShift(fingerY);
+        animator.pointTo(gameLogic.getTopology(), lastX, lastY, fingerX, fingerY);
+    }
+
     /**
      * Réinitialise le tracé en cours.
      */
     private void resetCurrentPath() {
         currentPath.clear();
-        animatedPath.clear();
+        animator.stopTip();
         isDrawing = false;
-        invalidate();
+        requestRedraw();
     }
 
     /**
-     * Vérifie si le mouvement entre deux cellules est valide (adjacentes).
+     * Vérifie si le mouvement entre deux cellules est valide (voisines selon la forme de la grille).
      */
     private boolean isValidMove(int startX, int startY, int endX, int endY) {
-        return (startX == endX && Math.abs(startY - endY) == 1) ||
-                (startY == endY && Math.abs(startX - endX) == 1);
+        int gridSize = gameLogic.getGridSize();
+        return gameLogic.getTopology().areNeighbors(startY * gridSize + startX, endY * gridSize + endX);
     }
 
     /**
@@ -279,40 +596,34 @@ public class GameView extends View {
      * Vérifie si une cellule est déjà utilisée dans un autre chemin.
      */
     private boolean isPathOccupied(int x, int y) {
-        for (Map.Entry<Integer, List<int[]>> entry : gameLogic.getPaths().entrySet()) {
-            for (int[] pos : entry.getValue()) {
-                if (pos[0] == x && pos[1] == y) return true;
-            }
-        }
-        return false;
+        return gameLogic.getPathColorAt(x, y) != GameLogic.NO_PATH;
     }
 
     /**
      * Vérifie si une cellule correspond à un point de départ ou d'arrivée.
      */
     private boolean isPointOnCell(int x, int y) {
-        for (FlowPoint point : gameLogic.getPoints()) {
-            if (point.getX() == x && point.getY() == y) return true;
-        }
-        return false;
+        return gameLogic.getPointAt(x, y) != null;
     }
 
     /**
      * Vérifie si une cellule est bien le bon point final du chemin (même couleur).
      */
     private boolean isCorrectEndPoint(int x, int y) {
-        for (FlowPoint point : gameLogic.getPoints()) {
-            if (point.getX() == x && point.getY() == y && point.getColorIndex() == currentColorIndex) {
-                return true;
-            }
-        }
-        return false;
+        FlowPoint point = gameLogic.getPointAt(x, y);
+        return point != null && point.getColorIndex() == currentColorIndex;
+    }
+
+    private void onPathCommitted() {
+        if (gameEventListener != null) gameEventListener.onPathCommitted();
     }
 
     /**
      * Affiche un message de victoire à l'utilisateur.
      */
     private void showWinMessage() {
+        if (gameEventListener != null) gameEventListener.onWin();
+        animator.startSweep();
         Toast.makeText(context, "Bravo ! Vous avez gagné !", Toast.LENGTH_LONG).show();
     }
 }
\ No newline at end of file
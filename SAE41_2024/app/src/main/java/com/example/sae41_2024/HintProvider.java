@@ -0,0 +1,132 @@
+package com.example.sae41_2024;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Calcule l'indice à donner au joueur : le prochain chemin correct,
+ * cohérent avec les chemins qu'il a déjà tracés.
+ *
+ * La solution du niveau vient du {@link SolutionCache}. Si un tracé du joueur ne correspond
+ * pas à cette solution, on cherche une autre solution qui le conserve ; s'il n'en existe pas,
+ * l'indice corrige le premier chemin erroné. Pour un niveau livré dont l'unicité a été prouvée
+ * à la compilation, cette recherche est inutile : l'indice n'est qu'une lecture.
+ */
+public class HintProvider {
+
+    /**
+     * Reçoit l'indice : la couleur et son chemin complet, ou une couleur -1 s'il n'y a rien à révéler.
+     */
+    public interface Callback {
+        void onHint(int color, List<int[]> path);
+    }
+
+    private final SolutionCache cache;
+
+    public HintProvider(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Demande un indice pour l'état actuel de la partie.
+     * @param logic La logique du jeu (seul son instantané immuable est pris sur le thread appelant)
+     * @param callbackExecutor Exécuteur du callback (ex : thread UI)
+     * @param callback Destinataire de l'indice
+     * @return La demande, à annuler si l'indice n'est plus attendu
+     */
+    public SolutionCache.Request requestHint(GameLogic logic, Executor callbackExecutor, Callback callback) {
+        final BoardSnapshot snapshot = logic.getSnapshot();
+        final SolutionCache.Request request = new SolutionCache.Request();
+
+        SolutionCache.runInBackground(() -> {
+            int gridSize = snapshot.getGridSize();
+            BoardTopology topology = snapshot.getTopology();
+            List<FlowPoint> points = snapshot.getPoints();
+            int[][] drawn = new int[BacktrackingSolver.toEnds(gridSize, points).length / 2][];
+            for (int c = 0; c < drawn.length && c < snapshot.getColorSlots(); c++) {
+                int[] cells = snapshot.getPathCells(c);
+                if (cells == null) continue;
+                drawn[c] = new int[cells.length / 2];
+                for (int i = 0; i < drawn[c].length; i++) {
+                    drawn[c][i] = cells[2 * i + 1] * gridSize + cells[2 * i];
+                }
+            }
+
+            long levelHash = LevelHash.of(topology, points);
+            int[][] solution = cache.load(levelHash, topology, points, request);
+            int color = -1;
+            int[] cells = null;
+            if (solution != null) {
+                int wrong = firstMismatch(drawn, solution);
+                int[][] source = solution;
+                if (wrong != -1) {
+                    int[][] alternative = cache.isKnownUnique(levelHash) ? null : solveKeeping(topology, points, drawn, request);
+                    if (alternative != null) {
+                        source = alternative;
+                    } else {
+                        color = wrong;
+                        cells = solution[wrong];
+                    }
+                }
+                if (cells == null) {
+                    for (int c = 0; c < drawn.length && cells == null; c++) {
+                        if (drawn[c] == null) {
+                            color = c;
+                            cells = source[c];
+                        }
+                    }
+                }
+            }
+
+            final int hintColor = cells != null ? color : -1;
+            final List<int[]> path = new ArrayList<>();
+            if (cells != null) {
+                for (int cell : cells) path.add(new int[]{cell % gridSize, cell / gridSize});
+            }
+            callbackExecutor.execute(() -> {
+                if (!request.isCancelled()) callback.onHint(hintColor, path);
+            });
+        });
+        return request;
+    }
+
+    /**
+     * @return La première couleur tracée par le joueur qui diffère de la solution, ou -1
+     */
+    private static int firstMismatch(int[][] drawn, int[][] solution) {
+        for (int c = 0; c < drawn.length; c++) {
+            if (drawn[c] != null && !samePath(drawn[c], solution[c])) return c;
+        }
+        return -1;
+    }
+
+    /**
+     * Deux chemins sont identiques s'ils passent par les mêmes cases, dans un sens ou dans l'autre.
+     */
+    private static boolean samePath(int[] a, int[] b) {
+        if (a.length != b.length) return false;
+        boolean forward = true, backward = true;
+        for (int i = 0; i < a.length; i++) {
+            forward &= a[i] == b[i];
+            backward &= a[i] == b[b.length - 1 - i];
+        }
+        return forward || backward;
+    }
+
+    /**
+     * Cherche une solution qui conserve tous les chemins déjà tracés.
+     */
+    private static int[][] solveKeeping(BoardTopology topology, List<FlowPoint> points, int[][] drawn,
+                                        SolutionCache.Request request) {
+        BacktrackingSolver solver = BacktrackingSolver.forLevel(topology, points);
+        solver.setNodeLimit(SolutionCache.NODE_LIMIT);
+        for (int c = 0; c < drawn.length; c++) {
+            if (drawn[c] != null && !solver.fixPath(c, drawn[c])) return null;
+        }
+        if (!request.track(solver::cancel)) return null;
+        int[][] solution = solver.solve();
+        request.track(null);
+        return solution;
+    }
+}
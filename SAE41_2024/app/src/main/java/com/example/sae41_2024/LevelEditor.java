@@ -0,0 +1,212 @@
+package com.example.sae41_2024;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Niveau en cours de création dans l'éditeur : une taille de grille et des paires de points.
+ *
+ * Toucher une case vide pose un point (le second complète la paire en attente), toucher un
+ * point retire sa paire ; un point peut être glissé vers une case vide. Les couleurs suivent
+ * l'ordre des paires, comme dans les fichiers XML des niveaux.
+ */
+public class LevelEditor {
+    public static final int MIN_SIZE = GameLogic.MIN_GRID_SIZE;
+    public static final int MAX_SIZE = 14;
+
+    private static final String[] COLOR_NAMES = {
+            "Rouge", "Bleu", "Vert", "Jaune", "Cyan", "Magenta",
+            "Orange", "Violet", "Marron", "Vert sapin", "Indigo"
+    };
+
+    /**
+     * Prévenu après chaque modification du niveau.
+     */
+    public interface OnChangeListener {
+        void onLevelChanged();
+    }
+
+    private int size;
+    // Deux cases (y * size + x) par paire ; la seconde vaut -1 tant que la paire est incomplète
+    private final List<int[]> pairs = new ArrayList<>();
+    private OnChangeListener listener;
+
+    /**
+     * @param size La taille de la grille, ramenée entre {@link #MIN_SIZE} et {@link #MAX_SIZE}
+     */
+    public LevelEditor(int size) {
+        this.size = clampSize(size);
+    }
+
+    /**
+     * @param listener L'observateur des modifications, ou null
+     */
+    public void setOnChangeListener(OnChangeListener listener) {
+        this.listener = listener;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Change la taille de la grille ; les paires qui n'y tiennent plus sont retirées.
+     * @param newSize La nouvelle taille, ramenée entre {@link #MIN_SIZE} et {@link #MAX_SIZE}
+     */
+    public void setSize(int newSize) {
+        newSize = clampSize(newSize);
+        if (newSize == size) return;
+        List<int[]> kept = new ArrayList<>();
+        for (int[] pair : pairs) {
+            int a = resize(pair[0], newSize);
+            int b = pair[1] < 0 ? -1 : resize(pair[1], newSize);
+            if (a >= 0 && (pair[1] < 0 || b >= 0)) kept.add(new int[]{a, b});
+        }
+        pairs.clear();
+        pairs.addAll(kept);
+        size = newSize;
+        changed();
+    }
+
+    /**
+     * @return Le nombre de paires, y compris une paire incomplète
+     */
+    public int getPairCount() {
+        return pairs.size();
+    }
+
+    /**
+     * @return true si aucune paire n'attend son second point
+     */
+    public boolean isComplete() {
+        for (int[] pair : pairs) {
+            if (pair[1] < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Toucher une case : retire la paire du point touché, sinon pose un point.
+     * @return false si rien n'a changé (toutes les couleurs sont déjà utilisées)
+     */
+    public boolean tap(int x, int y) {
+        if (!isInGrid(x, y)) return false;
+        int cell = y * size + x;
+        int pair = pairAt(cell);
+        if (pair >= 0) {
+            pairs.remove(pair);
+        } else if (!isComplete()) {
+            pairs.get(pairs.size() - 1)[1] = cell;
+        } else if (pairs.size() < COLOR_NAMES.length) {
+            pairs.add(new int[]{cell, -1});
+        } else {
+            return false;
+        }
+        changed();
+        return true;
+    }
+
+    /**
+     * Déplace un point vers une case vide.
+     * @return false s'il n'y a pas de point au départ ou si l'arrivée est occupée
+     */
+    public boolean move(int fromX, int fromY, int toX, int toY) {
+        if (!isInGrid(fromX, fromY) || !isInGrid(toX, toY)) return false;
+        int from = fromY * size + fromX;
+        int to = toY * size + toX;
+        int pair = pairAt(from);
+        if (pair < 0 || pairAt(to) >= 0) return false;
+        int[] ends = pairs.get(pair);
+        ends[ends[0] == from ? 0 : 1] = to;
+        changed();
+        return true;
+    }
+
+    /**
+     * Retire toutes les paires.
+     */
+    public void clear() {
+        if (pairs.isEmpty()) return;
+        pairs.clear();
+        changed();
+    }
+
+    /**
+     * @return Les points du niveau, paire par paire, dans l'ordre des couleurs
+     */
+    public List<FlowPoint> toPoints() {
+        List<FlowPoint> points = new ArrayList<>();
+        for (int color = 0; color < pairs.size(); color++) {
+            for (int cell : pairs.get(color)) {
+                if (cell >= 0) points.add(new FlowPoint(cell % size, cell / size, color));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * @return Les deux cases de chaque couleur (voir {@link BacktrackingSolver}), -1 pour un point manquant
+     */
+    public int[] toEnds() {
+        int[] ends = new int[2 * pairs.size()];
+        for (int color = 0; color < pairs.size(); color++) {
+            ends[2 * color] = pairs.get(color)[0];
+            ends[2 * color + 1] = pairs.get(color)[1];
+        }
+        return ends;
+    }
+
+    /**
+     * Écrit le niveau au format des fichiers de src/main/levels.
+     * @param name Le nom affiché du niveau
+     * @return Le contenu XML
+     */
+    public String toXml(String name) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<puzzle size=\"").append(size).append("\" nom=\"").append(escape(name)).append("\">\n");
+        for (int color = 0; color < pairs.size(); color++) {
+            int[] pair = pairs.get(color);
+            if (pair[1] < 0) continue;
+            xml.append("  <paire> <!-- ").append(COLOR_NAMES[color]).append(" -->\n");
+            for (int cell : pair) {
+                xml.append("    <point colonne=\"").append(cell % size)
+                        .append("\" ligne=\"").append(cell / size).append("\" />\n");
+            }
+            xml.append("  </paire>\n");
+        }
+        xml.append("</puzzle>\n");
+        return xml.toString();
+    }
+
+    private int pairAt(int cell) {
+        for (int i = 0; i < pairs.size(); i++) {
+            if (pairs.get(i)[0] == cell || pairs.get(i)[1] == cell) return i;
+        }
+        return -1;
+    }
+
+    private boolean isInGrid(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    /**
+     * Position d'une case dans une grille d'une autre taille, ou -1 si elle n'y tient plus.
+     */
+    private int resize(int cell, int newSize) {
+        int x = cell % size;
+        int y = cell / size;
+        return x < newSize && y < newSize ? y * newSize + x : -1;
+    }
+
+    private static int clampSize(int size) {
+        return Math.max(MIN_SIZE, Math.min(MAX_SIZE, size));
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;");
+    }
+
+    private void changed() {
+        if (listener != null) listener.onLevelChanged();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.sae41_2024;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forme canonique d'un niveau (taille de grille + paires de points) et son empreinte.
+ *
+ * Deux niveaux ont la même forme canonique s'ils ne diffèrent que par une des 8 symétries
+ * du carré (rotations, miroirs) ou par une permutation des indices de couleur : pour chaque
+ * symétrie, les points sont triés par case et les couleurs renumérotées dans l'ordre
+ * d'apparition ; la plus petite des 8 suites obtenues est retenue.
+ *
+ * N'utilise que la bibliothèque Java standard : l'outil d'empaquetage calcule l'empreinte
+ * de chaque niveau pendant la compilation.
+ */
+public final class LevelFingerprint {
+    private static final int SYMMETRIES = 8;
+    private static final long SEED_LOW = 0x9E3779B97F4A7C15L;
+    private static final long SEED_HIGH = 0xC2B2AE3D27D4EB4FL;
+
+    private LevelFingerprint() {
+    }
+
+    /**
+     * Calcule la forme canonique d'un niveau.
+     *
+     * @param size   La taille de la grille
+     * @param xs     Colonne de chaque point
+     * @param ys     Ligne de chaque point
+     * @param colors Indice de couleur de chaque point
+     * @return La taille, le nombre de points, puis (case, couleur renumérotée) par point
+     */
+    public static int[] canonicalForm(int size, int[] xs, int[] ys, int[] colors) {
+        int count = xs.length;
+        int[] best = null;
+        int[] candidate = new int[2 + 2 * count];
+        int[] cells = new int[count];
+        Integer[] order = new Integer[count];
+        int maxColor = 0;
+        for (int color : colors) maxColor = Math.max(maxColor, color);
+        int[] relabel = new int[maxColor + 1];
+
+        for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+            for (int i = 0; i < count; i++) {
+                cells[i] = transform(symmetry, size, xs[i], ys[i]);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(cells[a], cells[b]));
+
+            Arrays.fill(relabel, -1);
+            int nextLabel = 0;
+            candidate[0] = size;
+            candidate[1] = count;
+            for (int k = 0; k < count; k++) {
+                int point = order[k];
+                int color = colors[point];
+                if (color >= 0 && relabel[color] == -1) relabel[color] = nextLabel++;
+                candidate[2 + 2 * k] = cells[point];
+                candidate[3 + 2 * k] = color >= 0 ? relabel[color] : -1;
+            }
+            if (best == null || compare(candidate, best) < 0) {
+                best = candidate.clone();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Forme canonique d'un niveau chargé.
+     *
+     * @param size   La taille de la grille
+     * @param points Les points du niveau
+     * @return La forme canonique
+     */
+    public static int[] canonicalForm(int size, List<FlowPoint> points) {
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        int[] colors = new int[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            xs[i] = points.get(i).getX();
+            ys[i] = points.get(i).getY();
+            colors[i] = points.get(i).getColorIndex();
+        }
+        return canonicalForm(size, xs, ys, colors);
+    }
+
+    /**
+     * Empreinte 64 bits d'une forme canonique ; jamais nulle (0 signifie « pas d'empreinte »).
+     *
+     * @param canonical La forme canonique
+     * @return L'empreinte
+     */
+    public static long hash(int[] canonical) {
+        long hash = mix(canonical, SEED_LOW);
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Empreinte 128 bits d'une forme canonique, pour les index où même une collision
+     * sur 64 bits par milliard de paires n'est pas acceptable.
+     *
+     * @param canonical La forme canonique
+     * @return Les 64 bits de poids faible puis de poids fort
+     */
+    public static long[] hash128(int[] canonical) {
+        return new long[]{hash(canonical), mix(canonical, SEED_HIGH)};
+    }
+
+    /**
+     * Numéro de case (y * size + x) d'un point après une des 8 symétries du carré.
+     */
+    static int transform(int symmetry, int size, int x, int y) {
+        int last = size - 1;
+        int tx, ty;
+        switch (symmetry) {
+            case 0: tx = x; ty = y; break;
+            case 1: tx = last - x; ty = y; break;
+            case 2: tx = x; ty = last - y; break;
+            case 3: tx = last - x; ty = last - y; break;
+            case 4: tx = y; ty = x; break;
+            case 5: tx = last - y; ty = x; break;
+            case 6: tx = y; ty = last - x; break;
+            default: tx = last - y; ty = last - x; break;
+        }
+        return ty * size + tx;
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return Integer.compare(a[i], b[i]);
+        }
+        return 0;
+    }
+
+    private static long mix(int[] values, long seed) {
+        long hash = seed ^ values.length;
+        for (int value : values) {
+            hash = (hash ^ (value & 0xffffffffL)) * 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 32;
+        }
+        // Finalisation de MurmurHash3 : tous les bits dépendent de toute la suite
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
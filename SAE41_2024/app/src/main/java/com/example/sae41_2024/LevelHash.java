@@ -0,0 +1,68 @@
+package com.example.sae41_2024;
+
+import java.util.List;
+
+/**
+ * Empreinte 64 bits du contenu d'un niveau (taille et forme de la grille, points),
+ * utilisée comme clé des caches : deux fichiers décrivant le même niveau ont la même empreinte.
+ */
+public final class LevelHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private LevelHash() {
+    }
+
+    /**
+     * Calcule l'empreinte FNV-1a d'un niveau.
+     * @param gridSize La taille de la grille
+     * @param points Les points du niveau
+     * @return L'empreinte du niveau
+     */
+    public static long of(int gridSize, List<FlowPoint> points) {
+        long hash = mix(FNV_OFFSET, gridSize);
+        for (FlowPoint point : points) {
+            hash = mix(hash, point.getColorIndex());
+            hash = mix(hash, point.getX());
+            hash = mix(hash, point.getY());
+        }
+        return hash;
+    }
+
+    /**
+     * Calcule l'empreinte d'un niveau en tenant compte de la forme de sa grille et de ses portails ;
+     * identique à {@link #of(int, List)} pour une grille carrée sans portail.
+     * @param topology Le voisinage des cases du niveau
+     * @param points Les points du niveau
+     * @return L'empreinte du niveau
+     */
+    public static long of(BoardTopology topology, List<FlowPoint> points) {
+        long hash = of(topology.getGridSize(), points);
+        if (topology.isPlainSquare()) return hash;
+        hash = mix(hash, topology.getKind());
+        for (int cell : topology.getWarps()) {
+            hash = mix(hash, cell);
+        }
+        return hash;
+    }
+
+    /**
+     * Représentation hexadécimale d'une empreinte, utilisable comme nom de fichier.
+     * @param hash L'empreinte
+     * @return 16 caractères hexadécimaux
+     */
+    public static String toHex(long hash) {
+        String hex = Long.toHexString(hash);
+        StringBuilder sb = new StringBuilder(16);
+        for (int i = hex.length(); i < 16; i++) sb.append('0');
+        return sb.append(hex).toString();
+    }
+
+    private static long mix(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,450 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Color;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Liste des niveaux du paquet, virtualisée pour des milliers de niveaux.
+ *
+ * Les noms sont lus dans l'index du paquet par blocs, à la demande, et seuls quelques blocs
+ * restent en mémoire. Un niveau n'est validé que lorsque sa ligne (ou une ligne proche)
+ * est affichée, sur un thread de fond : les lignes demandées en dernier passent en premier.
+ * Les résultats déjà présents dans le {@link ValidationCache} évitent toute relecture du niveau.
+ * Les niveaux identiques à un niveau précédent du paquet (à une symétrie ou une permutation
+ * des couleurs près) sont signalés comme doublons.
+ *
+ * Les notes de {@link DifficultyRater} arrivent par lots : chaque ligne affiche alors son
+ * palier, et la liste peut être triée et regroupée par palier, sous des lignes d'en-tête.
+ * Dans ce cas une position de la liste n'est plus la position du niveau dans le paquet :
+ * voir {@link #getLevelIndex(int)}.
+ *
+ * Chaque ligne montre la vignette du niveau ({@link ThumbnailCache}), avec la partie en cours
+ * s'il y en a une de sauvegardée.
+ */
+public class LevelListAdapter extends BaseAdapter {
+    private static final byte UNKNOWN = 0;
+    private static final byte PENDING = 1;
+    private static final byte VALID = 2;
+    private static final byte INVALID = 3;
+
+    private static final int CHUNK_SIZE = 64;
+    private static final int MAX_CHUNKS = 8;
+    // Lignes validées par anticipation de part et d'autre d'une ligne affichée
+    private static final int PREFETCH = 16;
+    // Au-delà, les demandes les plus anciennes (lignes sorties de l'écran) sont oubliées
+    private static final int MAX_PENDING = 256;
+    private static final int RESULT_BATCH = 16;
+    // Note pas encore reçue du DifficultyRater
+    private static final int NOT_RATED_YET = -2;
+    private static final int VIEW_LEVEL = 0;
+    private static final int VIEW_HEADER = 1;
+    // Taille des cases des vignettes, en dp
+    private static final int THUMBNAIL_CELL_DP = 6;
+
+    private final Context context;
+    private final LevelPack pack;
+    private final ValidationCache cache;
+    private final ThumbnailCache thumbnails;
+    // Parties sauvegardées par MainActivity, une par niveau
+    private final SharedPreferences savedGames;
+    private final int thumbnailCellSize;
+    private boolean isAchromateMode = false;
+    private final Executor uiExecutor;
+    private final byte[] status;
+    private final int[] scores;
+    private final Map<Integer, String[]> chunks = new LinkedHashMap<Integer, String[]>(MAX_CHUNKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > MAX_CHUNKS;
+        }
+    };
+    private final ArrayDeque<Integer> pending = new ArrayDeque<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    // Pour chaque niveau, le premier niveau identique du paquet ou -1 ; null tant que non calculé
+    private int[] duplicateOf;
+    // Pour chaque ligne affichée, la position du niveau dans le paquet ou -1 - palier pour un en-tête ;
+    // null dans l'ordre du paquet
+    private int[] rows;
+    private boolean sortByDifficulty = false;
+    // Meilleur temps des niveaux réussis, par identifiant de niveau
+    private Map<String, Long> bestTimes = Collections.emptyMap();
+    private boolean draining = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param context Le contexte Android
+     * @param pack Le paquet de niveaux à afficher
+     * @param cache Les résultats de validation des lancements précédents
+     * @param uiExecutor Exécuteur du thread UI (les résultats de validation y sont appliqués)
+     */
+    public LevelListAdapter(Context context, LevelPack pack, ValidationCache cache, Executor uiExecutor) {
+        this.context = context;
+        this.pack = pack;
+        this.cache = cache;
+        this.uiExecutor = uiExecutor;
+        this.status = new byte[pack.size()];
+        this.scores = new int[pack.size()];
+        Arrays.fill(scores, NOT_RATED_YET);
+        this.thumbnails = new ThumbnailCache(context, pack, uiExecutor);
+        this.savedGames = context.getSharedPreferences("GameState", Context.MODE_PRIVATE);
+        this.thumbnailCellSize = Math.round(THUMBNAIL_CELL_DP * context.getResources().getDisplayMetrics().density);
+        worker.execute(cache::load);
+        worker.execute(this::findDuplicates);
+    }
+
+    @Override
+    public int getCount() {
+        return rows != null ? rows.length : pack.size();
+    }
+
+    /**
+     * @param position Une ligne de la liste
+     * @return La position du niveau dans le paquet, ou -1 pour une ligne d'en-tête
+     */
+    public int getLevelIndex(int position) {
+        if (rows == null) return position;
+        return rows[position] >= 0 ? rows[position] : -1;
+    }
+
+    /**
+     * @return Le nom du niveau de la ligne, ou le nom du palier pour un en-tête
+     */
+    @Override
+    public String getItem(int position) {
+        int index = getLevelIndex(position);
+        return index >= 0 ? nameOf(index) : DifficultyRater.tierName(headerTier(position));
+    }
+
+    private String nameOf(int index) {
+        int chunk = index / CHUNK_SIZE;
+        String[] names = chunks.get(chunk);
+        if (names == null) {
+            int first = chunk * CHUNK_SIZE;
+            names = new String[Math.min(CHUNK_SIZE, pack.size() - first)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = pack.getName(first + i);
+            }
+            chunks.put(chunk, names);
+        }
+        return names[index - chunk * CHUNK_SIZE];
+    }
+
+    /**
+     * @return La position du niveau dans le paquet, stable au tri ; négatif pour un en-tête
+     */
+    @Override
+    public long getItemId(int position) {
+        return rows != null ? rows[position] : position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return 2;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getLevelIndex(position) >= 0 ? VIEW_LEVEL : VIEW_HEADER;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return rows == null;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return getLevelIndex(position) >= 0;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int index = getLevelIndex(position);
+        if (index < 0) {
+            View view = convertView != null ? convertView
+                    : LayoutInflater.from(context).inflate(android.R.layout.simple_list_item_1, parent, false);
+            TextView textView = view.findViewById(android.R.id.text1);
+            textView.setTextSize(14);
+            textView.setTextColor(Color.LTGRAY);
+            textView.setText(getItem(position).toUpperCase());
+            return view;
+        }
+        View view = convertView != null ? convertView
+                : LayoutInflater.from(context).inflate(R.layout.item_level, parent, false);
+        TextView textView = view.findViewById(R.id.level_name);
+        ImageView thumbnail = view.findViewById(R.id.level_thumbnail);
+        thumbnails.bind(thumbnail, index, thumbnailCellSize,
+                savedGames.getString("paths_" + pack.getKey(index), null), isAchromateMode);
+
+        if (status[index] == UNKNOWN) {
+            requestAround(position);
+        }
+        // Le palier n'est rappelé sur la ligne que hors des groupes, le meilleur temps toujours
+        String details = !sortByDifficulty && scores[index] >= 0
+                ? " · " + DifficultyRater.tierName(DifficultyRater.tierOf(scores[index])) : "";
+        Long bestTime = bestTimes.isEmpty() ? null : bestTimes.get(pack.getKey(index));
+        if (bestTime != null) details += " ✓ " + StatsStore.formatDuration(bestTime);
+        if (status[index] == INVALID) {
+            textView.setTextColor(Color.GRAY);
+            textView.setAlpha(0.5f);
+            textView.setText(nameOf(index) + " (Erreur)");
+        } else if (getDuplicateOf(index) != -1) {
+            textView.setTextColor(Color.WHITE);
+            textView.setAlpha(0.75f);
+            textView.setText(nameOf(index) + " (Doublon de " + nameOf(getDuplicateOf(index)) + ")" + details);
+        } else {
+            textView.setTextColor(Color.WHITE);
+            // Légèrement estompé tant que la validation n'est pas terminée
+            textView.setAlpha(status[index] == VALID ? 1.0f : 0.75f);
+            textView.setText(nameOf(index) + details);
+        }
+        return view;
+    }
+
+    /**
+     * Indique si un niveau peut être lancé ; s'il n'a pas encore été validé, il l'est tout de suite.
+     * @param index La position du niveau dans le paquet
+     * @return true si le niveau est jouable
+     */
+    public boolean isPlayable(int index) {
+        if (status[index] != VALID && status[index] != INVALID) {
+            status[index] = validate(index) ? VALID : INVALID;
+        }
+        return status[index] == VALID;
+    }
+
+    /**
+     * @param bestTimes Le meilleur temps de chaque niveau réussi (voir {@link StatsStore})
+     */
+    public void setBestTimes(Map<String, Long> bestTimes) {
+        this.bestTimes = bestTimes;
+        // Appelé à chaque retour au menu : les lignes relisent aussi les parties sauvegardées
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @param isAchromate true pour dessiner les vignettes avec les couleurs du mode achromate
+     */
+    public void setAchromateMode(boolean isAchromate) {
+        if (isAchromateMode == isAchromate) return;
+        isAchromateMode = isAchromate;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Trie et regroupe la liste par palier de difficulté, ou revient à l'ordre du paquet.
+     * @param enabled true pour trier par difficulté
+     */
+    public void setSortByDifficulty(boolean enabled) {
+        if (sortByDifficulty == enabled) return;
+        sortByDifficulty = enabled;
+        rows = enabled ? buildRows() : null;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return true si la liste est triée par difficulté
+     */
+    public boolean isSortedByDifficulty() {
+        return sortByDifficulty;
+    }
+
+    /**
+     * Reçoit un lot de notes du {@link DifficultyRater} (sur le thread UI).
+     * @param indices Les positions des niveaux dans le paquet
+     * @param levelScores Leurs notes
+     */
+    public void onRated(int[] indices, int[] levelScores) {
+        if (closed) return;
+        for (int k = 0; k < indices.length; k++) {
+            scores[indices[k]] = levelScores[k];
+        }
+        if (sortByDifficulty) rows = buildRows();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Range les niveaux par note croissante (tri par dénombrement : les notes vont de 0 à 100),
+     * un en-tête devant chaque palier non vide ; les niveaux sans note ferment la liste.
+     */
+    private int[] buildRows() {
+        int buckets = DifficultyRater.MAX_SCORE + 2;
+        int[] starts = new int[buckets + 1];
+        for (int score : scores) starts[bucketOf(score) + 1]++;
+        for (int b = 0; b < buckets; b++) starts[b + 1] += starts[b];
+        int[] sorted = new int[scores.length];
+        for (int i = 0; i < scores.length; i++) sorted[starts[bucketOf(scores[i])]++] = i;
+
+        int[] result = new int[scores.length + DifficultyRater.tierCount() + 1];
+        int count = 0;
+        int currentTier = Integer.MIN_VALUE;
+        for (int index : sorted) {
+            int tier = scores[index] >= 0 ? DifficultyRater.tierOf(scores[index]) : DifficultyRater.tierCount();
+            if (tier != currentTier) {
+                currentTier = tier;
+                result[count++] = -1 - tier;
+            }
+            result[count++] = index;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int bucketOf(int score) {
+        return score >= 0 ? score : DifficultyRater.MAX_SCORE + 1;
+    }
+
+    /**
+     * @return Le palier d'une ligne d'en-tête, -1 pour les niveaux sans note
+     */
+    private int headerTier(int position) {
+        int tier = -1 - rows[position];
+        return tier < DifficultyRater.tierCount() ? tier : -1;
+    }
+
+    /**
+     * @param index La position du niveau dans le paquet
+     * @return La position du premier niveau identique du paquet, ou -1 (aussi tant que
+     * la recherche des doublons n'est pas terminée)
+     */
+    public int getDuplicateOf(int index) {
+        return duplicateOf != null ? duplicateOf[index] : -1;
+    }
+
+    /**
+     * Arrête la validation en arrière-plan (à appeler à la destruction de l'activité)
+     * après avoir enregistré les nouveaux résultats.
+     */
+    public void shutdown() {
+        closed = true;
+        thumbnails.shutdown();
+        worker.execute(cache::save);
+        worker.shutdown();
+    }
+
+    /**
+     * Valide un niveau, en passant par le cache si son contenu a déjà été validé.
+     */
+    private boolean validate(int index) {
+        long hash = pack.getContentHash(index);
+        Boolean cached = cache.get(hash);
+        if (cached != null) return cached;
+        boolean valid = LevelValidator.isPuzzleValid(pack, index);
+        cache.put(hash, valid);
+        return valid;
+    }
+
+    /**
+     * Met en file la validation des lignes autour d'une ligne affichée.
+     */
+    private void requestAround(int position) {
+        int from = Math.max(0, position - PREFETCH);
+        int to = Math.min(getCount() - 1, position + PREFETCH);
+        synchronized (pending) {
+            for (int p = to; p >= from; p--) {
+                int index = getLevelIndex(p);
+                if (p != position && index >= 0) enqueue(index);
+            }
+            // La ligne affichée est ajoutée en dernier : elle sera validée en premier
+            enqueue(getLevelIndex(position));
+            while (pending.size() > MAX_PENDING) {
+                status[pending.pollFirst()] = UNKNOWN;
+            }
+            if (!draining && !closed) {
+                draining = true;
+                worker.execute(this::drain);
+            }
+        }
+    }
+
+    private void enqueue(int index) {
+        if (status[index] != UNKNOWN) return;
+        Boolean cached = cache.get(pack.getContentHash(index));
+        if (cached != null) {
+            status[index] = cached ? VALID : INVALID;
+            return;
+        }
+        status[index] = PENDING;
+        pending.addLast(index);
+    }
+
+    /**
+     * Boucle du thread de fond : valide les demandes les plus récentes d'abord
+     * et publie les résultats par lots pour limiter les rafraîchissements de la liste.
+     */
+    private void drain() {
+        List<int[]> results = new ArrayList<>();
+        while (!closed) {
+            Integer index;
+            synchronized (pending) {
+                index = pending.pollLast();
+                if (index == null) {
+                    draining = false;
+                }
+            }
+            if (index == null) break;
+            results.add(new int[]{index, validate(index) ? VALID : INVALID});
+            if (results.size() >= RESULT_BATCH) {
+                publish(results);
+                results = new ArrayList<>();
+            }
+        }
+        if (!results.isEmpty()) publish(results);
+        cache.save();
+    }
+
+    /**
+     * Repère les doublons à partir des empreintes canoniques de l'index du paquet,
+     * sans relire aucun niveau.
+     */
+    private void findDuplicates() {
+        StartupTrace.begin("menu.findDuplicates");
+        int[] result = new int[pack.size()];
+        DedupIndex index = new DedupIndex(pack.size());
+        int duplicates = 0;
+        for (int i = 0; i < result.length; i++) {
+            long hash = pack.getCanonicalHash(i);
+            result[i] = hash == 0 ? -1 : index.putIfAbsent(hash, i);
+            if (result[i] != -1) duplicates++;
+        }
+        StartupTrace.end();
+        if (duplicates > 0) Log.d("DEBUG_FLOW", duplicates + " niveaux en double dans le paquet");
+        uiExecutor.execute(() -> {
+            if (closed) return;
+            duplicateOf = result;
+            notifyDataSetChanged();
+        });
+    }
+
+    private void publish(List<int[]> results) {
+        uiExecutor.execute(() -> {
+            if (closed) return;
+            for (int[] result : results) {
+                status[result[0]] = (byte) result[1];
+            }
+            notifyDataSetChanged();
+        });
+    }
+}
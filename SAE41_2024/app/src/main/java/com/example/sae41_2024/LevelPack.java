@@ -0,0 +1,219 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paquet de niveaux en lecture seule, écrit par {@link LevelPackWriter}.
+ *
+ * Le fichier est stocké sans compression dans les assets et projeté en mémoire :
+ * l'index a une taille fixe par niveau, donc accéder au niveau N ne lit que son entrée
+ * d'index et ses propres octets, quel que soit le nombre de niveaux du paquet.
+ */
+public final class LevelPack {
+    public static final String ASSET_NAME = "levels.pack";
+    private static final String TAG = "DEBUG_FLOW";
+
+    private static LevelPack instance;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    // Position de chaque niveau par identifiant, construite à la première recherche
+    private Map<String, Integer> keyIndex;
+
+    /**
+     * Retourne le paquet des assets, ouvert une seule fois pour tout le processus.
+     * @param context Le contexte Android
+     * @return Le paquet de niveaux
+     */
+    public static synchronized LevelPack get(Context context) throws IOException {
+        if (instance == null) {
+            instance = new LevelPack(map(context, ASSET_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Projette un paquet des assets en mémoire ; s'il a été compressé malgré tout, il est lu entièrement.
+     */
+    static ByteBuffer map(Context context, String assetName) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(assetName);
+             FileInputStream in = fd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        } catch (IOException e) {
+            Log.w(TAG, assetName + " compressé, lecture complète : " + e.getMessage());
+        }
+        try (InputStream in = context.getAssets().open(assetName)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            for (int read; (read = in.read(chunk)) != -1; ) {
+                out.write(chunk, 0, read);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+    }
+
+    /**
+     * Lit un paquet déjà en mémoire et contrôle son en-tête et son index.
+     * @param buffer Le contenu du paquet (big-endian)
+     */
+    LevelPack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < LevelPackWriter.HEADER_SIZE
+                || buffer.getInt(0) != LevelPackWriter.MAGIC
+                || buffer.getInt(4) != LevelPackWriter.VERSION) {
+            throw new IOException("Paquet de niveaux invalide");
+        }
+        count = buffer.getInt(8);
+        long indexEnd = LevelPackWriter.HEADER_SIZE + (long) count * LevelPackWriter.ENTRY_SIZE;
+        if (count < 0 || indexEnd > buffer.limit()) {
+            throw new IOException("Index du paquet tronqué");
+        }
+        for (int i = 0; i < count; i++) {
+            long end = (long) offset(i) + field(i, 1) + field(i, 2) + field(i, 3);
+            if (offset(i) < indexEnd || field(i, 1) < 0 || field(i, 2) < 0 || field(i, 3) < 0
+                    || end > buffer.limit()) {
+                throw new IOException("Niveau " + i + " hors du paquet");
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de niveaux du paquet
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param index La position du niveau dans le paquet
+     * @return L'identifiant stable du niveau (nom de son fichier source)
+     */
+    public String getKey(int index) {
+        return readString(offset(index), field(index, 1));
+    }
+
+    /**
+     * @param index La position du niveau dans le paquet
+     * @return Le nom affiché du niveau
+     */
+    public String getName(int index) {
+        return readString(offset(index) + field(index, 1), field(index, 2));
+    }
+
+    /**
+     * @param index La position du niveau dans le paquet
+     * @return L'empreinte du contenu XML du niveau, calculée à l'empaquetage
+     */
+    public long getContentHash(int index) {
+        return buffer.getLong(entry(index) + 16);
+    }
+
+    /**
+     * @param index La position du niveau
+     * @return L'empreinte canonique du niveau (invariante par symétrie et par permutation des
+     * couleurs, voir {@link LevelFingerprint}), ou 0 si le niveau n'a pas pu être lu
+     */
+    public long getCanonicalHash(int index) {
+        return buffer.getLong(entry(index) + 24);
+    }
+
+    /**
+     * Ouvre le XML d'un niveau, lu directement dans le paquet.
+     * @param index La position du niveau dans le paquet
+     * @return Un flux sur les seuls octets de ce niveau
+     */
+    public InputStream openLevel(int index) {
+        int start = offset(index) + field(index, 1) + field(index, 2);
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(start + field(index, 3));
+        slice.position(start);
+        return new ByteBufferInputStream(slice);
+    }
+
+    /**
+     * Cherche un niveau par son identifiant. La première recherche lit toutes les clés
+     * une fois ; les suivantes ne sont qu'une lecture de table.
+     * @param key L'identifiant du niveau
+     * @return Sa position dans le paquet, ou -1
+     */
+    public synchronized int indexOfKey(String key) {
+        if (keyIndex == null) {
+            keyIndex = new HashMap<>(count * 2);
+            for (int i = count - 1; i >= 0; i--) {
+                // En partant de la fin, une clé en double garde sa première position
+                keyIndex.put(getKey(i), i);
+            }
+        }
+        Integer index = keyIndex.get(key);
+        return index != null ? index : -1;
+    }
+
+    private int offset(int index) {
+        return field(index, 0);
+    }
+
+    /**
+     * Lit le champ n (0 : position, 1 : clé, 2 : nom, 3 : XML) de l'entrée d'index d'un niveau.
+     */
+    private int field(int index, int n) {
+        return buffer.getInt(entry(index) + n * 4);
+    }
+
+    /**
+     * @return La position de l'entrée d'index d'un niveau
+     */
+    private int entry(int index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Niveau " + index);
+        return LevelPackWriter.HEADER_SIZE + index * LevelPackWriter.ENTRY_SIZE;
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Flux de lecture sur une tranche du paquet ; chaque flux a sa propre position, donc
+     * plusieurs threads peuvent lire le paquet en même temps.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer slice;
+
+        ByteBufferInputStream(ByteBuffer slice) {
+            this.slice = slice;
+        }
+
+        @Override
+        public int read() {
+            return slice.hasRemaining() ? slice.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) return 0;
+            if (!slice.hasRemaining()) return -1;
+            int n = Math.min(length, slice.remaining());
+            slice.get(target, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return slice.remaining();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.sae41_2024;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Écrit un paquet de niveaux lu par {@link LevelPack}.
+ *
+ * Format (entiers big-endian) :
+ * - en-tête : MAGIC, VERSION, nombre de niveaux ;
+ * - index : une entrée de taille fixe par niveau (position, longueurs de la clé, du nom et du XML,
+ *   empreinte 64 bits du XML, empreinte canonique du niveau ou 0 s'il est illisible) ;
+ * - données : pour chaque niveau, sa clé, son nom (UTF-8) puis le XML d'origine.
+ *
+ * N'utilise que la bibliothèque Java standard : la tâche Gradle {@code packLevels}
+ * l'exécute pendant la compilation sur les fichiers de {@code src/main/levels}.
+ */
+public class LevelPackWriter {
+    static final int MAGIC = 0x524C504B; // "RLPK"
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 12;
+    static final int ENTRY_SIZE = 32;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<byte[]> keys = new ArrayList<>();
+    private final List<byte[]> names = new ArrayList<>();
+    private final List<byte[]> contents = new ArrayList<>();
+    private final List<Long> canonicalHashes = new ArrayList<>();
+
+    /**
+     * Ce que l'outil lit d'un niveau : son nom, sa grille et son empreinte canonique.
+     */
+    static final class LevelInfo {
+        String name;
+        int size = -1;
+        int kind = BoardTopology.SQUARE;
+        // Déclaré dans le XML (solutions="plusieurs") : le niveau peut avoir plusieurs solutions
+        boolean allowsSeveralSolutions = false;
+        // Portails : colonne et ligne de chaque extrémité, à la suite
+        final List<Integer> warps = new ArrayList<>();
+        final List<FlowPoint> points = new ArrayList<>();
+        private BoardTopology topology;
+
+        /**
+         * @return Le voisinage des cases du niveau (taille positive seulement)
+         * @throws IllegalArgumentException si la forme est inconnue ou un portail hors de la grille
+         */
+        BoardTopology topology() {
+            if (topology == null) {
+                int[] cells = new int[warps.size() / 2];
+                for (int i = 0; i < cells.length; i++) {
+                    int col = warps.get(2 * i), row = warps.get(2 * i + 1);
+                    if (col < 0 || col >= size) throw new IllegalArgumentException("Portail hors de la grille");
+                    cells[i] = row * size + col;
+                }
+                topology = BoardTopology.create(kind, size, cells);
+            }
+            return topology;
+        }
+
+        /**
+         * @return L'empreinte canonique (voir {@link LevelFingerprint}), ou 0 sans balise puzzle ;
+         * les symétries du carré ne valent pas pour les autres formes : leur empreinte est celle
+         * de {@link LevelHash}, sans réduction
+         */
+        long canonicalHash() {
+            if (size <= 0) return 0;
+            if (kind == BoardTopology.SQUARE && warps.isEmpty()) {
+                return LevelFingerprint.hash(LevelFingerprint.canonicalForm(size, points));
+            }
+            return LevelHash.of(topology(), points);
+        }
+    }
+
+    /**
+     * Ajoute un niveau au paquet.
+     * @param key Identifiant stable du niveau (nom du fichier sans extension)
+     * @param name Nom affiché du niveau
+     * @param xml Contenu XML du niveau, copié tel quel
+     */
+    public void add(String key, String name, byte[] xml) {
+        keys.add(key.getBytes(StandardCharsets.UTF_8));
+        names.add(name.getBytes(StandardCharsets.UTF_8));
+        contents.add(xml);
+        canonicalHashes.add(readLevelInfo(xml).canonicalHash());
+    }
+
+    /**
+     * Écrit l'en-tête, l'index puis les données des niveaux ajoutés.
+     * @param output Le flux de destination (non fermé)
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        int count = keys.size();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+
+        int offset = HEADER_SIZE + count * ENTRY_SIZE;
+        for (int i = 0; i < count; i++) {
+            out.writeInt(offset);
+            out.writeInt(keys.get(i).length);
+            out.writeInt(names.get(i).length);
+            out.writeInt(contents.get(i).length);
+            out.writeLong(contentHash(contents.get(i)));
+            out.writeLong(canonicalHashes.get(i));
+            offset += keys.get(i).length + names.get(i).length + contents.get(i).length;
+        }
+        for (int i = 0; i < count; i++) {
+            out.write(keys.get(i));
+            out.write(names.get(i));
+            out.write(contents.get(i));
+        }
+        out.flush();
+    }
+
+    /**
+     * Empreinte FNV-1a 64 bits des octets d'un niveau : elle change dès que le fichier change.
+     * @param xml Le contenu du niveau
+     * @return L'empreinte
+     */
+    static long contentHash(byte[] xml) {
+        long hash = FNV_OFFSET;
+        for (byte b : xml) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Lit le nom, la grille (taille, forme, portails) et les points d'un niveau, comme
+     * {@link GameLogic} à son chargement (la couleur change toutes les deux balises point),
+     * sans valider le reste du fichier.
+     * @return Les informations lues ; nom null et taille -1 si le XML est illisible, taille -1
+     * aussi si sa grille ne peut pas être construite
+     */
+    static LevelInfo readLevelInfo(byte[] xml) {
+        final LevelInfo info = new LevelInfo();
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(xml), new DefaultHandler() {
+                private int colorIndex = 0;
+                private int pairSize = 0;
+
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("puzzle".equals(qName) && info.name == null) {
+                        info.name = attributes.getValue("nom");
+                        info.size = Integer.parseInt(attributes.getValue("size"));
+                        info.kind = BoardTopology.kindOf(attributes.getValue("topologie"));
+                        info.allowsSeveralSolutions = "plusieurs".equals(attributes.getValue("solutions"));
+                    } else if ("portail".equals(qName)) {
+                        for (String suffix : new String[]{"1", "2"}) {
+                            info.warps.add(Integer.parseInt(attributes.getValue("colonne" + suffix)));
+                            info.warps.add(Integer.parseInt(attributes.getValue("ligne" + suffix)));
+                        }
+                    } else if ("paire".equals(qName)) {
+                        pairSize = 0;
+                    } else if ("point".equals(qName)) {
+                        info.points.add(new FlowPoint(Integer.parseInt(attributes.getValue("colonne")),
+                                Integer.parseInt(attributes.getValue("ligne")), colorIndex));
+                        if (++pairSize == 2) colorIndex++;
+                    }
+                }
+            });
+            if (info.size > 0) info.topology();
+        } catch (SAXException | IOException | ParserConfigurationException | IllegalArgumentException e) {
+            // Niveau mal formé : il est quand même empaqueté, le menu le signalera comme invalide
+            // (NumberFormatException est une IllegalArgumentException)
+            info.size = -1;
+        }
+        return info;
+    }
+
+    /**
+     * Empaquette tous les fichiers XML d'un dossier, triés par nom.
+     * Arguments : dossier des niveaux, fichier de sortie.
+     */
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args[0]);
+        File output = new File(args[1]);
+        File[] files = directory.listFiles((dir, fileName) -> fileName.endsWith(".xml"));
+        if (files == null) throw new IOException("Dossier de niveaux introuvable : " + directory);
+        Arrays.sort(files);
+
+        LevelPackWriter writer = new LevelPackWriter();
+        for (File file : files) {
+            byte[] xml = new byte[(int) file.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                in.readFully(xml);
+            }
+            String key = file.getName().substring(0, file.getName().length() - ".xml".length());
+            String name = readLevelInfo(xml).name;
+            writer.add(key, name != null ? name : key, xml);
+        }
+
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Impossible de créer " + parent);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            writer.writeTo(out);
+        }
+        System.out.println(files.length + " niveaux empaquetés dans " + output);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.sae41_2024;
+
+import android.util.Xml;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+
+/**
+ * Validation des niveaux du paquet : structure XML puis cohérence des paires.
+ * Sans état, utilisable depuis n'importe quel thread.
+ */
+public final class LevelValidator {
+    /**
+     * Version des règles de validation, à incrémenter dès qu'une règle change :
+     * les résultats mis en cache avec une autre version sont alors ignorés.
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * Fournit un parseur XML neuf : celui d'Android sur l'appareil, un parseur de test
+     * sur la JVM (l'android.jar des tests unitaires n'en contient pas).
+     */
+    interface ParserFactory {
+        XmlPullParser newParser() throws XmlPullParserException;
+    }
+
+    private static final ParserFactory ANDROID_PARSER = Xml::newPullParser;
+
+    private LevelValidator() {
+    }
+
+    /**
+     * Vérifie que la structure XML du niveau est correcte.
+     *
+     * @param pack Le paquet de niveaux
+     * @param index La position du niveau dans le paquet
+     * @param parsers La source du parseur XML
+     * @return true si la syntaxe est correcte, sinon false
+     */
+    private static boolean isSyntaxValid(LevelPack pack, int index, ParserFactory parsers) {
+        try {
+            InputStream inputStream = pack.openLevel(index);
+            XmlPullParser parser = parsers.newParser();
+            parser.setInput(inputStream, "UTF-8");
+
+            boolean puzzleFound = false;
+            boolean paireFound = false;
+            boolean pointFound = false;
+            int gridSize = -1;
+
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                if (eventType == XmlPullParser.START_TAG) {
+                    String tagName = parser.getName();
+
+                    switch (tagName) {
+                        case "puzzle":
+                            if (puzzleFound) return false;
+                            puzzleFound = true;
+
+                            String sizeValue = parser.getAttributeValue(null, "size");
+                            if (sizeValue == null) return false;
+
+                            try {
+                                gridSize = Integer.parseInt(sizeValue);
+                                if (gridSize < GameLogic.MIN_GRID_SIZE || gridSize > GameLogic.MAX_GRID_SIZE) return false;
+                            } catch (NumberFormatException e) {
+                                return false;
+                            }
+
+                            for (int i = 0; i < parser.getAttributeCount(); i++) {
+                                String attrName = parser.getAttributeName(i);
+                                if (!attrName.equals("size") && !attrName.equals("nom")
+                                        && !attrName.equals("topologie") && !attrName.equals("solutions")) return false;
+                            }
+                            // Seule déclaration possible : le niveau a plusieurs solutions (voir SolutionPackWriter)
+                            String solutionsValue = parser.getAttributeValue(null, "solutions");
+                            if (solutionsValue != null && !solutionsValue.equals("plusieurs")) return false;
+                            if (BoardTopology.kindOf(parser.getAttributeValue(null, "topologie")) < 0) return false;
+
+                            String nameValue = parser.getAttributeValue(null, "nom");
+                            if (nameValue != null && nameValue.trim().isEmpty()) return false;
+                            break;
+
+                        case "paire":
+                            paireFound = true;
+                            break;
+
+                        case "point":
+                            pointFound = true;
+
+                            String colValue = parser.getAttributeValue(null, "colonne");
+                            String rowValue = parser.getAttributeValue(null, "ligne");
+
+                            if (colValue == null || rowValue == null) return false;
+
+                            if (parser.getAttributeCount() != 2) return false;
+
+                            for (int i = 0; i < parser.getAttributeCount(); i++) {
+                                String attrName = parser.getAttributeName(i);
+                                if (!attrName.equals("colonne") && !attrName.equals("ligne")) return false;
+                            }
+
+                            try {
+                                int col = Integer.parseInt(colValue);
+                                int row = Integer.parseInt(rowValue);
+                                if (col < 0 || col >= gridSize || row < 0 || row >= gridSize) return false;
+                            } catch (NumberFormatException e) {
+                                return false;
+                            }
+                            break;
+
+                        case "portail":
+                            // Deux cases de la grille reliées : colonne1, ligne1, colonne2, ligne2
+                            if (parser.getAttributeCount() != 4) return false;
+                            for (String attrName : new String[]{"colonne1", "ligne1", "colonne2", "ligne2"}) {
+                                String value = parser.getAttributeValue(null, attrName);
+                                if (value == null) return false;
+                                try {
+                                    int coordinate = Integer.parseInt(value);
+                                    if (coordinate < 0 || coordinate >= gridSize) return false;
+                                } catch (NumberFormatException e) {
+                                    return false;
+                                }
+                            }
+                            break;
+
+                        default:
+                            return false;
+                    }
+                }
+                eventType = parser.next();
+            }
+            inputStream.close();
+            return puzzleFound && paireFound && pointFound;
+
+        } catch (IOException | XmlPullParserException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Vérifie que le puzzle est valide en structure et logique.
+     *
+     * @param pack Le paquet de niveaux
+     * @param index La position du niveau dans le paquet
+     * @return true si le niveau est jouable, false sinon
+     */
+    public static boolean isPuzzleValid(LevelPack pack, int index) {
+        return isPuzzleValid(pack, index, ANDROID_PARSER);
+    }
+
+    /**
+     * @param parsers La source du parseur XML (voir {@link ParserFactory})
+     */
+    static boolean isPuzzleValid(LevelPack pack, int index, ParserFactory parsers) {
+        boolean syntaxValid;
+        StartupTrace.begin("validate.syntax", index);
+        try {
+            syntaxValid = isSyntaxValid(pack, index, parsers);
+        } finally {
+            StartupTrace.end();
+        }
+        if (!syntaxValid) return false;
+
+        StartupTrace.begin("validate.logic", index);
+        try {
+            return isLogicValid(pack, index, parsers);
+        } finally {
+            StartupTrace.end();
+        }
+    }
+
+    /**
+     * Vérifie que chaque paire a exactement deux points et qu'aucune case n'a deux points.
+     */
+    private static boolean isLogicValid(LevelPack pack, int index, ParserFactory parsers) {
+        try (InputStream inputStream = pack.openLevel(index)) {
+            XmlPullParser parser = parsers.newParser();
+            parser.setInput(inputStream, null);
+
+            int eventType = parser.getEventType();
+            int paireCount = 0;
+            boolean insidePaire = false;
+            int pointCount = 0;
+            HashSet<String> occupiedPositions = new HashSet<>();
+
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                if (eventType == XmlPullParser.START_TAG) {
+                    if ("paire".equals(parser.getName())) {
+                        pointCount = 0;
+                        insidePaire = true;
+                        paireCount++;
+                    } else if ("point".equals(parser.getName()) && insidePaire) {
+                        pointCount++;
+
+                        String colValue = parser.getAttributeValue(null, "colonne");
+                        String rowValue = parser.getAttributeValue(null, "ligne");
+
+                        if (colValue == null || rowValue == null) return false;
+
+                        String key = colValue + ":" + rowValue;
+                        if (occupiedPositions.contains(key)) return false;
+                        else occupiedPositions.add(key);
+                    }
+                } else if (eventType == XmlPullParser.END_TAG && "paire".equals(parser.getName())) {
+                    insidePaire = false;
+                    if (pointCount != 2) return false;
+                }
+                eventType = parser.next();
+            }
+            return paireCount > 0;
+
+        } catch (IOException | XmlPullParserException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -5,18 +5,16 @@ import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.Button;
 import android.widget.FrameLayout;
 import android.widget.TextView;
 import android.widget.Toast;
-import java.io.IOException;
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,12 +22,34 @@ import java.util.Map;
  * Activité principale qui affiche le jeu "Relier les points".
  * Elle gère le chargement de niveau, l'affichage de la grille,
  * la réinitialisation et la persistance du chemin dessiné.
+ *
+ * En mode infini (extra ENDLESS), les grilles sont générées à la suite par un
+ * {@link EndlessPipeline} : la grille suivante s'affiche dès que la précédente est résolue.
  */
 public class MainActivity extends Activity {
     private GameView gameView;
     private GameLogic gameLogic;
     private String fileName;
     private boolean isQuitting = false;
+    private DeductionEngine deductionEngine;
+    private boolean showDeductions = false;
+    private SolutionCache solutionCache;
+    private HintProvider hintProvider;
+    // Demandes au thread de calcul, annulées quand leur réponse n'est plus attendue
+    private SolutionCache.Request solutionRequest, hintRequest;
+    private BoardSurfaceView boardSurface;
+    // Partie en cours, pour les statistiques : temps joué hors arrière-plan, coups, réinitialisations, aides
+    private StatsStore statsStore;
+    private long attemptStartedAt;
+    private long playedMillis = 0;
+    private long resumedAt = 0;
+    private int moves = 0, resets = 0, hints = 0;
+    private boolean isAttemptRecorded = false;
+    // Mode infini : grilles générées, sans fichier de niveau ni statistiques
+    private EndlessPipeline endlessPipeline;
+    private BoardGenerator.Board endlessBoard;
+    private int endlessCount = 0;
+    private boolean isWaitingForBoard = false;
 
     /**
      * Initialise l'activité et le jeu à partir du fichier de niveau reçu par Intent.
@@ -37,6 +57,8 @@ public class MainActivity extends Activity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.init(this);
+        StartupTrace.begin("game.onCreate");
         setContentView(R.layout.activity_main);
 
         if (getActionBar() != null) {
@@ -47,15 +69,6 @@ public class MainActivity extends Activity {
             getActionBar().setIcon(null);
         }
 
-        try {
-            String[] fileList = getAssets().list("puzzles");
-            for (String file : fileList) {
-                System.out.println("Fichier trouvé : " + file);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
         String levelName = getIntent().getStringExtra("LEVEL_NAME");
         TextView title = findViewById(R.id.title);
         title.setText(levelName);
@@ -65,27 +78,156 @@ public class MainActivity extends Activity {
             levelName = fileName;
         }
 
+        boolean isEndless = getIntent().getBooleanExtra("ENDLESS", false);
         gameLogic = new GameLogic(5);
         if (fileName != null) {
             gameLogic.loadLevelFromAssets(this, "puzzles/" + fileName + ".xml", fileName);
-        } else {
+        } else if (!isEndless) {
             Toast.makeText(this, "Erreur : Impossible de charger le fichier du niveau", Toast.LENGTH_SHORT).show();
         }
 
         FrameLayout gameContainer = findViewById(R.id.game_container);
         gameView = new GameView(this, gameLogic);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        if (prefs.getBoolean("surfaceRendering", false)) {
+            // La grille est dessinée par le thread de rendu, la vue au-dessus ne reçoit que les touchers
+            boardSurface = new BoardSurfaceView(this);
+            gameContainer.addView(boardSurface);
+            gameView.setSurfaceBackend(boardSurface);
+        }
         gameContainer.addView(gameView);
 
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
         boolean isAchromateMode = prefs.getBoolean("achromateMode", false);
         gameView.setAchromateMode(isAchromateMode);
 
+        // Les déductions sont calculées hors du thread UI puis renvoyées à la vue
+        deductionEngine = new DeductionEngine(this::runOnUiThread, gameView::setDeductions);
+        gameLogic.addOnBoardChangeListener(() -> {
+            if (showDeductions) deductionEngine.submit(gameLogic);
+        });
+
+        statsStore = StatsStore.get(this);
+        attemptStartedAt = System.currentTimeMillis();
+        gameView.setOnGameEventListener(new GameView.OnGameEventListener() {
+            @Override
+            public void onPathCommitted() {
+                moves++;
+            }
+
+            @Override
+            public void onWin() {
+                recordAttempt(true);
+                if (endlessPipeline != null) requestNextBoard();
+            }
+        });
+
         Button resetButton = findViewById(R.id.reset_button);
-        resetButton.setOnClickListener(v -> gameView.resetGame());
+        resetButton.setOnClickListener(v -> {
+            if (!isAttemptRecorded) resets++;
+            gameView.resetGame();
+        });
+
+        // La solution est calculée une fois en arrière-plan pour que l'aide soit immédiate
+        solutionCache = new SolutionCache(this);
+        hintProvider = new HintProvider(solutionCache);
+
+        Button hintButton = findViewById(R.id.hint_button);
+        hintButton.setOnClickListener(v -> showHint());
+
+        if (isEndless) {
+            startEndlessMode(savedInstanceState);
+        } else {
+            solutionRequest = solutionCache.prefetch(gameLogic.getTopology(), gameLogic.getPoints());
+        }
 
         if (savedInstanceState != null) {
             restoreGameState(savedInstanceState);
         }
+        StartupTrace.end();
+    }
+
+    /**
+     * Démarre le mode infini avec la taille et le palier reçus par Intent.
+     * Après une rotation, la grille en cours est refaite depuis ses points sauvegardés.
+     */
+    private void startEndlessMode(Bundle savedInstanceState) {
+        int size = getIntent().getIntExtra("GRID_SIZE", 6);
+        int tier = getIntent().getIntExtra("TIER", -1);
+        endlessPipeline = new EndlessPipeline(size, tier);
+
+        Button nextButton = findViewById(R.id.next_button);
+        nextButton.setVisibility(View.VISIBLE);
+        nextButton.setOnClickListener(v -> requestNextBoard());
+
+        int[] savedPoints = savedInstanceState != null ? savedInstanceState.getIntArray("endlessPoints") : null;
+        if (savedPoints != null) {
+            endlessCount = savedInstanceState.getInt("endlessCount") - 1;
+            showEndlessBoard(BoardGenerator.fromSaved(savedInstanceState.getLong("endlessSeed"), savedPoints));
+        } else {
+            requestNextBoard();
+        }
+    }
+
+    /**
+     * Demande la grille suivante du mode infini (une seule demande à la fois).
+     */
+    private void requestNextBoard() {
+        if (isWaitingForBoard) return;
+        isWaitingForBoard = true;
+        if (endlessPipeline.getReadyCount() == 0) {
+            TextView title = findViewById(R.id.title);
+            title.setText("Génération de la grille…");
+        }
+        endlessPipeline.next(this::runOnUiThread, this::showEndlessBoard);
+    }
+
+    /**
+     * Installe une grille du mode infini. Sa solution, déjà connue du générateur,
+     * sert directement aux indices.
+     */
+    private void showEndlessBoard(BoardGenerator.Board board) {
+        if (isFinishing()) return;
+        isWaitingForBoard = false;
+        endlessBoard = board;
+        endlessCount++;
+        String name = "Infini n°" + endlessCount;
+        gameLogic.loadLevel(board.topology, name, board.points);
+        cancelSolverRequests();
+        if (board.solution != null) {
+            SolutionCache.remember(LevelHash.of(board.topology, board.points), board.solution);
+        } else {
+            solutionRequest = solutionCache.prefetch(board.topology, board.points);
+        }
+        gameView.startNewBoard();
+        TextView title = findViewById(R.id.title);
+        title.setText(name + " · " + BoardGenerator.toText(board.seed));
+        Log.d("DEBUG_FLOW", "Grille infinie affichée : " + BoardGenerator.toText(board.seed));
+    }
+
+    /**
+     * Demande un indice et trace le chemin révélé.
+     */
+    private void showHint() {
+        if (hintRequest != null) hintRequest.cancel();
+        hintRequest = hintProvider.requestHint(gameLogic, this::runOnUiThread, (color, path) -> {
+            if (color < 0) {
+                Toast.makeText(this, "Aucune aide disponible pour cette grille", Toast.LENGTH_SHORT).show();
+            } else {
+                hints++;
+                gameView.applyHint(color, path);
+            }
+        });
+    }
+
+    /**
+     * Annule le préchargement de la solution et l'indice en attente : le thread de calcul
+     * passe directement aux demandes suivantes.
+     */
+    private void cancelSolverRequests() {
+        if (solutionRequest != null) solutionRequest.cancel();
+        if (hintRequest != null) hintRequest.cancel();
+        solutionRequest = null;
+        hintRequest = null;
     }
 
     /**
@@ -103,6 +245,7 @@ public class MainActivity extends Activity {
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
             isQuitting = true;
+            recordAttempt(false);
             clearSavedPath();
             finish();
             return true;
@@ -116,10 +259,27 @@ public class MainActivity extends Activity {
     @Override
     public void onBackPressed() {
         isQuitting = true;
+        recordAttempt(false);
         clearSavedPath();
         super.onBackPressed();
     }
 
+    /**
+     * Enregistre la partie en cours dans les statistiques (une seule fois par partie).
+     * Une partie abandonnée sans aucun chemin tracé n'est pas comptée.
+     *
+     * @param completed true si la grille vient d'être résolue
+     */
+    private void recordAttempt(boolean completed) {
+        if (isAttemptRecorded || fileName == null || (!completed && moves == 0 && hints == 0)) return;
+        isAttemptRecorded = true;
+        long played = playedMillis + (resumedAt > 0 ? SystemClock.elapsedRealtime() - resumedAt : 0);
+        statsStore.record(new StatsStore.Attempt(fileName, gameLogic.getGridSize(), attemptStartedAt,
+                played, moves, resets, hints, completed));
+        Log.d("DEBUG_FLOW", "Partie enregistrée : " + fileName + (completed ? " réussie en " : " abandonnée après ")
+                + StatsStore.formatDuration(played));
+    }
+
     /**
      * Supprime les chemins enregistrés du niveau courant.
      */
@@ -137,6 +297,7 @@ public class MainActivity extends Activity {
     @Override
     protected void onResume() {
         super.onResume();
+        resumedAt = SystemClock.elapsedRealtime();
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
         boolean isAchromateMode = prefs.getBoolean("achromateMode", false);
         Log.d("DEBUG_FLOW", "Mode achromate depuis les préférences : " + isAchromateMode);
@@ -144,33 +305,41 @@ public class MainActivity extends Activity {
         gameLogic.setAchromateMode(isAchromateMode);
         gameView.setAchromateMode(isAchromateMode);
 
+        gameView.setTapRouteMode(prefs.getBoolean("tapRouteMode", false));
+
+        showDeductions = prefs.getBoolean("deductionsMode", true);
+        if (!showDeductions) {
+            gameView.setDeductions(null);
+        }
+
         if (fileName != null) {
             Log.d("DEBUG_FLOW", "Rechargement du niveau : " + fileName);
             gameLogic.loadLevelFromAssets(this, "puzzles/" + fileName + ".xml", fileName);
 
+            StartupTrace.begin("game.restoreState");
             SharedPreferences prefsState = getSharedPreferences("GameState", MODE_PRIVATE);
             String savedPaths = prefsState.getString("paths_" + fileName, null);
 
             if (savedPaths != null) {
-                Map<Integer, List<int[]>> restoredPaths = new HashMap<>();
-                for (String colorBlock : savedPaths.split("\\|")) {
-                    if (colorBlock.trim().isEmpty()) continue;
-                    String[] parts = colorBlock.split(":");
-                    int color = Integer.parseInt(parts[0]);
-                    List<int[]> path = new ArrayList<>();
-                    for (String coord : parts[1].split(";")) {
-                        if (coord.trim().isEmpty()) continue;
-                        String[] xy = coord.split(",");
-                        path.add(new int[]{Integer.parseInt(xy[0]), Integer.parseInt(xy[1])});
-                    }
-                    restoredPaths.put(color, path);
+                Map<Integer, List<int[]>> restoredPaths;
+                try {
+                    restoredPaths = BoardSnapshot.decodePaths(savedPaths);
+                } catch (IllegalArgumentException e) {
+                    restoredPaths = null;
                 }
-                for (Map.Entry<Integer, List<int[]>> entry : restoredPaths.entrySet()) {
-                    gameLogic.savePath(entry.getKey(), entry.getValue());
+                if (restoredPaths != null && gameLogic.isRestorable(restoredPaths)) {
+                    for (Map.Entry<Integer, List<int[]>> entry : restoredPaths.entrySet()) {
+                        gameLogic.savePath(entry.getKey(), entry.getValue());
+                    }
+                } else {
+                    // Sauvegarde incohérente ou modifiée : on repart d'une grille vide
+                    Log.w("DEBUG_FLOW", "Chemins sauvegardés invalides ignorés pour : " + fileName);
+                    clearSavedPath();
                 }
             }
-            gameView.invalidate();
-        } else {
+            StartupTrace.end();
+            gameView.requestRedraw();
+        } else if (endlessPipeline == null) {
             Log.w("DEBUG_FLOW", "Aucun nom de fichier reçu dans l'intent !");
         }
     }
@@ -181,48 +350,75 @@ public class MainActivity extends Activity {
     @Override
     protected void onPause() {
         super.onPause();
+        playedMillis += SystemClock.elapsedRealtime() - resumedAt;
+        resumedAt = 0;
+        statsStore.flush();
         if (isQuitting || fileName == null) return;
 
         SharedPreferences prefs = getSharedPreferences("GameState", MODE_PRIVATE);
         SharedPreferences.Editor editor = prefs.edit();
 
-        Map<Integer, List<int[]>> paths = gameLogic.getPaths();
-        StringBuilder sb = new StringBuilder();
-        for (Map.Entry<Integer, List<int[]>> entry : paths.entrySet()) {
-            int color = entry.getKey();
-            sb.append(color).append(":");
-            for (int[] point : entry.getValue()) {
-                sb.append(point[0]).append(",").append(point[1]).append(";");
-            }
-            sb.append("|");
-        }
-        editor.putString("paths_" + fileName, sb.toString());
+        editor.putString("paths_" + fileName, gameLogic.getSnapshot().encodePaths());
         editor.apply();
     }
 
+    /**
+     * Arrête le moteur de déduction, les calculs de solution, le thread de rendu et la
+     * génération du mode infini à la destruction de l'activité.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        deductionEngine.shutdown();
+        if (hintRequest != null) hintRequest.cancel();
+        // Après une rotation, le même niveau redemande sa solution : le calcul en cours lui servira
+        if (!isChangingConfigurations() && solutionRequest != null) solutionRequest.cancel();
+        if (endlessPipeline != null) endlessPipeline.stop();
+        if (boardSurface != null) boardSurface.release();
+    }
+
     /**
      * Sauvegarde temporaire de l'état de l'activité (rotation de l'écran, etc.).
      */
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        Map<Integer, List<int[]>> paths = gameLogic.getPaths();
-        outState.putSerializable("paths", (Serializable) new HashMap<>(paths));
+        outState.putSerializable("paths", gameLogic.getSnapshot().copyPaths());
         outState.putString("fileName", fileName);
+        // Partie en cours pour les statistiques : une rotation ne la recommence pas
+        outState.putLong("attemptStartedAt", attemptStartedAt);
+        outState.putLong("playedMillis", playedMillis + (resumedAt > 0 ? SystemClock.elapsedRealtime() - resumedAt : 0));
+        outState.putInt("moves", moves);
+        outState.putInt("resets", resets);
+        outState.putInt("hints", hints);
+        outState.putBoolean("isAttemptRecorded", isAttemptRecorded);
+        if (endlessBoard != null) {
+            outState.putLong("endlessSeed", endlessBoard.seed);
+            outState.putIntArray("endlessPoints", BoardGenerator.encodePoints(endlessBoard.points));
+            outState.putInt("endlessCount", endlessCount);
+        }
     }
 
     /**
-     * Restaure l'état temporaire lors d'une recréation d'activité (ex: rotation).
+     * Restaure l'état temporaire lors d'une recréation d'activité (ex: rotation) :
+     * chemins tracés et compteurs de la partie en cours.
      *
      * @param savedInstanceState Le Bundle contenant les données sauvegardées
      */
     private void restoreGameState(Bundle savedInstanceState) {
+        attemptStartedAt = savedInstanceState.getLong("attemptStartedAt", attemptStartedAt);
+        playedMillis = savedInstanceState.getLong("playedMillis", 0);
+        moves = savedInstanceState.getInt("moves", 0);
+        resets = savedInstanceState.getInt("resets", 0);
+        hints = savedInstanceState.getInt("hints", 0);
+        isAttemptRecorded = savedInstanceState.getBoolean("isAttemptRecorded", false);
+
         Map<Integer, List<int[]>> restoredPaths = (Map<Integer, List<int[]>>) savedInstanceState.getSerializable("paths");
-        if (restoredPaths != null) {
+        if (restoredPaths != null && gameLogic.isRestorable(restoredPaths)) {
             for (Map.Entry<Integer, List<int[]>> entry : restoredPaths.entrySet()) {
                 gameLogic.savePath(entry.getKey(), entry.getValue());
             }
-            gameView.invalidate();
+            gameView.requestRedraw();
         }
     }
 }
\ No newline at end of file
@@ -2,30 +2,23 @@ package com.example.sae41_2024;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.preference.PreferenceManager;
 import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
-import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
-import android.util.Xml;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.TreeMap;
 
 /**
  * Activité principale du menu permettant à l'utilisateur de :
@@ -37,27 +30,37 @@ import java.util.HashMap;
 public class MenuActivity extends Activity {
 
     /**
-     * Liste des noms de niveaux à afficher.
+     * Liste paginée des niveaux du paquet, validés à l'affichage.
      */
-    private List<String> levels;
+    private LevelListAdapter adapter;
 
     /**
-     * Tableau indiquant quels puzzles sont valides.
+     * Notation de la difficulté des niveaux, en arrière-plan.
      */
-    private boolean[] puzzleEnabled;
-
-    /**
-     * Association entre le nom affiché du niveau et son nom de fichier.
-     */
-    private Map<String, String> levelToFileMap = new HashMap<>();
+    private DifficultyRater rater;
+    private DifficultyCache difficultyCache;
+    private LevelPack pack;
 
     /**
      * Méthode appelée à la création de l'activité.
-     * Initialise l'interface utilisateur et charge les niveaux disponibles.
+     * Initialise l'interface utilisateur ; les niveaux sont lus et validés au fil du défilement.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.init(this);
+        StartupTrace.begin("menu.onCreate");
+        try {
+            createMenu();
+        } finally {
+            StartupTrace.end();
+        }
+    }
+
+    /**
+     * Construit l'interface du menu et branche la liste des niveaux.
+     */
+    private void createMenu() {
         setContentView(R.layout.activity_main_menu);
 
         if (getActionBar() != null) {
@@ -68,58 +71,90 @@ public class MenuActivity extends Activity {
         }
 
         ListView levelListView = findViewById(R.id.level_list);
-        levels = getLevelsFromAssets();
-        puzzleEnabled = new boolean[levels.size()];
-
-        // Vérifie la validité de chaque puzzle
-        for (int i = 0; i < levels.size(); i++) {
-            puzzleEnabled[i] = isPuzzleValid(levels.get(i));
+        StartupTrace.begin("pack.open");
+        try {
+            pack = LevelPack.get(this);
+        } catch (IOException e) {
+            e.printStackTrace();
+            Toast.makeText(this, "Impossible de lire les niveaux.", Toast.LENGTH_LONG).show();
+            return;
+        } finally {
+            StartupTrace.end();
         }
 
-        // Adapte la liste pour afficher les niveaux
-        ArrayAdapter<String> adapter = new ArrayAdapter<String>(this, android.R.layout.simple_list_item_1, levels) {
-            @Override
-            public View getView(int position, View convertView, ViewGroup parent) {
-                View view = super.getView(position, convertView, parent);
-                TextView textView = view.findViewById(android.R.id.text1);
-                textView.setTextSize(18);
-
-                if (!puzzleEnabled[position]) {
-                    textView.setTextColor(Color.GRAY);
-                    textView.setAlpha(0.5f);
-                    textView.setText(levels.get(position) + " (Erreur)");
-                } else {
-                    textView.setTextColor(Color.WHITE);
-                    textView.setAlpha(1.0f);
-                }
-                return view;
-            }
-        };
-
+        StartupTrace.begin("menu.bindAdapter");
+        adapter = new LevelListAdapter(this, pack, new ValidationCache(this), this::runOnUiThread);
         levelListView.setAdapter(adapter);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        adapter.setSortByDifficulty(prefs.getBoolean("sortByDifficulty", false));
+        StartupTrace.end();
+
+        // Les notes arrivent par lots, la liste est affichée sans les attendre
+        rater = new DifficultyRater();
+        difficultyCache = new DifficultyCache(this);
+        rater.rateAll(pack, difficultyCache, this::runOnUiThread, adapter::onRated);
 
         // Action lorsqu’un niveau est sélectionné
         levelListView.setOnItemClickListener((parent, view, position, id) -> {
-            if (puzzleEnabled[position]) {
-                String levelName = levels.get(position);
-                String fileName = levelToFileMap.get(levelName);
-
-                if (fileName == null) {
-                    Toast.makeText(this, "Erreur : fichier introuvable pour " + levelName, Toast.LENGTH_SHORT).show();
-                    return;
-                }
+            int index = adapter.getLevelIndex(position);
+            if (index < 0) return;
+            if (adapter.isPlayable(index)) {
+                String levelName = adapter.getItem(position);
+                String fileName = pack.getKey(index);
 
                 Intent intent = new Intent(MenuActivity.this, MainActivity.class);
                 intent.putExtra("LEVEL_NAME", levelName);
                 intent.putExtra("FILE_NAME", fileName);
+                StartupTrace.mark("menu.launchLevel");
                 startActivity(intent);
-                System.out.println("Chargement du fichier de niveau : " + fileName);
             } else {
                 Toast.makeText(MenuActivity.this, "Ce puzzle est invalide et ne peut pas être joué.", Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    /**
+     * Relit la progression du joueur à chaque retour au menu (hors du thread UI).
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (adapter == null) return;
+        adapter.setAchromateMode(PreferenceManager.getDefaultSharedPreferences(this).getBoolean("achromateMode", false));
+        StatsStore.get(this).loadSummary(this::runOnUiThread, this::showSummary);
+    }
+
+    /**
+     * Affiche le pourcentage de niveaux réussis et le meilleur temps par taille de grille.
+     */
+    private void showSummary(StatsStore.Summary summary) {
+        if (isFinishing()) return;
+        adapter.setBestTimes(summary.bestTimeByLevel);
+        TextView header = findViewById(R.id.stats_header);
+        if (summary.completedLevels == 0) {
+            header.setVisibility(View.GONE);
+            return;
+        }
+        StringBuilder text = new StringBuilder("Terminés : ")
+                .append(summary.completionPercent(pack.size())).append(" %");
+        for (Map.Entry<Integer, Long> best : new TreeMap<>(summary.bestTimeBySize).entrySet()) {
+            text.append("  ·  ").append(best.getKey()).append("×").append(best.getKey())
+                    .append(" en ").append(StatsStore.formatDuration(best.getValue()));
+        }
+        header.setText(text);
+        header.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Arrête la validation des niveaux en arrière-plan.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (adapter != null) adapter.shutdown();
+        if (rater != null) rater.shutdown(difficultyCache);
+    }
+
     /**
      * Crée le menu dans la barre d’action.
      */
@@ -136,9 +171,16 @@ public class MenuActivity extends Activity {
             item.setTitle(s);
         }
 
+        updateSortTitle(menu.findItem(R.id.sort_button));
         return true;
     }
 
+    private void updateSortTitle(MenuItem item) {
+        if (item == null) return;
+        boolean sorted = adapter != null && adapter.isSortedByDifficulty();
+        item.setTitle(sorted ? "Trier par nom" : "Trier par difficulté");
+    }
+
     /**
      * Gère les actions sélectionnées dans le menu.
      */
@@ -147,6 +189,19 @@ public class MenuActivity extends Activity {
         if (item.getItemId() == R.id.finish_button) {
             closeApplication();
             return true;
+        } else if (item.getItemId() == R.id.sort_button) {
+            if (adapter == null) return true;
+            boolean sorted = !adapter.isSortedByDifficulty();
+            adapter.setSortByDifficulty(sorted);
+            PreferenceManager.getDefaultSharedPreferences(this).edit().putBoolean("sortByDifficulty", sorted).apply();
+            updateSortTitle(item);
+            return true;
+        } else if (item.getItemId() == R.id.endless_button) {
+            startEndlessMode();
+            return true;
+        } else if (item.getItemId() == R.id.editor_button) {
+            startActivity(new Intent(MenuActivity.this, EditorActivity.class));
+            return true;
         } else if (item.getItemId() == R.id.options_button) {
             Intent intent = new Intent(MenuActivity.this, OptionsActivity.class);
             startActivity(intent);
@@ -156,210 +211,22 @@ public class MenuActivity extends Activity {
     }
 
     /**
-     * Ferme complètement l'application.
-     */
-    private void closeApplication() {
-        finishAffinity();
-        System.exit(0);
-    }
-
-    /**
-     * Extrait le nom du niveau à partir du fichier XML du puzzle.
-     *
-     * @param fileName Le nom du fichier XML
-     * @return Le nom du niveau, ou null s’il n’est pas trouvé
-     */
-    private String getLevelNameFromFile(String fileName) {
-        try {
-            InputStream inputStream = getAssets().open("puzzles/" + fileName);
-            XmlPullParser parser = android.util.Xml.newPullParser();
-            parser.setInput(inputStream, "UTF-8");
-
-            int eventType = parser.getEventType();
-            while (eventType != XmlPullParser.END_DOCUMENT) {
-                if (eventType == XmlPullParser.START_TAG && parser.getName().equals("puzzle")) {
-                    return parser.getAttributeValue(null, "nom");
-                }
-                eventType = parser.next();
-            }
-            inputStream.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return null;
-    }
-
-    /**
-     * Récupère les niveaux depuis le dossier assets.
-     *
-     * @return Liste des noms de niveaux à afficher
+     * Lance le mode infini avec la taille et la difficulté choisies dans les options.
      */
-    private List<String> getLevelsFromAssets() {
-        List<String> levelNames = new ArrayList<>();
-        levelToFileMap.clear();
-
-        try {
-            String[] files = getAssets().list("puzzles");
-            if (files != null) {
-                for (String file : files) {
-                    if (file.endsWith(".xml")) {
-                        String levelName = getLevelNameFromFile(file);
-                        levelName = (levelName != null) ? levelName : file.replace(".xml", "");
-                        levelNames.add(levelName);
-                        levelToFileMap.put(levelName, file.replace(".xml", ""));
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        puzzleEnabled = new boolean[levelNames.size()];
-        for (int i = 0; i < levelNames.size(); i++) {
-            String fileName = levelToFileMap.get(levelNames.get(i));
-            puzzleEnabled[i] = (fileName != null) && isPuzzleValid(fileName);
-        }
-        return levelNames;
+    private void startEndlessMode() {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        Intent intent = new Intent(MenuActivity.this, MainActivity.class);
+        intent.putExtra("ENDLESS", true);
+        intent.putExtra("GRID_SIZE", Integer.parseInt(prefs.getString("endlessSize", "6")));
+        intent.putExtra("TIER", Integer.parseInt(prefs.getString("endlessTier", "1")));
+        startActivity(intent);
     }
 
     /**
-     * Vérifie que la structure XML du fichier est correcte.
-     *
-     * @param fileName Le nom du fichier XML (sans .xml)
-     * @return true si la syntaxe est correcte, sinon false
-     */
-    private boolean isSyntaxValid(String fileName) {
-        try {
-            InputStream inputStream = getAssets().open("puzzles/" + fileName + ".xml");
-            XmlPullParser parser = Xml.newPullParser();
-            parser.setInput(inputStream, "UTF-8");
-
-            boolean puzzleFound = false;
-            boolean paireFound = false;
-            boolean pointFound = false;
-            int gridSize = -1;
-
-            int eventType = parser.getEventType();
-            while (eventType != XmlPullParser.END_DOCUMENT) {
-                if (eventType == XmlPullParser.START_TAG) {
-                    String tagName = parser.getName();
-
-                    switch (tagName) {
-                        case "puzzle":
-                            if (puzzleFound) return false;
-                            puzzleFound = true;
-
-                            String sizeValue = parser.getAttributeValue(null, "size");
-                            if (sizeValue == null) return false;
-
-                            try {
-                                gridSize = Integer.parseInt(sizeValue);
-                                if (gridSize < 5 || gridSize > 14) return false;
-                            } catch (NumberFormatException e) {
-                                return false;
-                            }
-
-                            for (int i = 0; i < parser.getAttributeCount(); i++) {
-                                String attrName = parser.getAttributeName(i);
-                                if (!attrName.equals("size") && !attrName.equals("nom")) return false;
-                            }
-
-                            String nameValue = parser.getAttributeValue(null, "nom");
-                            if (nameValue != null && nameValue.trim().isEmpty()) return false;
-                            break;
-
-                        case "paire":
-                            paireFound = true;
-                            break;
-
-                        case "point":
-                            pointFound = true;
-
-                            String colValue = parser.getAttributeValue(null, "colonne");
-                            String rowValue = parser.getAttributeValue(null, "ligne");
-
-                            if (colValue == null || rowValue == null) return false;
-
-                            if (parser.getAttributeCount() != 2) return false;
-
-                            for (int i = 0; i < parser.getAttributeCount(); i++) {
-                                String attrName = parser.getAttributeName(i);
-                                if (!attrName.equals("colonne") && !attrName.equals("ligne")) return false;
-                            }
-
-                            try {
-                                int col = Integer.parseInt(colValue);
-                                int row = Integer.parseInt(rowValue);
-                                if (col < 0 || col >= gridSize || row < 0 || row >= gridSize) return false;
-                            } catch (NumberFormatException e) {
-                                return false;
-                            }
-                            break;
-
-                        default:
-                            return false;
-                    }
-                }
-                eventType = parser.next();
-            }
-            inputStream.close();
-            return puzzleFound && paireFound && pointFound;
-
-        } catch (IOException | XmlPullParserException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
-
-    /**
-     * Vérifie que le puzzle est valide en structure et logique.
-     *
-     * @param levelName Nom du niveau
-     * @return true si le niveau est jouable, false sinon
+     * Ferme complètement l'application.
      */
-    private boolean isPuzzleValid(String levelName) {
-        String fileName = levelToFileMap.get(levelName);
-        if (fileName == null || !isSyntaxValid(fileName)) return false;
-
-        try (InputStream inputStream = getAssets().open("puzzles/" + fileName + ".xml")) {
-            XmlPullParser parser = Xml.newPullParser();
-            parser.setInput(inputStream, null);
-
-            int eventType = parser.getEventType();
-            int paireCount = 0;
-            boolean insidePaire = false;
-            int pointCount = 0;
-            HashSet<String> occupiedPositions = new HashSet<>();
-
-            while (eventType != XmlPullParser.END_DOCUMENT) {
-                if (eventType == XmlPullParser.START_TAG) {
-                    if ("paire".equals(parser.getName())) {
-                        pointCount = 0;
-                        insidePaire = true;
-                        paireCount++;
-                    } else if ("point".equals(parser.getName()) && insidePaire) {
-                        pointCount++;
-
-                        String colValue = parser.getAttributeValue(null, "colonne");
-                        String rowValue = parser.getAttributeValue(null, "ligne");
-
-                        if (colValue == null || rowValue == null) return false;
-
-                        String key = colValue + ":" + rowValue;
-                        if (occupiedPositions.contains(key)) return false;
-                        else occupiedPositions.add(key);
-                    }
-                } else if (eventType == XmlPullParser.END_TAG && "paire".equals(parser.getName())) {
-                    insidePaire = false;
-                    if (pointCount != 2) return false;
-                }
-                eventType = parser.next();
-            }
-            return paireCount > 0;
-
-        } catch (IOException | XmlPullParserException e) {
-            e.printStackTrace();
-            return false;
-        }
+    private void closeApplication() {
+        finishAffinity();
+        System.exit(0);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package com.example.sae41_2024;
+
+import android.util.Log;
+import android.view.Choreographer;
+import java.util.List;
+
+/**
+ * Animations de la grille, cadencées par le {@link Choreographer} du thread UI :
+ * <ul>
+ *     <li>le bout du tracé en cours suit le doigt entre deux cases,</li>
+ *     <li>un chemin qui relie sa paire se remplit d'un point à l'autre,</li>
+ *     <li>un balayage lumineux traverse la grille à la victoire.</li>
+ * </ul>
+ * Les tampons sont alloués une fois (et agrandis seulement pour un chemin plus long) : rien n'est
+ * alloué d'une image à l'autre. Si trop d'images sont perdues, les animations se coupent
+ * d'elles-mêmes et l'état final est affiché directement.
+ */
+public class PathAnimator implements Choreographer.FrameCallback {
+    private static final String TAG = "DEBUG_FLOW";
+
+    private static final long FILL_DURATION_NANOS = 350_000_000L;
+    private static final long SWEEP_DURATION_NANOS = 900_000_000L;
+    // Constante de temps du lissage du bout du tracé
+    private static final float TIP_SMOOTHING_NANOS = 40_000_000f;
+    // Le bout du tracé ne dépasse pas le bord de la case courante
+    private static final float TIP_REACH = 0.5f;
+
+    // Intervalle entre deux synchronisations, affiné avec le plus court écart observé (60, 90, 120 Hz…)
+    private static final long DEFAULT_VSYNC_NANOS = 16_666_667L;
+    private static final long MIN_VSYNC_NANOS = 4_000_000L;
+    // Fenêtre de mesure (en synchronisations, cumulées d'une animation à l'autre)
+    // et nombre de synchronisations manquées tolérées dans cette fenêtre
+    private static final int DROP_WINDOW = 30;
+    private static final int MAX_DROPPED = 10;
+
+    private final Runnable redraw;
+    private boolean enabled = true;
+    private boolean scheduled = false;
+    private long lastFrameNanos = 0;
+    private long vsyncNanos = DEFAULT_VSYNC_NANOS;
+    private int windowFrames = 0;
+    private int windowDropped = 0;
+
+    // Bout du tracé, en coordonnées de grille (centre de case = entier)
+    private boolean tipActive = false;
+    private float tipX, tipY, targetX, targetY;
+
+    // Chemin en cours de remplissage : cases (x, y) à plat
+    private int[] fillCells = new int[64];
+    private int fillLength = 0;
+    private int fillColor = -1;
+    private long fillElapsed;
+
+    private float sweepProgress = -1f;
+    private long sweepElapsed;
+
+    /**
+     * @param redraw Appelé à chaque image pour redessiner la grille
+     */
+    public PathAnimator(Runnable redraw) {
+        this.redraw = redraw;
+    }
+
+    /**
+     * @return false une fois les animations coupées faute d'images à temps
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fait tendre le bout du tracé vers le doigt, sans sortir de la case courante : le bout
+     * avance vers le centre de la case voisine la plus proche de la direction du doigt
+     * (quatre directions sur une grille carrée, six sur une grille hexagonale).
+     *
+     * @param topology Le voisinage des cases de la grille
+     * @param cellX    Colonne de la dernière case du tracé
+     * @param cellY    Ligne de la dernière case du tracé
+     * @param fingerX  Position du doigt en coordonnées de grille
+     * @param fingerY  Position du doigt en coordonnées de grille
+     */
+    public void pointTo(BoardTopology topology, int cellX, int cellY, float fingerX, float fingerY) {
+        if (!enabled) return;
+        int gridSize = topology.getGridSize();
+        int cell = cellY * gridSize + cellX;
+        // Comparaison à l'écran : les lignes impaires d'une grille hexagonale sont décalées
+        float fromX = cellX + topology.getRowShift(cellY);
+        float dx = fingerX + topology.getRowShift(fingerY) - fromX;
+        float dy = fingerY - cellY;
+        float reach = 0f, bestAlignment = 0f;
+        int best = -1;
+        if (cell >= 0 && cell < topology.getCellCount()) {
+            int[] offsets = topology.getOffsets();
+            int[] neighbors = topology.getNeighbors();
+            for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+                int next = neighbors[k];
+                // Un voisin par le bord d'un tore ou par un portail n'est pas à côté à l'écran
+                if (topology.isJump(cell, next)) continue;
+                float nx = next % gridSize + topology.getRowShift(next / gridSize) - fromX;
+                float ny = next / gridSize - cellY;
+                float length = (float) Math.sqrt(nx * nx + ny * ny);
+                float alignment = (dx * nx + dy * ny) / length;
+                if (alignment > bestAlignment) {
+                    bestAlignment = alignment;
+                    best = next;
+                    reach = Math.min(TIP_REACH, alignment / length);
+                }
+            }
+        }
+        if (best < 0) {
+            targetX = cellX;
+            targetY = cellY;
+        } else {
+            targetX = cellX + (best % gridSize - cellX) * reach;
+            targetY = cellY + (best / gridSize - cellY) * reach;
+        }
+        if (!tipActive) {
+            tipActive = true;
+            tipX = cellX;
+            tipY = cellY;
+        }
+        schedule();
+    }
+
+    /**
+     * Retire le bout du tracé (doigt levé, tracé abandonné ou terminé).
+     */
+    public void stopTip() {
+        tipActive = false;
+    }
+
+    /**
+     * Lance le remplissage d'un chemin qui vient de relier sa paire.
+     *
+     * @param colorIndex La couleur du chemin
+     * @param path       Les cases du chemin, d'un point à l'autre
+     */
+    public void startFill(int colorIndex, List<int[]> path) {
+        if (!enabled || path.size() < 2) return;
+        if (fillCells.length < 2 * path.size()) {
+            fillCells = new int[Math.max(2 * path.size(), 2 * fillCells.length)];
+        }
+        for (int i = 0; i < path.size(); i++) {
+            fillCells[2 * i] = path.get(i)[0];
+            fillCells[2 * i + 1] = path.get(i)[1];
+        }
+        fillLength = path.size();
+        fillColor = colorIndex;
+        fillElapsed = 0;
+        schedule();
+    }
+
+    /**
+     * Lance le balayage de victoire.
+     */
+    public void startSweep() {
+        if (!enabled) return;
+        sweepProgress = 0f;
+        sweepElapsed = 0;
+        schedule();
+    }
+
+    /**
+     * Arrête toutes les animations en cours.
+     */
+    public void cancel() {
+        tipActive = false;
+        fillColor = -1;
+        sweepProgress = -1f;
+    }
+
+    /**
+     * Recopie l'état des animations dans la frame de rendu.
+     *
+     * @param frame La frame à compléter
+     */
+    public void applyTo(BoardRenderer.Frame frame) {
+        frame.tipActive = tipActive;
+        frame.tipX = tipX;
+        frame.tipY = tipY;
+        frame.fillColor = fillColor;
+        frame.fillProgress = fillColor < 0 ? 1f : Math.min(1f, (float) fillElapsed / FILL_DURATION_NANOS);
+        frame.fillLength = fillColor < 0 ? 0 : fillLength;
+        if (frame.fillCells.length < 2 * frame.fillLength) {
+            frame.fillCells = new int[fillCells.length];
+        }
+        System.arraycopy(fillCells, 0, frame.fillCells, 0, 2 * frame.fillLength);
+        frame.sweepProgress = sweepProgress;
+    }
+
+    private boolean isRunning() {
+        return (tipActive && (tipX != targetX || tipY != targetY)) || fillColor >= 0 || sweepProgress >= 0;
+    }
+
+    private void schedule() {
+        if (scheduled) return;
+        scheduled = true;
+        postFrame();
+    }
+
+    /**
+     * Demande la prochaine image au Choreographer.
+     */
+    void postFrame() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Fait avancer les animations d'une image.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        long delta = lastFrameNanos == 0 ? vsyncNanos : frameTimeNanos - lastFrameNanos;
+        if (lastFrameNanos != 0) trackFrame(delta);
+        lastFrameNanos = frameTimeNanos;
+
+        if (enabled) {
+            step(delta);
+        } else {
+            cancel();
+        }
+        redraw.run();
+
+        if (enabled && isRunning()) {
+            schedule();
+        } else {
+            // Pause entre deux animations : l'écart suivant ne compte pas comme une perte
+            lastFrameNanos = 0;
+        }
+    }
+
+    private void step(long delta) {
+        if (tipActive) {
+            float blend = 1f - (float) Math.exp(-delta / TIP_SMOOTHING_NANOS);
+            tipX += (targetX - tipX) * blend;
+            tipY += (targetY - tipY) * blend;
+            if (Math.abs(targetX - tipX) < 0.01f && Math.abs(targetY - tipY) < 0.01f) {
+                tipX = targetX;
+                tipY = targetY;
+            }
+        }
+        if (fillColor >= 0) {
+            fillElapsed += delta;
+            if (fillElapsed >= FILL_DURATION_NANOS) fillColor = -1;
+        }
+        if (sweepProgress >= 0) {
+            sweepElapsed += delta;
+            sweepProgress = sweepElapsed >= SWEEP_DURATION_NANOS ? -1f : (float) sweepElapsed / SWEEP_DURATION_NANOS;
+        }
+    }
+
+    /**
+     * Compte les synchronisations manquées ; au-delà du seuil, les animations sont coupées.
+     */
+    private void trackFrame(long delta) {
+        if (delta >= MIN_VSYNC_NANOS && delta < vsyncNanos) vsyncNanos = delta;
+        int vsyncs = (int) Math.max(1, Math.min(DROP_WINDOW, (delta + vsyncNanos / 2) / vsyncNanos));
+        windowFrames += vsyncs;
+        windowDropped += vsyncs - 1;
+        if (windowFrames < DROP_WINDOW) return;
+
+        if (windowDropped > MAX_DROPPED) {
+            enabled = false;
+            Log.w(TAG, "Animations désactivées : " + windowDropped + " images perdues sur " + DROP_WINDOW);
+        }
+        windowFrames = 0;
+        windowDropped = 0;
+    }
+}
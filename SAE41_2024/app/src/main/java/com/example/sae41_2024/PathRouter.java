@@ -0,0 +1,150 @@
+package com.example.sae41_2024;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trace automatiquement un chemin entre les deux points d'une couleur à travers les cases libres.
+ *
+ * La recherche est un plus court chemin pondéré (algorithme de Dial, poids de 1 à 4) :
+ * une case coûte moins cher quand elle longe un bord, un chemin ou un point, ce qui pousse
+ * le tracé contre les obstacles au lieu de couper la zone libre en deux.
+ * Tous les tableaux sont réutilisés d'un appel à l'autre.
+ */
+public class PathRouter {
+    private static final int MAX_WEIGHT = 4;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private int gridSize;
+    private int[] offsets = new int[1];
+    private int[] neighbors = new int[0];
+    private int[] blockedStamp = new int[0];
+    private int[] distance = new int[0];
+    private int[] previous = new int[0];
+    private int[] entryCell = new int[0];
+    private int[] entryNext = new int[0];
+    private final int[] bucketHead = new int[MAX_WEIGHT + 1];
+    private int stamp = 0;
+
+    /**
+     * Cherche un chemin pour une couleur entre ses deux points, sans passer
+     * par les cases des autres chemins ni par les autres points.
+     * @param logic La logique du jeu
+     * @param color L'indice de la couleur à relier
+     * @return Le chemin d'un point à l'autre, ou null s'ils ne peuvent pas être reliés
+     */
+    public List<int[]> route(GameLogic logic, int color) {
+        BoardSnapshot board = logic.getSnapshot();
+        prepare(board.getTopology());
+        int from = -1, to = -1;
+        for (FlowPoint point : board.getPoints()) {
+            int cell = point.getY() * gridSize + point.getX();
+            if (point.getColorIndex() != color) {
+                blockedStamp[cell] = stamp;
+            } else if (from == -1) {
+                from = cell;
+            } else {
+                to = cell;
+            }
+        }
+        if (from == -1 || to == -1) return null;
+        for (int other = 0; other < board.getColorSlots(); other++) {
+            int[] cells = board.getPathCells(other);
+            if (other == color || cells == null) continue;
+            for (int i = 0; i < cells.length; i += 2) {
+                blockedStamp[cells[i + 1] * gridSize + cells[i]] = stamp;
+            }
+        }
+
+        if (!search(from, to)) return null;
+
+        int length = 0;
+        for (int cell = to; cell != -1; cell = previous[cell]) length++;
+        List<int[]> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) path.add(null);
+        int index = length;
+        for (int cell = to; cell != -1; cell = previous[cell]) {
+            path.set(--index, new int[]{cell % gridSize, cell / gridSize});
+        }
+        return path;
+    }
+
+    private void prepare(BoardTopology topology) {
+        int cellCount = topology.getCellCount();
+        // Une case peut être réinsérée à chaque amélioration, au plus une fois par voisin
+        int maxEntries = cellCount * topology.getMaxDegree() + 1;
+        if (distance.length < cellCount || entryCell.length < maxEntries) {
+            blockedStamp = new int[cellCount];
+            distance = new int[cellCount];
+            previous = new int[cellCount];
+            entryCell = new int[maxEntries];
+            entryNext = new int[maxEntries];
+            stamp = 0;
+        }
+        gridSize = topology.getGridSize();
+        offsets = topology.getOffsets();
+        neighbors = topology.getNeighbors();
+        stamp++;
+    }
+
+    /**
+     * Algorithme de Dial : les distances en attente sont rangées dans des seaux circulaires.
+     */
+    private boolean search(int from, int to) {
+        int cellCount = gridSize * gridSize;
+        for (int i = 0; i < cellCount; i++) {
+            distance[i] = UNREACHED;
+        }
+        for (int i = 0; i <= MAX_WEIGHT; i++) {
+            bucketHead[i] = -1;
+        }
+
+        int entries = 0;
+        distance[from] = 0;
+        previous[from] = -1;
+        entryCell[entries] = from;
+        entryNext[entries] = -1;
+        bucketHead[0] = entries++;
+        int pending = 1;
+
+        for (int current = 0; pending > 0; current++) {
+            int bucket = current % (MAX_WEIGHT + 1);
+            while (bucketHead[bucket] != -1) {
+                int entry = bucketHead[bucket];
+                bucketHead[bucket] = entryNext[entry];
+                pending--;
+                int cell = entryCell[entry];
+                if (distance[cell] != current) continue; // entrée périmée
+                if (cell == to) return true;
+
+                for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+                    int next = neighbors[k];
+                    if (blockedStamp[next] == stamp && next != to) continue;
+                    int candidate = current + weight(next, to);
+                    if (candidate >= distance[next]) continue;
+                    distance[next] = candidate;
+                    previous[next] = cell;
+                    int target = candidate % (MAX_WEIGHT + 1);
+                    entryCell[entries] = next;
+                    entryNext[entries] = bucketHead[target];
+                    bucketHead[target] = entries++;
+                    pending++;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Coût d'une case : 1 si elle est entourée d'obstacles, jusqu'à 4 en terrain découvert
+     * (plafonné à 4 sur les grilles où une case a plus de voisins).
+     */
+    private int weight(int cell, int to) {
+        if (cell == to) return 1;
+        int open = 0;
+        for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+            if (blockedStamp[neighbors[k]] != stamp) open++;
+        }
+        return Math.max(1, Math.min(MAX_WEIGHT, open));
+    }
+}
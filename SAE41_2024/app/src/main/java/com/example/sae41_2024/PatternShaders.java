@@ -0,0 +1,114 @@
+package com.example.sae41_2024;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Color;
+import android.graphics.Shader;
+
+/**
+ * Motifs du mode achromate : en plus de sa nuance de gris, chaque index de couleur reçoit
+ * un motif (rayures, points, quadrillage…) pour distinguer les nuances proches.
+ *
+ * Les motifs sont des petites tuiles répétées par un {@link BitmapShader}, dont la taille suit
+ * celle des cases par paliers fixes ({@link #TILE_SIZES}). Elles sont générées une fois par
+ * palier et gardées tant que l'objet vit : un zoom continu ne fait que passer d'un palier
+ * à l'autre et ne crée des tuiles qu'au premier passage.
+ */
+public class PatternShaders {
+    static final int PLAIN = 0;
+    static final int STRIPES_HORIZONTAL = 1;
+    static final int STRIPES_VERTICAL = 2;
+    static final int DIAGONAL_UP = 3;
+    static final int DIAGONAL_DOWN = 4;
+    static final int DOTS = 5;
+    static final int GRID = 6;
+    static final int CROSSHATCH = 7;
+    static final int CHECKER = 8;
+    static final int RINGS = 9;
+    static final int BARS = 10;
+    static final int PATTERN_COUNT = 11;
+
+    // Paliers de taille de tuile, en pixels (environ un quart de case)
+    static final int[] TILE_SIZES = {6, 8, 12, 16, 24, 32, 48};
+
+    // Motifs de chaque palier, créés à la première demande
+    private final Shader[][] cache = new Shader[TILE_SIZES.length][];
+
+    /**
+     * Renvoie les motifs, un par index de couleur, adaptés à la taille des cases.
+     *
+     * @param cellSize La taille d'une case en pixels
+     * @return Les shaders, indexés comme les nuances de gris
+     */
+    public Shader[] forCellSize(float cellSize) {
+        int level = tileLevel(cellSize);
+        Shader[] shaders = cache[level];
+        if (shaders == null) {
+            shaders = new Shader[PATTERN_COUNT];
+            for (int i = 0; i < PATTERN_COUNT; i++) {
+                shaders[i] = createShader(i, TILE_SIZES[level]);
+            }
+            cache[level] = shaders;
+        }
+        return shaders;
+    }
+
+    /**
+     * @return L'indice du plus grand palier qui ne dépasse pas le quart de la case (au moins le premier)
+     */
+    static int tileLevel(float cellSize) {
+        int level = 0;
+        while (level + 1 < TILE_SIZES.length && TILE_SIZES[level + 1] <= cellSize / 4) level++;
+        return level;
+    }
+
+    private static Shader createShader(int colorIndex, int tile) {
+        int shade = GameLogic.colorOf(colorIndex, true);
+        // Encre contrastée : foncée sur les gris clairs, claire sur les gris foncés
+        int luminance = (Color.red(shade) + Color.green(shade) + Color.blue(shade)) / 3;
+        int ink = luminance > 110 ? Color.rgb(20, 20, 20) : Color.rgb(235, 235, 235);
+
+        boolean[] mask = mask(colorIndex % PATTERN_COUNT, tile);
+        int[] pixels = new int[tile * tile];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = mask[i] ? ink : shade;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(pixels, tile, tile, Bitmap.Config.ARGB_8888);
+        return new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+    }
+
+    /**
+     * Calcule les pixels « encre » d'une tuile carrée.
+     *
+     * @param pattern Le motif (ex : {@link #DOTS})
+     * @param size    Le côté de la tuile en pixels
+     * @return Les pixels ligne par ligne, true pour l'encre
+     */
+    static boolean[] mask(int pattern, int size) {
+        boolean[] mask = new boolean[size * size];
+        float center = (size - 1) / 2f;
+        int band = Math.max(1, size / 4);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float dx = x - center, dy = y - center;
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                boolean ink;
+                switch (pattern) {
+                    case STRIPES_HORIZONTAL: ink = y < band; break;
+                    case STRIPES_VERTICAL: ink = x < band; break;
+                    case DIAGONAL_UP: ink = (x + y) % size < band; break;
+                    case DIAGONAL_DOWN: ink = (x - y + size) % size < band; break;
+                    case DOTS: ink = distance <= size / 5f; break;
+                    case GRID: ink = x < band || y < band; break;
+                    case CROSSHATCH: ink = (x + y) % size < band || (x - y + size) % size < band; break;
+                    case CHECKER: ink = (x < size / 2) != (y < size / 2); break;
+                    case RINGS: ink = distance >= size / 4f && distance <= size / 2.5f; break;
+                    case BARS: ink = x < size / 2 && y < band * 2; break;
+                    default: ink = false; break;
+                }
+                mask[y * size + x] = ink;
+            }
+        }
+        return mask;
+    }
+}
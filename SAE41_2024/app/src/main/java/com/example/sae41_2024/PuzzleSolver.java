@@ -0,0 +1,33 @@
+package com.example.sae41_2024;
+
+/**
+ * Moteur de résolution d'un niveau. Les grilles sont décrites comme pour
+ * {@link BacktrackingSolver} : cases à plat (y * taille + x) reliées selon une
+ * {@link BoardTopology}, et les deux extrémités de chaque couleur dans ends[2c] et ends[2c+1].
+ */
+public interface PuzzleSolver {
+
+    /**
+     * @return Un nom court pour les journaux et les mesures
+     */
+    String getName();
+
+    /**
+     * Cherche une solution.
+     * @param topology Le voisinage des cases
+     * @param ends Les extrémités de chaque couleur
+     * @return Les chemins par couleur (cases d'un point à l'autre), ou null si aucun n'a été trouvé
+     */
+    int[][] solve(BoardTopology topology, int[] ends);
+
+    /**
+     * @return true si la dernière recherche a été interrompue ou a épuisé son budget
+     * (null ne veut alors pas dire que le niveau est insoluble)
+     */
+    boolean isAborted();
+
+    /**
+     * Interrompt une recherche en cours depuis un autre thread.
+     */
+    void cancel();
+}
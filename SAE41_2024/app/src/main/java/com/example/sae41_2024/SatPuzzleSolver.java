@@ -0,0 +1,251 @@
+package com.example.sae41_2024;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link PuzzleSolver} qui traduit la grille en formule SAT (forme normale conjonctive)
+ * résolue par le {@link CdclSolver} embarqué.
+ *
+ * Variables : une par (case, couleur) et une par liaison entre deux cases voisines
+ * (voisinage donné par la {@link BoardTopology}).
+ * Contraintes :
+ * <ul>
+ *     <li>chaque case a exactement une couleur, les extrémités ont la leur ;</li>
+ *     <li>deux cases liées ont la même couleur ;</li>
+ *     <li>une extrémité a exactement une liaison, une autre case exactement deux.</li>
+ * </ul>
+ * Ces contraintes admettent des boucles isolées d'une couleur : chaque boucle trouvée
+ * dans une solution est interdite par une clause supplémentaire, puis la recherche reprend.
+ * Pour compter les solutions, chaque solution trouvée est de même interdite (ses liaisons
+ * ne peuvent plus être toutes utilisées ensemble) avant de relancer la recherche.
+ * Sur les grilles grandes et ouvertes, cette approche ne dépend pas de l'ordre d'exploration
+ * qui peut piéger le retour arrière.
+ */
+public class SatPuzzleSolver implements PuzzleSolver {
+    private final long conflictLimit;
+    private volatile CdclSolver current;
+    private volatile boolean cancelled;
+    private boolean aborted;
+    private int[][] firstSolution;
+
+    /**
+     * @param conflictLimit Le nombre maximal de conflits SAT par recherche
+     */
+    public SatPuzzleSolver(long conflictLimit) {
+        this.conflictLimit = conflictLimit;
+    }
+
+    @Override
+    public String getName() {
+        return "sat";
+    }
+
+    @Override
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        CdclSolver solver = current;
+        if (solver != null) solver.cancel();
+    }
+
+    @Override
+    public int[][] solve(BoardTopology topology, int[] ends) {
+        countSolutions(topology, ends, 1);
+        return firstSolution;
+    }
+
+    /**
+     * @return La première solution trouvée par la dernière recherche, ou null
+     */
+    public int[][] getSolution() {
+        return firstSolution;
+    }
+
+    /**
+     * Compte les solutions jusqu'à une limite (2 suffit pour tester l'unicité).
+     * @param topology Le voisinage des cases
+     * @param ends Les deux cases de chaque couleur
+     * @param limit Le nombre de solutions au-delà duquel on s'arrête
+     * @return Le nombre de solutions trouvées (au plus limit) ; voir {@link #isAborted()}
+     */
+    public int countSolutions(BoardTopology topology, int[] ends, int limit) {
+        aborted = false;
+        firstSolution = null;
+        int count = 0;
+        int cellCount = topology.getCellCount();
+        int pairCount = ends.length / 2;
+        boolean[] isEnd = new boolean[cellCount];
+        for (int end : ends) {
+            if (end < 0 || end >= cellCount || isEnd[end]) return 0;
+            isEnd[end] = true;
+        }
+
+        // Une liaison par paire de voisines ; linkVar donne son numéro de variable pour
+        // chaque entrée de la table de voisinage, dans les deux sens
+        int[] offsets = topology.getOffsets();
+        int[] neighbors = topology.getNeighbors();
+        List<int[]> edges = new ArrayList<>();
+        int[] linkVar = new int[offsets[cellCount]];
+        int edgeBase = cellCount * pairCount;
+        for (int cell = 0; cell < cellCount; cell++) {
+            for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+                int other = neighbors[i];
+                if (other < cell) continue;
+                edges.add(new int[]{cell, other});
+                linkVar[i] = edgeBase + edges.size();
+                for (int j = offsets[other]; j < offsets[other + 1]; j++) {
+                    if (neighbors[j] == cell) linkVar[j] = linkVar[i];
+                }
+            }
+        }
+        List<List<Integer>> incident = new ArrayList<>();
+        for (int cell = 0; cell < cellCount; cell++) incident.add(new ArrayList<>());
+        for (int e = 0; e < edges.size(); e++) {
+            incident.get(edges.get(e)[0]).add(edgeBase + e + 1);
+            incident.get(edges.get(e)[1]).add(edgeBase + e + 1);
+        }
+
+        CdclSolver solver = new CdclSolver(edgeBase + edges.size());
+        current = solver;
+        if (cancelled) solver.cancel();
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            int[] any = new int[pairCount];
+            for (int c = 0; c < pairCount; c++) any[c] = colorVar(cell, c, pairCount);
+            solver.addClause(any);
+            for (int a = 0; a < pairCount; a++) {
+                for (int b = a + 1; b < pairCount; b++) {
+                    solver.addClause(-any[a], -any[b]);
+                }
+            }
+        }
+        for (int c = 0; c < pairCount; c++) {
+            solver.addClause(colorVar(ends[2 * c], c, pairCount));
+            solver.addClause(colorVar(ends[2 * c + 1], c, pairCount));
+        }
+        for (int e = 0; e < edges.size(); e++) {
+            int edge = edgeBase + e + 1;
+            int a = edges.get(e)[0], b = edges.get(e)[1];
+            for (int c = 0; c < pairCount; c++) {
+                solver.addClause(-edge, -colorVar(a, c, pairCount), colorVar(b, c, pairCount));
+                solver.addClause(-edge, -colorVar(b, c, pairCount), colorVar(a, c, pairCount));
+            }
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            List<Integer> around = incident.get(cell);
+            addExactly(solver, around, isEnd[cell] ? 1 : 2);
+        }
+
+        try {
+            while (true) {
+                Boolean result = solver.solve(conflictLimit);
+                if (result == null) {
+                    aborted = true;
+                    return count;
+                }
+                if (!result) return count;
+
+                boolean[] used = new boolean[edges.size()];
+                for (int e = 0; e < edges.size(); e++) used[e] = solver.modelValue(edgeBase + e + 1);
+                int[][] paths = new int[pairCount][];
+                boolean[] covered = new boolean[cellCount];
+                for (int c = 0; c < pairCount; c++) {
+                    paths[c] = walk(ends[2 * c], edges, incident, used, edgeBase, covered);
+                }
+                int loopCell = -1;
+                for (int cell = 0; cell < cellCount && loopCell == -1; cell++) {
+                    if (!covered[cell]) loopCell = cell;
+                }
+                int[] cut;
+                if (loopCell == -1) {
+                    if (count++ == 0) firstSolution = paths;
+                    if (count >= limit) return count;
+                    // Solution suivante : au moins une des liaisons de celle-ci disparaît
+                    cut = new int[edges.size()];
+                    int length = 0;
+                    for (int e = 0; e < edges.size(); e++) {
+                        if (used[e]) cut[length++] = -(edgeBase + e + 1);
+                    }
+                    cut = Arrays.copyOf(cut, length);
+                } else {
+                    // Boucle isolée : on interdit cet ensemble de liaisons et on recommence
+                    int[] loop = walk(loopCell, edges, incident, used, edgeBase, covered);
+                    cut = new int[loop.length];
+                    for (int i = 0; i < loop.length; i++) {
+                        int a = loop[i], b = loop[(i + 1) % loop.length];
+                        for (int j = offsets[a]; j < offsets[a + 1]; j++) {
+                            if (neighbors[j] == b) cut[i] = -linkVar[j];
+                        }
+                    }
+                }
+                if (!solver.addClause(cut)) return count;
+            }
+        } finally {
+            current = null;
+        }
+    }
+
+    private static int colorVar(int cell, int color, int pairCount) {
+        return cell * pairCount + color + 1;
+    }
+
+    /**
+     * Exactement k variables vraies parmi quelques-unes (une par voisin), par énumération des sous-ensembles.
+     */
+    private static void addExactly(CdclSolver solver, List<Integer> vars, int k) {
+        int n = vars.size();
+        for (int mask = 0; mask < (1 << n); mask++) {
+            int bits = Integer.bitCount(mask);
+            int[] clause = new int[bits];
+            int i = 0;
+            for (int j = 0; j < n; j++) {
+                if ((mask & (1 << j)) != 0) clause[i++] = vars.get(j);
+            }
+            if (bits == n - k + 1) {
+                // Au moins k : parmi n - k + 1 liaisons, une au moins est utilisée
+                solver.addClause(clause);
+            }
+            if (bits == k + 1) {
+                // Au plus k : k + 1 liaisons ne sont jamais toutes utilisées
+                for (int j = 0; j < bits; j++) clause[j] = -clause[j];
+                solver.addClause(clause);
+            }
+        }
+        if (k > n) solver.addClause();
+    }
+
+    /**
+     * Suit les liaisons utilisées depuis une case : jusqu'à l'autre extrémité,
+     * ou jusqu'au retour au départ pour une boucle.
+     */
+    private static int[] walk(int start, List<int[]> edges, List<List<Integer>> incident,
+                              boolean[] used, int edgeBase, boolean[] covered) {
+        int[] path = new int[covered.length];
+        int length = 0;
+        int previous = -1, cell = start;
+        while (true) {
+            path[length++] = cell;
+            covered[cell] = true;
+            int next = -1;
+            for (int edge : incident.get(cell)) {
+                if (!used[edge - edgeBase - 1]) continue;
+                int[] pair = edges.get(edge - edgeBase - 1);
+                int other = pair[0] == cell ? pair[1] : pair[0];
+                if (other != previous) {
+                    next = other;
+                    break;
+                }
+            }
+            if (next == -1 || next == start || length == path.length) break;
+            previous = cell;
+            cell = next;
+        }
+        return Arrays.copyOf(path, length);
+    }
+}
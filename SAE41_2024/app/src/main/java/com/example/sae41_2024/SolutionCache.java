@@ -0,0 +1,269 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache des solutions de niveaux, indexé par l'empreinte du contenu du niveau.
+ * Les niveaux livrés ont leur solution dans le {@link SolutionPack} calculé à la compilation :
+ * elle y est simplement lue. Pour les autres, une solution est calculée une seule fois en
+ * arrière-plan, puis conservée en mémoire pour la durée du processus et sur disque pour
+ * les lancements suivants.
+ */
+public class SolutionCache {
+    private static final String TAG = "DEBUG_FLOW";
+    private static final int FILE_VERSION = 1;
+    // Au-delà, le retour arrière est abandonné (le niveau est trop ouvert pour lui) :
+    // même budget que la notation, pour passer vite au solveur SAT
+    static final long NODE_LIMIT = DifficultyRater.NODE_LIMIT;
+    // Grilles à partir desquelles le retour arrière n'est pas tenté du tout
+    static final int SAT_ONLY_GRID_SIZE = 10;
+    // Budget du solveur SAT, essayé quand le retour arrière abandonne
+    static final long CONFLICT_LIMIT = 200_000L;
+
+    private static final Map<Long, int[][]> memory = new HashMap<>();
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    /**
+     * Reçoit la solution demandée, ou null si le niveau n'en a pas (ou si le calcul a échoué).
+     */
+    public interface Callback {
+        void onSolution(int[][] solution);
+    }
+
+    /**
+     * Une demande faite au thread de calcul. {@link #cancel()} arrête le solveur en cours
+     * (ou évite de le lancer) et le callback n'est alors plus appelé : une demande devenue
+     * inutile ne retarde pas les suivantes.
+     */
+    public static final class Request {
+        private boolean cancelled;
+        private Runnable stopCurrent;
+
+        /**
+         * Annule la demande. Sans effet si elle est déjà terminée.
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            if (stopCurrent != null) stopCurrent.run();
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Enregistre le calcul en cours, pour qu'une annulation puisse l'arrêter.
+         * @param stop Arrête le calcul (ex : {@link PuzzleSolver#cancel()}), ou null une fois fini
+         * @return false si la demande est déjà annulée : le calcul ne doit pas être lancé
+         */
+        synchronized boolean track(Runnable stop) {
+            stopCurrent = stop;
+            return !cancelled;
+        }
+    }
+
+    private final Context context;
+    private final File directory;
+
+    /**
+     * @param context Le contexte Android (pour les assets et le dossier de l'application)
+     */
+    public SolutionCache(Context context) {
+        this.context = context.getApplicationContext();
+        this.directory = new File(context.getFilesDir(), "solutions");
+    }
+
+    /**
+     * Retourne la solution d'un niveau si elle est déjà en mémoire.
+     * @param levelHash L'empreinte du niveau
+     * @return Les chemins de la solution, ou null
+     */
+    public static int[][] getIfReady(long levelHash) {
+        synchronized (memory) {
+            return memory.get(levelHash);
+        }
+    }
+
+    /**
+     * Garde en mémoire une solution déjà connue (ex : grille générée du mode infini),
+     * sans l'écrire sur disque.
+     * @param levelHash L'empreinte du niveau
+     * @param solution Les chemins de la solution
+     */
+    public static void remember(long levelHash, int[][] solution) {
+        synchronized (memory) {
+            memory.put(levelHash, solution);
+        }
+    }
+
+    /**
+     * Demande la solution d'un niveau : immédiate si elle est en mémoire ou livrée avec
+     * l'application, sinon lue sur disque ou calculée sur le thread de calcul.
+     * @param topology Le voisinage des cases du niveau
+     * @param points Les points du niveau
+     * @param callbackExecutor Exécuteur du callback (ex : thread UI)
+     * @param callback Destinataire de la solution
+     * @return La demande, à annuler si sa réponse n'est plus attendue
+     */
+    public Request request(BoardTopology topology, List<FlowPoint> points, Executor callbackExecutor, Callback callback) {
+        final List<FlowPoint> levelPoints = new ArrayList<>(points);
+        final long levelHash = LevelHash.of(topology, levelPoints);
+        final Request request = new Request();
+        int[][] cached = getIfReady(levelHash);
+        if (cached == null) cached = loadShipped(levelHash, topology);
+        if (cached != null) {
+            callback.onSolution(cached);
+            return request;
+        }
+        worker.execute(() -> {
+            int[][] solution = load(levelHash, topology, levelPoints, request);
+            callbackExecutor.execute(() -> {
+                if (!request.isCancelled()) callback.onSolution(solution);
+            });
+        });
+        return request;
+    }
+
+    /**
+     * Précharge la solution d'un niveau sans attendre de réponse.
+     * @param topology Le voisinage des cases du niveau
+     * @param points Les points du niveau
+     * @return La demande, à annuler quand le niveau est quitté
+     */
+    public Request prefetch(BoardTopology topology, List<FlowPoint> points) {
+        return request(topology, points, Runnable::run, solution -> { });
+    }
+
+    /**
+     * Exécute une tâche sur le thread de calcul des solutions.
+     */
+    static void runInBackground(Runnable task) {
+        worker.execute(task);
+    }
+
+    /**
+     * @param levelHash L'empreinte du niveau
+     * @return true si la compilation a prouvé que le niveau livré n'a qu'une solution
+     */
+    public boolean isKnownUnique(long levelHash) {
+        SolutionPack pack = openPack();
+        return pack != null && pack.isUnique(levelHash);
+    }
+
+    /**
+     * Lit la solution sur disque ou la calcule (à appeler sur le thread de calcul).
+     * @return La solution, ou null si le niveau n'en a pas ou si la demande a été annulée
+     */
+    int[][] load(long levelHash, BoardTopology topology, List<FlowPoint> points, Request request) {
+        int[][] solution = getIfReady(levelHash);
+        if (solution == null) solution = loadShipped(levelHash, topology);
+        if (solution != null) return solution;
+
+        File file = new File(directory, LevelHash.toHex(levelHash) + ".sol");
+        solution = readFile(file, topology.getGridSize());
+        if (solution == null) {
+            solution = compute(topology, points, request);
+            if (solution == null) return null;
+            writeFile(file, topology.getGridSize(), solution);
+        }
+        synchronized (memory) {
+            memory.put(levelHash, solution);
+        }
+        return solution;
+    }
+
+    /**
+     * Lit la solution calculée à la compilation et la garde en mémoire.
+     * @return La solution, ou null si le niveau n'est pas livré avec l'application
+     */
+    private int[][] loadShipped(long levelHash, BoardTopology topology) {
+        SolutionPack pack = openPack();
+        int[][] solution = pack != null ? pack.getSolution(levelHash, topology) : null;
+        if (solution == null) return null;
+        synchronized (memory) {
+            memory.put(levelHash, solution);
+        }
+        return solution;
+    }
+
+    private SolutionPack openPack() {
+        try {
+            return SolutionPack.get(context);
+        } catch (IOException e) {
+            Log.w(TAG, "Paquet de solutions indisponible : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Essaie le retour arrière, puis le solveur SAT si le premier abandonne. Les grandes
+     * grilles vont directement au solveur SAT : le retour arrière y abandonne presque toujours.
+     */
+    private static int[][] compute(BoardTopology topology, List<FlowPoint> points, Request request) {
+        int[] ends = BacktrackingSolver.toEnds(topology.getGridSize(), points);
+        PuzzleSolver[] solvers = topology.getGridSize() >= SAT_ONLY_GRID_SIZE
+                ? new PuzzleSolver[]{new SatPuzzleSolver(CONFLICT_LIMIT)}
+                : new PuzzleSolver[]{new BacktrackingPuzzleSolver(NODE_LIMIT), new SatPuzzleSolver(CONFLICT_LIMIT)};
+        for (PuzzleSolver solver : solvers) {
+            if (!request.track(solver::cancel)) return null;
+            int[][] solution = solver.solve(topology, ends);
+            request.track(null);
+            if (request.isCancelled()) return null;
+            if (solution != null) return solution;
+            Log.w(TAG, "Aucune solution calculée par " + solver.getName() + " (abandon : " + solver.isAborted() + ")");
+            if (!solver.isAborted()) return null;
+        }
+        return null;
+    }
+
+    private static int[][] readFile(File file, int gridSize) {
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION || in.readInt() != gridSize) return null;
+            int[][] solution = new int[in.readInt()][];
+            for (int c = 0; c < solution.length; c++) {
+                solution[c] = new int[in.readInt()];
+                for (int i = 0; i < solution[c].length; i++) {
+                    solution[c][i] = in.readInt();
+                }
+            }
+            return solution;
+        } catch (IOException e) {
+            Log.w(TAG, "Solution illisible : " + file.getName());
+            return null;
+        }
+    }
+
+    private void writeFile(File file, int gridSize, int[][] solution) {
+        if (!directory.exists() && !directory.mkdirs()) return;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(gridSize);
+            out.writeInt(solution.length);
+            for (int[] path : solution) {
+                out.writeInt(path.length);
+                for (int cell : path) {
+                    out.writeInt(cell);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Impossible d'écrire la solution : " + file.getName());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Solutions calculées à la compilation, écrites par {@link SolutionPackWriter}.
+ *
+ * Comme le paquet de niveaux, le fichier est projeté en mémoire : trouver la solution d'un
+ * niveau est une recherche dichotomique dans l'index (trié par empreinte de niveau) suivie
+ * du décodage de ses seuls octets. Aucun solveur n'est lancé pour les niveaux livrés.
+ */
+public final class SolutionPack {
+    public static final String ASSET_NAME = "solutions.pack";
+
+    private static SolutionPack instance;
+
+    private final ByteBuffer buffer;
+    private final int count;
+
+    /**
+     * Retourne le paquet des assets, ouvert une seule fois pour tout le processus.
+     * @param context Le contexte Android
+     * @return Le paquet des solutions
+     */
+    public static synchronized SolutionPack get(Context context) throws IOException {
+        if (instance == null) {
+            instance = new SolutionPack(LevelPack.map(context, ASSET_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Lit un paquet déjà en mémoire et contrôle son en-tête et son index.
+     * @param buffer Le contenu du paquet (big-endian)
+     */
+    SolutionPack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < SolutionPackWriter.HEADER_SIZE
+                || buffer.getInt(0) != SolutionPackWriter.MAGIC
+                || buffer.getInt(4) != SolutionPackWriter.VERSION) {
+            throw new IOException("Paquet de solutions invalide");
+        }
+        count = buffer.getInt(8);
+        long indexEnd = SolutionPackWriter.HEADER_SIZE + (long) count * SolutionPackWriter.ENTRY_SIZE;
+        if (count < 0 || indexEnd > buffer.limit()) {
+            throw new IOException("Index du paquet de solutions tronqué");
+        }
+        for (int i = 0; i < count; i++) {
+            int offset = buffer.getInt(entry(i) + 8);
+            int length = buffer.getInt(entry(i) + 12);
+            if (offset < indexEnd || length < 4 || (long) offset + length > buffer.limit()) {
+                throw new IOException("Solution " + i + " hors du paquet");
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de solutions du paquet
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Cherche la solution d'un niveau.
+     * @param levelHash L'empreinte du niveau (voir {@link LevelHash})
+     * @param topology Le voisinage des cases du niveau, qui donne le sens des pas ; sa taille
+     * est contrôlée contre celle enregistrée
+     * @return Les chemins par couleur (cases d'un point à l'autre), ou null si le niveau n'est pas livré
+     */
+    public int[][] getSolution(long levelHash, BoardTopology topology) {
+        int index = indexOf(levelHash);
+        if (index < 0) return null;
+        int offset = buffer.getInt(entry(index) + 8);
+        if ((buffer.getShort(offset) & 0xffff) != topology.getGridSize()) return null;
+        int[] offsets = topology.getOffsets();
+        int[] neighbors = topology.getNeighbors();
+        int bits = SolutionPackWriter.stepBits(topology);
+        int mask = (1 << bits) - 1;
+        int[][] solution = new int[buffer.get(offset + 3) & 0xff][];
+        int position = offset + 4;
+        for (int c = 0; c < solution.length; c++) {
+            int cell = buffer.getShort(position) & 0xffff;
+            int steps = buffer.getShort(position + 2) & 0xffff;
+            position += 4;
+            int[] path = new int[steps + 1];
+            path[0] = cell;
+            for (int i = 0; i < steps; i++) {
+                int bit = i * bits;
+                // Un pas peut chevaucher deux octets
+                int window = (buffer.get(position + bit / 8) & 0xff)
+                        | (bit % 8 + bits > 8 ? (buffer.get(position + bit / 8 + 1) & 0xff) << 8 : 0);
+                cell = neighbors[offsets[cell] + ((window >>> (bit % 8)) & mask)];
+                path[i + 1] = cell;
+            }
+            position += (steps * bits + 7) / 8;
+            solution[c] = path;
+        }
+        return solution;
+    }
+
+    /**
+     * @param levelHash L'empreinte du niveau
+     * @return true si la compilation a prouvé que le niveau n'a qu'une solution
+     */
+    public boolean isUnique(long levelHash) {
+        int index = indexOf(levelHash);
+        if (index < 0) return false;
+        int offset = buffer.getInt(entry(index) + 8);
+        return (buffer.get(offset + 2) & SolutionPackWriter.FLAG_UNIQUE) != 0;
+    }
+
+    /**
+     * Recherche dichotomique dans l'index, trié par empreinte.
+     * @return La position de l'entrée, ou -1
+     */
+    private int indexOf(long levelHash) {
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = Long.compare(buffer.getLong(entry(middle)), levelHash);
+            if (order == 0) return middle;
+            if (order < 0) low = middle + 1;
+            else high = middle - 1;
+        }
+        return -1;
+    }
+
+    private static int entry(int index) {
+        return SolutionPackWriter.HEADER_SIZE + index * SolutionPackWriter.ENTRY_SIZE;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.sae41_2024;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Écrit le paquet des solutions lu par {@link SolutionPack}.
+ *
+ * Format (entiers big-endian) :
+ * - en-tête : MAGIC, VERSION, nombre de solutions ;
+ * - index trié par empreinte de niveau ({@link LevelHash}) : empreinte, position, longueur ;
+ * - données : pour chaque niveau, la taille de la grille, un octet d'options (bit 0 : solution
+ *   unique), le nombre de couleurs, puis chaque chemin : sa case de départ, son nombre de pas
+ *   et les pas eux-mêmes. Un pas est le rang de la case suivante dans la liste de voisins de
+ *   la case courante ({@link BoardTopology}) : deux bits sur une grille carrée, trois sur une
+ *   grille hexagonale ; les pas sont mis bout à bout, bits de poids faible d'abord.
+ *
+ * N'utilise que la bibliothèque Java standard : la tâche Gradle {@code solveLevels} l'exécute
+ * pendant la compilation sur les fichiers de {@code src/main/levels}, et la compilation échoue
+ * si un niveau n'a pas de solution ou en a plusieurs sans l'avoir déclaré (attribut
+ * {@code solutions="plusieurs"} de sa balise puzzle). Un tel niveau est écrit sans l'option
+ * « solution unique ».
+ */
+public class SolutionPackWriter {
+    static final int MAGIC = 0x52534F4C; // "RSOL"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 12;
+    static final int ENTRY_SIZE = 16;
+    static final int FLAG_UNIQUE = 1;
+
+    // Le retour arrière conclut vite sur les petites grilles ; au-delà, le solveur SAT prend le relais
+    private static final long NODE_LIMIT = 500_000L;
+    // Budget large : la compilation peut attendre, un niveau non tranché la fait échouer
+    private static final long CONFLICT_LIMIT = 5_000_000L;
+
+    // Données de chaque niveau, triées par empreinte (deux fichiers identiques n'en font qu'un)
+    private final Map<Long, byte[]> entries = new TreeMap<>();
+
+    /**
+     * Bilan de la résolution d'un niveau.
+     */
+    static final class Result {
+        /** Nombre de solutions trouvées (au plus 2), ou -1 si aucun solveur n'a conclu. */
+        final int count;
+        /** Une solution, ou null. */
+        final int[][] solution;
+
+        Result(int count, int[][] solution) {
+            this.count = count;
+            this.solution = solution;
+        }
+    }
+
+    /**
+     * Ajoute la solution d'un niveau au paquet.
+     * @param levelHash L'empreinte du niveau (voir {@link LevelHash})
+     * @param topology Le voisinage des cases du niveau
+     * @param solution Les chemins par couleur, d'un point à l'autre
+     * @param unique true si le niveau n'a pas d'autre solution
+     */
+    public void add(long levelHash, BoardTopology topology, int[][] solution, boolean unique) {
+        entries.put(levelHash, encode(topology, solution, unique));
+    }
+
+    /**
+     * Écrit l'en-tête, l'index puis les solutions ajoutées.
+     * @param output Le flux de destination (non fermé)
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+
+        int offset = HEADER_SIZE + entries.size() * ENTRY_SIZE;
+        for (Map.Entry<Long, byte[]> entry : entries.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeInt(offset);
+            out.writeInt(entry.getValue().length);
+            offset += entry.getValue().length;
+        }
+        for (byte[] data : entries.values()) {
+            out.write(data);
+        }
+        out.flush();
+    }
+
+    /**
+     * Code une solution : chaque pas d'un chemin tient sur {@link #stepBits} bits.
+     */
+    static byte[] encode(BoardTopology topology, int[][] solution, boolean unique) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int bits = stepBits(topology);
+        try {
+            out.writeShort(topology.getGridSize());
+            out.writeByte(unique ? FLAG_UNIQUE : 0);
+            out.writeByte(solution.length);
+            for (int[] path : solution) {
+                int steps = path.length - 1;
+                out.writeShort(path[0]);
+                out.writeShort(steps);
+                int packed = 0, used = 0;
+                for (int i = 0; i < steps; i++) {
+                    packed |= slot(topology, path[i], path[i + 1]) << used;
+                    used += bits;
+                    while (used >= 8 || (i == steps - 1 && used > 0)) {
+                        out.writeByte(packed);
+                        packed >>>= 8;
+                        used = Math.max(0, used - 8);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Impossible en mémoire
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return Le nombre de bits d'un pas : de quoi écrire le rang de n'importe quel voisin
+     */
+    static int stepBits(BoardTopology topology) {
+        int bits = 1;
+        while ((1 << bits) < topology.getMaxDegree()) bits++;
+        return bits;
+    }
+
+    /**
+     * @return Le rang de la case to dans la liste de voisins de from
+     */
+    private static int slot(BoardTopology topology, int from, int to) {
+        int[] offsets = topology.getOffsets();
+        int[] neighbors = topology.getNeighbors();
+        for (int i = offsets[from]; i < offsets[from + 1]; i++) {
+            if (neighbors[i] == to) return i - offsets[from];
+        }
+        throw new IllegalArgumentException("Cases non voisines : " + from + " -> " + to);
+    }
+
+    /**
+     * Résout un niveau et compte ses solutions jusqu'à deux, détours compris : deux solutions
+     * diffèrent dès qu'une liaison entre deux cases change.
+     * @param topology Le voisinage des cases du niveau
+     * @param ends Les deux cases de chaque couleur
+     * @return Le nombre de solutions et la première trouvée
+     */
+    static Result solve(BoardTopology topology, int[] ends) {
+        BacktrackingSolver backtracking = new BacktrackingSolver(topology, ends);
+        backtracking.setNodeLimit(NODE_LIMIT);
+        backtracking.setThinPaths(false);
+        int count = backtracking.countSolutions(2);
+        if (!backtracking.isAborted()) return new Result(count, backtracking.getSolution());
+
+        SatPuzzleSolver sat = new SatPuzzleSolver(CONFLICT_LIMIT);
+        count = sat.countSolutions(topology, ends, 2);
+        return new Result(sat.isAborted() ? -1 : count, sat.getSolution());
+    }
+
+    /**
+     * Résout tous les fichiers XML d'un dossier et écrit le paquet des solutions.
+     * Arguments : dossier des niveaux, puis fichier de sortie.
+     * Les fichiers sans balise puzzle sont ignorés : le menu les signale déjà comme invalides.
+     */
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args[0]);
+        File output = new File(args[1]);
+        File[] files = directory.listFiles((dir, fileName) -> fileName.endsWith(".xml"));
+        if (files == null) throw new IOException("Dossier de niveaux introuvable : " + directory);
+        Arrays.sort(files);
+
+        SolutionPackWriter writer = new SolutionPackWriter();
+        List<String> errors = new ArrayList<>();
+        for (File file : files) {
+            byte[] xml = new byte[(int) file.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                in.readFully(xml);
+            }
+            String key = file.getName().substring(0, file.getName().length() - ".xml".length());
+            LevelPackWriter.LevelInfo info = LevelPackWriter.readLevelInfo(xml);
+            if (info.size <= 0) {
+                System.out.println(key + " : illisible, ignoré");
+                continue;
+            }
+
+            long start = System.nanoTime();
+            Result result = solve(info.topology(), BacktrackingSolver.toEnds(info.size, info.points));
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+            if (result.count < 0) {
+                errors.add(key + " : aucun solveur n'a conclu");
+            } else if (result.count == 0) {
+                errors.add(key + " : aucune solution");
+            } else if (result.count > 1 && !info.allowsSeveralSolutions) {
+                errors.add(key + " : plusieurs solutions");
+            } else {
+                writer.add(LevelHash.of(info.topology(), info.points), info.topology(), result.solution, result.count == 1);
+                System.out.println(key + " : " + (result.count == 1 ? "solution unique" : "plusieurs solutions (autorisé)")
+                        + " en " + millis + " ms");
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Niveaux refusés :\n  " + String.join("\n  ", errors));
+        }
+
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Impossible de créer " + parent);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            writer.writeTo(out);
+        }
+        System.out.println(writer.entries.size() + " solutions écrites dans " + output);
+    }
+}
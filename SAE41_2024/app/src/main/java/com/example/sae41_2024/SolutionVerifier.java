@@ -0,0 +1,141 @@
+package com.example.sae41_2024;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vérifie rigoureusement un ensemble de chemins pour un niveau donné :
+ * cases dans la grille, pas entre cases voisines (selon la {@link BoardTopology}), aucune case prise deux fois,
+ * extrémités sur les deux points de la bonne couleur, aucun passage sur un autre point,
+ * et, pour une solution complète, toutes les paires reliées et toute la grille couverte.
+ *
+ * Les tableaux sont réutilisés d'un appel à l'autre : une vérification ne fait qu'un passage
+ * linéaire sur les cases des chemins, sans allocation.
+ */
+public class SolutionVerifier {
+    public static final int VALID = 0;
+    public static final int ERROR_UNKNOWN_COLOR = 1;
+    public static final int ERROR_TOO_SHORT = 2;
+    public static final int ERROR_OUT_OF_GRID = 3;
+    public static final int ERROR_NOT_ADJACENT = 4;
+    public static final int ERROR_OVERLAP = 5;
+    public static final int ERROR_BAD_ENDPOINT = 6;
+    public static final int ERROR_CROSSES_POINT = 7;
+    public static final int ERROR_MISSING_PAIR = 8;
+    public static final int ERROR_INCOMPLETE_GRID = 9;
+
+    private int gridSize;
+    private BoardTopology topology;
+    private int pairCount;
+    // Indice de couleur du point posé sur chaque case, -1 si la case n'a pas de point
+    private int[] endpointColor = new int[0];
+    // Marque de la vérification en cours pour chaque case déjà revendiquée par un chemin
+    private int[] claimStamp = new int[0];
+    private int stamp = 0;
+
+    /**
+     * Prépare le vérificateur pour un niveau sur une grille carrée.
+     * @param gridSize La taille de la grille
+     * @param points Les points du niveau
+     */
+    public void setLevel(int gridSize, List<FlowPoint> points) {
+        setLevel(BoardTopology.square(gridSize), points);
+    }
+
+    /**
+     * Prépare le vérificateur pour un niveau. N'alloue que si la grille grandit.
+     * @param topology Le voisinage des cases
+     * @param points Les points du niveau
+     */
+    public void setLevel(BoardTopology topology, List<FlowPoint> points) {
+        int gridSize = topology.getGridSize();
+        int cellCount = gridSize * gridSize;
+        if (endpointColor.length < cellCount) {
+            endpointColor = new int[cellCount];
+            claimStamp = new int[cellCount];
+            stamp = 0;
+        }
+        this.gridSize = gridSize;
+        this.topology = topology;
+        Arrays.fill(endpointColor, 0, cellCount, -1);
+
+        int maxColor = -1;
+        for (FlowPoint point : points) {
+            int x = point.getX();
+            int y = point.getY();
+            if (x >= 0 && y >= 0 && x < gridSize && y < gridSize) {
+                endpointColor[y * gridSize + x] = point.getColorIndex();
+            }
+            maxColor = Math.max(maxColor, point.getColorIndex());
+        }
+        pairCount = maxColor + 1;
+    }
+
+    /**
+     * Vérifie que les chemins forment une solution complète du niveau.
+     * @param paths Les chemins par indice de couleur
+     * @return {@link #VALID} ou le code de la première erreur rencontrée
+     */
+    public int verifySolution(Map<Integer, List<int[]>> paths) {
+        return verify(paths, true);
+    }
+
+    /**
+     * Vérifie que chaque chemin présent est un tracé terminé et légal, sans exiger
+     * que toutes les paires soient reliées ni que la grille soit remplie
+     * (utile pour accepter une partie sauvegardée en cours).
+     * @param paths Les chemins par indice de couleur
+     * @return {@link #VALID} ou le code de la première erreur rencontrée
+     */
+    public int verifyPartial(Map<Integer, List<int[]>> paths) {
+        return verify(paths, false);
+    }
+
+    private int verify(Map<Integer, List<int[]>> paths, boolean requireComplete) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(claimStamp, 0);
+            stamp = 1;
+        }
+
+        int found = 0;
+        int covered = 0;
+        for (int color = 0; color < pairCount; color++) {
+            List<int[]> path = paths.get(color);
+            if (path == null) {
+                if (requireComplete) return ERROR_MISSING_PAIR;
+                continue;
+            }
+            found++;
+
+            int length = path.size();
+            if (length < 2) return ERROR_TOO_SHORT;
+
+            int previous = -1;
+            for (int i = 0; i < length; i++) {
+                int[] cell = path.get(i);
+                int x = cell[0];
+                int y = cell[1];
+                if (x < 0 || y < 0 || x >= gridSize || y >= gridSize) return ERROR_OUT_OF_GRID;
+                int index = y * gridSize + x;
+                if (i > 0 && !topology.areNeighbors(previous, index)) return ERROR_NOT_ADJACENT;
+
+                if (claimStamp[index] == stamp) return ERROR_OVERLAP;
+                claimStamp[index] = stamp;
+
+                boolean isEnd = i == 0 || i == length - 1;
+                int pointColor = endpointColor[index];
+                if (isEnd && pointColor != color) return ERROR_BAD_ENDPOINT;
+                if (!isEnd && pointColor != -1) return ERROR_CROSSES_POINT;
+
+                previous = index;
+            }
+            covered += length;
+        }
+
+        // Une clé hors des indices du niveau signifie une couleur inconnue
+        if (found != paths.size()) return ERROR_UNKNOWN_COLOR;
+        if (requireComplete && covered != gridSize * gridSize) return ERROR_INCOMPLETE_GRID;
+        return VALID;
+    }
+}
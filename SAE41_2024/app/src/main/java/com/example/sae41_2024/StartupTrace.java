@@ -0,0 +1,164 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Trace;
+import android.util.Log;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * Sections chronométrées du démarrage (lecture du paquet, validations, chargement du niveau,
+ * restauration, première image…).
+ *
+ * Chaque section est envoyée à {@link Trace} (visible dans Perfetto / systrace) et conservée
+ * dans un tampon circulaire que l'on peut écrire dans un fichier. Tant que le traçage est
+ * désactivé (application non débogable), chaque appel se limite à un test de booléen.
+ */
+public final class StartupTrace {
+    private static final String TAG = "DEBUG_FLOW";
+    private static final int CAPACITY = 512;
+    // Limite imposée par android.os.Trace sur la longueur d'un nom de section
+    private static final int MAX_NAME_LENGTH = 127;
+
+    private static volatile boolean enabled = false;
+
+    // Tampon circulaire des sections terminées
+    private static final String[] names = new String[CAPACITY];
+    private static final long[] startNanos = new long[CAPACITY];
+    private static final long[] durationNanos = new long[CAPACITY];
+    private static final String[] threads = new String[CAPACITY];
+    private static int next = 0;
+    private static int recorded = 0;
+    private static final long originNanos = System.nanoTime();
+
+    // Sections ouvertes sur chaque thread (Trace exige de les fermer sur le même thread)
+    private static final ThreadLocal<ArrayDeque<Object[]>> open = new ThreadLocal<ArrayDeque<Object[]>>() {
+        @Override
+        protected ArrayDeque<Object[]> initialValue() {
+            return new ArrayDeque<>();
+        }
+    };
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Active le traçage si l'application est débogable.
+     * @param context Un contexte Android
+     */
+    public static void init(Context context) {
+        setEnabled((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
+    }
+
+    /**
+     * Active ou désactive le traçage.
+     * @param on true pour enregistrer les sections
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return true si les sections sont enregistrées
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ouvre une section ; elle doit être fermée par {@link #end()} sur le même thread.
+     * @param name Le nom de la section
+     */
+    public static void begin(String name) {
+        if (!enabled) return;
+        String sectionName = name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+        Trace.beginSection(sectionName);
+        open.get().push(new Object[]{sectionName, System.nanoTime()});
+    }
+
+    /**
+     * Ouvre une section dont le nom est complété par un détail (le nom complet
+     * n'est construit que si le traçage est actif).
+     * @param name Le nom de la section
+     * @param detail Le détail (ex : le niveau concerné)
+     */
+    public static void begin(String name, Object detail) {
+        if (!enabled) return;
+        begin(name + " " + detail);
+    }
+
+    /**
+     * Comme {@link #begin(String, Object)}, sans boxer l'entier quand le traçage est désactivé.
+     * @param name Le nom de la section
+     * @param detail Le détail (ex : l'indice du niveau)
+     */
+    public static void begin(String name, int detail) {
+        if (!enabled) return;
+        begin(name + " " + detail);
+    }
+
+    /**
+     * Ferme la dernière section ouverte sur ce thread.
+     */
+    public static void end() {
+        if (!enabled) return;
+        Object[] section = open.get().poll();
+        // Section ouverte avant l'activation du traçage : rien à fermer
+        if (section == null) return;
+        Trace.endSection();
+        long start = (Long) section[1];
+        record((String) section[0], start, System.nanoTime() - start);
+    }
+
+    /**
+     * Enregistre un instant (section de durée nulle).
+     * @param name Le nom de l'événement
+     */
+    public static void mark(String name) {
+        if (!enabled) return;
+        record(name, System.nanoTime(), 0);
+    }
+
+    private static synchronized void record(String name, long start, long duration) {
+        names[next] = name;
+        startNanos[next] = start;
+        durationNanos[next] = duration;
+        threads[next] = Thread.currentThread().getName();
+        next = (next + 1) % CAPACITY;
+        recorded = Math.min(recorded + 1, CAPACITY);
+    }
+
+    /**
+     * Écrit les sections conservées, de la plus ancienne à la plus récente :
+     * début et durée en millisecondes depuis le chargement de la classe, thread, nom.
+     * @param file Le fichier de destination
+     */
+    public static synchronized void dump(File file) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            int first = (next - recorded + CAPACITY) % CAPACITY;
+            for (int i = 0; i < recorded; i++) {
+                int k = (first + i) % CAPACITY;
+                out.printf(Locale.ROOT, "%10.3f %9.3f  %-12s %s%n",
+                        (startNanos[k] - originNanos) / 1e6, durationNanos[k] / 1e6, threads[k], names[k]);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Impossible d'écrire la trace : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Écrit la trace dans filesDir/startup_trace.txt si le traçage est actif.
+     * @param context Un contexte Android
+     */
+    public static void dump(Context context) {
+        if (!enabled) return;
+        File file = new File(context.getFilesDir(), "startup_trace.txt");
+        dump(file);
+        Log.d(TAG, "Trace de démarrage écrite dans " + file);
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Progression et statistiques du joueur, dans une base SQLite locale.
+ *
+ * Deux tables :
+ * - attempts : une ligne par partie (niveau, taille, durée, coups, réinitialisations, aides, réussite) ;
+ * - bests : une ligne par niveau, tenue à jour à chaque partie (essais, réussites, meilleurs
+ *   temps et nombre de coups), pour que le menu n'ait jamais à parcourir l'historique.
+ *
+ * Les parties sont écrites par lots, dans une transaction, sur le thread d'un {@link BatchWriter} ;
+ * les lectures passent par le même thread et voient donc toujours les parties déjà enregistrées.
+ * Une seule instance par processus (voir {@link #get(Context)}).
+ */
+public final class StatsStore {
+    private static final String DATABASE_NAME = "stats.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final int MAX_BATCH = 32;
+    private static final long MAX_DELAY_MILLIS = 2000;
+
+    private static StatsStore instance;
+
+    /**
+     * Une partie terminée ou abandonnée.
+     */
+    public static final class Attempt {
+        final String levelKey;
+        final int gridSize;
+        final long startedAt;
+        final long durationMillis;
+        final int moves;
+        final int resets;
+        final int hints;
+        final boolean completed;
+
+        /**
+         * @param levelKey L'identifiant du niveau dans le paquet
+         * @param gridSize La taille de la grille
+         * @param startedAt Heure de début (ms depuis l'époque)
+         * @param durationMillis Temps de jeu effectif (hors arrière-plan)
+         * @param moves Nombre de chemins tracés
+         * @param resets Nombre de réinitialisations
+         * @param hints Nombre d'aides demandées
+         * @param completed true si la grille a été résolue
+         */
+        public Attempt(String levelKey, int gridSize, long startedAt, long durationMillis,
+                       int moves, int resets, int hints, boolean completed) {
+            this.levelKey = levelKey;
+            this.gridSize = gridSize;
+            this.startedAt = startedAt;
+            this.durationMillis = durationMillis;
+            this.moves = moves;
+            this.resets = resets;
+            this.hints = hints;
+            this.completed = completed;
+        }
+    }
+
+    /**
+     * Résumé affiché par le menu.
+     */
+    public static final class Summary {
+        /** Nombre de niveaux réussis au moins une fois. */
+        public final int completedLevels;
+        /** Meilleur temps (ms) par taille de grille, parmi les niveaux réussis. */
+        public final Map<Integer, Long> bestTimeBySize;
+        /** Meilleur temps (ms) par niveau réussi, indexé par identifiant de niveau. */
+        public final Map<String, Long> bestTimeByLevel;
+
+        Summary(int completedLevels, Map<Integer, Long> bestTimeBySize, Map<String, Long> bestTimeByLevel) {
+            this.completedLevels = completedLevels;
+            this.bestTimeBySize = bestTimeBySize;
+            this.bestTimeByLevel = bestTimeByLevel;
+        }
+
+        /**
+         * @param levelCount Le nombre de niveaux du paquet
+         * @return Le pourcentage de niveaux réussis
+         */
+        public int completionPercent(int levelCount) {
+            return levelCount == 0 ? 0 : Math.min(100, completedLevels * 100 / levelCount);
+        }
+    }
+
+    /**
+     * Reçoit le résumé demandé.
+     */
+    public interface SummaryCallback {
+        void onSummary(Summary summary);
+    }
+
+    private final Helper helper;
+    private final BatchWriter<Attempt> writer;
+
+    /**
+     * Retourne la base du processus, ouverte à la première écriture ou lecture.
+     * @param context Le contexte Android
+     * @return Le magasin de statistiques
+     */
+    public static synchronized StatsStore get(Context context) {
+        if (instance == null) {
+            instance = new StatsStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StatsStore(Context context) {
+        helper = new Helper(context);
+        writer = new BatchWriter<>("StatsWriter", this::writeBatch, MAX_BATCH, MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Enregistre une partie (sans bloquer le thread appelant).
+     */
+    public void record(Attempt attempt) {
+        writer.add(attempt);
+    }
+
+    /**
+     * Écrit sans attendre les parties en attente (ex : passage en arrière-plan).
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /**
+     * Calcule le résumé de progression hors du thread UI.
+     * @param callbackExecutor Exécuteur du callback (ex : thread UI)
+     * @param callback Destinataire du résumé
+     */
+    public void loadSummary(Executor callbackExecutor, SummaryCallback callback) {
+        writer.run(() -> {
+            StartupTrace.begin("stats.summary");
+            Summary summary = readSummary();
+            StartupTrace.end();
+            callbackExecutor.execute(() -> callback.onSummary(summary));
+        });
+    }
+
+    /**
+     * Écrit un lot de parties dans une seule transaction.
+     */
+    private void writeBatch(List<Attempt> batch) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO attempts (level_key, grid_size, started_at, duration_ms, moves, resets, hints, completed)"
+                            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            // Pas d'UPSERT avant SQLite 3.24 (Android 11) : on crée la ligne puis on la met à jour
+            SQLiteStatement ensureBest = db.compileStatement(
+                    "INSERT OR IGNORE INTO bests (level_key, grid_size, attempts, completions) VALUES (?, ?, 0, 0)");
+            SQLiteStatement updateBest = db.compileStatement(
+                    "UPDATE bests SET attempts = attempts + 1, completions = completions + ?1,"
+                            + " best_time_ms = CASE WHEN ?1 = 1 AND (best_time_ms IS NULL OR ?2 < best_time_ms)"
+                            + " THEN ?2 ELSE best_time_ms END,"
+                            + " best_moves = CASE WHEN ?1 = 1 AND (best_moves IS NULL OR ?3 < best_moves)"
+                            + " THEN ?3 ELSE best_moves END"
+                            + " WHERE level_key = ?4");
+            for (Attempt attempt : batch) {
+                insert.bindString(1, attempt.levelKey);
+                insert.bindLong(2, attempt.gridSize);
+                insert.bindLong(3, attempt.startedAt);
+                insert.bindLong(4, attempt.durationMillis);
+                insert.bindLong(5, attempt.moves);
+                insert.bindLong(6, attempt.resets);
+                insert.bindLong(7, attempt.hints);
+                insert.bindLong(8, attempt.completed ? 1 : 0);
+                insert.executeInsert();
+
+                ensureBest.bindString(1, attempt.levelKey);
+                ensureBest.bindLong(2, attempt.gridSize);
+                ensureBest.executeInsert();
+
+                updateBest.bindLong(1, attempt.completed ? 1 : 0);
+                updateBest.bindLong(2, attempt.durationMillis);
+                updateBest.bindLong(3, attempt.moves);
+                updateBest.bindString(4, attempt.levelKey);
+                updateBest.executeUpdateDelete();
+            }
+            insert.close();
+            ensureBest.close();
+            updateBest.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Agrégats servis par les index de la table bests (jamais par l'historique des parties).
+     */
+    private Summary readSummary() {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        Map<Integer, Long> bySize = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT grid_size, MIN(best_time_ms) FROM bests"
+                + " WHERE completions > 0 GROUP BY grid_size", null)) {
+            while (cursor.moveToNext()) {
+                bySize.put(cursor.getInt(0), cursor.getLong(1));
+            }
+        }
+        Map<String, Long> byLevel = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT level_key, best_time_ms FROM bests WHERE completions > 0", null)) {
+            while (cursor.moveToNext()) {
+                byLevel.put(cursor.getString(0), cursor.getLong(1));
+            }
+        }
+        return new Summary(byLevel.size(), bySize, byLevel);
+    }
+
+    /**
+     * @param millis Une durée
+     * @return La durée au format m:ss
+     */
+    public static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        return String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    /**
+     * Création et migrations du schéma.
+     */
+    private static final class Helper extends SQLiteOpenHelper {
+        Helper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE attempts ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + " level_key TEXT NOT NULL,"
+                    + " grid_size INTEGER NOT NULL,"
+                    + " started_at INTEGER NOT NULL,"
+                    + " duration_ms INTEGER NOT NULL,"
+                    + " moves INTEGER NOT NULL,"
+                    + " resets INTEGER NOT NULL,"
+                    + " hints INTEGER NOT NULL,"
+                    + " completed INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX attempts_level ON attempts (level_key, started_at)");
+
+            db.execSQL("CREATE TABLE bests ("
+                    + "level_key TEXT PRIMARY KEY,"
+                    + " grid_size INTEGER NOT NULL,"
+                    + " attempts INTEGER NOT NULL,"
+                    + " completions INTEGER NOT NULL,"
+                    + " best_time_ms INTEGER,"
+                    + " best_moves INTEGER)");
+            // Couvre « meilleur temps par taille » sans lire la table
+            db.execSQL("CREATE INDEX bests_size_time ON bests (grid_size, completions, best_time_ms)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Première version du schéma : aucune migration pour l'instant
+        }
+    }
+}
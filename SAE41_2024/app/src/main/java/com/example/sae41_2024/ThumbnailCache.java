@@ -0,0 +1,342 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Vignettes des niveaux pour la liste du menu : la grille, ses points et, pour une partie
+ * en cours, les chemins sauvegardés et une barre de progression.
+ *
+ * Une vignette est identifiée par l'empreinte du contenu du niveau, la taille des cases et
+ * le texte de la partie sauvegardée : elle ne change que si le niveau ou la progression change.
+ * Les vignettes sont gardées en mémoire (les plus récemment affichées) et sur disque,
+ * dans le dossier de cache de l'application ; le fichier d'une progression remplacée est supprimé.
+ *
+ * Rien n'est lu ni dessiné sur le thread UI : une vignette absente de la mémoire est lue
+ * sur disque ou dessinée sur un thread de fond, les lignes demandées en dernier d'abord,
+ * puis posée sur sa vue si la ligne affiche toujours le même niveau.
+ */
+public class ThumbnailCache {
+    private static final String TAG = "DEBUG_FLOW";
+    // À changer quand le dessin des vignettes change : les fichiers précédents sont alors supprimés
+    static final int RENDER_VERSION = 1;
+    // Côté maximal d'une vignette : les cases des grandes grilles sont réduites en conséquence
+    static final int MAX_SIDE = 192;
+    private static final long MAX_DISK_BYTES = 8L * 1024 * 1024;
+    // Au-delà, les demandes les plus anciennes (lignes sorties de l'écran) sont oubliées
+    private static final int MAX_PENDING = 32;
+
+    /**
+     * Une vignette à produire et la vue qui l'attend.
+     */
+    private static final class Request {
+        final String key;
+        final int index;
+        final int cellSize;
+        final String savedPaths;
+        final boolean achromate;
+        final ImageView target;
+
+        Request(String key, int index, int cellSize, String savedPaths, boolean achromate, ImageView target) {
+            this.key = key;
+            this.index = index;
+            this.cellSize = cellSize;
+            this.savedPaths = savedPaths;
+            this.achromate = achromate;
+            this.target = target;
+        }
+    }
+
+    private final LevelPack pack;
+    private final File directory;
+    private final Executor uiExecutor;
+    private final LruCache<String, Bitmap> memory;
+    private final ArrayDeque<Request> pending = new ArrayDeque<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    // État du thread de fond
+    private final BoardRenderer renderer = new BoardRenderer();
+    private final Paint trackPaint, progressPaint;
+    private boolean draining = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param context Le contexte Android (pour le dossier de cache)
+     * @param pack Le paquet de niveaux
+     * @param uiExecutor Exécuteur du thread UI (les vignettes y sont posées sur leurs vues)
+     */
+    public ThumbnailCache(Context context, LevelPack pack, Executor uiExecutor) {
+        this(new File(context.getCacheDir(), "thumbnails"), pack, uiExecutor);
+    }
+
+    ThumbnailCache(File directory, LevelPack pack, Executor uiExecutor) {
+        this.directory = directory;
+        this.pack = pack;
+        this.uiExecutor = uiExecutor;
+        // Un huitième de la mémoire de l'application, compté en octets
+        memory = new LruCache<String, Bitmap>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8)) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        trackPaint = new Paint();
+        trackPaint.setColor(Color.LTGRAY);
+        trackPaint.setStyle(Paint.Style.FILL);
+        progressPaint = new Paint();
+        progressPaint.setColor(Color.parseColor("#361F5F"));
+        progressPaint.setStyle(Paint.Style.FILL);
+        worker.execute(() -> trim(directory, MAX_DISK_BYTES));
+    }
+
+    /**
+     * @param contentHash L'empreinte du contenu du niveau
+     * @param cellSize La taille demandée des cases, en pixels
+     * @param savedPaths La partie sauvegardée (voir {@link BoardSnapshot#encodePaths()}), ou null
+     * @param achromate true pour les couleurs du mode achromate
+     * @return L'identifiant de la vignette, qui sert aussi de nom de fichier
+     */
+    static String keyOf(long contentHash, int cellSize, String savedPaths, boolean achromate) {
+        int progress = savedPaths == null || savedPaths.isEmpty() ? 0 : savedPaths.hashCode();
+        return prefixOf(contentHash, cellSize, achromate) + Integer.toHexString(progress);
+    }
+
+    /**
+     * Début commun des identifiants d'un niveau à une taille donnée, quelle que soit la progression.
+     */
+    private static String prefixOf(long contentHash, int cellSize, boolean achromate) {
+        return "v" + RENDER_VERSION + "_" + Long.toHexString(contentHash) + "_" + cellSize + (achromate ? "a_" : "_");
+    }
+
+    /**
+     * Affiche la vignette d'un niveau sur une vue (à appeler sur le thread UI, à chaque liaison
+     * d'une ligne). Si elle n'est pas en mémoire, la vue est vidée en attendant le thread de fond.
+     * @param target La vue de la ligne
+     * @param index La position du niveau dans le paquet
+     * @param cellSize La taille des cases, en pixels
+     * @param savedPaths La partie sauvegardée du niveau, ou null
+     * @param achromate true pour les couleurs du mode achromate
+     */
+    public void bind(ImageView target, int index, int cellSize, String savedPaths, boolean achromate) {
+        String key = keyOf(pack.getContentHash(index), cellSize, savedPaths, achromate);
+        if (key.equals(target.getTag())) return;
+        target.setTag(key);
+        Bitmap bitmap = memory.get(key);
+        target.setImageBitmap(bitmap);
+        if (bitmap != null || closed) return;
+
+        synchronized (pending) {
+            // Une vue recyclée n'attend plus la vignette de son ancienne ligne
+            Iterator<Request> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().target == target) iterator.remove();
+            }
+            pending.addLast(new Request(key, index, cellSize, savedPaths, achromate, target));
+            while (pending.size() > MAX_PENDING) {
+                Request dropped = pending.pollFirst();
+                dropped.target.setTag(null);
+            }
+            if (!draining) {
+                draining = true;
+                worker.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Arrête le thread de fond et libère les vignettes en mémoire.
+     */
+    public void shutdown() {
+        closed = true;
+        worker.shutdownNow();
+        memory.evictAll();
+    }
+
+    /**
+     * Boucle du thread de fond : les demandes les plus récentes d'abord.
+     */
+    private void drain() {
+        while (!closed) {
+            Request request;
+            synchronized (pending) {
+                request = pending.pollLast();
+                if (request == null) {
+                    draining = false;
+                }
+            }
+            if (request == null) break;
+            Bitmap bitmap = memory.get(request.key);
+            if (bitmap == null) bitmap = load(request);
+            if (bitmap == null) continue;
+            memory.put(request.key, bitmap);
+            Bitmap result = bitmap;
+            uiExecutor.execute(() -> {
+                if (!closed && request.key.equals(request.target.getTag())) request.target.setImageBitmap(result);
+            });
+        }
+    }
+
+    /**
+     * Lit la vignette sur disque, ou la dessine et l'enregistre.
+     */
+    private Bitmap load(Request request) {
+        File file = new File(directory, request.key + ".png");
+        if (file.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+            if (bitmap != null) return bitmap;
+        }
+        try {
+            Bitmap bitmap = render(request);
+            if (bitmap != null) save(file, bitmap, prefixOf(pack.getContentHash(request.index), request.cellSize, request.achromate));
+            return bitmap;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Vignette du niveau " + request.index + " non dessinée : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Dessine la grille du niveau avec les chemins de la partie sauvegardée, s'ils sont valides.
+     */
+    private Bitmap render(Request request) throws IOException {
+        LevelPackWriter.LevelInfo level = readLevel(request.index);
+        if (level.size <= 0) return null;
+        BoardTopology topology = level.topology();
+        GameLogic logic = new GameLogic(level.size);
+        logic.loadLevel(topology, level.name, level.points);
+        if (request.savedPaths != null) {
+            Map<Integer, List<int[]>> saved = BoardSnapshot.decodePaths(request.savedPaths);
+            if (logic.isRestorable(saved)) {
+                for (Map.Entry<Integer, List<int[]>> entry : saved.entrySet()) {
+                    logic.savePath(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        BoardSnapshot snapshot = logic.getSnapshot();
+
+        BoardRenderer.Frame frame = new BoardRenderer.Frame();
+        frame.cellSize = cellSizeFor(level.size, request.cellSize);
+        frame.width = (int) Math.ceil(topology.getWidthInCells() * frame.cellSize);
+        frame.height = (int) (level.size * frame.cellSize);
+        frame.achromate = request.achromate;
+        Bitmap bitmap = Bitmap.createBitmap(frame.width, frame.height, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(bitmap);
+        renderer.draw(canvas, snapshot, frame);
+
+        float progress = coverage(snapshot);
+        if (progress > 0) {
+            float barHeight = Math.max(3f, frame.height / 16f);
+            canvas.drawRect(0, frame.height - barHeight, frame.width, frame.height, trackPaint);
+            canvas.drawRect(0, frame.height - barHeight, frame.width * progress, frame.height, progressPaint);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param gridSize La taille de la grille
+     * @param cellSize La taille demandée des cases
+     * @return La taille des cases de la vignette, qui ne dépasse pas {@link #MAX_SIDE}
+     * (une demi-case est gardée pour le décalage des grilles hexagonales)
+     */
+    static int cellSizeFor(int gridSize, int cellSize) {
+        return Math.max(1, Math.min(cellSize, MAX_SIDE / (gridSize + 1)));
+    }
+
+    /**
+     * @return La part des cases de la grille couverte par des chemins, entre 0 et 1
+     */
+    static float coverage(BoardSnapshot snapshot) {
+        int covered = 0;
+        for (int color = 0; color < snapshot.getColorSlots(); color++) {
+            int[] cells = snapshot.getPathCells(color);
+            if (cells != null) covered += cells.length / 2;
+        }
+        int cellCount = snapshot.getGridSize() * snapshot.getGridSize();
+        return cellCount == 0 ? 0f : Math.min(1f, covered / (float) cellCount);
+    }
+
+    private LevelPackWriter.LevelInfo readLevel(int index) throws IOException {
+        try (InputStream in = pack.openLevel(index)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            for (int read; (read = in.read(chunk)) != -1; ) {
+                out.write(chunk, 0, read);
+            }
+            return LevelPackWriter.readLevelInfo(out.toByteArray());
+        }
+    }
+
+    /**
+     * Enregistre une vignette et supprime celles du même niveau pour une autre progression.
+     */
+    private void save(File file, Bitmap bitmap, String prefix) {
+        if (!directory.exists() && !directory.mkdirs()) return;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Impossible d'écrire la vignette : " + e.getMessage());
+            if (!file.delete()) Log.w(TAG, "Vignette incomplète laissée : " + file.getName());
+            return;
+        }
+        removeOthers(directory, prefix, file.getName());
+    }
+
+    /**
+     * Supprime les fichiers commençant par le préfixe, sauf celui à garder.
+     */
+    static void removeOthers(File directory, String prefix, String keep) {
+        File[] stale = directory.listFiles((dir, name) -> name.startsWith(prefix) && !name.equals(keep));
+        if (stale == null) return;
+        for (File file : stale) {
+            if (!file.delete()) Log.w(TAG, "Vignette périmée non supprimée : " + file.getName());
+        }
+    }
+
+    /**
+     * Supprime les vignettes d'une autre version du dessin, puis les plus anciennes
+     * tant que le dossier dépasse sa taille maximale.
+     */
+    static void trim(File directory, long maxBytes) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        String current = "v" + RENDER_VERSION + "_";
+        long total = 0;
+        int kept = 0;
+        for (File file : files) {
+            if (file.getName().startsWith(current)) {
+                files[kept++] = file;
+                total += file.length();
+            } else if (!file.delete()) {
+                Log.w(TAG, "Vignette périmée non supprimée : " + file.getName());
+            }
+        }
+        if (total <= maxBytes) return;
+        File[] byAge = Arrays.copyOf(files, kept);
+        Arrays.sort(byAge, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < kept && total > maxBytes; i++) {
+            long length = byAge[i].length();
+            if (byAge[i].delete()) total -= length;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.sae41_2024;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Résultats de validation des niveaux conservés sur disque d'un lancement à l'autre.
+ *
+ * Un résultat est indexé par l'empreinte du contenu du niveau ; le fichier entier est lié
+ * à {@link LevelValidator#VERSION} et ignoré si les règles de validation ont changé.
+ * Seuls les niveaux dont le contenu a changé sont donc revalidés.
+ */
+public class ValidationCache {
+    private static final String TAG = "DEBUG_FLOW";
+    private static final int FILE_VERSION = 1;
+
+    private final File file;
+    private final Map<Long, Boolean> results = new HashMap<>();
+    private boolean loaded = false;
+    // Vrai une fois le fichier lu : avant, get() répond sans attendre la fin de la lecture
+    private volatile boolean ready = false;
+    private boolean dirty = false;
+
+    /**
+     * @param context Le contexte Android (pour le dossier de l'application)
+     */
+    public ValidationCache(Context context) {
+        this(new File(context.getFilesDir(), "validation.cache"));
+    }
+
+    ValidationCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Lit le fichier du cache (à appeler hors du thread UI). Sans effet s'il est déjà chargé.
+     */
+    public synchronized void load() {
+        if (loaded) return;
+        loaded = true;
+        StartupTrace.begin("validationCache.load");
+        try {
+            read();
+        } finally {
+            StartupTrace.end();
+        }
+        ready = true;
+    }
+
+    private void read() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION || in.readInt() != LevelValidator.VERSION) {
+                dirty = true; // réécrit au prochain enregistrement
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                results.put(in.readLong(), in.readBoolean());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cache de validation illisible : " + e.getMessage());
+            results.clear();
+            dirty = true;
+        }
+    }
+
+    /**
+     * @param contentHash L'empreinte du contenu du niveau
+     * @return Le résultat connu (true : jouable), ou null si le niveau n'a pas encore été validé
+     *         ou si le cache n'est pas encore chargé
+     */
+    public Boolean get(long contentHash) {
+        if (!ready) return null;
+        synchronized (this) {
+            return results.get(contentHash);
+        }
+    }
+
+    /**
+     * Enregistre le résultat de validation d'un niveau.
+     * @param contentHash L'empreinte du contenu du niveau
+     * @param valid true si le niveau est jouable
+     */
+    public synchronized void put(long contentHash, boolean valid) {
+        Boolean previous = results.put(contentHash, valid);
+        if (previous == null || previous != valid) dirty = true;
+    }
+
+    /**
+     * Écrit le cache sur disque s'il a changé (à appeler hors du thread UI).
+     */
+    public synchronized void save() {
+        if (!dirty) return;
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) return;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(LevelValidator.VERSION);
+            out.writeInt(results.size());
+            for (Map.Entry<Long, Boolean> entry : results.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeBoolean(entry.getValue());
+            }
+            dirty = false;
+        } catch (IOException e) {
+            Log.w(TAG, "Impossible d'écrire le cache de validation : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Regroupement des écritures de {@link BatchWriter} (utilisé par {@link StatsStore}).
+ */
+public class BatchWriterTest {
+
+    @Test
+    public void fullBatches_areWrittenTogether_inOrder() throws InterruptedException {
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        BatchWriter<Integer> writer = new BatchWriter<>("test", batches::add, 10, 60_000);
+        for (int i = 0; i < 100; i++) writer.add(i);
+        writer.close();
+        assertTrue(writer.awaitClosed(5000));
+
+        List<Integer> written = new ArrayList<>();
+        for (List<Integer> batch : batches) {
+            assertTrue("lot de " + batch.size(), batch.size() <= 100 && !batch.isEmpty());
+            written.addAll(batch);
+        }
+        // Le délai d'une minute n'a jamais expiré : seuls des lots pleins (ou regroupés) ont été écrits
+        assertTrue("lots : " + batches.size(), batches.size() <= 10);
+        for (int i = 0; i < 100; i++) assertEquals(Integer.valueOf(i), written.get(i));
+    }
+
+    @Test
+    public void pendingItems_areWrittenAfterDelay_andBeforeReads() throws InterruptedException {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        BatchWriter<Integer> writer = new BatchWriter<>("test", written::addAll, 1000, 50);
+        writer.add(1);
+        writer.add(2);
+
+        // Une lecture passe après les écritures en attente
+        CountDownLatch read = new CountDownLatch(1);
+        List<Integer> seen = new ArrayList<>();
+        writer.run(() -> {
+            seen.addAll(written);
+            read.countDown();
+        });
+        assertTrue(read.await(5, TimeUnit.SECONDS));
+        assertEquals(2, seen.size());
+
+        writer.add(3);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (written.size() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(3, written.size());
+        assertEquals(2, writer.getBatchCount());
+        writer.close();
+    }
+
+    @Test
+    public void failingSink_doesNotStopTheWriter() throws InterruptedException {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        BatchWriter<Integer> writer = new BatchWriter<>("test", batch -> {
+            if (batch.contains(0)) throw new IllegalStateException("disque plein");
+            written.addAll(batch);
+        }, 1, 60_000);
+        writer.add(0);
+        // Le lot qui échoue doit être écrit seul : on attend qu'il soit passé avant d'ajouter la suite
+        CountDownLatch failed = new CountDownLatch(1);
+        writer.run(failed::countDown);
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        writer.add(1);
+        writer.close();
+        assertTrue(writer.awaitClosed(5000));
+        assertEquals(Collections.singletonList(1), written);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.sae41_2024;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Nombre d'appels de dessin par image de {@link BoardRenderer} sur une grille 14x14,
+ * mesuré avec une {@link CountingSurface}. Un dépassement des plafonds signale
+ * une régression du coût de rendu.
+ */
+public class BoardRendererDrawCountTest {
+    private static final int SIZE = 14;
+    private static final int VIEW_SIZE = 1400;
+
+    // Fond + lignes de la grille + un cercle par point + un chemin par couleur
+    private static final int MAX_SOLVED_DRAW_CALLS = 1 + 2 * (SIZE + 1) + 2 * SIZE + SIZE;
+    private static final int MAX_SOLVED_PAINT_CHANGES = 2 + 2 * SIZE + SIZE;
+
+    private GameLogic logic;
+    private BoardRenderer renderer;
+    private BoardRenderer.Frame frame;
+    private CountingSurface surface;
+
+    @Before
+    public void setUp() {
+        // Une paire par ligne, aux deux bords
+        List<FlowPoint> points = new ArrayList<>();
+        for (int y = 0; y < SIZE; y++) {
+            points.add(new FlowPoint(0, y, y));
+            points.add(new FlowPoint(SIZE - 1, y, y));
+        }
+        logic = new GameLogic(SIZE);
+        logic.loadLevel(SIZE, "mesure", points);
+
+        renderer = new BoardRenderer();
+        frame = new BoardRenderer.Frame();
+        frame.width = VIEW_SIZE;
+        frame.height = VIEW_SIZE;
+        frame.cellSize = (float) VIEW_SIZE / SIZE;
+        surface = new CountingSurface();
+    }
+
+    private void solve() {
+        for (int y = 0; y < SIZE; y++) {
+            List<int[]> path = new ArrayList<>();
+            for (int x = 0; x < SIZE; x++) path.add(new int[]{x, y});
+            logic.savePath(y, path);
+        }
+        assertTrue(logic.checkWin());
+    }
+
+    private void drawFrame() {
+        surface.reset();
+        renderer.draw(surface, logic.getSnapshot(), frame);
+    }
+
+    @Test
+    public void solvedBoard_staysWithinDrawBudget() {
+        solve();
+        drawFrame();
+
+        assertEquals("une seule géométrie par couleur : " + surface, SIZE, surface.paths);
+        assertEquals(0, surface.rects);
+        assertTrue("appels : " + surface, surface.drawCalls <= MAX_SOLVED_DRAW_CALLS);
+        assertTrue("pinceaux : " + surface, surface.paintChanges <= MAX_SOLVED_PAINT_CHANGES);
+
+        // Une image identique coûte autant : rien ne s'accumule d'une image à l'autre
+        int previous = surface.drawCalls;
+        drawFrame();
+        assertEquals(previous, surface.drawCalls);
+    }
+
+    @Test
+    public void achromatePatterns_addNoDrawCalls() {
+        solve();
+        drawFrame();
+        int colorDrawCalls = surface.drawCalls;
+        int colorPaintChanges = surface.paintChanges;
+
+        frame.achromate = true;
+        drawFrame();
+        assertEquals(colorDrawCalls, surface.drawCalls);
+        // Un motif posé avec chaque couleur, rien de plus
+        assertEquals(2 * colorPaintChanges - 2, surface.paintChanges);
+
+        frame.achromate = false;
+        drawFrame();
+        assertEquals(colorPaintChanges + 2, surface.paintChanges);
+    }
+
+    @Test
+    public void zoomedBoard_onlyDrawsVisibleCells() {
+        drawFrame();
+        int fullPoints = surface.circles;
+
+        // Zoom x4 sur le coin haut gauche : environ un seizième de la grille est visible
+        frame.cellSize = 4f * VIEW_SIZE / SIZE;
+        drawFrame();
+        assertEquals(2 * SIZE, fullPoints);
+        assertTrue("cercles : " + surface, surface.circles <= SIZE / 4 + 1);
+        assertTrue("lignes : " + surface, surface.lines <= 2 * (SIZE / 4 + 2));
+    }
+
+    @Test
+    public void dragPath_costsOneLinePerSegment() {
+        drawFrame();
+        int idle = surface.drawCalls;
+
+        frame.dragColor = 0;
+        frame.dragLength = SIZE;
+        frame.dragCells = new int[2 * SIZE];
+        for (int x = 0; x < SIZE; x++) frame.dragCells[2 * x] = x;
+        drawFrame();
+        assertEquals(idle + SIZE - 1, surface.drawCalls);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.sae41_2024;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instantanés publiés par {@link GameLogic} : immuables, versionnés, et partageant
+ * les chemins qui n'ont pas changé.
+ */
+public class BoardSnapshotTest {
+
+    private GameLogic logic;
+
+    /**
+     * Grille 5x5 : rouge (0) sur la première ligne, bleu (1) sur la deuxième.
+     */
+    @Before
+    public void setUp() {
+        logic = new GameLogic(5);
+        logic.loadLevel(5, "instantanés", Arrays.asList(
+                new FlowPoint(0, 0, 0), new FlowPoint(4, 0, 0),
+                new FlowPoint(0, 1, 1), new FlowPoint(4, 1, 1)));
+    }
+
+    private static List<int[]> row(int y) {
+        List<int[]> path = new ArrayList<>();
+        for (int x = 0; x < 5; x++) path.add(new int[]{x, y});
+        return path;
+    }
+
+    @Test
+    public void unchangedPaths_areShared() {
+        logic.savePath(0, row(0));
+        BoardSnapshot before = logic.getSnapshot();
+        logic.savePath(1, row(1));
+        BoardSnapshot after = logic.getSnapshot();
+
+        assertTrue(after.getVersion() > before.getVersion());
+        assertSame(before.getPathCells(0), after.getPathCells(0));
+        assertSame(before.getPoints(), after.getPoints());
+        // L'ancien instantané n'a pas vu le nouveau chemin
+        assertNull(before.getPathCells(1));
+        assertEquals(GameLogic.NO_PATH, before.getPathColorAt(2, 1));
+        assertEquals(1, after.getPathColorAt(2, 1));
+        assertEquals(3, after.getPathOrderAt(3, 1));
+
+        logic.removePath(0);
+        assertEquals(0, after.getPathColorAt(2, 0));
+        assertEquals(GameLogic.NO_PATH, logic.getSnapshot().getPathColorAt(2, 0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void points_areReadOnly() {
+        logic.getSnapshot().getPoints().clear();
+    }
+
+    @Test
+    public void paths_areCopiedAndEncoded() {
+        logic.savePath(1, row(1));
+        BoardSnapshot snapshot = logic.getSnapshot();
+        assertEquals("1:0,1;1,1;2,1;3,1;4,1;|", snapshot.encodePaths());
+
+        List<int[]> copy = snapshot.copyPaths().get(1);
+        copy.clear();
+        assertEquals(10, snapshot.getPathCells(1).length);
+        assertTrue(logic.isRestorable(snapshot.copyPaths()));
+
+        List<int[]> decoded = BoardSnapshot.decodePaths(snapshot.encodePaths()).get(1);
+        assertEquals(5, decoded.size());
+        assertArrayEquals(new int[]{4, 1}, decoded.get(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedSave_isRejected() {
+        BoardSnapshot.decodePaths("1:0,1;2|");
+    }
+
+    /**
+     * Un lecteur sur un autre thread voit toujours des états complets et des versions croissantes.
+     */
+    @Test
+    public void backgroundReader_seesConsistentStates() throws InterruptedException {
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            long last = -1;
+            for (int i = 0; i < 20_000 && failure.get() == null; i++) {
+                BoardSnapshot snapshot = logic.getSnapshot();
+                if (snapshot.getVersion() < last) failure.set("version en recul");
+                last = snapshot.getVersion();
+                for (int color = 0; color < snapshot.getColorSlots(); color++) {
+                    int[] cells = snapshot.getPathCells(color);
+                    if (cells != null && cells.length != 10) failure.set("chemin incomplet");
+                    if (cells != null && snapshot.getPathColorAt(cells[0], cells[1]) != color) {
+                        failure.set("propriétaire incohérent");
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20_000; i++) {
+            logic.savePath(i % 2, row(i % 2));
+            if (i % 3 == 0) logic.removePath((i + 1) % 2);
+        }
+        reader.join();
+        assertNull(failure.get(), failure.get());
+    }
+}
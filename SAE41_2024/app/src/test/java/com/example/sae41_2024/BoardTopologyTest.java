@@ -0,0 +1,172 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tables de voisinage de {@link BoardTopology} et leur usage par les solveurs, le vérificateur
+ * et le paquet de solutions.
+ */
+public class BoardTopologyTest {
+
+    private static int degree(BoardTopology topology, int cell) {
+        return topology.getOffsets()[cell + 1] - topology.getOffsets()[cell];
+    }
+
+    /**
+     * Chaque liaison existe dans les deux sens.
+     */
+    private static void assertSymmetric(BoardTopology topology) {
+        for (int a = 0; a < topology.getCellCount(); a++) {
+            for (int i = topology.getOffsets()[a]; i < topology.getOffsets()[a + 1]; i++) {
+                int b = topology.getNeighbors()[i];
+                assertTrue(a + " -> " + b, topology.areNeighbors(b, a));
+                assertEquals(topology.isJump(a, b), topology.isJump(b, a));
+            }
+        }
+    }
+
+    @Test
+    public void square_hasFourNeighborsInside() {
+        BoardTopology square = BoardTopology.square(5);
+        assertEquals(2, degree(square, 0));
+        assertEquals(3, degree(square, 2));
+        assertEquals(4, degree(square, 12));
+        assertEquals(4, square.getMaxDegree());
+        assertTrue(square.isPlainSquare());
+        assertFalse(square.areNeighbors(4, 5));
+        assertSymmetric(square);
+    }
+
+    @Test
+    public void hex_shiftsOddRows() {
+        BoardTopology hex = BoardTopology.create(BoardTopology.HEX, 5, new int[0]);
+        assertEquals(6, hex.getMaxDegree());
+        // (2, 2) sur une ligne paire : voisines en haut (1, 1) et (2, 1)
+        assertTrue(hex.areNeighbors(12, 6));
+        assertTrue(hex.areNeighbors(12, 7));
+        assertFalse(hex.areNeighbors(12, 8));
+        // (2, 1) sur une ligne impaire, décalée à droite : voisines en bas (2, 2) et (3, 2)
+        assertTrue(hex.areNeighbors(7, 12));
+        assertTrue(hex.areNeighbors(7, 13));
+        assertFalse(hex.areNeighbors(7, 11));
+        assertEquals(2, degree(hex, 0));
+        assertEquals(6, degree(hex, 12));
+        assertSymmetric(hex);
+
+        // Au toucher, la demi-case de décalage sépare deux cases de la ligne impaire
+        assertEquals(5, hex.cellAt(0.6f, 1.5f));
+        assertEquals(-1, hex.cellAt(0.4f, 1.5f));
+        assertEquals(5.5f, hex.getWidthInCells(), 0f);
+    }
+
+    @Test
+    public void torus_wrapsEdges() {
+        BoardTopology torus = BoardTopology.create(BoardTopology.TORUS, 5, new int[0]);
+        for (int cell = 0; cell < torus.getCellCount(); cell++) {
+            assertEquals(4, degree(torus, cell));
+        }
+        assertTrue(torus.areNeighbors(0, 4));
+        assertTrue(torus.isJump(0, 4));
+        assertTrue(torus.areNeighbors(0, 20));
+        assertFalse(torus.isJump(0, 1));
+        assertEquals(4, torus.cellAt(-0.5f, 0.5f));
+        assertSymmetric(torus);
+    }
+
+    @Test
+    public void warps_linkDistantCells() {
+        BoardTopology warped = BoardTopology.create(BoardTopology.SQUARE, 5, new int[]{0, 24, 6, 7});
+        assertTrue(warped.areNeighbors(0, 24));
+        assertTrue(warped.isJump(24, 0));
+        // Un portail entre deux voisines n'ajoute pas de liaison
+        assertEquals(4, degree(warped, 6));
+        assertFalse(warped.isJump(6, 7));
+        assertFalse(warped.isPlainSquare());
+        assertSymmetric(warped);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void warpOutsideGrid_isRejected() {
+        BoardTopology.create(BoardTopology.SQUARE, 5, new int[]{0, 25});
+    }
+
+    /**
+     * Une paire reliée seulement par le bord du tore : insoluble sur la grille carrée.
+     * Ligne du haut : rouge en (0, 0) et (2, 0), bleu en (1, 0) et (1, 2) sur une grille 3 x 3.
+     */
+    @Test
+    public void solvers_useTorusLinks() {
+        List<FlowPoint> points = Arrays.asList(
+                new FlowPoint(0, 0, 0), new FlowPoint(2, 0, 0),
+                new FlowPoint(1, 0, 1), new FlowPoint(1, 2, 1));
+        int[] ends = BacktrackingSolver.toEnds(3, points);
+        assertNull(new BacktrackingPuzzleSolver(100_000L).solve(BoardTopology.square(3), ends));
+
+        BoardTopology torus = BoardTopology.create(BoardTopology.TORUS, 3, new int[0]);
+        PuzzleSolver[] solvers = {new BacktrackingPuzzleSolver(100_000L), new SatPuzzleSolver(100_000L)};
+        for (PuzzleSolver solver : solvers) {
+            int[][] solution = solver.solve(torus, ends);
+            assertNotNull(solver.getName(), solution);
+            assertEquals(solver.getName(), SolutionVerifier.VALID, verify(torus, points, solution));
+        }
+    }
+
+    @Test
+    public void solutionPack_decodesHexSteps() throws IOException {
+        BoardTopology hex = BoardTopology.create(BoardTopology.HEX, 4, new int[0]);
+        List<FlowPoint> points = Arrays.asList(
+                new FlowPoint(0, 0, 0), new FlowPoint(3, 1, 0),
+                new FlowPoint(0, 2, 1), new FlowPoint(3, 3, 1));
+        int[][] solution = new SatPuzzleSolver(100_000L).solve(hex, BacktrackingSolver.toEnds(4, points));
+        assertNotNull(solution);
+        assertEquals(SolutionVerifier.VALID, verify(hex, points, solution));
+
+        long levelHash = LevelHash.of(hex, points);
+        assertNotEquals(LevelHash.of(4, points), levelHash);
+        SolutionPackWriter writer = new SolutionPackWriter();
+        writer.add(levelHash, hex, solution, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        SolutionPack pack = new SolutionPack(ByteBuffer.wrap(out.toByteArray()));
+        assertArrayEquals(solution, pack.getSolution(levelHash, hex));
+    }
+
+    @Test
+    public void levelInfo_readsTopologyAndWarps() {
+        LevelPackWriter.LevelInfo info = LevelPackWriter.readLevelInfo(("<puzzle size=\"5\" nom=\"t\" topologie=\"torique\">"
+                + "<portail colonne1=\"0\" ligne1=\"0\" colonne2=\"2\" ligne2=\"2\"/>"
+                + "<paire><point colonne=\"0\" ligne=\"1\"/><point colonne=\"4\" ligne=\"1\"/></paire></puzzle>")
+                .getBytes(StandardCharsets.UTF_8));
+        assertEquals(BoardTopology.TORUS, info.topology().getKind());
+        assertTrue(info.topology().areNeighbors(0, 12));
+
+        LevelPackWriter.LevelInfo unknown = LevelPackWriter.readLevelInfo(
+                "<puzzle size=\"5\" nom=\"u\" topologie=\"spirale\"/>".getBytes(StandardCharsets.UTF_8));
+        assertEquals(-1, unknown.size);
+    }
+
+    private static int verify(BoardTopology topology, List<FlowPoint> points, int[][] solution) {
+        SolutionVerifier verifier = new SolutionVerifier();
+        verifier.setLevel(topology, points);
+        Map<Integer, List<int[]>> paths = new HashMap<>();
+        int size = topology.getGridSize();
+        for (int c = 0; c < solution.length; c++) {
+            List<int[]> path = new ArrayList<>();
+            for (int cell : solution[c]) path.add(new int[]{cell % size, cell / size});
+            paths.put(c, path);
+        }
+        return verifier.verifySolution(paths);
+    }
+}
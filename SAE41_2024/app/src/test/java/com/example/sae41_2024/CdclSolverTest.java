@@ -0,0 +1,75 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Le solveur {@link CdclSolver} comparé à une énumération exhaustive.
+ */
+public class CdclSolverTest {
+
+    private static boolean satisfies(int[][] clauses, int assignment) {
+        for (int[] clause : clauses) {
+            boolean ok = false;
+            for (int lit : clause) {
+                boolean value = (assignment & (1 << (Math.abs(lit) - 1))) != 0;
+                if (value == lit > 0) ok = true;
+            }
+            if (!ok) return false;
+        }
+        return true;
+    }
+
+    @Test
+    public void random3Sat_matchesBruteForce() {
+        Random random = new Random(42);
+        int vars = 12;
+        for (int round = 0; round < 300; round++) {
+            // Autour du seuil (4,26 clauses par variable) : autant de cas satisfiables que non
+            int[][] clauses = new int[48 + random.nextInt(8)][];
+            for (int i = 0; i < clauses.length; i++) {
+                clauses[i] = new int[3];
+                for (int j = 0; j < 3; j++) {
+                    clauses[i][j] = (1 + random.nextInt(vars)) * (random.nextBoolean() ? 1 : -1);
+                }
+            }
+            boolean expected = false;
+            for (int assignment = 0; assignment < (1 << vars) && !expected; assignment++) {
+                expected = satisfies(clauses, assignment);
+            }
+
+            CdclSolver solver = new CdclSolver(vars);
+            for (int[] clause : clauses) solver.addClause(clause);
+            Boolean result = solver.solve(1_000_000);
+            assertEquals("tour " + round, expected, result);
+            if (result) {
+                int model = 0;
+                for (int v = 1; v <= vars; v++) if (solver.modelValue(v)) model |= 1 << (v - 1);
+                assertTrue("modèle faux au tour " + round, satisfies(clauses, model));
+            }
+        }
+    }
+
+    @Test
+    public void pigeonhole_isUnsatisfiable() {
+        // 6 pigeons, 5 trous : la variable p * 5 + h + 1 place le pigeon p dans le trou h
+        int pigeons = 6, holes = 5;
+        CdclSolver solver = new CdclSolver(pigeons * holes);
+        for (int p = 0; p < pigeons; p++) {
+            int[] clause = new int[holes];
+            for (int h = 0; h < holes; h++) clause[h] = p * holes + h + 1;
+            solver.addClause(clause);
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p = 0; p < pigeons; p++) {
+                for (int q = p + 1; q < pigeons; q++) {
+                    solver.addClause(-(p * holes + h + 1), -(q * holes + h + 1));
+                }
+            }
+        }
+        assertEquals(Boolean.FALSE, solver.solve(1_000_000));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.sae41_2024;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Shader;
+
+/**
+ * {@link DrawSurface} de mesure : compte les appels de dessin, les primitives dessinées
+ * et les changements d'état des pinceaux, sans rien dessiner.
+ */
+public class CountingSurface implements DrawSurface {
+    int drawCalls, primitives, paintChanges;
+    int lines, circles, rects, paths;
+
+    /**
+     * Remet les compteurs à zéro avant une nouvelle image.
+     */
+    void reset() {
+        drawCalls = primitives = paintChanges = 0;
+        lines = circles = rects = paths = 0;
+    }
+
+    @Override
+    public String toString() {
+        return drawCalls + " appels (" + lines + " lignes, " + circles + " cercles, " + rects + " rectangles, "
+                + paths + " chemins), " + primitives + " primitives, " + paintChanges + " changements de pinceau";
+    }
+
+    private void draw(int primitiveCount) {
+        drawCalls++;
+        primitives += primitiveCount;
+    }
+
+    @Override
+    public void drawColor(int color) {
+        draw(1);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        lines++;
+        draw(1);
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, Paint paint) {
+        circles++;
+        draw(1);
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        rects++;
+        draw(1);
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        paths++;
+        draw(1);
+    }
+
+    @Override
+    public void save() {
+    }
+
+    @Override
+    public void restore() {
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+    }
+
+    @Override
+    public void setColor(Paint paint, int color) {
+        paintChanges++;
+    }
+
+    @Override
+    public void setAlpha(Paint paint, int alpha) {
+        paintChanges++;
+    }
+
+    @Override
+    public void setStrokeWidth(Paint paint, float width) {
+        paintChanges++;
+    }
+
+    @Override
+    public void setShader(Paint paint, Shader shader) {
+        paintChanges++;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Notes de {@link DifficultyRater} : un niveau sans choix est facile, un niveau à choix plus dur.
+ */
+public class DifficultyRaterTest {
+
+    private static LevelPackWriter.LevelInfo read(String name) throws IOException {
+        File file = new File("src/main/levels", name);
+        byte[] xml = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(xml);
+        }
+        return LevelPackWriter.readLevelInfo(xml);
+    }
+
+    @Test
+    public void forcedRows_areEasy() {
+        // Une paire par ligne, d'un bord à l'autre : tous les coups sont forcés
+        List<FlowPoint> points = new ArrayList<>();
+        for (int y = 0; y < 5; y++) {
+            points.add(new FlowPoint(0, y, y));
+            points.add(new FlowPoint(4, y, y));
+        }
+        int score = DifficultyRater.rate(5, points);
+        assertTrue("note : " + score, score >= 0 && score < 25);
+        assertEquals(0, DifficultyRater.tierOf(score));
+    }
+
+    @Test
+    public void unsolvableLevel_isUnrated() {
+        // Les deux paires se croisent forcément
+        List<FlowPoint> points = Arrays.asList(
+                new FlowPoint(0, 0, 0), new FlowPoint(1, 1, 0),
+                new FlowPoint(1, 0, 1), new FlowPoint(0, 1, 1));
+        assertEquals(DifficultyRater.UNRATED, DifficultyRater.rate(2, points));
+        assertEquals(-1, DifficultyRater.tierOf(DifficultyRater.UNRATED));
+    }
+
+    @Test
+    public void shippedLevels_areOrderedBySize() throws IOException {
+        LevelPackWriter.LevelInfo small = read("Niveau1.xml");
+        LevelPackWriter.LevelInfo large = read("Niveau3.xml");
+        int smallScore = DifficultyRater.rate(small.size, small.points);
+        int largeScore = DifficultyRater.rate(large.size, large.points);
+        assertTrue(smallScore >= 0);
+        assertTrue(smallScore + " < " + largeScore, smallScore < largeScore);
+        assertTrue(largeScore <= DifficultyRater.MAX_SCORE);
+    }
+
+    @Test
+    public void shutdownWhileLoadingCache_doesNotCrashThePool() throws Exception {
+        LevelPackWriter writer = new LevelPackWriter();
+        for (String name : new String[]{"Niveau1", "Niveau2", "Niveau5"}) {
+            writer.add(name, name, Files.readAllBytes(new File("src/main/levels", name + ".xml").toPath()));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        LevelPack pack = new LevelPack(ByteBuffer.wrap(out.toByteArray()));
+
+        File file = File.createTempFile("difficulty", ".cache");
+        file.deleteOnExit();
+        file.delete();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch shutDown = new CountDownLatch(1);
+        // Le menu est fermé (ex : rotation) pendant que le cache est lu
+        DifficultyCache cache = new DifficultyCache(file) {
+            @Override
+            public synchronized void load() {
+                loading.countDown();
+                try {
+                    shutDown.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.load();
+            }
+        };
+
+        AtomicReference<Throwable> crash = new AtomicReference<>();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> crash.set(e));
+        try {
+            DifficultyRater rater = new DifficultyRater();
+            rater.rateAll(pack, cache, Runnable::run, (indices, scores) -> { });
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            rater.shutdown(cache);
+            shutDown.countDown();
+            assertTrue(rater.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+        assertNull("Exception sur un thread du pool : " + crash.get(), crash.get());
+    }
+}
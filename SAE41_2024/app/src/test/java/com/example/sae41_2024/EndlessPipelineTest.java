@@ -0,0 +1,83 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Grilles du mode infini : graines, unicité de la solution, file bornée et arrêt.
+ */
+public class EndlessPipelineTest {
+
+    private static void assertSamePoints(List<FlowPoint> expected, List<FlowPoint> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getX(), actual.get(i).getX());
+            assertEquals(expected.get(i).getY(), actual.get(i).getY());
+            assertEquals(expected.get(i).getColorIndex(), actual.get(i).getColorIndex());
+        }
+    }
+
+    @Test
+    public void seed_regeneratesTheSameBoard() {
+        Random random = new Random(7);
+        int generated = 0;
+        for (int i = 0; i < 200 && generated < 10; i++) {
+            long seed = BoardGenerator.seedOf(6, random.nextLong());
+            assertEquals(6, BoardGenerator.sizeOf(seed));
+            BoardGenerator.Board board = BoardGenerator.generate(seed);
+            if (board == null) continue;
+            generated++;
+            assertSamePoints(board.points, BoardGenerator.fromSeed(seed).points);
+            BoardGenerator.Board saved = BoardGenerator.fromSaved(seed, BoardGenerator.encodePoints(board.points));
+            assertSamePoints(board.points, saved.points);
+            assertEquals(6, saved.topology.getGridSize());
+            assertEquals(seed, Long.parseLong(BoardGenerator.toText(seed), 36));
+
+            // Solution unique, détours compris, et valide
+            int[] ends = BacktrackingSolver.toEnds(6, board.points);
+            assertEquals(1, SolutionPackWriter.solve(board.topology, ends).count);
+            assertNotNull(new SatPuzzleSolver(100_000L).solve(board.topology, ends));
+            assertTrue(board.points.size() / 2 <= GameLogic.getColorCount());
+        }
+        assertEquals(10, generated);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeOutOfRange_isRejected() {
+        BoardGenerator.seedOf(GameLogic.MAX_GRID_SIZE + 1, 0L);
+    }
+
+    @Test
+    public void pipeline_staysBoundedAndStops() throws InterruptedException {
+        EndlessPipeline pipeline = new EndlessPipeline(5, -1, 2);
+        try {
+            AtomicReference<BoardGenerator.Board> received = new AtomicReference<>();
+            CountDownLatch delivered = new CountDownLatch(1);
+            pipeline.next(Runnable::run, board -> {
+                received.set(board);
+                delivered.countDown();
+            });
+            assertTrue(delivered.await(30, TimeUnit.SECONDS));
+            assertEquals(5, received.get().topology.getGridSize());
+
+            // Les producteurs s'arrêtent quand la file est pleine
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (pipeline.getReadyCount() < EndlessPipeline.CAPACITY && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            assertEquals(EndlessPipeline.CAPACITY, pipeline.getReadyCount());
+        } finally {
+            pipeline.stop();
+        }
+        assertTrue(pipeline.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, pipeline.getReadyCount());
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Harnais de stress pour {@link GameLogic} : enchaîne un grand nombre d'opérations aléatoires
+ * mais valides (tracé, suppression, réinitialisation, rechargement) et vérifie après chaque
+ * étape que la grille reste cohérente par rapport à un modèle de référence volontairement naïf.
+ *
+ * Le nombre d'opérations se règle avec la propriété système {@code stress.ops}
+ * (ex : {@code ./gradlew test -Pstress.ops=5000000}).
+ */
+public class GameLogicStressTest {
+
+    private static final long SEED = 0x5AE41L;
+
+    /**
+     * Niveau généré avec sa solution connue.
+     */
+    private static final class Level {
+        int size;
+        List<FlowPoint> points = new ArrayList<>();
+        List<List<int[]>> solution = new ArrayList<>();
+    }
+
+    /**
+     * Modèle de référence : copie profonde des chemins, propriétaire et rang de chaque case,
+     * et vérifications en force brute.
+     */
+    private static final class ReferenceBoard {
+        final Level level;
+        final Map<Integer, List<int[]>> paths = new HashMap<>();
+        final int[] owner;
+        final int[] order;
+
+        ReferenceBoard(Level level) {
+            this.level = level;
+            owner = new int[level.size * level.size];
+            order = new int[level.size * level.size];
+            Arrays.fill(owner, GameLogic.NO_PATH);
+        }
+
+        void save(int color, List<int[]> path) {
+            remove(color);
+            List<int[]> copy = new ArrayList<>();
+            for (int i = 0; i < path.size(); i++) {
+                int[] cell = path.get(i);
+                int index = cell[1] * level.size + cell[0];
+                assertEquals("La référence ne doit enregistrer que des chemins libres", GameLogic.NO_PATH, owner[index]);
+                owner[index] = color;
+                order[index] = i;
+                copy.add(new int[]{cell[0], cell[1]});
+            }
+            paths.put(color, copy);
+        }
+
+        void remove(int color) {
+            List<int[]> path = paths.remove(color);
+            if (path == null) return;
+            for (int[] cell : path) owner[cell[1] * level.size + cell[0]] = GameLogic.NO_PATH;
+        }
+
+        void clear() {
+            paths.clear();
+            Arrays.fill(owner, GameLogic.NO_PATH);
+        }
+
+        FlowPoint pointAt(int x, int y) {
+            for (FlowPoint p : level.points) {
+                if (p.getX() == x && p.getY() == y) return p;
+            }
+            return null;
+        }
+
+        /**
+         * Un chemin est complet s'il relie les deux points de sa couleur, pas à pas,
+         * sans sortir de la grille ni passer sur un autre point.
+         */
+        boolean isCompletePath(int color, List<int[]> path) {
+            if (path.size() < 2) return false;
+            for (int i = 0; i < path.size(); i++) {
+                int[] c = path.get(i);
+                if (c[0] < 0 || c[1] < 0 || c[0] >= level.size || c[1] >= level.size) return false;
+                if (i > 0) {
+                    int[] p = path.get(i - 1);
+                    if (Math.abs(p[0] - c[0]) + Math.abs(p[1] - c[1]) != 1) return false;
+                }
+                for (int j = 0; j < i; j++) {
+                    int[] o = path.get(j);
+                    if (o[0] == c[0] && o[1] == c[1]) return false;
+                }
+                FlowPoint point = pointAt(c[0], c[1]);
+                boolean isEnd = i == 0 || i == path.size() - 1;
+                if (isEnd && (point == null || point.getColorIndex() != color)) return false;
+                if (!isEnd && point != null) return false;
+            }
+            return true;
+        }
+
+        boolean isWon() {
+            int pairs = level.points.size() / 2;
+            if (paths.size() != pairs) return false;
+            for (int color = 0; color < pairs; color++) {
+                List<int[]> path = paths.get(color);
+                if (path == null || !isCompletePath(color, path)) return false;
+            }
+            for (int cellOwner : owner) {
+                if (cellOwner == GameLogic.NO_PATH) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Lance les opérations aléatoires en comparant GameLogic à la référence après chacune.
+     */
+    @Test
+    public void randomOperations_keepBoardConsistent() {
+        long operations = Long.getLong("stress.ops", 200_000L);
+        Random random = new Random(SEED);
+
+        Level level = randomLevel(random);
+        GameLogic logic = new GameLogic(level.size);
+        logic.loadLevel(level.size, "stress", level.points);
+        ReferenceBoard reference = new ReferenceBoard(level);
+
+        int wins = 0;
+        for (long op = 0; op < operations; op++) {
+            int action = random.nextInt(100);
+            int pairs = level.points.size() / 2;
+            int color = random.nextInt(pairs);
+
+            if (action < 40) {
+                List<int[]> path = level.solution.get(color);
+                if (isFreeFor(reference, color, path)) {
+                    List<int[]> argument = new ArrayList<>(path);
+                    logic.savePath(color, argument);
+                    reference.save(color, path);
+                    argument.clear(); // GameLogic doit avoir gardé sa propre copie
+                }
+            } else if (action < 70) {
+                List<int[]> path = route(reference, color);
+                if (path != null) {
+                    logic.savePath(color, path);
+                    reference.save(color, path);
+                    path.clear();
+                }
+            } else if (action < 90) {
+                logic.removePath(color);
+                reference.remove(color);
+            } else if (action < 97) {
+                logic.resetGrid();
+                reference.clear();
+            } else if (action < 99) {
+                logic.loadLevel(level.size, "stress", level.points);
+                reference.clear();
+            } else {
+                level = randomLevel(random);
+                logic.loadLevel(level.size, "stress", level.points);
+                reference = new ReferenceBoard(level);
+            }
+
+            assertConsistent(logic, reference, op);
+            if (reference.isWon()) wins++;
+        }
+        assertTrue("Aucune victoire atteinte, le harnais n'explore pas assez", operations < 10_000 || wins > 0);
+    }
+
+    /**
+     * Compare l'état de GameLogic au modèle de référence et vérifie les invariants de la grille.
+     */
+    private static void assertConsistent(GameLogic logic, ReferenceBoard reference, long op) {
+        Map<Integer, List<int[]>> paths = logic.getPaths();
+        BoardSnapshot snapshot = logic.getSnapshot();
+        assertEquals("op " + op + " : nombre de chemins", reference.paths.size(), paths.size());
+        assertEquals("op " + op + " : taille de grille", reference.level.size, logic.getGridSize());
+
+        for (Map.Entry<Integer, List<int[]>> entry : reference.paths.entrySet()) {
+            List<int[]> actual = paths.get(entry.getKey());
+            assertNotNull("op " + op + " : chemin manquant pour " + entry.getKey(), actual);
+            assertEquals("op " + op + " : longueur du chemin " + entry.getKey(), entry.getValue().size(), actual.size());
+            for (int i = 0; i < actual.size(); i++) {
+                assertEquals(entry.getValue().get(i)[0], actual.get(i)[0]);
+                assertEquals(entry.getValue().get(i)[1], actual.get(i)[1]);
+            }
+            int[] published = snapshot.getPathCells(entry.getKey());
+            assertNotNull("op " + op + " : chemin non publié pour " + entry.getKey(), published);
+            assertEquals(2 * actual.size(), published.length);
+            for (int i = 0; i < actual.size(); i++) {
+                assertEquals(actual.get(i)[0], published[2 * i]);
+                assertEquals(actual.get(i)[1], published[2 * i + 1]);
+            }
+            assertTrue("op " + op + " : chemin non contigu " + entry.getKey(),
+                    reference.isCompletePath(entry.getKey(), actual));
+        }
+        for (int color = 0; color < snapshot.getColorSlots(); color++) {
+            assertEquals("op " + op + " : chemin publié sans chemin enregistré " + color,
+                    reference.paths.containsKey(color), snapshot.getPathCells(color) != null);
+        }
+        // Une case revendiquée deux fois par GameLogic aurait le mauvais propriétaire ou le mauvais rang
+        int size = reference.level.size;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int owner = reference.owner[y * size + x];
+                assertEquals("op " + op + " : propriétaire de la case " + x + "," + y,
+                        owner, logic.getPathColorAt(x, y));
+                assertEquals("op " + op + " : propriétaire publié de la case " + x + "," + y,
+                        owner, snapshot.getPathColorAt(x, y));
+                if (owner != GameLogic.NO_PATH) {
+                    assertEquals("op " + op + " : rang de la case " + x + "," + y,
+                            reference.order[y * size + x], logic.getPathOrderAt(x, y));
+                    assertEquals("op " + op + " : rang publié de la case " + x + "," + y,
+                            reference.order[y * size + x], snapshot.getPathOrderAt(x, y));
+                }
+                assertEquals("op " + op + " : point de la case " + x + "," + y,
+                        reference.pointAt(x, y), logic.getPointAt(x, y));
+            }
+        }
+        assertEquals("op " + op + " : checkWin diverge de la référence", reference.isWon(), logic.checkWin());
+    }
+
+    /**
+     * Vérifie qu'aucune case du chemin n'est déjà prise par une autre couleur.
+     */
+    private static boolean isFreeFor(ReferenceBoard reference, int color, List<int[]> path) {
+        for (int[] cell : path) {
+            int owner = reference.owner[cell[1] * reference.level.size + cell[0]];
+            if (owner != GameLogic.NO_PATH && owner != color) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cherche un chemin le plus court entre les deux points d'une couleur à travers les cases libres.
+     */
+    private static List<int[]> route(ReferenceBoard reference, int color) {
+        int size = reference.level.size;
+        boolean[][] blocked = new boolean[size][size];
+        for (FlowPoint p : reference.level.points) {
+            if (p.getColorIndex() != color) blocked[p.getX()][p.getY()] = true;
+        }
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int owner = reference.owner[y * size + x];
+                if (owner != GameLogic.NO_PATH && owner != color) blocked[x][y] = true;
+            }
+        }
+
+        FlowPoint from = reference.level.points.get(color * 2);
+        FlowPoint to = reference.level.points.get(color * 2 + 1);
+        int[][] previous = new int[size * size][];
+        boolean[][] seen = new boolean[size][size];
+        List<int[]> queue = new ArrayList<>();
+        queue.add(new int[]{from.getX(), from.getY()});
+        seen[from.getX()][from.getY()] = true;
+
+        int[][] moves = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        for (int head = 0; head < queue.size(); head++) {
+            int[] cell = queue.get(head);
+            if (cell[0] == to.getX() && cell[1] == to.getY()) {
+                List<int[]> path = new ArrayList<>();
+                for (int[] c = cell; c != null; c = previous[c[1] * size + c[0]]) path.add(0, c);
+                return path;
+            }
+            for (int[] move : moves) {
+                int nx = cell[0] + move[0];
+                int ny = cell[1] + move[1];
+                if (nx < 0 || ny < 0 || nx >= size || ny >= size || seen[nx][ny] || blocked[nx][ny]) continue;
+                seen[nx][ny] = true;
+                previous[ny * size + nx] = cell;
+                queue.add(new int[]{nx, ny});
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Génère un niveau résoluble : la grille est parcourue en serpentin puis découpée
+     * en segments d'au moins trois cases, chaque segment devenant une paire.
+     */
+    private static Level randomLevel(Random random) {
+        Level level = new Level();
+        level.size = 5 + random.nextInt(10);
+        boolean transpose = random.nextBoolean();
+
+        List<int[]> snake = new ArrayList<>();
+        for (int row = 0; row < level.size; row++) {
+            for (int i = 0; i < level.size; i++) {
+                int col = (row % 2 == 0) ? i : level.size - 1 - i;
+                snake.add(transpose ? new int[]{row, col} : new int[]{col, row});
+            }
+        }
+
+        int index = 0;
+        while (index < snake.size()) {
+            int length = 3 + random.nextInt(level.size * 2);
+            if (snake.size() - (index + length) < 3) length = snake.size() - index;
+            List<int[]> segment = new ArrayList<>(snake.subList(index, index + length));
+            int color = level.solution.size();
+            int[] first = segment.get(0);
+            int[] last = segment.get(segment.size() - 1);
+            level.points.add(new FlowPoint(first[0], first[1], color));
+            level.points.add(new FlowPoint(last[0], last[1], color));
+            level.solution.add(segment);
+            index += length;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Édition d'un niveau, export XML relu par l'outil d'empaquetage, et vérifications
+ * de l'{@link EditorChecker} (dernier état seulement, résultats par empreinte).
+ */
+public class LevelEditorTest {
+
+    /**
+     * Niveau 1 du jeu, posé point par point.
+     */
+    private static LevelEditor level1() {
+        LevelEditor editor = new LevelEditor(5);
+        int[][] points = {{0, 0}, {3, 3}, {2, 0}, {2, 2}, {0, 1}, {1, 3}, {0, 3}, {1, 4}};
+        for (int[] point : points) assertTrue(editor.tap(point[0], point[1]));
+        return editor;
+    }
+
+    /**
+     * Attend le résultat définitif (hors {@link EditorChecker#SOLVABLE}) d'une version.
+     */
+    private static EditorChecker.Result awaitFinal(BlockingQueue<EditorChecker.Result> results, long version)
+            throws InterruptedException {
+        while (true) {
+            EditorChecker.Result result = results.poll(10, TimeUnit.SECONDS);
+            assertNotNull("pas de résultat pour la version " + version, result);
+            if (result.getVersion() == version && result.getStatus() != EditorChecker.SOLVABLE) return result;
+        }
+    }
+
+    @Test
+    public void tapMoveAndResize_editPairs() {
+        LevelEditor editor = new LevelEditor(3);
+        assertEquals(LevelEditor.MIN_SIZE, editor.getSize());
+
+        editor.tap(0, 0);
+        assertFalse(editor.isComplete());
+        editor.tap(4, 4);
+        assertTrue(editor.isComplete());
+        assertEquals(1, editor.getPairCount());
+
+        assertTrue(editor.move(4, 4, 2, 2));
+        assertFalse(editor.move(1, 1, 2, 3));
+        assertArrayEquals(new int[]{0, 12}, editor.toEnds());
+
+        // Toucher un point retire toute sa paire
+        editor.tap(2, 2);
+        assertEquals(0, editor.getPairCount());
+
+        // Réduire la grille retire les paires qui n'y tiennent plus
+        editor.setSize(LevelEditor.MAX_SIZE);
+        editor.tap(0, 0);
+        editor.tap(10, 10);
+        editor.tap(1, 0);
+        editor.tap(5, 5);
+        editor.setSize(6);
+        assertEquals(1, editor.getPairCount());
+        assertArrayEquals(new int[]{1, 35}, editor.toEnds());
+    }
+
+    @Test
+    public void xmlExport_isReadByPackTool() {
+        LevelEditor editor = level1();
+        LevelPackWriter.LevelInfo info = LevelPackWriter.readLevelInfo(
+                editor.toXml("Essai \"1\"").getBytes(StandardCharsets.UTF_8));
+        assertEquals("Essai \"1\"", info.name);
+        assertEquals(5, info.size);
+        assertEquals(8, info.points.size());
+        assertArrayEquals(editor.toEnds(), BacktrackingSolver.toEnds(5, info.points));
+    }
+
+    @Test
+    public void checker_reportsOnlyLatestStateAndReusesResults() throws InterruptedException {
+        BlockingQueue<EditorChecker.Result> results = new LinkedBlockingQueue<>();
+        EditorChecker checker = new EditorChecker(Runnable::run, results::add);
+        LevelEditor editor = level1();
+
+        checker.submit(1, 5, editor.toEnds());
+        EditorChecker.Result first = awaitFinal(results, 1);
+        assertEquals(EditorChecker.UNIQUE, first.getStatus());
+        assertNotNull(first.getSolution());
+
+        // Deux paires qui se croisent forcément dans un coin : aucune solution
+        LevelEditor crossed = new LevelEditor(5);
+        crossed.tap(0, 0);
+        crossed.tap(1, 1);
+        crossed.tap(1, 0);
+        crossed.tap(0, 1);
+        checker.submit(2, 5, new int[]{0, 6, 5, 1});
+        checker.submit(3, 5, crossed.toEnds());
+        assertEquals(EditorChecker.UNSOLVABLE, awaitFinal(results, 3).getStatus());
+
+        // Le miroir du niveau 1 est reconnu sans nouvelle recherche
+        int[] mirrored = editor.toEnds();
+        for (int i = 0; i < mirrored.length; i++) {
+            mirrored[i] = mirrored[i] / 5 * 5 + (4 - mirrored[i] % 5);
+        }
+        checker.submit(4, 5, mirrored);
+        EditorChecker.Result cached = awaitFinal(results, 4);
+        assertEquals(EditorChecker.UNIQUE, cached.getStatus());
+        assertNull(cached.getSolution());
+
+        checker.submit(5, 5, new int[]{0, -1});
+        assertEquals(EditorChecker.INCOMPLETE, awaitFinal(results, 5).getStatus());
+        checker.shutdown();
+    }
+}
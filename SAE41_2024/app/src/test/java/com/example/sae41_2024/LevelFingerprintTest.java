@@ -0,0 +1,83 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Forme canonique de {@link LevelFingerprint} et index de doublons {@link DedupIndex}.
+ */
+public class LevelFingerprintTest {
+    private static final int SIZE = 7;
+
+    private static List<FlowPoint> level() {
+        int[][] cells = {{0, 0}, {6, 5}, {1, 2}, {4, 4}, {6, 0}, {2, 6}, {3, 1}, {5, 3}};
+        List<FlowPoint> points = new ArrayList<>();
+        for (int i = 0; i < cells.length; i++) {
+            points.add(new FlowPoint(cells[i][0], cells[i][1], i / 2));
+        }
+        return points;
+    }
+
+    @Test
+    public void symmetriesAndRecoloring_shareOneForm() {
+        int[] reference = LevelFingerprint.canonicalForm(SIZE, level());
+        int[] permutation = {2, 0, 3, 1};
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            List<FlowPoint> transformed = new ArrayList<>();
+            for (FlowPoint point : level()) {
+                int cell = LevelFingerprint.transform(symmetry, SIZE, point.getX(), point.getY());
+                transformed.add(new FlowPoint(cell % SIZE, cell / SIZE, permutation[point.getColorIndex()]));
+            }
+            // L'ordre des paires dans le fichier ne compte pas non plus
+            Collections.reverse(transformed);
+            int[] form = LevelFingerprint.canonicalForm(SIZE, transformed);
+            assertArrayEquals("symétrie " + symmetry, reference, form);
+            assertEquals(LevelFingerprint.hash(reference), LevelFingerprint.hash(form));
+        }
+    }
+
+    @Test
+    public void differentLayouts_haveDifferentForms() {
+        List<FlowPoint> moved = level();
+        moved.set(1, new FlowPoint(5, 5, 0));
+        assertFalse(Arrays.equals(LevelFingerprint.canonicalForm(SIZE, level()),
+                LevelFingerprint.canonicalForm(SIZE, moved)));
+
+        // Mêmes cases, mais paires différentes
+        List<FlowPoint> rePaired = level();
+        rePaired.set(1, new FlowPoint(6, 5, 1));
+        rePaired.set(2, new FlowPoint(1, 2, 0));
+        assertNotEquals(LevelFingerprint.hash(LevelFingerprint.canonicalForm(SIZE, level())),
+                LevelFingerprint.hash(LevelFingerprint.canonicalForm(SIZE, rePaired)));
+
+        assertNotEquals(LevelFingerprint.hash(LevelFingerprint.canonicalForm(SIZE, level())),
+                LevelFingerprint.hash(LevelFingerprint.canonicalForm(SIZE + 1, level())));
+    }
+
+    @Test
+    public void dedupIndex_matchesHashMap() {
+        Random random = new Random(41);
+        DedupIndex index = new DedupIndex(16);
+        Map<Long, Integer> reference = new HashMap<>();
+        for (int level = 0; level < 300_000; level++) {
+            // Un niveau sur quatre reprend une empreinte déjà vue
+            long hash = random.nextInt(4) == 0 ? 1 + random.nextInt(50_000) : random.nextLong() | 1;
+            Integer first = reference.get(hash);
+            assertEquals(first == null ? -1 : first, index.putIfAbsent(hash, level));
+            if (first == null) reference.put(hash, level);
+        }
+        assertEquals(reference.size(), index.size());
+        for (Map.Entry<Long, Integer> entry : reference.entrySet()) {
+            assertEquals((int) entry.getValue(), index.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Aller-retour entre {@link LevelPackWriter} et {@link LevelPack}.
+ */
+public class LevelPackTest {
+
+    private static LevelPack pack(LevelPackWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return new LevelPack(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int b; (b = in.read()) != -1; ) out.write(b);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void levels_areReadBackByIndexAndKey() throws IOException {
+        LevelPackWriter writer = new LevelPackWriter();
+        for (int i = 0; i < 1000; i++) {
+            writer.add("Niveau" + i, "Niveau n°" + i, ("<puzzle size=\"5\" nom=\"" + i + "\"/>").getBytes(StandardCharsets.UTF_8));
+        }
+        LevelPack pack = pack(writer);
+
+        assertEquals(1000, pack.size());
+        assertEquals("Niveau n°0", pack.getName(0));
+        assertEquals("Niveau999", pack.getKey(999));
+        assertEquals("<puzzle size=\"5\" nom=\"512\"/>", readAll(pack.openLevel(512)));
+        assertEquals(731, pack.indexOfKey("Niveau731"));
+        assertEquals(-1, pack.indexOfKey("Niveau1000"));
+        assertEquals(LevelPackWriter.contentHash("<puzzle size=\"5\" nom=\"512\"/>".getBytes(StandardCharsets.UTF_8)),
+                pack.getContentHash(512));
+        assertNotEquals(pack.getContentHash(511), pack.getContentHash(512));
+    }
+
+    @Test
+    public void levelFolder_isPackedWithNamesFromXml() throws IOException {
+        File output = File.createTempFile("levels", ".pack");
+        output.deleteOnExit();
+        LevelPackWriter.main(new String[]{"src/main/levels", output.getPath()});
+
+        byte[] bytes = new byte[(int) output.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(output))) {
+            in.readFully(bytes);
+        }
+        LevelPack pack = new LevelPack(ByteBuffer.wrap(bytes));
+        int first = pack.indexOfKey("Niveau1");
+        assertNotEquals(-1, first);
+        assertEquals("Niveau 1", pack.getName(first));
+        assertTrue(readAll(pack.openLevel(first)).startsWith("<puzzle size=\"5\""));
+        // Niveau4 n'a pas de balise puzzle : il garde sa clé comme nom et n'a pas d'empreinte canonique
+        assertEquals("Niveau4", pack.getName(pack.indexOfKey("Niveau4")));
+        assertEquals(0, pack.getCanonicalHash(pack.indexOfKey("Niveau4")));
+        assertNotEquals(0, pack.getCanonicalHash(first));
+        assertNotEquals(pack.getCanonicalHash(first), pack.getCanonicalHash(pack.indexOfKey("Niveau2")));
+    }
+
+    @Test
+    public void mirroredLevel_hasSameCanonicalHash() throws IOException {
+        LevelPackWriter writer = new LevelPackWriter();
+        writer.add("a", "a", ("<puzzle size=\"5\" nom=\"a\"><paire><point colonne=\"0\" ligne=\"0\"/>"
+                + "<point colonne=\"4\" ligne=\"1\"/></paire></puzzle>").getBytes(StandardCharsets.UTF_8));
+        writer.add("b", "b", ("<puzzle size=\"5\" nom=\"b\"><paire><point colonne=\"4\" ligne=\"0\"/>"
+                + "<point colonne=\"0\" ligne=\"1\"/></paire></puzzle>").getBytes(StandardCharsets.UTF_8));
+        LevelPack pack = pack(writer);
+        assertNotEquals(pack.getContentHash(0), pack.getContentHash(1));
+        assertEquals(pack.getCanonicalHash(0), pack.getCanonicalHash(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedPack_isRejected() throws IOException {
+        LevelPackWriter writer = new LevelPackWriter();
+        writer.add("a", "a", new byte[64]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        new LevelPack(ByteBuffer.wrap(out.toByteArray(), 0, out.size() - 1).slice());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Règles de {@link LevelValidator}, avec un parseur kXML à la place de celui d'Android.
+ */
+public class LevelValidatorTest {
+
+    private static final LevelValidator.ParserFactory PARSERS = KXmlParser::new;
+
+    private static LevelPack pack(String... xmls) throws IOException {
+        LevelPackWriter writer = new LevelPackWriter();
+        for (int i = 0; i < xmls.length; i++) {
+            writer.add("Niveau" + i, "Niveau " + i, xmls[i].getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return new LevelPack(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static String shipped(String name) throws IOException {
+        return new String(Files.readAllBytes(new File("src/main/levels/" + name).toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shippedLevels_areValid_exceptTheMalformedOne() throws IOException {
+        LevelPack pack = pack(shipped("Niveau1.xml"), shipped("Niveau2.xml"), shipped("Niveau3.xml"),
+                shipped("Niveau4.xml"), shipped("Niveau5.xml"));
+        assertTrue(LevelValidator.isPuzzleValid(pack, 0, PARSERS));
+        // Niveau2 et Niveau3 déclarent solutions="plusieurs"
+        assertTrue(LevelValidator.isPuzzleValid(pack, 1, PARSERS));
+        assertTrue(LevelValidator.isPuzzleValid(pack, 2, PARSERS));
+        assertFalse(LevelValidator.isPuzzleValid(pack, 3, PARSERS));
+        assertTrue(LevelValidator.isPuzzleValid(pack, 4, PARSERS));
+    }
+
+    @Test
+    public void solutionsAttribute_onlyAcceptsSeveral() throws IOException {
+        String body = "<paire><point colonne=\"0\" ligne=\"0\" /><point colonne=\"2\" ligne=\"0\" /></paire></puzzle>";
+        LevelPack pack = pack(
+                "<puzzle size=\"5\" nom=\"a\" solutions=\"plusieurs\">" + body,
+                "<puzzle size=\"5\" nom=\"b\" solutions=\"unique\">" + body,
+                "<puzzle size=\"5\" nom=\"c\" solutions=\"\">" + body,
+                "<puzzle size=\"5\" nom=\"d\" inconnu=\"1\">" + body);
+        assertTrue(LevelValidator.isPuzzleValid(pack, 0, PARSERS));
+        assertFalse(LevelValidator.isPuzzleValid(pack, 1, PARSERS));
+        assertFalse(LevelValidator.isPuzzleValid(pack, 2, PARSERS));
+        assertFalse(LevelValidator.isPuzzleValid(pack, 3, PARSERS));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Avancement des animations de {@link PathAnimator} et coupure quand les images ne suivent plus.
+ */
+public class PathAnimatorTest {
+
+    /**
+     * Animateur piloté à la main : les images demandées sont comptées au lieu d'être postées.
+     */
+    private static class ManualAnimator extends PathAnimator {
+        int requested = 0;
+
+        ManualAnimator() {
+            super(() -> { });
+        }
+
+        @Override
+        void postFrame() {
+            requested++;
+        }
+
+        /**
+         * Joue les images demandées à intervalle fixe, jusqu'à ce qu'il n'y en ait plus.
+         * @return Le nombre d'images jouées
+         */
+        int run(long startNanos, long intervalNanos, int maxFrames) {
+            int frames = 0;
+            while (requested > 0 && frames < maxFrames) {
+                requested--;
+                doFrame(startNanos + frames * intervalNanos);
+                frames++;
+            }
+            return frames;
+        }
+    }
+
+    private static List<int[]> straightPath(int length) {
+        List<int[]> path = new ArrayList<>();
+        for (int x = 0; x < length; x++) path.add(new int[]{x, 0});
+        return path;
+    }
+
+    @Test
+    public void fill_runsToCompletionThenStops() {
+        ManualAnimator animator = new ManualAnimator();
+        BoardRenderer.Frame frame = new BoardRenderer.Frame();
+
+        animator.startFill(3, straightPath(14));
+        animator.doFrame(1_000_000_000L);
+        animator.requested--;
+        animator.applyTo(frame);
+        assertEquals(3, frame.fillColor);
+        assertEquals(14, frame.fillLength);
+        assertTrue(frame.fillProgress > 0f && frame.fillProgress < 1f);
+
+        // 120 Hz : environ 42 images pour 350 ms
+        int frames = animator.run(1_008_333_333L, 8_333_333L, 1000);
+        assertTrue("images : " + frames, frames >= 38 && frames <= 44);
+        animator.applyTo(frame);
+        assertEquals(-1, frame.fillColor);
+        assertEquals(0, frame.fillLength);
+        assertTrue(animator.isEnabled());
+    }
+
+    @Test
+    public void droppedFrames_disableAnimations() {
+        ManualAnimator animator = new ManualAnimator();
+        BoardRenderer.Frame frame = new BoardRenderer.Frame();
+
+        // On calibre la synchronisation sur 60 Hz, puis chaque image en rate deux
+        animator.startSweep();
+        animator.run(0, 16_666_667L, 2);
+        animator.run(33_333_334L, 50_000_000L, 1000);
+
+        assertFalse(animator.isEnabled());
+        animator.applyTo(frame);
+        assertTrue(frame.sweepProgress < 0);
+
+        animator.startFill(1, straightPath(5));
+        animator.pointTo(BoardTopology.square(5), 0, 0, 0.4f, 0f);
+        assertEquals(0, animator.requested);
+        animator.applyTo(frame);
+        assertEquals(-1, frame.fillColor);
+        assertFalse(frame.tipActive);
+    }
+
+    @Test
+    public void tip_followsHexDiagonals() {
+        ManualAnimator animator = new ManualAnimator();
+        BoardRenderer.Frame frame = new BoardRenderer.Frame();
+        BoardTopology hex = BoardTopology.create(BoardTopology.HEX, 5, new int[0]);
+
+        // Doigt en haut à gauche de la case (2, 2) : le bout part vers la voisine (1, 1)
+        float fingerY = 1.5f;
+        float fingerX = 1.75f - hex.getRowShift(fingerY);
+        animator.pointTo(hex, 2, 2, fingerX, fingerY);
+        animator.run(0, 16_666_667L, 100);
+        animator.applyTo(frame);
+        assertTrue(frame.tipActive);
+        assertEquals(1.5f, frame.tipX, 1e-3f);
+        assertEquals(1.5f, frame.tipY, 1e-3f);
+
+        // Sur une grille carrée, le bout reste horizontal ou vertical
+        animator.pointTo(BoardTopology.square(5), 2, 2, 2.3f, 2.1f);
+        animator.run(0, 16_666_667L, 100);
+        animator.applyTo(frame);
+        assertEquals(2.3f, frame.tipX, 1e-3f);
+        assertEquals(2f, frame.tipY, 1e-3f);
+    }
+}
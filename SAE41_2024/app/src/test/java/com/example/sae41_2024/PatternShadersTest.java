@@ -0,0 +1,67 @@
+package com.example.sae41_2024;
+
+import android.graphics.Shader;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Motifs du mode achromate de {@link PatternShaders}.
+ */
+public class PatternShadersTest {
+
+    @Test
+    public void patterns_areDistinctAtEveryTileSize() {
+        for (int size : PatternShaders.TILE_SIZES) {
+            boolean[][] masks = new boolean[PatternShaders.PATTERN_COUNT][];
+            for (int p = 0; p < masks.length; p++) {
+                masks[p] = PatternShaders.mask(p, size);
+                for (int q = 0; q < p; q++) {
+                    assertFalse("motifs " + q + " et " + p + " identiques en " + size + " px",
+                            Arrays.equals(masks[p], masks[q]));
+                }
+            }
+            assertFalse(contains(masks[PatternShaders.PLAIN], true));
+            for (int p = 1; p < masks.length; p++) {
+                // Ni vide ni plein : le motif se voit sur sa nuance de gris
+                assertTrue(contains(masks[p], true) && contains(masks[p], false));
+            }
+        }
+    }
+
+    @Test
+    public void shaders_areCachedPerTileSize() {
+        PatternShaders shaders = new PatternShaders();
+        Shader[] first = shaders.forCellSize(100f);
+        assertEquals(PatternShaders.PATTERN_COUNT, first.length);
+        assertSame(first, shaders.forCellSize(101f));
+        assertNotSame(first, shaders.forCellSize(60f));
+        assertSame(first, shaders.forCellSize(100f));
+    }
+
+    @Test
+    public void zoom_onlyBuildsOneSetPerTileLevel() {
+        PatternShaders shaders = new PatternShaders();
+        Set<Shader[]> built = Collections.newSetFromMap(new IdentityHashMap<>());
+        // Pincement continu de 10 à 400 px par case
+        for (float cellSize = 10f; cellSize <= 400f; cellSize += 0.5f) {
+            built.add(shaders.forCellSize(cellSize));
+        }
+        assertEquals(PatternShaders.TILE_SIZES.length, built.size());
+        assertEquals(0, PatternShaders.tileLevel(1f));
+        assertEquals(PatternShaders.TILE_SIZES.length - 1, PatternShaders.tileLevel(10_000f));
+    }
+
+    private static boolean contains(boolean[] mask, boolean value) {
+        for (boolean pixel : mask) {
+            if (pixel == value) return true;
+        }
+        return false;
+    }
+}
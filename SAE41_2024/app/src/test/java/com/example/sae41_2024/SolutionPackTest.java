@@ -0,0 +1,124 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Aller-retour entre {@link SolutionPackWriter} et {@link SolutionPack}, et contrôle d'unicité
+ * fait à la compilation.
+ */
+public class SolutionPackTest {
+
+    private static SolutionPack pack(SolutionPackWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return new SolutionPack(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * Chemin en serpentin sur les lignes [firstRow, lastRow] : passe par les quatre directions.
+     */
+    private static int[] snake(int size, int firstRow, int lastRow) {
+        int[] path = new int[(lastRow - firstRow + 1) * size];
+        int i = 0;
+        for (int y = firstRow; y <= lastRow; y++) {
+            for (int k = 0; k < size; k++) {
+                int x = (y - firstRow) % 2 == 0 ? k : size - 1 - k;
+                path[i++] = y * size + x;
+            }
+        }
+        return path;
+    }
+
+    @Test
+    public void solutions_areFoundByHashAndDecoded() throws IOException {
+        int size = 100;
+        int[][] solution = {snake(size, 0, 49), snake(size, 50, 99)};
+        // Le second chemin est parcouru à l'envers pour couvrir les pas vers le haut
+        int[] reversed = new int[solution[1].length];
+        for (int i = 0; i < reversed.length; i++) reversed[i] = solution[1][reversed.length - 1 - i];
+        solution[1] = reversed;
+
+        BoardTopology square = BoardTopology.square(size);
+        SolutionPackWriter writer = new SolutionPackWriter();
+        Random random = new Random(7);
+        long[] hashes = new long[200];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+            writer.add(hashes[i], square, solution, i % 2 == 0);
+        }
+        SolutionPack pack = pack(writer);
+
+        assertEquals(hashes.length, pack.size());
+        for (int i = 0; i < hashes.length; i++) {
+            assertArrayEquals(solution, pack.getSolution(hashes[i], square));
+            assertEquals(i % 2 == 0, pack.isUnique(hashes[i]));
+        }
+        assertNull(pack.getSolution(hashes[0] + 1, square));
+        assertFalse(pack.isUnique(hashes[0] + 1));
+        // Une taille différente signale une empreinte qui ne correspond pas au niveau
+        assertNull(pack.getSolution(hashes[0], BoardTopology.square(size - 1)));
+    }
+
+    @Test
+    public void buildCheck_countsSolutionsOfShippedLevels() throws IOException {
+        LevelPackWriter.LevelInfo unique = LevelPackWriter.readLevelInfo(
+                Files.readAllBytes(new File("src/main/levels/Niveau1.xml").toPath()));
+        SolutionPackWriter.Result result = SolutionPackWriter.solve(unique.topology(),
+                BacktrackingSolver.toEnds(unique.size, unique.points));
+        assertEquals(1, result.count);
+        int covered = 0;
+        for (int[] path : result.solution) covered += path.length;
+        assertEquals(unique.size * unique.size, covered);
+
+        LevelPackWriter.LevelInfo several = LevelPackWriter.readLevelInfo(
+                Files.readAllBytes(new File("src/main/levels/Niveau2.xml").toPath()));
+        assertEquals(2, SolutionPackWriter.solve(several.topology(),
+                BacktrackingSolver.toEnds(several.size, several.points)).count);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void buildCheck_rejectsUndeclaredNonUniqueLevel() throws IOException {
+        File levels = Files.createTempDirectory("levels").toFile();
+        File copy = new File(levels, "Niveau2.xml");
+        // Niveau2 sans sa déclaration solutions="plusieurs"
+        String xml = new String(Files.readAllBytes(new File("src/main/levels/Niveau2.xml").toPath()), StandardCharsets.UTF_8);
+        assertTrue(xml.contains(" solutions=\"plusieurs\""));
+        Files.write(copy.toPath(), xml.replace(" solutions=\"plusieurs\"", "").getBytes(StandardCharsets.UTF_8));
+        File output = new File(levels, "solutions.pack");
+        try {
+            SolutionPackWriter.main(new String[]{levels.getPath(), output.getPath()});
+        } finally {
+            assertFalse(output.exists());
+            assertTrue(copy.delete() && levels.delete());
+        }
+    }
+
+    @Test
+    public void buildCheck_acceptsDeclaredNonUniqueLevel_asNotUnique() throws IOException {
+        File levels = Files.createTempDirectory("levels").toFile();
+        File copy = new File(levels, "Niveau2.xml");
+        Files.copy(new File("src/main/levels/Niveau2.xml").toPath(), copy.toPath());
+        File output = new File(levels, "solutions.pack");
+        try {
+            SolutionPackWriter.main(new String[]{levels.getPath(), output.getPath()});
+            LevelPackWriter.LevelInfo info = LevelPackWriter.readLevelInfo(Files.readAllBytes(copy.toPath()));
+            assertTrue(info.allowsSeveralSolutions);
+            SolutionPack pack = new SolutionPack(ByteBuffer.wrap(Files.readAllBytes(output.toPath())));
+            long levelHash = LevelHash.of(info.topology(), info.points);
+            assertNotNull(pack.getSolution(levelHash, info.topology()));
+            assertFalse(pack.isUnique(levelHash));
+        } finally {
+            assertTrue(output.delete() && copy.delete() && levels.delete());
+        }
+    }
+}
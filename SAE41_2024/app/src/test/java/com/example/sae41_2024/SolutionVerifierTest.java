@@ -0,0 +1,76 @@
+package com.example.sae41_2024;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Vérifie que {@link SolutionVerifier} refuse les sauvegardes trafiquées
+ * que l'ancien checkWin acceptait.
+ */
+public class SolutionVerifierTest {
+
+    private SolutionVerifier verifier;
+    private Map<Integer, List<int[]>> paths;
+
+    /**
+     * Grille 3x3 : rouge (0) relie (0,0) à (2,0), bleu (1) relie (0,1) à (0,2).
+     */
+    @Before
+    public void setUp() {
+        verifier = new SolutionVerifier();
+        verifier.setLevel(3, Arrays.asList(
+                new FlowPoint(0, 0, 0), new FlowPoint(2, 0, 0),
+                new FlowPoint(0, 1, 1), new FlowPoint(0, 2, 1)));
+        paths = new HashMap<>();
+    }
+
+    private static List<int[]> path(int... coords) {
+        List<int[]> path = new ArrayList<>();
+        for (int i = 0; i < coords.length; i += 2) path.add(new int[]{coords[i], coords[i + 1]});
+        return path;
+    }
+
+    @Test
+    public void completeSolution_isValid() {
+        paths.put(0, path(0, 0, 1, 0, 2, 0));
+        paths.put(1, path(0, 1, 1, 1, 2, 1, 2, 2, 1, 2, 0, 2));
+        assertEquals(SolutionVerifier.VALID, verifier.verifySolution(paths));
+    }
+
+    @Test
+    public void jumpingPath_isRejected() {
+        paths.put(0, path(0, 0, 2, 0));
+        assertEquals(SolutionVerifier.ERROR_NOT_ADJACENT, verifier.verifyPartial(paths));
+    }
+
+    @Test
+    public void overlappingPaths_areRejected() {
+        paths.put(0, path(0, 0, 1, 0, 2, 0));
+        paths.put(1, path(0, 1, 1, 1, 1, 0, 1, 1, 1, 2, 0, 2));
+        assertEquals(SolutionVerifier.ERROR_OVERLAP, verifier.verifyPartial(paths));
+    }
+
+    @Test
+    public void missingPairOrUnknownColor_isRejected() {
+        paths.put(0, path(0, 0, 1, 0, 2, 0));
+        assertEquals(SolutionVerifier.VALID, verifier.verifyPartial(paths));
+        assertEquals(SolutionVerifier.ERROR_MISSING_PAIR, verifier.verifySolution(paths));
+
+        paths.put(7, path(1, 1, 2, 1));
+        assertEquals(SolutionVerifier.ERROR_UNKNOWN_COLOR, verifier.verifyPartial(paths));
+    }
+
+    @Test
+    public void pathThroughAnotherPoint_isRejected() {
+        paths.put(1, path(0, 1, 0, 0, 1, 0, 1, 1, 1, 2, 0, 2));
+        assertEquals(SolutionVerifier.ERROR_CROSSES_POINT, verifier.verifyPartial(paths));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Passe chaque niveau d'un dossier dans chaque moteur de {@link PuzzleSolver}, avec les budgets
+ * du {@link SolutionCache}. Lent (plusieurs secondes) : lancé seulement avec la propriété
+ * système {@code benchmark.levels} (ex : {@code ./gradlew test -Pbenchmark.levels=src/main/levels}).
+ *
+ * Toute solution trouvée doit être valide, deux moteurs qui concluent doivent être d'accord et
+ * au moins un moteur doit conclure. Pour les niveaux livrés, le résultat de chaque moteur est
+ * attendu : un changement de budget ou de solveur qui fait abandonner un moteur se voit ici.
+ */
+public class SolverBenchmarkTest {
+
+    private static final int SOLVED = 0;
+    private static final int ABANDONED = 1;
+    private static final int UNSOLVABLE = 2;
+
+    // Résultat attendu de chaque moteur, dans l'ordre de solvers(), pour les niveaux livrés
+    private static final Map<String, int[]> EXPECTED = new HashMap<>();
+
+    static {
+        EXPECTED.put("Niveau1.xml", new int[]{SOLVED, SOLVED});
+        EXPECTED.put("Niveau2.xml", new int[]{SOLVED, SOLVED});
+        // Trop ouvert pour le retour arrière : c'est le cas que le solveur SAT doit rattraper
+        EXPECTED.put("Niveau3.xml", new int[]{ABANDONED, SOLVED});
+        EXPECTED.put("Niveau5.xml", new int[]{SOLVED, SOLVED});
+    }
+
+    private static PuzzleSolver[] solvers() {
+        return new PuzzleSolver[]{
+                new BacktrackingPuzzleSolver(SolutionCache.NODE_LIMIT),
+                new SatPuzzleSolver(SolutionCache.CONFLICT_LIMIT)};
+    }
+
+    private static LevelPackWriter.LevelInfo read(File file) throws IOException {
+        byte[] xml = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(xml);
+        }
+        return LevelPackWriter.readLevelInfo(xml);
+    }
+
+    private static boolean isValid(BoardTopology topology, List<FlowPoint> points, int[][] solution) {
+        int gridSize = topology.getGridSize();
+        SolutionVerifier verifier = new SolutionVerifier();
+        verifier.setLevel(topology, points);
+        Map<Integer, List<int[]>> paths = new HashMap<>();
+        for (int c = 0; c < solution.length; c++) {
+            List<int[]> path = new ArrayList<>();
+            for (int cell : solution[c]) path.add(new int[]{cell % gridSize, cell / gridSize});
+            paths.put(c, path);
+        }
+        return verifier.verifySolution(paths) == SolutionVerifier.VALID;
+    }
+
+    @Test
+    public void everyLevel_throughEverySolver() throws IOException {
+        String levels = System.getProperty("benchmark.levels");
+        assumeTrue("Banc d'essai désactivé (-Pbenchmark.levels=...)", levels != null && !levels.isEmpty());
+        File directory = new File(levels);
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".xml"));
+        assertNotNull("Dossier de niveaux introuvable : " + directory, files);
+        Arrays.sort(files);
+
+        for (File file : files) {
+            LevelPackWriter.LevelInfo level = read(file);
+            if (level.size <= 0) continue;
+            int[] ends = BacktrackingSolver.toEnds(level.size, level.points);
+            int[] expected = EXPECTED.get(file.getName());
+
+            PuzzleSolver[] solvers = solvers();
+            Boolean solvable = null;
+            for (int i = 0; i < solvers.length; i++) {
+                PuzzleSolver solver = solvers[i];
+                int[][] solution = solver.solve(level.topology(), ends);
+                int outcome = solution != null ? SOLVED : solver.isAborted() ? ABANDONED : UNSOLVABLE;
+
+                if (expected != null) {
+                    assertEquals(solver.getName() + " sur " + file.getName(), expected[i], outcome);
+                }
+                if (solution != null) {
+                    assertTrue(solver.getName() + " : solution invalide pour " + file.getName(),
+                            isValid(level.topology(), level.points, solution));
+                }
+                if (outcome != ABANDONED) {
+                    boolean solved = outcome == SOLVED;
+                    assertTrue("Moteurs en désaccord sur " + file.getName(), solvable == null || solvable == solved);
+                    solvable = solved;
+                }
+            }
+            assertNotNull("Tous les moteurs abandonnent " + file.getName(), solvable);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tampon circulaire de {@link StartupTrace}.
+ */
+public class StartupTraceTest {
+
+    private static List<String> dumpLines() throws IOException {
+        File file = File.createTempFile("trace", ".txt");
+        file.deleteOnExit();
+        StartupTrace.dump(file);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            for (String line; (line = in.readLine()) != null; ) lines.add(line);
+        }
+        return lines;
+    }
+
+    @Test
+    public void ringBuffer_keepsMostRecentSectionsInOrder() throws IOException {
+        StartupTrace.setEnabled(false);
+        StartupTrace.begin("ignorée");
+        StartupTrace.end();
+
+        StartupTrace.setEnabled(true);
+        try {
+            for (int i = 0; i < 600; i++) {
+                StartupTrace.begin("section", i);
+                StartupTrace.end();
+            }
+        } finally {
+            StartupTrace.setEnabled(false);
+        }
+
+        List<String> lines = dumpLines();
+        assertEquals(512, lines.size());
+        assertTrue(lines.get(0).endsWith("section 88"));
+        assertTrue(lines.get(511).endsWith("section 599"));
+        for (String line : lines) assertFalse(line.contains("ignorée"));
+    }
+}
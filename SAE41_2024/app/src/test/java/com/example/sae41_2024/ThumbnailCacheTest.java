@@ -0,0 +1,96 @@
+package com.example.sae41_2024;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Identifiants, taille et fichiers des vignettes de {@link ThumbnailCache}.
+ */
+public class ThumbnailCacheTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("thumbnails").toFile();
+        directory.deleteOnExit();
+    }
+
+    private File file(String name, int length, long modified) throws IOException {
+        File file = new File(directory, name);
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[length]);
+        }
+        assertTrue(file.setLastModified(modified));
+        return file;
+    }
+
+    @Test
+    public void key_changesOnlyWithLevelSizeOrProgress() {
+        String empty = ThumbnailCache.keyOf(0xabcL, 12, null, false);
+        assertEquals(empty, ThumbnailCache.keyOf(0xabcL, 12, "", false));
+        assertEquals(ThumbnailCache.keyOf(0xabcL, 12, "0:0,0;1,0;|", false),
+                ThumbnailCache.keyOf(0xabcL, 12, new String("0:0,0;1,0;|"), false));
+        assertNotEquals(empty, ThumbnailCache.keyOf(0xabcL, 12, "0:0,0;1,0;|", false));
+        assertNotEquals(empty, ThumbnailCache.keyOf(0xabdL, 12, null, false));
+        assertNotEquals(empty, ThumbnailCache.keyOf(0xabcL, 16, null, false));
+        assertNotEquals(empty, ThumbnailCache.keyOf(0xabcL, 12, null, true));
+    }
+
+    @Test
+    public void largeGrids_getSmallerCells() {
+        assertEquals(12, ThumbnailCache.cellSizeFor(5, 12));
+        assertTrue(ThumbnailCache.cellSizeFor(30, 12) * 30.5f <= ThumbnailCache.MAX_SIDE);
+        assertEquals(1, ThumbnailCache.cellSizeFor(GameLogic.MAX_GRID_SIZE * 2, 12));
+    }
+
+    @Test
+    public void coverage_countsPathCells() {
+        GameLogic logic = new GameLogic(5);
+        logic.loadLevel(5, "progression", Arrays.asList(
+                new FlowPoint(0, 0, 0), new FlowPoint(4, 0, 0),
+                new FlowPoint(0, 1, 1), new FlowPoint(4, 1, 1)));
+        assertEquals(0f, ThumbnailCache.coverage(logic.getSnapshot()), 0f);
+        List<int[]> path = new ArrayList<>();
+        for (int x = 0; x < 5; x++) path.add(new int[]{x, 0});
+        logic.savePath(0, path);
+        assertEquals(0.2f, ThumbnailCache.coverage(logic.getSnapshot()), 1e-6f);
+    }
+
+    @Test
+    public void staleProgress_isRemoved() throws IOException {
+        String prefix = ThumbnailCache.keyOf(0xabcL, 12, null, false);
+        prefix = prefix.substring(0, prefix.lastIndexOf('_') + 1);
+        File old = file(ThumbnailCache.keyOf(0xabcL, 12, "0:0,0;|", false) + ".png", 10, 1000L);
+        File current = file(ThumbnailCache.keyOf(0xabcL, 12, null, false) + ".png", 10, 1000L);
+        File otherSize = file(ThumbnailCache.keyOf(0xabcL, 16, null, false) + ".png", 10, 1000L);
+        ThumbnailCache.removeOthers(directory, prefix, current.getName());
+        assertFalse(old.exists());
+        assertTrue(current.exists());
+        assertTrue(otherSize.exists());
+    }
+
+    @Test
+    public void trim_dropsOtherVersionsThenOldest() throws IOException {
+        File otherVersion = file("v0_abc_12_0.png", 10, 5000L);
+        File oldest = file(ThumbnailCache.keyOf(1L, 12, null, false) + ".png", 100, 1000L);
+        File middle = file(ThumbnailCache.keyOf(2L, 12, null, false) + ".png", 100, 2000L);
+        File newest = file(ThumbnailCache.keyOf(3L, 12, null, false) + ".png", 100, 3000L);
+        ThumbnailCache.trim(directory, 250);
+        assertFalse(otherVersion.exists());
+        assertFalse(oldest.exists());
+        assertTrue(middle.exists());
+        assertTrue(newest.exists());
+    }
+}
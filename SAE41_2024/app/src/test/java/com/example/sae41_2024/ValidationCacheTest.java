@@ -0,0 +1,54 @@
+package com.example.sae41_2024;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Persistance des résultats de validation entre deux lancements.
+ */
+public class ValidationCacheTest {
+
+    @Test
+    public void results_surviveReload() throws IOException {
+        File file = File.createTempFile("validation", ".cache");
+        file.deleteOnExit();
+        file.delete();
+
+        ValidationCache first = new ValidationCache(file);
+        first.load();
+        assertNull(first.get(42L));
+        first.put(42L, true);
+        first.put(-7L, false);
+        first.save();
+
+        ValidationCache second = new ValidationCache(file);
+        assertNull("Rien n'est lu avant load()", second.get(42L));
+        second.load();
+        assertEquals(Boolean.TRUE, second.get(42L));
+        assertEquals(Boolean.FALSE, second.get(-7L));
+        assertNull(second.get(43L));
+    }
+
+    @Test
+    public void otherValidatorVersion_isIgnored() throws IOException {
+        File file = File.createTempFile("validation", ".cache");
+        file.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(1);
+            out.writeInt(LevelValidator.VERSION + 1);
+            out.writeInt(1);
+            out.writeLong(42L);
+            out.writeBoolean(true);
+        }
+
+        ValidationCache cache = new ValidationCache(file);
+        cache.load();
+        assertNull(cache.get(42L));
+    }
+}